@@ -0,0 +1,450 @@
+package com.example.milistadetareas;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificación binaria compacta de la lista de tareas, escrita a mano y sin reflexión.
+ * <p>
+ * Las rutas de imagen se guardan como un índice a un diccionario de directorios, que se escribe
+ * una sola vez al principio, más el nombre del archivo; casi todas comparten el directorio de
+ * getExternalFilesDir(). Los identificadores se guardan como diferencia con el anterior y todas
+ * las longitudes como enteros de longitud variable, seguidas de los bytes UTF-8.
+ * <p>
+ * Cuerpo: número de directorios, directorios, número de tareas y, por tarea, identificador,
+ * descripción, ruta y metadatos. La creación se guarda como diferencia con la de la tarea anterior,
+ * la modificación como diferencia con la creación, y el estado y la prioridad en un byte.
+ * {@link #encode} antepone una cabecera con versión; {@link #decode} acepta también la versión 1,
+ * sin metadatos, y la lista JSON heredada.
+ */
+public final class BinaryTaskCodec {
+    public static final int FORMAT_VERSION = 2;
+    static final int FORMAT_VERSION_WITHOUT_METADATA = 1;
+    private static final byte MAGIC_0 = 'T';
+    private static final byte MAGIC_1 = 'L';
+    private static final int MAX_STRING_SIZE = 16 * 1024 * 1024;
+
+    // Referencias de ruta: 0 = null, 1 = sin imagen (""), n >= 2 = directorio n - 2 más un nombre
+    private static final int PATH_NULL = 0;
+    private static final int PATH_EMPTY = 1;
+    private static final int PATH_FIRST_DIRECTORY = 2;
+
+    // Byte de estado: bit 0 = hecha, bits 1 y 2 = prioridad
+    private static final int FLAG_DONE = 1;
+    private static final int PRIORITY_SHIFT = 1;
+    private static final int PRIORITY_MASK = 3;
+
+    private BinaryTaskCodec() {
+    }
+
+    /**
+     * Método para codificar la lista completa con cabecera de versión.
+     *
+     * @param items Lista de tareas
+     * @return Bytes codificados
+     */
+    public static byte[] encode(List<Item> items) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + items.size() * 24);
+            bytes.write(MAGIC_0);
+            bytes.write(MAGIC_1);
+            bytes.write(FORMAT_VERSION);
+            new Writer(bytes).writeList(items);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // No ocurre al escribir en memoria
+        }
+    }
+
+    /**
+     * Método para decodificar una lista escrita con {@link #encode} o, si no lleva la cabecera,
+     * como la lista JSON heredada.
+     *
+     * @param data Bytes codificados
+     * @return Lista de tareas
+     * @throws IOException Si los datos no son válidos
+     */
+    public static List<Item> decode(byte[] data) throws IOException {
+        if (data.length >= 3 && data[0] == MAGIC_0 && data[1] == MAGIC_1) {
+            if (data[2] != FORMAT_VERSION && data[2] != FORMAT_VERSION_WITHOUT_METADATA) {
+                throw new IOException("Versión de lista desconocida: " + data[2]);
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 3, data.length - 3));
+            ListReader listReader = new ListReader(in, data[2] == FORMAT_VERSION);
+            int count = listReader.readHeader();
+            List<Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(listReader.readItem());
+            }
+            return items;
+        }
+        return decodeJson(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Método para leer la lista JSON heredada token a token, sin reflexión.
+     *
+     * @param json Lector del JSON
+     * @return Lista de tareas
+     * @throws IOException Si el JSON no es válido
+     */
+    public static List<Item> decodeJson(Reader json) throws IOException {
+        List<Item> items = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(json)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                items.add(readJsonItem(reader));
+            }
+            reader.endArray();
+        } catch (IllegalStateException e) {
+            throw new IOException("JSON de tareas inválido", e);
+        }
+        return items;
+    }
+
+    /**
+     * Método para leer una tarea del JSON heredado, con los campos de Item como nombres. Los
+     * metadatos son opcionales: sin ellos la tarea se considera creada ahora.
+     *
+     * @param reader Lector situado al comienzo del objeto
+     * @return Tarea leída, con un identificador nuevo
+     * @throws IOException Si el JSON no es válido
+     */
+    static Item readJsonItem(JsonReader reader) throws IOException {
+        String task = "";
+        String imagePath = "";
+        long created = -1;
+        long updated = -1;
+        boolean done = false;
+        int priority = Item.PRIORITY_NORMAL;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if ("task".equals(name)) {
+                task = reader.nextString();
+            } else if ("imagePath".equals(name)) {
+                imagePath = reader.nextString();
+            } else if ("created".equals(name)) {
+                created = reader.nextLong();
+            } else if ("updated".equals(name)) {
+                updated = reader.nextLong();
+            } else if ("done".equals(name)) {
+                done = reader.nextBoolean();
+            } else if ("priority".equals(name)) {
+                priority = Math.max(Item.PRIORITY_LOW, Math.min(Item.PRIORITY_HIGH, reader.nextInt()));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        Item item = new Item(task, imagePath);
+        if (created < 0 && updated < 0 && !done && priority == Item.PRIORITY_NORMAL) {
+            return item;
+        }
+        created = created >= 0 ? created : item.getCreated();
+        return new Item(item.getId(), task, imagePath, created, updated >= 0 ? updated : created, done, priority);
+    }
+
+    /**
+     * Escritor del cuerpo de la lista sobre un flujo de salida, con búfer propio.
+     */
+    static final class Writer {
+        private final OutputStream out;
+        private byte[] buffer = new byte[16 * 1024];
+        private int position;
+
+        Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Método para escribir el diccionario de directorios y todas las tareas.
+         * Al terminar, los bytes ya se han entregado al flujo de salida.
+         *
+         * @param items Lista de tareas
+         * @throws IOException Si ocurre un error de escritura
+         */
+        void writeList(List<Item> items) throws IOException {
+            Map<String, Integer> directories = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            for (Item item : items) {
+                String path = item.getImagePath();
+                if (path != null && !path.isEmpty()) {
+                    String directory = path.substring(0, directoryLength(path));
+                    if (!directories.containsKey(directory)) {
+                        directories.put(directory, dictionary.size());
+                        dictionary.add(directory);
+                    }
+                }
+            }
+
+            writeVarInt(dictionary.size());
+            for (String directory : dictionary) {
+                writeString(directory, 0, directory.length());
+            }
+            writeVarInt(items.size());
+            long previousId = 0;
+            long previousCreated = 0;
+            for (Item item : items) {
+                writeVarLong(zigZag(item.getId() - previousId));
+                previousId = item.getId();
+                String task = item.getTask();
+                if (task == null) {
+                    writeVarInt(0);
+                } else {
+                    writeString(task, 0, task.length());
+                }
+                String path = item.getImagePath();
+                if (path == null) {
+                    writeVarInt(PATH_NULL);
+                } else if (path.isEmpty()) {
+                    writeVarInt(PATH_EMPTY);
+                } else {
+                    int split = directoryLength(path);
+                    writeVarInt(PATH_FIRST_DIRECTORY + directories.get(path.substring(0, split)));
+                    writeString(path, split, path.length());
+                }
+                writeVarLong(zigZag(item.getCreated() - previousCreated));
+                previousCreated = item.getCreated();
+                writeVarLong(zigZag(item.getUpdated() - item.getCreated()));
+                writeVarInt((item.isDone() ? FLAG_DONE : 0) | item.getPriority() << PRIORITY_SHIFT);
+            }
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        /**
+         * Método para escribir una subcadena como longitud + 1 seguida de sus bytes UTF-8.
+         * La longitud se reserva con su tamaño máximo y se escribe tras codificar.
+         */
+        private void writeString(String value, int start, int end) throws IOException {
+            int maxLength = (end - start) * 3;
+            int lengthSize = varIntSize(maxLength + 1);
+            ensure(lengthSize + maxLength);
+            int length = 0;
+            int offset = position + lengthSize;
+            byte[] bytes = buffer;
+            for (int i = start; i < end; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[offset + length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[offset + length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[offset + length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < end
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[offset + length++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[offset + length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[offset + length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[offset + length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[offset + length++] = '?'; // Sustituto suelto, igual que String.getBytes()
+                } else {
+                    bytes[offset + length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[offset + length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[offset + length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            int actualSize = varIntSize(length + 1);
+            if (actualSize != lengthSize) {
+                System.arraycopy(bytes, offset, bytes, position + actualSize, length);
+            }
+            putVarInt(length + 1);
+            position += length;
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            ensure(5);
+            putVarInt(value);
+        }
+
+        private void putVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * Método para garantizar espacio libre en el búfer, vaciándolo o ampliándolo.
+         */
+        private void ensure(int size) throws IOException {
+            if (buffer.length - position >= size) {
+                return;
+            }
+            out.write(buffer, 0, position);
+            position = 0;
+            if (buffer.length < size) {
+                buffer = new byte[size];
+            }
+        }
+
+        private static int varIntSize(int value) {
+            int size = 1;
+            while ((value & ~0x7F) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Lector incremental del cuerpo de la lista: primero {@link #readHeader}, después cada tarea.
+     */
+    static final class ListReader {
+        private final DataInputStream in;
+        private final boolean metadata;             // false en los cuerpos de la versión 1
+        private byte[] scratch = new byte[256];     // Búfer reutilizado para leer las cadenas
+        private String[] directories;
+        private long previousId;
+        private long previousCreated;
+
+        /**
+         * Constructor del lector.
+         *
+         * @param in       Flujo situado al comienzo del cuerpo
+         * @param metadata true si el cuerpo se escribió con {@link #FORMAT_VERSION}
+         */
+        ListReader(DataInputStream in, boolean metadata) {
+            this.in = in;
+            this.metadata = metadata;
+        }
+
+        /**
+         * Método para leer el diccionario de directorios.
+         *
+         * @return Número de tareas que siguen
+         * @throws IOException Si los datos no son válidos
+         */
+        int readHeader() throws IOException {
+            int directoryCount = readVarInt();
+            if (directoryCount < 0 || directoryCount > MAX_STRING_SIZE) {
+                throw new IOException("Diccionario de directorios inválido: " + directoryCount);
+            }
+            directories = new String[directoryCount];
+            for (int i = 0; i < directoryCount; i++) {
+                directories[i] = readString();
+            }
+            int count = readVarInt();
+            if (count < 0) {
+                throw new IOException("Número de tareas inválido: " + count);
+            }
+            return count;
+        }
+
+        /**
+         * Método para leer la siguiente tarea.
+         *
+         * @return Tarea leída
+         * @throws IOException Si los datos no son válidos
+         */
+        Item readItem() throws IOException {
+            long id = previousId + unZigZag(readVarLong());
+            previousId = id;
+            String task = readString();
+            int pathRef = readVarInt();
+            String path;
+            if (pathRef == PATH_NULL) {
+                path = null;
+            } else if (pathRef == PATH_EMPTY) {
+                path = "";
+            } else {
+                int directory = pathRef - PATH_FIRST_DIRECTORY;
+                if (directory < 0 || directory >= directories.length) {
+                    throw new IOException("Directorio inexistente: " + directory);
+                }
+                path = directories[directory].concat(readString());
+            }
+            if (!metadata) {
+                return new Item(id, task, path);
+            }
+            long created = previousCreated + unZigZag(readVarLong());
+            previousCreated = created;
+            long updated = created + unZigZag(readVarLong());
+            int flags = readVarInt();
+            int priority = flags >>> PRIORITY_SHIFT & PRIORITY_MASK;
+            if (priority > Item.PRIORITY_HIGH) {
+                throw new IOException("Prioridad desconocida: " + priority);
+            }
+            return new Item(id, task, path, created, updated, (flags & FLAG_DONE) != 0, priority);
+        }
+
+        private String readString() throws IOException {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > MAX_STRING_SIZE) {
+                throw new IOException("Cadena demasiado larga: " + length);
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.readFully(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Entero variable demasiado largo");
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Entero variable demasiado largo");
+        }
+    }
+
+    private static int directoryLength(String path) {
+        return path.lastIndexOf('/') + 1;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.milistadetareas;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Lista inmutable de tareas guardada por columnas, sin un objeto por tarea.
+ * <p>
+ * Los identificadores van en un array de long y las descripciones, en UTF-8, una tras otra en un
+ * único array de bytes con el final de cada una. Un mapa de bits indica qué tareas tienen foto;
+ * solo esas ocupan sitio en las columnas de rutas, que guardan el índice del directorio, compartido
+ * en una tabla de directorios distintos, y el nombre del archivo. Las tareas con descripción o ruta
+ * null, propias de listas heredadas, se marcan en mapas de bits que solo existen si hacen falta.
+ * <p>
+ * Los metadatos siguen la misma idea: la columna de creación solo existe si alguna tarea la
+ * conoce, la de modificación solo si alguna tarea se modificó después de crearse, y la de estado
+ * y prioridad solo si alguna tarea está hecha o no tiene prioridad normal.
+ * <p>
+ * {@link #get} crea en cada llamada una vista {@link Item} con las cadenas decodificadas; quien
+ * solo necesite el identificador usa {@link #getId}, que no crea objetos.
+ */
+public final class CompactTaskList extends AbstractList<Item> implements RandomAccess {
+    private static final int MAX_PREFIXES = Character.MAX_VALUE;   // Índices de directorio en un char
+    // Byte de estado: bit 0 = hecha, resto = prioridad
+    private static final int FLAG_DONE = 1;
+    private static final int PRIORITY_SHIFT = 1;
+    private static final byte DEFAULT_FLAGS = (byte) (Item.PRIORITY_NORMAL << PRIORITY_SHIFT);
+
+    private final int size;
+    private final long[] ids;               // Identificador de cada tarea
+    private final byte[] text;              // Descripciones en UTF-8, una tras otra
+    private final int[] textEnds;           // Fin de la descripción de cada tarea en text
+    private final long[] images;            // Bit por tarea: tiene foto
+    private final int[] imageRanks;         // Fotos anteriores a cada palabra de images
+    private final String[] prefixes;        // Directorios distintos; el 0 es el vacío
+    private final char[] imagePrefixes;     // Directorio de cada foto, por orden de foto
+    private final byte[] names;             // Nombres de archivo de las fotos en UTF-8
+    private final int[] nameEnds;           // Fin del nombre de cada foto en names
+    private final long[] nullTasks;         // Bit por tarea con descripción null, o null si no hay
+    private final long[] nullPaths;         // Bit por tarea con ruta null, o null si no hay
+    private final long[] created;           // Creación de cada tarea, o null si todas son 0
+    private final long[] updated;           // Modificación de cada tarea, o null si es la creación
+    private final byte[] flags;             // Estado y prioridad, o null si todas son por defecto
+
+    private CompactTaskList(Builder builder) {
+        size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        text = Arrays.copyOf(builder.text, builder.textLength);
+        textEnds = Arrays.copyOf(builder.textEnds, size);
+        images = Arrays.copyOf(builder.images, words(size));
+        imageRanks = new int[images.length];
+        for (int word = 1; word < images.length; word++) {
+            imageRanks[word] = imageRanks[word - 1] + Long.bitCount(images[word - 1]);
+        }
+        prefixes = builder.prefixList.toArray(new String[0]);
+        imagePrefixes = Arrays.copyOf(builder.imagePrefixes, builder.imageCount);
+        names = Arrays.copyOf(builder.names, builder.namesLength);
+        nameEnds = Arrays.copyOf(builder.nameEnds, builder.imageCount);
+        nullTasks = builder.nullTasks != null ? Arrays.copyOf(builder.nullTasks, words(size)) : null;
+        nullPaths = builder.nullPaths != null ? Arrays.copyOf(builder.nullPaths, words(size)) : null;
+        created = builder.created != null ? Arrays.copyOf(builder.created, size) : null;
+        updated = builder.updated != null ? Arrays.copyOf(builder.updated, size) : null;
+        flags = builder.flags != null ? Arrays.copyOf(builder.flags, size) : null;
+    }
+
+    /**
+     * Método para guardar una lista por columnas.
+     *
+     * @param items Tareas en orden
+     * @return La misma lista si ya es compacta, o una lista compacta nueva
+     */
+    public static CompactTaskList of(List<Item> items) {
+        if (items instanceof CompactTaskList) {
+            return (CompactTaskList) items;
+        }
+        Builder builder = new Builder(items.size());
+        for (Item item : items) {
+            builder.add(item);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Método para obtener una vista de la tarea de una posición.
+     *
+     * @param index Posición de la tarea
+     * @return Nueva vista con el contenido de la tarea
+     */
+    @Override
+    public Item get(int index) {
+        checkIndex(index);
+        String task = isSet(nullTasks, index) ? null
+                : decode(text, index == 0 ? 0 : textEnds[index - 1], textEnds[index]);
+        String imagePath;
+        if (hasImage(index)) {
+            int image = imageRanks[index >>> 6] + Long.bitCount(images[index >>> 6] & ((1L << index) - 1));
+            String name = decode(names, image == 0 ? 0 : nameEnds[image - 1], nameEnds[image]);
+            String prefix = prefixes[imagePrefixes[image]];
+            imagePath = prefix.isEmpty() ? name : prefix.concat(name);
+        } else {
+            imagePath = isSet(nullPaths, index) ? null : "";
+        }
+        long createdAt = created != null ? created[index] : 0;
+        long updatedAt = updated != null ? updated[index] : createdAt;
+        int flag = flags != null ? flags[index] : DEFAULT_FLAGS;
+        return Item.view(ids[index], task, imagePath, createdAt, updatedAt, (flag & FLAG_DONE) != 0,
+                flag >>> PRIORITY_SHIFT);
+    }
+
+    /**
+     * Método para obtener el identificador de una tarea sin crear su vista.
+     *
+     * @param index Posición de la tarea
+     * @return Identificador de la tarea
+     */
+    public long getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    /**
+     * Método para saber si una tarea tiene foto sin crear su vista.
+     *
+     * @param index Posición de la tarea
+     * @return true si su ruta de imagen no está vacía
+     */
+    public boolean hasImage(int index) {
+        return (images[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Método para estimar la memoria que ocupan las columnas, incluidas las cabeceras de los arrays.
+     *
+     * @return Bytes aproximados
+     */
+    public long getFootprintBytes() {
+        long bytes = 16 + 15 * 4;   // Objeto y referencias a las columnas
+        bytes += array(ids.length, 8) + array(text.length, 1) + array(textEnds.length, 4);
+        bytes += array(images.length, 8) + array(imageRanks.length, 4);
+        bytes += array(imagePrefixes.length, 2) + array(names.length, 1) + array(nameEnds.length, 4);
+        bytes += array(prefixes.length, 4);
+        for (String prefix : prefixes) {
+            bytes += 24 + array(prefix.length(), 2);
+        }
+        bytes += nullTasks != null ? array(nullTasks.length, 8) : 0;
+        bytes += nullPaths != null ? array(nullPaths.length, 8) : 0;
+        bytes += created != null ? array(created.length, 8) : 0;
+        bytes += updated != null ? array(updated.length, 8) : 0;
+        bytes += flags != null ? array(flags.length, 1) : 0;
+        return bytes;
+    }
+
+    /**
+     * Método para obtener un resumen de las columnas.
+     *
+     * @return Texto con las tareas, las fotos, los directorios y los bytes ocupados
+     */
+    public String getStats() {
+        return "tareas=" + size
+                + " fotos=" + nameEnds.length
+                + " directorios=" + (prefixes.length - 1)
+                + " bytes=" + getFootprintBytes();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Posición " + index + ", tamaño " + size);
+        }
+    }
+
+    private static long array(int length, int width) {
+        return (16 + (long) length * width + 7) & ~7L; // Cabecera y alineación a 8 bytes
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return bits != null && (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static String decode(byte[] bytes, int from, int to) {
+        return from == to ? "" : new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Constructor secuencial de una lista compacta.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> prefixIndex = new HashMap<>();
+        private final List<String> prefixList = new ArrayList<>();
+        private int size;
+        private long[] ids;
+        private byte[] text;
+        private int textLength;
+        private int[] textEnds;
+        private long[] images;
+        private char[] imagePrefixes = new char[16];
+        private byte[] names = new byte[256];
+        private int namesLength;
+        private int[] nameEnds = new int[16];
+        private int imageCount;
+        private long[] nullTasks;
+        private long[] nullPaths;
+        private long[] created;
+        private long[] updated;
+        private byte[] flags;
+
+        /**
+         * Constructor del acumulador.
+         *
+         * @param expectedSize Número de tareas previsto
+         */
+        public Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            ids = new long[capacity];
+            textEnds = new int[capacity];
+            text = new byte[capacity * 16];
+            images = new long[words(capacity)];
+            prefixList.add("");
+            prefixIndex.put("", 0);
+        }
+
+        /**
+         * Método para agregar una tarea al final.
+         *
+         * @param item Tarea a agregar
+         * @return Este constructor
+         */
+        public Builder add(Item item) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                textEnds = Arrays.copyOf(textEnds, capacity);
+                images = Arrays.copyOf(images, words(capacity));
+                nullTasks = nullTasks != null ? Arrays.copyOf(nullTasks, words(capacity)) : null;
+                nullPaths = nullPaths != null ? Arrays.copyOf(nullPaths, words(capacity)) : null;
+                created = created != null ? Arrays.copyOf(created, capacity) : null;
+                updated = updated != null ? Arrays.copyOf(updated, capacity) : null;
+                flags = flags != null ? Arrays.copyOf(flags, capacity) : null;
+            }
+            int index = size++;
+            ids[index] = item.getId();
+            addMetadata(index, item);
+
+            String task = item.getTask();
+            if (task == null) {
+                nullTasks = set(nullTasks, index, ids.length);
+            } else if (!task.isEmpty()) {
+                byte[] bytes = task.getBytes(StandardCharsets.UTF_8);
+                text = ensure(text, textLength + bytes.length);
+                System.arraycopy(bytes, 0, text, textLength, bytes.length);
+                textLength += bytes.length;
+            }
+            textEnds[index] = textLength;
+
+            String path = item.getImagePath();
+            if (path == null) {
+                nullPaths = set(nullPaths, index, ids.length);
+            } else if (!path.isEmpty()) {
+                images[index >>> 6] |= 1L << index;
+                addImage(path);
+            }
+            return this;
+        }
+
+        /**
+         * Método para crear la lista con las tareas agregadas, ajustando las columnas a su tamaño.
+         *
+         * @return Lista compacta
+         */
+        public CompactTaskList build() {
+            return new CompactTaskList(this);
+        }
+
+        /**
+         * Método para guardar los metadatos, creando cada columna cuando la primera tarea la
+         * necesita; las tareas anteriores tienen el valor implícito de la columna.
+         */
+        private void addMetadata(int index, Item item) {
+            if (created == null && item.getCreated() != 0) {
+                created = new long[ids.length];
+            }
+            if (created != null) {
+                created[index] = item.getCreated();
+            }
+            if (updated == null && item.getUpdated() != item.getCreated()) {
+                updated = created != null ? Arrays.copyOf(created, ids.length) : new long[ids.length];
+            }
+            if (updated != null) {
+                updated[index] = item.getUpdated();
+            }
+            byte flag = (byte) ((item.isDone() ? FLAG_DONE : 0) | item.getPriority() << PRIORITY_SHIFT);
+            if (flags == null && flag != DEFAULT_FLAGS) {
+                flags = new byte[ids.length];
+                Arrays.fill(flags, DEFAULT_FLAGS);
+            }
+            if (flags != null) {
+                flags[index] = flag;
+            }
+        }
+
+        private void addImage(String path) {
+            int slash = path.lastIndexOf('/') + 1;
+            String prefix = path.substring(0, slash);
+            Integer prefixId = prefixIndex.get(prefix);
+            if (prefixId == null) {
+                if (prefixList.size() < MAX_PREFIXES) {
+                    prefixId = prefixList.size();
+                    prefixList.add(prefix);
+                    prefixIndex.put(prefix, prefixId);
+                } else {
+                    prefixId = 0; // Tabla llena: la ruta entera va en el nombre
+                    slash = 0;
+                }
+            }
+            if (imageCount == nameEnds.length) {
+                nameEnds = Arrays.copyOf(nameEnds, imageCount * 2);
+                imagePrefixes = Arrays.copyOf(imagePrefixes, imageCount * 2);
+            }
+            byte[] bytes = path.substring(slash).getBytes(StandardCharsets.UTF_8);
+            names = ensure(names, namesLength + bytes.length);
+            System.arraycopy(bytes, 0, names, namesLength, bytes.length);
+            namesLength += bytes.length;
+            imagePrefixes[imageCount] = (char) (int) prefixId;
+            nameEnds[imageCount++] = namesLength;
+        }
+
+        private static byte[] ensure(byte[] array, int length) {
+            return length <= array.length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+        }
+
+        private static long[] set(long[] bits, int index, int capacity) {
+            if (bits == null) {
+                bits = new long[words(capacity)];
+            }
+            bits[index >>> 6] |= 1L << index;
+            return bits;
+        }
+    }
+}
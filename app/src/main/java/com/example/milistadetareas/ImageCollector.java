@@ -0,0 +1,308 @@
+package com.example.milistadetareas;
+
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recolector en segundo plano de las fotos que ya no usa ninguna tarea.
+ * <p>
+ * Cada barrido marca como vivas las rutas de imagen de una instantánea de la lista, junto con sus
+ * miniaturas, y recorre el directorio de fotos. Un archivo sin referencias solo se borra cuando
+ * lleva huérfano al menos el periodo de gracia en barridos sucesivos y no es más reciente que ese
+ * periodo, de modo que no se pierden las fotos recién capturadas ni las de un diálogo abierto. Los
+ * borrados se hacen por lotes con una pausa entre ellos. Si el directorio supera la cuota, se borran
+ * además las miniaturas más antiguas de las fotos vivas, que se pueden regenerar. Un archivo más
+ * reciente que el periodo de gracia no se borra nunca, ni siquiera por la cuota: puede ser la foto
+ * que escribe la cámara, una foto importada que aún no tiene tarea o la de una tarea eliminada que
+ * todavía se puede deshacer ({@link TaskHistory}).
+ */
+public class ImageCollector {
+    public static final long DEFAULT_GRACE_PERIOD_MS = 60 * 60 * 1000L;    // Una hora
+    public static final int DEFAULT_BATCH_SIZE = 32;                        // Borrados por lote
+    public static final long DEFAULT_BATCH_PAUSE_MS = 200;                  // Pausa entre lotes
+
+    private final File directory;           // Directorio de las fotos
+    private final int[] thumbnailSizes;     // Lados de las miniaturas generadas por ImageProcessor
+    private final long quotaBytes;          // Tamaño máximo del directorio
+    private final long gracePeriodMs;       // Tiempo mínimo sin referencias antes de borrar
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ImageCollector");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final AtomicBoolean sweepQueued = new AtomicBoolean();
+    private volatile boolean stopped;       // Indica si se detuvo el recolector
+
+    // Ruta -> momento en que se vio huérfana por primera vez; solo se usa en el hilo de fondo
+    private final Map<String, Long> orphanSince = new HashMap<>();
+
+    // Estadísticas de los barridos
+    private final AtomicLong sweeps = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private volatile long lastSweepMs;
+    private volatile long lastDirectoryBytes;
+
+    /**
+     * Constructor del recolector con el periodo de gracia y el ritmo por defecto.
+     *
+     * @param directory      Directorio de las fotos, o null si no está disponible
+     * @param thumbnailSizes Lados de las miniaturas generadas junto a cada foto procesada
+     * @param quotaBytes     Tamaño máximo del directorio en bytes
+     */
+    public ImageCollector(File directory, int[] thumbnailSizes, long quotaBytes) {
+        this(directory, thumbnailSizes, quotaBytes, DEFAULT_GRACE_PERIOD_MS, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_PAUSE_MS);
+    }
+
+    /**
+     * Constructor del recolector.
+     *
+     * @param directory      Directorio de las fotos
+     * @param thumbnailSizes Lados de las miniaturas generadas junto a cada foto procesada
+     * @param quotaBytes     Tamaño máximo del directorio en bytes
+     * @param gracePeriodMs  Tiempo mínimo sin referencias antes de borrar un archivo
+     * @param batchSize      Número de borrados por lote
+     * @param batchPauseMs   Pausa entre lotes de borrados
+     */
+    public ImageCollector(File directory, int[] thumbnailSizes, long quotaBytes,
+                          long gracePeriodMs, int batchSize, long batchPauseMs) {
+        this.directory = directory;
+        this.thumbnailSizes = thumbnailSizes.clone();
+        this.quotaBytes = quotaBytes;
+        this.gracePeriodMs = gracePeriodMs;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    /**
+     * Método para programar un barrido sobre una instantánea de la lista. Si ya hay uno en cola,
+     * no se programa otro.
+     *
+     * @param snapshot Instantánea inmutable de la lista de tareas
+     */
+    public void collect(List<Item> snapshot) {
+        collectAll(Collections.singletonList(snapshot));
+    }
+
+    /**
+     * Método para programar un barrido sobre las instantáneas de varias listas: una foto solo es
+     * huérfana si no la usa ninguna.
+     *
+     * @param snapshots Instantáneas inmutables de todas las listas que pueden tener fotos, en
+     *                  memoria: el recolector no anota listas paginadas
+     */
+    public void collectAll(final List<List<Item>> snapshots) {
+        if (!sweepQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                sweepQueued.set(false);
+                sweepAll(snapshots, System.currentTimeMillis());
+            });
+        } catch (RejectedExecutionException e) {
+            sweepQueued.set(false); // Recolector detenido
+        }
+    }
+
+    /**
+     * Método para detener el recolector; se deja de borrar tras el lote en curso. El hilo no se
+     * interrumpe, para no cerrar un archivo que esté leyendo.
+     */
+    public void shutdown() {
+        stopped = true;
+        executor.shutdown();
+    }
+
+    /**
+     * Método para obtener un resumen de los barridos.
+     *
+     * @return Texto con los bytes recuperados y la duración del último barrido
+     */
+    public String getStats() {
+        return "barridos=" + sweeps.get()
+                + " borrados=" + filesDeleted.get()
+                + " bytesRecuperados=" + bytesReclaimed.get()
+                + " msUltimoBarrido=" + lastSweepMs
+                + " bytesEnDirectorio=" + lastDirectoryBytes;
+    }
+
+    public long getBytesReclaimed() {
+        return bytesReclaimed.get();
+    }
+
+    public long getFilesDeleted() {
+        return filesDeleted.get();
+    }
+
+    /**
+     * Método que realiza un barrido completo en el hilo actual.
+     *
+     * @param snapshot Instantánea de la lista de tareas
+     * @param now      Momento del barrido en milisegundos
+     */
+    void sweep(List<Item> snapshot, long now) {
+        sweepAll(Collections.singletonList(snapshot), now);
+    }
+
+    /**
+     * Método que realiza un barrido completo en el hilo actual sobre varias listas.
+     *
+     * @param snapshots Instantáneas de las listas de tareas
+     * @param now       Momento del barrido en milisegundos
+     */
+    void sweepAll(List<List<Item>> snapshots, long now) {
+        long start = System.nanoTime();
+        File[] files = directory != null ? directory.listFiles() : null;
+        if (files == null) {
+            return; // Almacenamiento externo no disponible
+        }
+
+        // Marcar: las fotos referenciadas y sus miniaturas
+        Set<String> live = new HashSet<>();
+        try {
+            for (List<Item> snapshot : snapshots) {
+                for (Item item : snapshot) {
+                    String path = item.getImagePath();
+                    if (path == null || path.isEmpty()) {
+                        continue;
+                    }
+                    File image = new File(path);
+                    live.add(image.getAbsolutePath());
+                    if (image.getName().endsWith(ImageProcessor.PROCESSED_EXTENSION)) {
+                        for (int size : thumbnailSizes) {
+                            live.add(ImageProcessor.thumbnailFile(image, size).getAbsolutePath());
+                        }
+                    }
+                }
+            }
+        } catch (IllegalStateException e) {
+            // Una lista que no se pudo leer dejaría sus fotos como huérfanas
+            Log.e("ImageCollector", "Barrido cancelado: no se pudo leer una lista", e);
+            return;
+        }
+
+        // Barrer: clasificar los archivos y borrar los huérfanos vencidos
+        long totalBytes = 0;
+        List<File> expired = new ArrayList<>();
+        List<File> thumbnails = new ArrayList<>();  // Miniaturas de fotos vivas fuera del periodo de gracia
+        Set<String> seenOrphans = new HashSet<>();
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+            totalBytes += file.length();
+            String path = file.getAbsolutePath();
+            if (live.contains(path)) {
+                if (isThumbnail(file) && now - file.lastModified() >= gracePeriodMs) {
+                    thumbnails.add(file);
+                }
+                continue;
+            }
+            seenOrphans.add(path);
+            Long since = orphanSince.get(path);
+            if (since == null) {
+                since = now;
+                orphanSince.put(path, since);
+            }
+            if (now - since >= gracePeriodMs && now - file.lastModified() >= gracePeriodMs) {
+                expired.add(file);
+            }
+        }
+        orphanSince.keySet().retainAll(seenOrphans); // Olvidar los que volvieron a usarse o ya no existen
+
+        totalBytes -= delete(expired);
+
+        // Cuota: las miniaturas más antiguas; los huérfanos recientes se esperan a que venzan
+        if (totalBytes > quotaBytes) {
+            totalBytes -= deleteUntilWithinQuota(thumbnails, totalBytes);
+        }
+        if (totalBytes > quotaBytes) {
+            Log.w("ImageCollector", "Se sigue superando la cuota con las fotos en uso o recientes: "
+                    + totalBytes + " bytes");
+        }
+
+        lastDirectoryBytes = totalBytes;
+        lastSweepMs = (System.nanoTime() - start) / 1_000_000;
+        sweeps.incrementAndGet();
+        Log.i("ImageCollector", "Barrido terminado: " + getStats());
+    }
+
+    private boolean isThumbnail(File file) {
+        String name = file.getName();
+        for (int size : thumbnailSizes) {
+            if (name.endsWith("_" + size + ImageProcessor.PROCESSED_EXTENSION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Método para borrar, del más antiguo al más reciente, los archivos necesarios para volver
+     * a la cuota.
+     *
+     * @return Bytes borrados
+     */
+    private long deleteUntilWithinQuota(List<File> candidates, long totalBytes) {
+        File[] sorted = candidates.toArray(new File[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        List<File> victims = new ArrayList<>();
+        long excess = totalBytes - quotaBytes;
+        for (File file : sorted) {
+            if (excess <= 0) {
+                break;
+            }
+            victims.add(file);
+            excess -= file.length();
+        }
+        return delete(victims);
+    }
+
+    /**
+     * Método para borrar archivos por lotes, con una pausa entre lotes para no competir con la
+     * interfaz por el disco.
+     *
+     * @return Bytes borrados
+     */
+    private long delete(List<File> victims) {
+        long reclaimed = 0;
+        for (int i = 0; i < victims.size() && !stopped; i++) {
+            if (i > 0 && i % batchSize == 0 && batchPauseMs > 0) {
+                try {
+                    Thread.sleep(batchPauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break; // Recolector detenido
+                }
+            }
+            File file = victims.get(i);
+            long length = file.length();
+            if (file.delete()) {
+                reclaimed += length;
+                orphanSince.remove(file.getAbsolutePath());
+                filesDeleted.incrementAndGet();
+            } else {
+                Log.w("ImageCollector", "No se pudo borrar " + file.getName());
+            }
+        }
+        bytesReclaimed.addAndGet(reclaimed);
+        return reclaimed;
+    }
+}
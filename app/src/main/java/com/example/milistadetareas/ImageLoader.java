@@ -0,0 +1,349 @@
+package com.example.milistadetareas;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cargador de imágenes de las tareas.
+ * <p>
+ * Decodifica las fotos en hilos de fondo al tamaño de la vista de destino y las guarda en una caché
+ * en memoria acotada por bytes y en una caché en disco de miniaturas. Las cargas asociadas a una
+ * vista reciclada se cancelan antes de decodificar o de mostrar el resultado.
+ */
+public class ImageLoader {
+    private static final String THUMBNAIL_DIR = "thumbnails";
+    private static final long DISK_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    private static final int THUMBNAIL_QUALITY = 85;
+    private static final int DECODE_THREADS = 2;
+
+    private final LruCache<String, Bitmap> memoryCache;    // Caché en memoria acotada por bytes
+    private final File diskCacheDir;                        // Directorio de la caché de miniaturas
+    private final int[] thumbnailSizes;                     // Miniaturas generadas por ImageProcessor
+    private final ExecutorService decodeExecutor;           // Hilos de decodificación
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Contadores de rendimiento
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong decodeCount = new AtomicLong();
+    private final AtomicLong decodeTimeMs = new AtomicLong();
+    private final AtomicInteger writesSinceTrim = new AtomicInteger();
+
+    /**
+     * Constructor del cargador. La caché en memoria usa un octavo de la memoria de la aplicación.
+     *
+     * @param context        Contexto de la aplicación
+     * @param thumbnailSizes Lados mayores de las miniaturas generadas al capturar, de menor a mayor
+     */
+    public ImageLoader(Context context, int[] thumbnailSizes) {
+        int cacheBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        memoryCache = new LruCache<String, Bitmap>(cacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        diskCacheDir = new File(context.getCacheDir(), THUMBNAIL_DIR);
+        this.thumbnailSizes = thumbnailSizes.clone();
+        decodeExecutor = Executors.newFixedThreadPool(DECODE_THREADS, r -> {
+            Thread thread = new Thread(r, "ImageLoader");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Método para mostrar una imagen en una vista, cancelando la carga anterior de esa vista.
+     * Si la imagen ya está en memoria se muestra de inmediato; si el archivo no existe se oculta la vista.
+     *
+     * @param imagePath    Ruta de la imagen original
+     * @param imageView    Vista de destino
+     * @param targetWidth  Ancho de destino en píxeles
+     * @param targetHeight Alto de destino en píxeles
+     */
+    public void load(String imagePath, ImageView imageView, int targetWidth, int targetHeight) {
+        cancel(imageView);
+        String key = imagePath + '#' + targetWidth + 'x' + targetHeight;
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            imageView.setImageBitmap(cached);
+            imageView.setVisibility(View.VISIBLE);
+            return;
+        }
+        imageView.setImageDrawable(null);
+        imageView.setVisibility(View.VISIBLE);
+        Request request = new Request(key, imagePath, imageView, targetWidth, targetHeight);
+        imageView.setTag(R.id.task_image, request);
+        request.future = decodeExecutor.submit(request);
+    }
+
+    /**
+     * Método para cancelar la carga pendiente de una vista, por ejemplo al reciclarla.
+     *
+     * @param imageView Vista cuya carga se cancela
+     */
+    public void cancel(ImageView imageView) {
+        Object tag = imageView.getTag(R.id.task_image);
+        if (tag instanceof Request) {
+            Request request = (Request) tag;
+            request.cancelled = true;
+            if (request.future != null) {
+                request.future.cancel(false);
+            }
+            imageView.setTag(R.id.task_image, null);
+        }
+    }
+
+    /**
+     * Método para obtener un resumen de los contadores de la caché.
+     *
+     * @return Texto con aciertos, fallos y tiempo medio de decodificación
+     */
+    public String getStats() {
+        long decodes = decodeCount.get();
+        return "memoria=" + memoryHits.get()
+                + " disco=" + diskHits.get()
+                + " fallos=" + misses.get()
+                + " decodificaciones=" + decodes
+                + " msMedio=" + (decodes == 0 ? 0 : decodeTimeMs.get() / decodes)
+                + " bytesEnMemoria=" + memoryCache.size();
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getDecodeCount() {
+        return decodeCount.get();
+    }
+
+    public long getDecodeTimeMs() {
+        return decodeTimeMs.get();
+    }
+
+    /**
+     * Método para vaciar la caché en memoria, por ejemplo ante poca memoria disponible.
+     */
+    public void clearMemory() {
+        memoryCache.evictAll();
+    }
+
+    /**
+     * Método para detener los hilos de decodificación.
+     */
+    public void shutdown() {
+        decodeExecutor.shutdownNow();
+    }
+
+    /**
+     * Método que, en un hilo de fondo, obtiene la miniatura del disco o decodifica el original.
+     *
+     * @return Mapa de bits reducido, o null si la imagen no existe o no se puede decodificar
+     */
+    private Bitmap loadBitmap(Request request) {
+        File original = new File(request.imagePath);
+        if (!original.exists()) {
+            return null;
+        }
+        File thumbnail = new File(diskCacheDir, diskKey(request.key, original.lastModified()));
+        if (thumbnail.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(thumbnail.getAbsolutePath());
+            if (bitmap != null) {
+                diskHits.incrementAndGet();
+                return bitmap;
+            }
+        }
+
+        misses.incrementAndGet();
+        long start = SystemClock.elapsedRealtime();
+        long metricsStart = Metrics.IMAGE_DECODE.start();
+        // Preferir una miniatura generada al capturar antes que la foto completa
+        File source = ImageProcessor.bestSourceFor(original, request.targetWidth, request.targetHeight, thumbnailSizes);
+        Bitmap bitmap = decodeSampled(source, request.targetWidth, request.targetHeight);
+        decodeTimeMs.addAndGet(SystemClock.elapsedRealtime() - start);
+        Metrics.IMAGE_DECODE.stop(metricsStart);
+        decodeCount.incrementAndGet();
+        if (bitmap != null && !request.cancelled) {
+            writeThumbnail(thumbnail, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Método para decodificar una imagen con el mayor submuestreo que no baje del tamaño de destino.
+     *
+     * @param file         Archivo de la imagen
+     * @param targetWidth  Ancho de destino en píxeles
+     * @param targetHeight Alto de destino en píxeles
+     * @return Mapa de bits reducido, o null si no se puede decodificar
+     */
+    static Bitmap decodeSampled(File file, int targetWidth, int targetHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.RGB_565; // Las fotos no tienen transparencia
+        return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+    }
+
+    /**
+     * Método para calcular la potencia de dos de submuestreo para el tamaño de destino.
+     *
+     * @return Factor de submuestreo (1, 2, 4, ...)
+     */
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= targetWidth && height / (inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private void writeThumbnail(File thumbnail, Bitmap bitmap) {
+        if (!diskCacheDir.exists() && !diskCacheDir.mkdirs()) {
+            return;
+        }
+        File temp = new File(diskCacheDir, thumbnail.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out);
+        } catch (IOException e) {
+            Log.w("ImageLoader", "Error al guardar la miniatura", e);
+            return;
+        }
+        if (!temp.renameTo(thumbnail)) {
+            temp.delete();
+        }
+        if (writesSinceTrim.incrementAndGet() >= 32) {
+            writesSinceTrim.set(0);
+            trimDiskCache();
+        }
+    }
+
+    /**
+     * Método para borrar las miniaturas menos recientes cuando la caché en disco supera su límite.
+     */
+    private void trimDiskCache() {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= DISK_CACHE_MAX_BYTES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= DISK_CACHE_MAX_BYTES) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    /**
+     * Método para obtener el nombre de archivo de una miniatura. Incluye la fecha de modificación
+     * del original para que una imagen reemplazada no reutilice una miniatura antigua.
+     */
+    private static String diskKey(String key, long lastModified) {
+        String source = key + '@' + lastModified;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2 + 4);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.append(".jpg").toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(source.hashCode()) + ".jpg";
+        }
+    }
+
+    /**
+     * Solicitud de carga de una imagen para una vista concreta.
+     */
+    private class Request implements Runnable {
+        final String key;
+        final String imagePath;
+        final ImageView imageView;
+        final int targetWidth;
+        final int targetHeight;
+        volatile boolean cancelled;
+        Future<?> future;
+
+        Request(String key, String imagePath, ImageView imageView, int targetWidth, int targetHeight) {
+            this.key = key;
+            this.imagePath = imagePath;
+            this.imageView = imageView;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            final Bitmap bitmap = loadBitmap(this);
+            if (bitmap != null) {
+                memoryCache.put(key, bitmap);
+            }
+            mainHandler.post(() -> {
+                // Mostrar solo si la vista no se ha reciclado para otra tarea
+                if (cancelled || imageView.getTag(R.id.task_image) != this) {
+                    return;
+                }
+                imageView.setTag(R.id.task_image, null);
+                if (bitmap != null) {
+                    imageView.setImageBitmap(bitmap);
+                } else {
+                    imageView.setVisibility(View.GONE); // Ocultar ImageView si no hay imagen válida
+                }
+            });
+        }
+    }
+}
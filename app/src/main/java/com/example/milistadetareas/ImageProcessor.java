@@ -0,0 +1,322 @@
+package com.example.milistadetareas;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Procesador de las fotos recién capturadas.
+ * <p>
+ * En un hilo de fondo aplica la orientación EXIF, reduce la foto a un tamaño máximo, la recodifica
+ * en WebP y genera miniaturas junto al archivo resultante. Las capturas se encolan en una cola
+ * acotada; si la cola está llena se conserva la foto original sin procesar.
+ */
+public class ImageProcessor {
+    public static final String PROCESSED_EXTENSION = ".webp";
+    private static final int QUEUE_CAPACITY = 8;
+
+    /**
+     * Receptor, en el hilo principal, del resultado del procesamiento.
+     */
+    public interface Listener {
+        /**
+         * La foto original no se borra: la borra el recolector cuando ya no la usa ninguna tarea.
+         *
+         * @param originalPath  Ruta de la foto original
+         * @param processedPath Ruta de la foto procesada
+         */
+        void onImageProcessed(String originalPath, String processedPath);
+    }
+
+    private final int maxDimension;         // Lado mayor máximo de la foto procesada en píxeles
+    private final int quality;              // Calidad de compresión WebP (0-100)
+    private final int[] thumbnailSizes;     // Lados mayores de las miniaturas a generar
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Contadores de rendimiento
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong bytesBefore = new AtomicLong();
+    private final AtomicLong bytesAfter = new AtomicLong();
+    private final AtomicLong decodeTimeMs = new AtomicLong();
+    private final AtomicLong transformTimeMs = new AtomicLong();
+    private final AtomicLong encodeTimeMs = new AtomicLong();
+    private final AtomicLong thumbnailTimeMs = new AtomicLong();
+
+    /**
+     * Constructor del procesador.
+     *
+     * @param maxDimension   Lado mayor máximo de la foto procesada en píxeles
+     * @param quality        Calidad de compresión WebP (0-100)
+     * @param thumbnailSizes Lados mayores de las miniaturas a generar, de menor a mayor
+     */
+    public ImageProcessor(int maxDimension, int quality, int[] thumbnailSizes) {
+        this.maxDimension = maxDimension;
+        this.quality = quality;
+        this.thumbnailSizes = thumbnailSizes.clone();
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread thread = new Thread(r, "ImageProcessor");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    /**
+     * Método para encolar el procesamiento de una foto recién capturada.
+     *
+     * @param originalPath Ruta de la foto original
+     * @param listener     Receptor del resultado en el hilo principal
+     */
+    public void process(final String originalPath, final Listener listener) {
+        try {
+            executor.execute(() -> {
+                final String processedPath = processNow(originalPath);
+                if (processedPath != null) {
+                    mainHandler.post(() -> listener.onImageProcessed(originalPath, processedPath));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w("ImageProcessor", "Cola de procesamiento llena, se conserva la foto original");
+        }
+    }
+
+    /**
+     * Método para obtener la miniatura generada más pequeña que cubra el tamaño pedido.
+     *
+     * @param image          Foto procesada
+     * @param targetWidth    Ancho de destino en píxeles
+     * @param targetHeight   Alto de destino en píxeles
+     * @param thumbnailSizes Lados mayores de las miniaturas generadas, de menor a mayor
+     * @return Archivo de la miniatura, o la propia foto si ninguna miniatura es suficiente
+     */
+    public static File bestSourceFor(File image, int targetWidth, int targetHeight, int[] thumbnailSizes) {
+        String name = image.getName();
+        if (!name.endsWith(PROCESSED_EXTENSION)) {
+            return image;
+        }
+        int needed = Math.max(targetWidth, targetHeight);
+        for (int size : thumbnailSizes) {
+            if (size >= needed) {
+                File thumbnail = thumbnailFile(image, size);
+                if (thumbnail.exists()) {
+                    return thumbnail;
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Método para obtener un resumen de los contadores del procesamiento.
+     *
+     * @return Texto con los bytes ahorrados y el tiempo medio de cada etapa
+     */
+    public String getStats() {
+        long count = processedCount.get();
+        long divisor = Math.max(1, count);
+        return "procesadas=" + count
+                + " bytesAntes=" + bytesBefore.get()
+                + " bytesDespues=" + bytesAfter.get()
+                + " bytesAhorrados=" + (bytesBefore.get() - bytesAfter.get())
+                + " msDecodificar=" + decodeTimeMs.get() / divisor
+                + " msTransformar=" + transformTimeMs.get() / divisor
+                + " msCodificar=" + encodeTimeMs.get() / divisor
+                + " msMiniaturas=" + thumbnailTimeMs.get() / divisor;
+    }
+
+    /**
+     * Método para detener el procesamiento; las fotos pendientes se conservan sin procesar.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Método que procesa una foto en el hilo actual.
+     *
+     * @param originalPath Ruta de la foto original
+     * @return Ruta de la foto procesada, o null si no se pudo procesar
+     */
+    private String processNow(String originalPath) {
+        File original = new File(originalPath);
+        if (!original.exists() || original.length() == 0) {
+            return null; // La cámara no llegó a escribir la foto
+        }
+        long originalBytes = original.length();
+
+        long start = SystemClock.elapsedRealtime();
+        Bitmap decoded = decodeForMaxDimension(original);
+        long decodedAt = SystemClock.elapsedRealtime();
+        if (decoded == null) {
+            return null;
+        }
+        Bitmap oriented = transform(decoded, readOrientation(originalPath), maxDimension);
+        if (oriented != decoded) {
+            decoded.recycle();
+        }
+        long transformedAt = SystemClock.elapsedRealtime();
+
+        File processed = processedFile(original);
+        if (!writeWebp(oriented, processed)) {
+            oriented.recycle();
+            return null;
+        }
+        long encodedAt = SystemClock.elapsedRealtime();
+
+        long thumbnailBytes = 0;
+        for (int size : thumbnailSizes) {
+            if (size >= Math.max(oriented.getWidth(), oriented.getHeight())) {
+                break; // La foto procesada ya es suficiente
+            }
+            Bitmap thumbnail = transform(oriented, ExifInterface.ORIENTATION_NORMAL, size);
+            File thumbnailFile = thumbnailFile(processed, size);
+            if (writeWebp(thumbnail, thumbnailFile)) {
+                thumbnailBytes += thumbnailFile.length();
+            }
+            if (thumbnail != oriented) {
+                thumbnail.recycle();
+            }
+        }
+        oriented.recycle();
+        long finishedAt = SystemClock.elapsedRealtime();
+
+        processedCount.incrementAndGet();
+        bytesBefore.addAndGet(originalBytes);
+        bytesAfter.addAndGet(processed.length() + thumbnailBytes);
+        decodeTimeMs.addAndGet(decodedAt - start);
+        transformTimeMs.addAndGet(transformedAt - decodedAt);
+        encodeTimeMs.addAndGet(encodedAt - transformedAt);
+        thumbnailTimeMs.addAndGet(finishedAt - encodedAt);
+        return processed.getAbsolutePath();
+    }
+
+    /**
+     * Método para decodificar la foto con el mayor submuestreo que no baje del tamaño máximo.
+     */
+    private Bitmap decodeForMaxDimension(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int longSide = Math.max(options.outWidth, options.outHeight);
+        int inSampleSize = 1;
+        while (longSide / (inSampleSize * 2) >= maxDimension) {
+            inSampleSize *= 2;
+        }
+        options.inSampleSize = inSampleSize;
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+    }
+
+    /**
+     * Método para leer la orientación EXIF de la foto.
+     */
+    private static int readOrientation(String path) {
+        try {
+            return new ExifInterface(path).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    /**
+     * Método para orientar y reducir un mapa de bits en una sola transformación.
+     *
+     * @param source       Mapa de bits de origen
+     * @param orientation  Orientación EXIF a aplicar
+     * @param maxLongSide  Lado mayor máximo del resultado
+     * @return Mapa de bits transformado, o el de origen si no hace falta transformarlo
+     */
+    private static Bitmap transform(Bitmap source, int orientation, int maxLongSide) {
+        Matrix matrix = new Matrix();
+        int longSide = Math.max(source.getWidth(), source.getHeight());
+        if (longSide > maxLongSide) {
+            float scale = (float) maxLongSide / longSide;
+            matrix.postScale(scale, scale);
+        }
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                break;
+        }
+        if (matrix.isIdentity()) {
+            return source;
+        }
+        return Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+    }
+
+    /**
+     * Método para escribir un mapa de bits en WebP mediante un archivo temporal.
+     */
+    @SuppressWarnings("deprecation")
+    private boolean writeWebp(Bitmap bitmap, File target) {
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            if (!bitmap.compress(format, quality, out)) {
+                throw new IOException("No se pudo codificar " + target.getName());
+            }
+        } catch (IOException e) {
+            Log.e("ImageProcessor", "Error al escribir la foto procesada", e);
+            temp.delete();
+            return false;
+        }
+        return temp.renameTo(target);
+    }
+
+    private static File processedFile(File original) {
+        String name = original.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(original.getParentFile(), base + PROCESSED_EXTENSION);
+    }
+
+    static File thumbnailFile(File processed, int size) {
+        String name = processed.getName();
+        String base = name.substring(0, name.length() - PROCESSED_EXTENSION.length());
+        return new File(processed.getParentFile(), base + "_" + size + PROCESSED_EXTENSION);
+    }
+}
@@ -1,21 +1,127 @@
 package com.example.milistadetareas;
 
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Clase que representa un ítem de tarea con una descripción y una ruta opcional de imagen.
+ * Clase inmutable que representa un ítem de tarea con un identificador estable, una descripción
+ * y una ruta opcional de imagen. Las modificaciones crean un nuevo ítem con el mismo identificador.
+ * <p>
+ * Cada tarea lleva además sus metadatos: momento de creación y de última modificación, si está
+ * hecha y su prioridad. Las tareas guardadas antes de los metadatos tienen las fechas a 0
+ * (desconocidas), están pendientes y tienen prioridad normal.
  */
-public class Item {
-    private String task;         // Descripción de la tarea
-    private String imagePath;    // Ruta de la imagen asociada a la tarea
+public final class Item {
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_HIGH = 2;
+
+    // Los identificadores llevan en los bits altos el prefijo del dispositivo, para que no se
+    // repitan entre dispositivos que sincronizan la misma lista, y debajo una secuencia que empieza
+    // en los milisegundos desde 2020 desplazados, para que no se repitan tras reiniciar
+    static final int SEQUENCE_BITS = 47;
+    static final int MIN_PREFIX = 4096;                 // Los identificadores antiguos tienen prefijos menores
+    static final int MAX_PREFIX = 65535;
+    private static final int TIME_SHIFT = 6;            // Identificadores por milisegundo
+    private static final long EPOCH_MS = 1577836800000L; // 1 de enero de 2020
+
+    // Generador de identificadores: prefijo del dispositivo y secuencia
+    private static final AtomicLong NEXT_ID = new AtomicLong(firstId(randomPrefix()));
+
+    private final long id;              // Identificador estable de la tarea
+    private final String task;          // Descripción de la tarea
+    private final String imagePath;     // Ruta de la imagen asociada a la tarea
+    private final long created;         // Creación en milisegundos, o 0 si se desconoce
+    private final long updated;         // Última modificación en milisegundos, o 0 si se desconoce
+    private final boolean done;         // Indica si la tarea está hecha
+    private final int priority;         // Una de las constantes PRIORITY_*
 
     /**
      * Constructor para inicializar un nuevo ítem de tarea con descripción y ruta de imagen.
+     * Se le asigna un identificador nuevo y se marca como creado y modificado ahora.
      *
      * @param task      Descripción de la tarea
      * @param imagePath Ruta de la imagen de la tarea
      */
     public Item(String task, String imagePath) {
+        this(NEXT_ID.getAndIncrement(), task, imagePath, System.currentTimeMillis());
+    }
+
+    private Item(long id, String task, String imagePath, long now) {
+        this(id, task, imagePath, now, now, false, PRIORITY_NORMAL);
+    }
+
+    /**
+     * Constructor para reconstruir un ítem de tarea guardado sin metadatos.
+     *
+     * @param id        Identificador estable de la tarea
+     * @param task      Descripción de la tarea
+     * @param imagePath Ruta de la imagen de la tarea
+     */
+    public Item(long id, String task, String imagePath) {
+        this(id, task, imagePath, 0, 0, false, PRIORITY_NORMAL);
+    }
+
+    /**
+     * Constructor para reconstruir un ítem de tarea existente con sus metadatos.
+     *
+     * @param id        Identificador estable de la tarea
+     * @param task      Descripción de la tarea
+     * @param imagePath Ruta de la imagen de la tarea
+     * @param created   Creación en milisegundos, o 0 si se desconoce
+     * @param updated   Última modificación en milisegundos, o 0 si se desconoce
+     * @param done      true si la tarea está hecha
+     * @param priority  Una de las constantes PRIORITY_*
+     */
+    public Item(long id, String task, String imagePath, long created, long updated, boolean done, int priority) {
+        this(id, task, imagePath, created, updated, done, priority, true);
+    }
+
+    /**
+     * Constructor común; las vistas no reservan el identificador, que ya se reservó al guardar.
+     */
+    private Item(long id, String task, String imagePath, long created, long updated, boolean done,
+                 int priority, boolean reserve) {
+        if (priority < PRIORITY_LOW || priority > PRIORITY_HIGH) {
+            throw new IllegalArgumentException("Prioridad desconocida: " + priority);
+        }
+        this.id = id;
         this.task = task;
         this.imagePath = imagePath;
+        this.created = created;
+        this.updated = updated;
+        this.done = done;
+        this.priority = priority;
+        if (reserve) {
+            reserveId(id);
+        }
+    }
+
+    /**
+     * Método para crear la vista de una tarea guardada en otra representación, como
+     * {@link CompactTaskList}, sin volver a reservar su identificador.
+     *
+     * @param id        Identificador estable de la tarea, ya reservado
+     * @param task      Descripción de la tarea
+     * @param imagePath Ruta de la imagen de la tarea
+     * @param created   Creación en milisegundos, o 0 si se desconoce
+     * @param updated   Última modificación en milisegundos, o 0 si se desconoce
+     * @param done      true si la tarea está hecha
+     * @param priority  Una de las constantes PRIORITY_*
+     * @return Tarea con ese contenido
+     */
+    static Item view(long id, String task, String imagePath, long created, long updated, boolean done,
+                     int priority) {
+        return new Item(id, task, imagePath, created, updated, done, priority, false);
+    }
+
+    /**
+     * Método para obtener el identificador estable de la tarea.
+     *
+     * @return Identificador de la tarea
+     */
+    public long getId() {
+        return id;
     }
 
     /**
@@ -28,12 +134,13 @@ public class Item {
     }
 
     /**
-     * Método para establecer la descripción de la tarea.
+     * Método para obtener una copia de la tarea con otra descripción.
      *
      * @param task Nueva descripción de la tarea
+     * @return Ítem con el mismo identificador y la nueva descripción
      */
-    public void setTask(String task) {
-        this.task = task;
+    public Item withTask(String task) {
+        return new Item(id, task, imagePath, created, updated, done, priority, false);
     }
 
     /**
@@ -46,11 +153,168 @@ public class Item {
     }
 
     /**
-     * Método para establecer la ruta de la imagen asociada a la tarea.
+     * Método para obtener una copia de la tarea con otra ruta de imagen.
      *
      * @param imagePath Nueva ruta de la imagen de la tarea
+     * @return Ítem con el mismo identificador y la nueva ruta
      */
-    public void setImagePath(String imagePath) {
-        this.imagePath = imagePath;
+    public Item withImagePath(String imagePath) {
+        return new Item(id, task, imagePath, created, updated, done, priority, false);
+    }
+
+    /**
+     * Método para obtener el momento de creación de la tarea.
+     *
+     * @return Milisegundos desde la época, o 0 si la tarea es anterior a los metadatos
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Método para obtener el momento de la última modificación de la tarea.
+     *
+     * @return Milisegundos desde la época, o 0 si se desconoce
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Método para obtener una copia de la tarea con otro momento de modificación.
+     *
+     * @param updated Milisegundos desde la época
+     * @return Ítem con el mismo identificador y la nueva fecha
+     */
+    public Item withUpdated(long updated) {
+        return new Item(id, task, imagePath, created, updated, done, priority, false);
+    }
+
+    /**
+     * Método para saber si la tarea está hecha.
+     *
+     * @return true si está hecha, false si está pendiente
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Método para obtener una copia de la tarea hecha o pendiente.
+     *
+     * @param done true para marcarla como hecha
+     * @return Ítem con el mismo identificador y el nuevo estado
+     */
+    public Item withDone(boolean done) {
+        return new Item(id, task, imagePath, created, updated, done, priority, false);
+    }
+
+    /**
+     * Método para obtener la prioridad de la tarea.
+     *
+     * @return Una de las constantes PRIORITY_*
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Método para obtener una copia de la tarea con otra prioridad.
+     *
+     * @param priority Una de las constantes PRIORITY_*
+     * @return Ítem con el mismo identificador y la nueva prioridad
+     */
+    public Item withPriority(int priority) {
+        return new Item(id, task, imagePath, created, updated, done, priority, false);
+    }
+
+    /**
+     * Método para saber si la tarea tiene foto.
+     *
+     * @return true si su ruta de imagen no está vacía
+     */
+    public boolean hasImage() {
+        return imagePath != null && !imagePath.isEmpty();
+    }
+
+    /**
+     * Método para saber si la tarea tiene metadatos distintos de los de una tarea heredada.
+     *
+     * @return true si hay que guardarlos
+     */
+    boolean hasMetadata() {
+        return created != 0 || updated != 0 || done || priority != PRIORITY_NORMAL;
+    }
+
+    /**
+     * Método para fijar el prefijo de los identificadores nuevos, guardado con la instalación. Se
+     * llama antes de crear tareas; hasta entonces se usa un prefijo aleatorio.
+     *
+     * @param prefix Prefijo entre {@link #MIN_PREFIX} y {@link #MAX_PREFIX}
+     */
+    public static void setDevicePrefix(int prefix) {
+        if (prefix < MIN_PREFIX || prefix > MAX_PREFIX) {
+            throw new IllegalArgumentException("Prefijo de identificador fuera de rango: " + prefix);
+        }
+        NEXT_ID.set(firstId(prefix));
+    }
+
+    /**
+     * Método para elegir el prefijo de una instalación nueva.
+     *
+     * @return Prefijo aleatorio entre {@link #MIN_PREFIX} y {@link #MAX_PREFIX}
+     */
+    public static int randomPrefix() {
+        return MIN_PREFIX + new SecureRandom().nextInt(MAX_PREFIX - MIN_PREFIX + 1);
+    }
+
+    private static long firstId(int prefix) {
+        long sequence = Math.max(0, System.currentTimeMillis() - EPOCH_MS) << TIME_SHIFT;
+        return ((long) prefix << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Método para evitar que el generador repita un identificador ya usado. Solo cuentan los del
+     * mismo prefijo: los de otros dispositivos no pueden coincidir con los nuevos.
+     *
+     * @param id Identificador existente
+     */
+    private static void reserveId(long id) {
+        long next;
+        while ((id >>> SEQUENCE_BITS) == ((next = NEXT_ID.get()) >>> SEQUENCE_BITS) && id >= next) {
+            if (NEXT_ID.compareAndSet(next, id + 1)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Item)) {
+            return false;
+        }
+        Item other = (Item) o;
+        return id == other.id && equalsNullable(task, other.task) && equalsNullable(imagePath, other.imagePath)
+                && created == other.created && updated == other.updated && done == other.done
+                && priority == other.priority;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (id ^ (id >>> 32));
+        result = 31 * result + (task != null ? task.hashCode() : 0);
+        result = 31 * result + (imagePath != null ? imagePath.hashCode() : 0);
+        result = 31 * result + (int) (created ^ (created >>> 32));
+        result = 31 * result + (int) (updated ^ (updated >>> 32));
+        result = 31 * result + (done ? 1 : 0);
+        result = 31 * result + priority;
+        return result;
+    }
+
+    private static boolean equalsNullable(String a, String b) {
+        return a == null ? b == null : a.equals(b);
     }
 }
@@ -0,0 +1,1034 @@
+package com.example.milistadetareas;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Almacenamiento de tareas basado en un diario de solo anexado y una instantánea compactada.
+ * <p>
+ * Cada mutación escribe un único registro en el diario de la generación actual. Cada cierto
+ * número de registros se abre una nueva generación y se escribe en segundo plano una instantánea
+ * con la lista completa; los diarios anteriores se borran solo cuando la instantánea ya es durable.
+ * Cada registro lleva su longitud y un CRC32, de modo que una escritura incompleta se detecta y se
+ * descarta al recuperar.
+ * <p>
+ * Las escrituras se agrupan: los registros de una ráfaga de mutaciones se acumulan durante como
+ * mucho {@link #DEFAULT_COMMIT_DELAY_MS} y se escriben y sincronizan juntos en el hilo escritor.
+ * {@link #flush()} confirma de inmediato los registros pendientes.
+ * <p>
+ * La instantánea es un {@link TaskPageFile}: con la paginación activada ({@link #setPaging}), las
+ * listas grandes se abren como {@link PagedTaskList} sin materializar sus tareas, y tras cada
+ * compactación se ofrece una versión reabierta sobre la nueva instantánea.
+ */
+public class JournalTaskStore implements TaskStore {
+    private static final int SNAPSHOT_MAGIC = 0x54534E50;      // "TSNP"
+    private static final int SNAPSHOT_VERSION = 4;             // Versión 4: cuerpo de TaskPageFile
+    private static final int SNAPSHOT_VERSION_BINARY = 3;      // Versión 3: cuerpo de BinaryTaskCodec
+    private static final int SNAPSHOT_HEADER_SIZE = 4 + 4 + 8 + 8; // Magia, versión, generación y CRC
+    private static final int SNAPSHOT_VERSION_WITH_IDS = 2;
+    private static final int SNAPSHOT_VERSION_WITHOUT_IDS = 1;
+    private static final String SNAPSHOT_FILE = "tasks.snapshot";
+    private static final String JOURNAL_PREFIX = "tasks.journal.";
+    private static final String UNAPPLIED_PREFIX = "tasks.unapplied."; // Diarios apartados tras uno dañado
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+    public static final long DEFAULT_COMMIT_DELAY_MS = 100;    // Espera máxima para agrupar registros
+
+    static final byte OP_ADD_WITHOUT_ID = 1;    // Registro de inserción anterior a los identificadores
+    static final byte OP_UPDATE_WITHOUT_ID = 2; // Registro de modificación anterior a los identificadores
+    static final byte OP_REMOVE = 3;            // Registro de eliminación
+    static final byte OP_ADD_WITHOUT_METADATA = 4;    // Registro de inserción anterior a los metadatos
+    static final byte OP_UPDATE_WITHOUT_METADATA = 5; // Registro de modificación anterior a los metadatos
+    static final byte OP_BATCH = 6;             // Registro con varios cambios aplicados juntos
+    static final byte OP_ADD = 7;               // Registro de inserción
+    static final byte OP_UPDATE = 8;            // Registro de modificación
+
+    // Byte de estado de los registros con metadatos: bit 0 = hecha, resto = prioridad
+    private static final int FLAG_DONE = 1;
+    private static final int PRIORITY_SHIFT = 1;
+
+    /**
+     * Receptor de las listas paginadas reabiertas tras escribir una instantánea.
+     */
+    public interface PagedListener {
+        /**
+         * Se invoca en el hilo escritor cuando una instantánea ya es durable.
+         *
+         * @param written Lista guardada en la instantánea
+         * @param paged   Lista con el mismo contenido, leída de la nueva instantánea y sin tramos;
+         *                quien la recibe la anota con {@link PagedTaskList#retain} o, si la
+         *                descarta, cierra su archivo con {@link PagedTaskList#closeIfUnused}
+         */
+        void onPagedSnapshot(List<Item> written, PagedTaskList paged);
+    }
+
+    private final File directory;               // Directorio con la instantánea y los diarios
+    private final int compactionThreshold;      // Registros tras los que se compacta el diario
+    private final long commitDelayMs;           // Espera máxima de un registro antes de escribirse
+    private final ScheduledThreadPoolExecutor writer; // Hilo único que realiza todas las escrituras
+
+    // Registros pendientes de escribir, protegidos por el monitor de pendingRecords
+    private final List<byte[]> pendingRecords = new ArrayList<>();
+    private boolean commitScheduled;
+
+    // Estadísticas de las escrituras agrupadas
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedRecords = new AtomicLong();
+    private final AtomicLong commitTimeNanos = new AtomicLong();
+    private volatile long maxCommitTimeNanos;
+    private volatile int maxQueueDepth;
+
+    private ListProvider listProvider;          // Proveedor de la lista actual, indicado en attach()
+    private int recordsSinceCompaction;         // Registros escritos desde la última compactación
+    private int loadedCount;                    // Tamaño de la lista reconstruida durante la carga
+    private boolean snapshotOutdated;           // La instantánea leída tiene un formato anterior
+    private boolean journalDamaged;             // El último diario reproducido estaba dañado
+
+    // Paginación, indicada en setPaging() antes de cargar
+    private volatile int pagedMinItems;         // Tareas a partir de las cuales se pagina (0: nunca)
+    private volatile int cachedPages = PagedTaskList.DEFAULT_CACHED_PAGES;
+    private volatile PagedListener pagedListener;
+
+    // Estado accedido únicamente desde el hilo escritor
+    private long generation;                    // Generación del diario activo
+    private FileOutputStream journalFile;
+    private DataOutputStream journalOut;
+
+    /**
+     * Constructor del almacenamiento con el umbral de compactación por defecto.
+     *
+     * @param directory Directorio donde se guardan la instantánea y los diarios
+     */
+    public JournalTaskStore(File directory) {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructor del almacenamiento.
+     *
+     * @param directory           Directorio donde se guardan la instantánea y los diarios
+     * @param compactionThreshold Número de registros tras los que se compacta el diario
+     */
+    public JournalTaskStore(File directory, int compactionThreshold) {
+        this(directory, compactionThreshold, DEFAULT_COMMIT_DELAY_MS);
+    }
+
+    /**
+     * Constructor del almacenamiento.
+     *
+     * @param directory           Directorio donde se guardan la instantánea y los diarios
+     * @param compactionThreshold Número de registros tras los que se compacta el diario
+     * @param commitDelayMs       Milisegundos que se espera para agrupar registros en una escritura
+     */
+    public JournalTaskStore(File directory, int compactionThreshold, long commitDelayMs) {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.commitDelayMs = commitDelayMs;
+        this.writer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "JournalTaskStore");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        // close() ya escribe lo pendiente; no esperar a las escrituras programadas
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Override
+    public List<Item> load() throws IOException {
+        final List<Item> items = new ArrayList<>();
+        load(new LoadListener() {
+            @Override
+            public void onItemInserted(int position, Item item) {
+                items.add(position, item);
+            }
+
+            @Override
+            public void onItemChanged(int position, Item item) {
+                items.set(position, item);
+            }
+
+            @Override
+            public void onItemRemoved(int position) {
+                items.remove(position);
+            }
+        });
+        attach(() -> items);
+        return items;
+    }
+
+    @Override
+    public int load(LoadListener listener) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear el directorio " + directory);
+        }
+
+        loadedCount = 0;
+        snapshotOutdated = false;
+        long snapshotGeneration = readSnapshot(listener);
+        replayJournals(snapshotGeneration, listener);
+        if (snapshotOutdated) {
+            recordsSinceCompaction = compactionThreshold; // Reescribir en el formato actual al asociar
+        }
+        return loadedCount;
+    }
+
+    /**
+     * Método para abrir la lista almacenada como {@link PagedTaskList}, sin leer sus tareas.
+     * Los diarios posteriores a la instantánea se aplican como tramos de la lista.
+     *
+     * @return Lista paginada, o null si la paginación está desactivada, la lista tiene menos tareas
+     * que el mínimo o la instantánea no es paginada; en ese caso se usa {@link #load(LoadListener)}
+     * @throws IOException Si ocurre un error de lectura de los diarios
+     */
+    @Override
+    public List<Item> loadPaged() throws IOException {
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        if (pagedMinItems <= 0 || !snapshot.exists()) {
+            return null;
+        }
+        long snapshotGeneration;
+        TaskPageFile pageFile;
+        try {
+            snapshotGeneration = readPagedHeader(snapshot);
+            if (snapshotGeneration < 0) {
+                return null; // Formato anterior: se convierte al cargar y compactar
+            }
+            pageFile = TaskPageFile.open(snapshot);
+        } catch (IOException e) {
+            Log.w("JournalTaskStore", "Instantánea paginada ilegible, se carga completa", e);
+            return null;
+        }
+        if (pageFile.getItemCount() < pagedMinItems) {
+            pageFile.close();
+            return null;
+        }
+
+        final PagedTaskList[] current = {new PagedTaskList(pageFile, cachedPages)};
+        loadedCount = pageFile.getItemCount();
+        try {
+            replayJournals(snapshotGeneration, new LoadListener() {
+                @Override
+                public void onItemInserted(int position, Item item) {
+                    current[0] = current[0].inserted(position, Collections.singletonList(item));
+                }
+
+                @Override
+                public void onItemChanged(int position, Item item) {
+                    current[0] = current[0].replaced(position, item);
+                }
+
+                @Override
+                public void onItemRemoved(int position) {
+                    current[0] = current[0].removed(position);
+                }
+            });
+        } catch (IOException e) {
+            pageFile.close();
+            throw e;
+        }
+        return current[0];
+    }
+
+    /**
+     * Método para activar la paginación de las listas grandes.
+     *
+     * @param minItems    Tareas a partir de las cuales la lista se abre paginada; 0 la desactiva
+     * @param cachedPages Páginas que cada lista paginada mantiene en memoria
+     * @param listener    Receptor de las listas reabiertas tras cada compactación, o null
+     */
+    public void setPaging(int minItems, int cachedPages, PagedListener listener) {
+        this.pagedMinItems = minItems;
+        this.cachedPages = cachedPages;
+        this.pagedListener = listener;
+    }
+
+    /**
+     * Método para reproducir en orden los diarios posteriores a la instantánea.
+     * <p>
+     * Los registros indican posiciones sobre la lista que dejó el diario anterior, así que la
+     * reproducción se detiene en el primer diario dañado: los posteriores se apartan con el prefijo
+     * {@link #UNAPPLIED_PREFIX} sin aplicarse, y la lista queda en el último estado coherente.
+     *
+     * @param snapshotGeneration Generación del primer diario no incluido en la instantánea
+     * @param listener           Receptor de los cambios reproducidos
+     * @throws IOException Si no se puede apartar un diario posterior al dañado
+     */
+    private void replayJournals(long snapshotGeneration, LoadListener listener) throws IOException {
+        long lastGeneration = snapshotGeneration;
+        int replayed = 0;
+        boolean damaged = false;
+        for (long journalGeneration : listJournalGenerations()) {
+            File journal = journalFile(journalGeneration);
+            if (journalGeneration < snapshotGeneration) {
+                deleteQuietly(journal); // Ya incluido en la instantánea
+                continue;
+            }
+            if (damaged) {
+                File unapplied = new File(directory, UNAPPLIED_PREFIX + journalGeneration);
+                deleteQuietly(unapplied);
+                if (!journal.renameTo(unapplied)) {
+                    throw new IOException("No se pudo apartar el diario " + journal.getName());
+                }
+                Log.w("JournalTaskStore", "Diario posterior a uno dañado, no se aplica: " + unapplied.getName());
+                continue;
+            }
+            journalDamaged = false;
+            replayed += replayJournal(journal, listener);
+            lastGeneration = journalGeneration;
+            damaged = journalDamaged;
+        }
+
+        deleteQuietly(new File(directory, SNAPSHOT_FILE + TEMP_SUFFIX));
+        generation = lastGeneration;
+        recordsSinceCompaction = replayed;
+    }
+
+    @Override
+    public void attach(ListProvider provider) {
+        listProvider = provider;
+        compactIfNeeded();
+    }
+
+    @Override
+    public void add(int position, Item item) {
+        append(encodeRecord(OP_ADD, position, item));
+    }
+
+    @Override
+    public void update(int position, Item item) {
+        append(encodeRecord(OP_UPDATE, position, item));
+    }
+
+    @Override
+    public void remove(int position) {
+        append(encodeRecord(OP_REMOVE, position, null));
+    }
+
+    @Override
+    public void applyBatch(TaskBatch batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        if (batch.size() >= compactionThreshold) {
+            replaceAll(batch.getItems()); // Más barato escribir la instantánea que el registro
+        } else {
+            recordsSinceCompaction += batch.size() - 1; // Cuenta como sus cambios al reproducir
+            append(encodeBatchRecord(batch));
+        }
+    }
+
+    @Override
+    public void replaceAll(List<Item> items) {
+        recordsSinceCompaction = 0;
+        // Los Item son inmutables; las listas persistentes también, y copiar una paginada la materializaría
+        final List<Item> copy = items instanceof PagedTaskList || items instanceof TaskVector
+                ? items : new ArrayList<>(items);
+        final List<byte[]> previous = takePendingRecords(); // Pertenecen a la generación anterior
+        writer.execute(() -> compact(previous, copy));
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.submit(() -> {
+                commit(takePendingRecords());
+                syncJournal();
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e("JournalTaskStore", "Error al sincronizar el diario", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.execute(() -> {
+            commit(takePendingRecords());
+            syncJournal();
+            closeJournal();
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Método para obtener las estadísticas de las escrituras agrupadas.
+     *
+     * @return Texto con la cola, los registros por escritura y la latencia de escritura
+     */
+    @Override
+    public String getStats() {
+        long commitCount = commits.get();
+        return "pendientes=" + getQueueDepth()
+                + " maxPendientes=" + maxQueueDepth
+                + " escrituras=" + commitCount
+                + " registrosPorEscritura=" + String.format(Locale.ROOT, "%.1f", getCoalescingRatio())
+                + " msMedio=" + (commitCount == 0 ? 0 : commitTimeNanos.get() / commitCount / 1_000_000)
+                + " msMax=" + maxCommitTimeNanos / 1_000_000;
+    }
+
+    /**
+     * Método para obtener el número de registros que esperan a escribirse.
+     *
+     * @return Registros pendientes
+     */
+    public int getQueueDepth() {
+        synchronized (pendingRecords) {
+            return pendingRecords.size();
+        }
+    }
+
+    /**
+     * Método para obtener el número medio de registros escritos en cada escritura agrupada.
+     *
+     * @return Registros por escritura, o 0 si aún no se ha escrito nada
+     */
+    public double getCoalescingRatio() {
+        long commitCount = commits.get();
+        return commitCount == 0 ? 0 : (double) committedRecords.get() / commitCount;
+    }
+
+    /**
+     * Método para encolar un registro ya codificado y compactar si se alcanzó el umbral.
+     * La primera mutación de una ráfaga programa la escritura del grupo tras
+     * {@link #commitDelayMs}; las siguientes solo se suman al grupo.
+     *
+     * @param record Registro codificado
+     */
+    private void append(final byte[] record) {
+        synchronized (pendingRecords) {
+            pendingRecords.add(record);
+            maxQueueDepth = Math.max(maxQueueDepth, pendingRecords.size());
+            if (!commitScheduled) {
+                commitScheduled = true;
+                writer.schedule(() -> commit(takePendingRecords()), commitDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        recordsSinceCompaction++;
+        compactIfNeeded();
+    }
+
+    /**
+     * Método para retirar los registros pendientes; la siguiente mutación programará otra escritura.
+     *
+     * @return Registros pendientes en orden
+     */
+    private List<byte[]> takePendingRecords() {
+        synchronized (pendingRecords) {
+            List<byte[]> records = new ArrayList<>(pendingRecords);
+            pendingRecords.clear();
+            commitScheduled = false;
+            return records;
+        }
+    }
+
+    /**
+     * Método que, en el hilo escritor, escribe un grupo de registros con una sola escritura y una
+     * sola sincronización.
+     *
+     * @param records Registros a escribir en orden
+     */
+    private void commit(List<byte[]> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            openJournal();
+            for (byte[] record : records) {
+                journalOut.write(record);
+            }
+            syncJournal();
+        } catch (IOException e) {
+            Log.e("JournalTaskStore", "Error al escribir en el diario", e);
+        }
+        long elapsed = System.nanoTime() - start;
+        commits.incrementAndGet();
+        committedRecords.addAndGet(records.size());
+        commitTimeNanos.addAndGet(elapsed);
+        Metrics.SAVE.record(elapsed);
+        maxCommitTimeNanos = Math.max(maxCommitTimeNanos, elapsed);
+    }
+
+    /**
+     * Método para programar una compactación cuando el diario supera el umbral.
+     */
+    private void compactIfNeeded() {
+        if (recordsSinceCompaction >= compactionThreshold && listProvider != null) {
+            replaceAll(listProvider.getItems());
+        }
+    }
+
+    /**
+     * Método que, en el hilo escritor, inicia una nueva generación y escribe la instantánea.
+     *
+     * @param previous Registros pendientes anteriores a la compactación
+     * @param items    Copia de la lista en el momento de la compactación
+     */
+    private void compact(List<byte[]> previous, List<Item> items) {
+        commit(previous); // Por si la instantánea no llega a escribirse
+        try {
+            // Los registros posteriores irán al diario de la nueva generación
+            syncJournal();
+            closeJournal();
+            generation++;
+            openJournal();
+
+            long start = Metrics.SNAPSHOT.start();
+            writeSnapshot(items, generation);
+            Metrics.SNAPSHOT.stop(start);
+            reopenPaged(items);
+
+            // La instantánea ya es durable; los diarios anteriores sobran
+            for (long journalGeneration : listJournalGenerations()) {
+                if (journalGeneration < generation) {
+                    deleteQuietly(journalFile(journalGeneration));
+                }
+            }
+        } catch (IOException e) {
+            Log.e("JournalTaskStore", "Error al compactar el diario", e);
+        }
+    }
+
+    /**
+     * Método que, en el hilo escritor, ofrece la lista recién guardada como lista paginada, para
+     * que las mutaciones posteriores partan de la nueva instantánea y no de sus tramos.
+     *
+     * @param items Lista guardada en la instantánea
+     */
+    private void reopenPaged(List<Item> items) {
+        PagedListener listener = pagedListener;
+        if (listener == null || pagedMinItems <= 0 || items.size() < pagedMinItems) {
+            return;
+        }
+        try {
+            TaskPageFile pageFile = TaskPageFile.open(new File(directory, SNAPSHOT_FILE));
+            listener.onPagedSnapshot(items, new PagedTaskList(pageFile, cachedPages));
+        } catch (IOException e) {
+            Log.e("JournalTaskStore", "Error al reabrir la instantánea paginada", e);
+        }
+    }
+
+    /**
+     * Método para escribir la instantánea en un archivo temporal y renombrarla de forma atómica.
+     * Tras la cabecera, con su propio CRC, las tareas se escriben como un {@link TaskPageFile}.
+     *
+     * @param items              Lista de tareas a guardar
+     * @param snapshotGeneration Generación del primer diario no incluido en la instantánea
+     * @throws IOException Si ocurre un error de escritura
+     */
+    private void writeSnapshot(List<Item> items, long snapshotGeneration) throws IOException {
+        File temp = new File(directory, SNAPSHOT_FILE + TEMP_SUFFIX);
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            byte[] header = snapshotHeader(snapshotGeneration);
+            out.write(header);
+            TaskPageFile.Writer pages = new TaskPageFile.Writer(out, header.length, TaskPageFile.DEFAULT_PAGE_SIZE);
+            for (Item item : items) {
+                pages.add(item); // Una lista paginada se recorre página a página
+            }
+            pages.finish();
+            out.flush();
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(new File(directory, SNAPSHOT_FILE))) {
+            throw new IOException("No se pudo renombrar la instantánea");
+        }
+    }
+
+    private static byte[] snapshotHeader(long snapshotGeneration) {
+        byte[] header = new byte[SNAPSHOT_HEADER_SIZE];
+        putInt(header, 0, SNAPSHOT_MAGIC);
+        putInt(header, 4, SNAPSHOT_VERSION);
+        putLong(header, 8, snapshotGeneration);
+        CRC32 crc = new CRC32();
+        crc.update(header, 0, 16);
+        putLong(header, 16, crc.getValue());
+        return header;
+    }
+
+    /**
+     * Método para leer la cabecera de una instantánea paginada.
+     *
+     * @param snapshot Archivo de la instantánea
+     * @return Generación de la instantánea, o -1 si tiene un formato anterior
+     * @throws IOException Si la cabecera está dañada
+     */
+    private static long readPagedHeader(File snapshot) throws IOException {
+        byte[] header = new byte[SNAPSHOT_HEADER_SIZE];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(snapshot))) {
+            in.readFully(header);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Formato de instantánea desconocido");
+        }
+        if (in.readInt() != SNAPSHOT_VERSION) {
+            return -1;
+        }
+        long snapshotGeneration = in.readLong();
+        CRC32 crc = new CRC32();
+        crc.update(header, 0, 16);
+        if (in.readLong() != crc.getValue()) {
+            throw new IOException("CRC de la cabecera de la instantánea incorrecto");
+        }
+        return snapshotGeneration;
+    }
+
+    /**
+     * Método para leer la instantánea de forma incremental, notificando cada tarea leída.
+     * Si la instantánea resulta estar dañada se notifican las eliminaciones correspondientes.
+     *
+     * @param listener Receptor de las tareas leídas
+     * @return Generación a partir de la cual hay que reproducir los diarios
+     */
+    private long readSnapshot(LoadListener listener) {
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        if (!snapshot.exists()) {
+            return 0;
+        }
+        try {
+            long pagedGeneration = readPagedHeader(snapshot);
+            if (pagedGeneration < 0) {
+                snapshotOutdated = true;
+                return readLegacySnapshot(snapshot, listener);
+            }
+            try (TaskPageFile pageFile = TaskPageFile.open(snapshot)) {
+                for (int page = 0; page < pageFile.getPageCount(); page++) {
+                    for (Item item : pageFile.readPage(page)) {
+                        listener.onItemInserted(loadedCount, item);
+                        loadedCount++;
+                    }
+                }
+            }
+            return pagedGeneration;
+        } catch (IOException e) {
+            Log.e("JournalTaskStore", "Instantánea dañada, se recupera solo desde los diarios", e);
+            while (loadedCount > 0) {
+                listener.onItemRemoved(--loadedCount);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Método para leer una instantánea de las versiones 1 a 3, con un CRC al final.
+     *
+     * @param snapshot Archivo de la instantánea
+     * @param listener Receptor de las tareas leídas
+     * @return Generación a partir de la cual hay que reproducir los diarios
+     * @throws IOException Si la instantánea está dañada
+     */
+    private long readLegacySnapshot(File snapshot, LoadListener listener) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(snapshot), 64 * 1024), crc))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Formato de instantánea desconocido");
+            }
+            int version = in.readInt();
+            long snapshotGeneration;
+            if (version == SNAPSHOT_VERSION_BINARY) {
+                snapshotGeneration = in.readLong();
+                BinaryTaskCodec.ListReader reader = new BinaryTaskCodec.ListReader(in, false);
+                int count = reader.readHeader();
+                for (int i = 0; i < count; i++) {
+                    listener.onItemInserted(loadedCount, reader.readItem());
+                    loadedCount++;
+                }
+            } else if (version == SNAPSHOT_VERSION_WITH_IDS || version == SNAPSHOT_VERSION_WITHOUT_IDS) {
+                boolean hasIds = version == SNAPSHOT_VERSION_WITH_IDS;
+                snapshotGeneration = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Item item = hasIds
+                            ? new Item(in.readLong(), readString(in), readString(in))
+                            : new Item(readString(in), readString(in));
+                    listener.onItemInserted(loadedCount, item);
+                    loadedCount++;
+                }
+            } else {
+                throw new IOException("Versión de instantánea desconocida: " + version);
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("CRC de instantánea incorrecto");
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    /**
+     * Método para reproducir un diario sobre la lista. Si encuentra un registro incompleto
+     * o dañado, trunca el diario en el último registro válido y marca {@link #journalDamaged}.
+     *
+     * @param journal  Archivo del diario
+     * @param listener Receptor de los cambios reproducidos
+     * @return Número de registros aplicados
+     */
+    private int replayJournal(File journal, LoadListener listener) {
+        int applied = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(journal), 64 * 1024))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break; // Fin limpio del diario
+                }
+                long checksum = in.readLong();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    throw new IOException("Longitud de registro inválida: " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if (crc.getValue() != checksum) {
+                    throw new IOException("CRC de registro incorrecto");
+                }
+                applyRecord(payload, listener);
+                validLength += 12 + length;
+                applied++;
+            }
+            return applied;
+        } catch (IOException e) {
+            Log.w("JournalTaskStore", "Registro dañado en " + journal.getName() + ", se trunca el diario", e);
+        }
+        journalDamaged = true;
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            file.setLength(validLength);
+        } catch (IOException e) {
+            Log.e("JournalTaskStore", "Error al truncar el diario", e);
+        }
+        return applied;
+    }
+
+    /**
+     * Método para aplicar un registro decodificado y notificarlo.
+     *
+     * @param payload  Contenido del registro
+     * @param listener Receptor del cambio
+     * @throws IOException Si el registro no es coherente con la lista
+     */
+    private void applyRecord(byte[] payload, LoadListener listener) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        int position = in.readInt();
+        if (op == OP_BATCH) {
+            // Se aplica entero: el CRC del registro ya garantiza que está completo
+            for (int i = 0; i < position; i++) {
+                applyChange(in.readByte(), in.readInt(), in, listener);
+            }
+        } else {
+            applyChange(op, position, in, listener);
+        }
+    }
+
+    /**
+     * Método para aplicar un cambio de un registro y notificarlo.
+     *
+     * @param op       Tipo de operación
+     * @param position Posición afectada
+     * @param in       Resto del registro, situado tras la posición
+     * @param listener Receptor del cambio
+     * @throws IOException Si el cambio no es coherente con la lista
+     */
+    private void applyChange(byte op, int position, DataInputStream in, LoadListener listener) throws IOException {
+        switch (op) {
+            case OP_ADD:
+                checkPosition(position, loadedCount + 1);
+                listener.onItemInserted(position, readItem(in));
+                loadedCount++;
+                break;
+            case OP_ADD_WITHOUT_METADATA:
+                checkPosition(position, loadedCount + 1);
+                listener.onItemInserted(position, new Item(in.readLong(), readString(in), readString(in)));
+                loadedCount++;
+                break;
+            case OP_ADD_WITHOUT_ID:
+                checkPosition(position, loadedCount + 1);
+                listener.onItemInserted(position, new Item(readString(in), readString(in)));
+                loadedCount++;
+                break;
+            case OP_UPDATE:
+                checkPosition(position, loadedCount);
+                listener.onItemChanged(position, readItem(in));
+                break;
+            case OP_UPDATE_WITHOUT_METADATA:
+                checkPosition(position, loadedCount);
+                listener.onItemChanged(position, new Item(in.readLong(), readString(in), readString(in)));
+                break;
+            case OP_UPDATE_WITHOUT_ID:
+                checkPosition(position, loadedCount);
+                listener.onItemChanged(position, new Item(readString(in), readString(in)));
+                break;
+            case OP_REMOVE:
+                checkPosition(position, loadedCount);
+                listener.onItemRemoved(position);
+                loadedCount--;
+                break;
+            default:
+                throw new IOException("Operación desconocida: " + op);
+        }
+    }
+
+    /**
+     * Método para leer una tarea de un registro con metadatos.
+     */
+    private static Item readItem(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        String task = readString(in);
+        String imagePath = readString(in);
+        long created = in.readLong();
+        long updated = in.readLong();
+        int flags = in.readUnsignedByte();
+        int priority = flags >>> PRIORITY_SHIFT;
+        if (priority > Item.PRIORITY_HIGH) {
+            throw new IOException("Prioridad desconocida: " + priority);
+        }
+        return new Item(id, task, imagePath, created, updated, (flags & FLAG_DONE) != 0, priority);
+    }
+
+    private static void checkPosition(int position, int limit) throws IOException {
+        if (position < 0 || position >= limit) {
+            throw new IOException("Posición fuera de rango: " + position);
+        }
+    }
+
+    /**
+     * Método para codificar un registro con su longitud y CRC32.
+     *
+     * @param op       Tipo de operación
+     * @param position Posición afectada
+     * @param item     Tarea afectada, o null para eliminaciones
+     * @return Bytes del registro listos para anexar
+     */
+    static byte[] encodeRecord(byte op, int position, Item item) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);  // Longitud, se completa después
+            out.writeLong(0); // CRC32, se completa después
+            writeChange(out, op, position, item);
+            return sealRecord(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // No ocurre al escribir en memoria
+        }
+    }
+
+    /**
+     * Método para codificar un lote como un único registro con su longitud y CRC32.
+     *
+     * @param batch Lote de cambios
+     * @return Bytes del registro listos para anexar
+     */
+    static byte[] encodeBatchRecord(TaskBatch batch) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * batch.size());
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeLong(0);
+            out.writeByte(OP_BATCH);
+            out.writeInt(batch.size()); // Número de cambios en lugar de la posición
+            batch.replay(new LoadListener() {
+                @Override
+                public void onItemInserted(int position, Item item) {
+                    writeChangeUnchecked(out, OP_ADD, position, item);
+                }
+
+                @Override
+                public void onItemChanged(int position, Item item) {
+                    writeChangeUnchecked(out, OP_UPDATE, position, item);
+                }
+
+                @Override
+                public void onItemRemoved(int position) {
+                    writeChangeUnchecked(out, OP_REMOVE, position, null);
+                }
+            });
+            return sealRecord(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeChange(DataOutputStream out, byte op, int position, Item item) throws IOException {
+        out.writeByte(op);
+        out.writeInt(position);
+        if (item != null) {
+            out.writeLong(item.getId());
+            writeString(out, item.getTask());
+            writeString(out, item.getImagePath());
+            if (op == OP_ADD || op == OP_UPDATE) {
+                out.writeLong(item.getCreated());
+                out.writeLong(item.getUpdated());
+                out.writeByte((item.isDone() ? FLAG_DONE : 0) | item.getPriority() << PRIORITY_SHIFT);
+            }
+        }
+    }
+
+    private static void writeChangeUnchecked(DataOutputStream out, byte op, int position, Item item) {
+        try {
+            writeChange(out, op, position, item);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Método para completar la longitud y el CRC32 de la cabecera de un registro.
+     *
+     * @param record Registro con 12 bytes de cabecera reservados
+     * @return El mismo registro
+     */
+    private static byte[] sealRecord(byte[] record) {
+        int length = record.length - 12;
+        CRC32 crc = new CRC32();
+        crc.update(record, 12, length);
+        putInt(record, 0, length);
+        putLong(record, 4, crc.getValue());
+        return record;
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[offset + i] = (byte) (value >>> (24 - 8 * i));
+        }
+    }
+
+    private static void putLong(byte[] buffer, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            buffer[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+
+    /**
+     * Método para escribir una cadena como longitud seguida de sus bytes UTF-8 (-1 para null).
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Método para leer una cadena escrita con {@link #writeString}.
+     */
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_RECORD_SIZE) {
+            throw new IOException("Cadena demasiado larga: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void openJournal() throws IOException {
+        if (journalOut == null) {
+            journalFile = new FileOutputStream(journalFile(generation), true);
+            journalOut = new DataOutputStream(new BufferedOutputStream(journalFile, 8 * 1024));
+        }
+    }
+
+    private void syncJournal() {
+        if (journalOut == null) {
+            return;
+        }
+        try {
+            journalOut.flush();
+            journalFile.getFD().sync();
+        } catch (IOException e) {
+            Log.e("JournalTaskStore", "Error al sincronizar el diario", e);
+        }
+    }
+
+    private void closeJournal() {
+        if (journalOut == null) {
+            return;
+        }
+        try {
+            journalOut.close();
+        } catch (IOException e) {
+            Log.e("JournalTaskStore", "Error al cerrar el diario", e);
+        }
+        journalOut = null;
+        journalFile = null;
+    }
+
+    private File journalFile(long journalGeneration) {
+        return new File(directory, JOURNAL_PREFIX + journalGeneration);
+    }
+
+    /**
+     * Método para listar, en orden ascendente, las generaciones de diario presentes en disco.
+     */
+    private long[] listJournalGenerations() {
+        String[] names = directory.list();
+        if (names == null) {
+            return new long[0];
+        }
+        long[] generations = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (name.startsWith(JOURNAL_PREFIX)) {
+                try {
+                    long journalGeneration = Long.parseLong(name.substring(JOURNAL_PREFIX.length()));
+                    generations[count++] = journalGeneration;
+                } catch (NumberFormatException ignored) {
+                    // Archivo ajeno al almacenamiento
+                }
+            }
+        }
+        long[] result = Arrays.copyOf(generations, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w("JournalTaskStore", "No se pudo borrar " + file.getName());
+        }
+    }
+}
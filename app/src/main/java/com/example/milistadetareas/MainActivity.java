@@ -4,16 +4,27 @@ import android.Manifest;
 import android.app.AlertDialog;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.graphics.Typeface;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.provider.OpenableColumns;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
+import android.widget.PopupMenu;
+import android.widget.ProgressBar;
+import android.widget.RadioGroup;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -26,17 +37,22 @@ import androidx.core.content.FileProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.android.material.snackbar.Snackbar;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 /**
  * Actividad principal que gestiona la lista de tareas.
@@ -45,17 +61,80 @@ public class MainActivity extends AppCompatActivity {
     private static final int REQUEST_PERMISSIONS_CODE = 100;
 
     private MyAdapter myAdapter;                    // Adaptador para la lista de tareas
-    private List<Item> itemList;                    // Lista de tareas
-    private SharedPreferences sharedPreferences;    // Preferencias compartidas para almacenar la lista de tareas
-    private Gson gson;                              // Instancia de Gson para serializar/deserializar objetos
+    private List<Item> itemList;                    // Instantánea inmutable de la lista de tareas
+    private SharedPreferences sharedPreferences;    // Preferencias compartidas con la lista de tareas heredada
+    private TaskShards taskShards;                  // Almacenamientos de las listas, abiertos al usarlas
+    private TaskShards.Shard taskStore;             // Almacenamiento persistente de la lista mostrada
+    private TaskLoader taskLoader;                  // Cargador asíncrono de la lista de tareas
+    private ImageLoader imageLoader;                // Cargador de imágenes de las tareas
+    private ImageProcessor imageProcessor;          // Procesador de las fotos capturadas
+    private ImageCollector imageCollector;          // Recolector de las fotos sin tarea
+    private TaskSearch taskSearch;                  // Búsqueda incremental de tareas
+    private TaskHistory taskHistory;                // Versiones anteriores para deshacer y rehacer
+    private TaskViews taskViews;                    // Orden y filtro de la lista mostrada
+    private boolean tasksLoaded;                    // Indica si la carga inicial ha terminado
     private String currentPhotoPath;                 // Ruta de la foto capturada actualmente
+    private String photoListId;                      // Lista mostrada al capturar la foto
     private EditText editTextTask;                   // Referencia al EditText para actualizar la tarea
+    private View selectionBar;                       // Barra de acciones sobre la selección
+    private TextView selectionCount;                 // Número de tareas seleccionadas
+    private RecyclerView recyclerView;               // Lista mostrada, también ancla de los avisos
+    private Button buttonUndo;                       // Botón para deshacer el último cambio
+    private Button buttonRedo;                       // Botón para rehacer el último cambio deshecho
+    private Button buttonLists;                      // Botón con el nombre de la lista mostrada
+    private Button buttonAddTask;                    // Botones que se habilitan al terminar la carga
+    private Button buttonImportTasks;
+    private Button buttonExportTasks;
+    private Button buttonSort;                       // Botón con el orden de la lista mostrada
+    private Button buttonFilter;                     // Botón con el filtro de la lista mostrada
 
     private static final String SHARED_PREFS_KEY = "shared_prefs";
     private static final String TASK_LIST_KEY = "task_list";
+    private static final String LEGACY_BACKUP_FILE = "task_list.damaged.json"; // Copia del JSON heredado dañado
+    private static final String ID_PREFIX_KEY = "id_prefix";  // Prefijo de los identificadores de la instalación
+    private static final String TASK_LISTS_FILE = "task_lists.json";  // Índice de las listas
+    private static final int MAX_PHOTO_DIMENSION = 2048;           // Lado mayor de las fotos procesadas
+    private static final int PHOTO_QUALITY = 80;                   // Calidad WebP de las fotos procesadas
+    private static final int[] THUMBNAIL_SIZES = {360, 1080};      // Miniaturas generadas al capturar
+    private static final long PHOTO_QUOTA_BYTES = 512L * 1024 * 1024; // Espacio máximo para las fotos
+    private static final String METRICS_FILE = "metrics.jsonl";    // Métricas de cada intervalo
+    private static final long METRICS_FILE_MAX_BYTES = 256 * 1024;  // Tamaño al que se rota el archivo
+    private static final String METRICS_ENABLED_KEY = "metrics_enabled";  // Registro de métricas activado
+    private static final boolean FLAT_ROWS = true;                  // Filas planas medidas en una pasada
+    private static final int ROW_POOL_SIZE = 20;                    // Filas recicladas disponibles
+    private static final int ROW_CACHE_SIZE = 6;                    // Filas fuera de pantalla sin reenlazar
+    private static final int PAGED_MIN_ITEMS = 10_000;              // Tareas a partir de las cuales se pagina
+    private static final String ARCHIVE_TYPE = "application/zip";   // Tipo del archivo de tareas con fotos
+    private static final int MAX_UNDO_STEPS = 50;                   // Niveles de deshacer y rehacer
+    private static final int MAX_OPEN_LISTS = 3;                    // Listas conservadas en memoria
 
     // Lanzador de resultados para captura de fotos
     private ActivityResultLauncher<Intent> takePictureLauncher;
+    // Lanzador del selector de archivos para importar tareas
+    private ActivityResultLauncher<String[]> importLauncher;
+    // Lanzador del selector de destino para exportar tareas con sus fotos
+    private ActivityResultLauncher<String> exportLauncher;
+
+    /**
+     * Receptor de la posición de una tarea buscada con {@link #findTask}.
+     */
+    private interface TaskFoundListener {
+        void onTaskFound(int index, Item current);
+    }
+
+    /**
+     * Cálculo de un lote sobre una instantánea, fuera del hilo principal si es paginada.
+     */
+    private interface BatchFactory {
+        TaskBatch create(List<Item> base);
+    }
+
+    /**
+     * Receptor de un lote calculado con {@link #buildBatch}.
+     */
+    private interface BatchListener {
+        void onBatch(TaskBatch batch);
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -69,6 +148,7 @@ public class MainActivity extends AppCompatActivity {
                         if (currentPhotoPath != null) {
                             // Actualización de la tarea en proceso de creación con la nueva foto
                             editTextTask.setTag(currentPhotoPath);
+                            imageProcessor.process(currentPhotoPath, this::onPhotoProcessed);
                             Toast.makeText(this, "Foto capturada y agregada con éxito", Toast.LENGTH_LONG).show();
                         }
                     } else {
@@ -76,19 +156,135 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
+        // Inicialización del lanzador del selector de archivos para importar tareas
+        importLauncher = registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+            if (uri != null) {
+                importTasks(uri);
+            }
+        });
+
+        // Inicialización del lanzador del selector de destino para exportar tareas
+        exportLauncher = registerForActivityResult(new ActivityResultContracts.CreateDocument(ARCHIVE_TYPE), uri -> {
+            if (uri != null) {
+                exportArchive(uri);
+            }
+        });
+
         sharedPreferences = getSharedPreferences(SHARED_PREFS_KEY, MODE_PRIVATE);
-        gson = new Gson();
-        itemList = loadTasks(); // Cargar la lista de tareas desde SharedPreferences
+        // Prefijo de los identificadores de esta instalación, para sincronizar sin repetirlos
+        int idPrefix = sharedPreferences.getInt(ID_PREFIX_KEY, 0);
+        if (idPrefix == 0) {
+            idPrefix = Item.randomPrefix();
+            sharedPreferences.edit().putInt(ID_PREFIX_KEY, idPrefix).apply();
+        }
+        Item.setDevicePrefix(idPrefix);
+        // Las métricas de rendimiento se registran si se activaron en el menú; por defecto, solo en
+        // las compilaciones depurables
+        Metrics.setEnabled(sharedPreferences.getBoolean(METRICS_ENABLED_KEY,
+                (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0));
+        // Solo se lee el índice de las listas; la lista mostrada se carga en segundo plano
+        File manifestFile = new File(getFilesDir(), TASK_LISTS_FILE);
+        TaskListManifest manifest = TaskListManifest.load(manifestFile, getString(R.string.default_list_name));
+        taskShards = new TaskShards(getFilesDir(), manifestFile, manifest, MAX_OPEN_LISTS, this::createTaskStore);
+        setItemList(TaskVector.empty()); // Se llena de forma incremental al cargar
+        taskViews = new TaskViews(itemList);
+        // Las versiones caducan antes de que el recolector pueda borrar las fotos a las que se refieren
+        taskHistory = new TaskHistory(MAX_UNDO_STEPS, ImageCollector.DEFAULT_GRACE_PERIOD_MS);
 
         // Configuración del RecyclerView y el adaptador
-        RecyclerView recyclerView = findViewById(R.id.recycler_view);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        myAdapter = new MyAdapter(itemList, this); // Pasar referencia de MainActivity al adaptador
+        recyclerView = findViewById(R.id.recycler_view);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        if (FLAT_ROWS) {
+            // Las filas tienen un alto que no cambia el del RecyclerView, que ocupa la pantalla
+            recyclerView.setHasFixedSize(true);
+            // Al lanzar la lista, más filas recicladas y en caché evitan inflar y enlazar de nuevo
+            recyclerView.getRecycledViewPool().setMaxRecycledViews(0, ROW_POOL_SIZE);
+            recyclerView.setItemViewCacheSize(ROW_CACHE_SIZE);
+            layoutManager.setItemPrefetchEnabled(true); // Enlazar la siguiente fila entre fotogramas
+        }
+        imageProcessor = new ImageProcessor(MAX_PHOTO_DIMENSION, PHOTO_QUALITY, THUMBNAIL_SIZES);
+        imageLoader = new ImageLoader(this, THUMBNAIL_SIZES);
+        imageCollector = new ImageCollector(getExternalFilesDir(Environment.DIRECTORY_PICTURES),
+                THUMBNAIL_SIZES, PHOTO_QUOTA_BYTES);
+        myAdapter = new MyAdapter(itemList, this, imageLoader, FLAT_ROWS); // Pasar referencia de MainActivity al adaptador
         recyclerView.setAdapter(myAdapter);
+        recyclerView.addOnScrollListener(new ScrollFrameTracker(getWindowManager().getDefaultDisplay().getRefreshRate()));
+
+        // Configuración de la búsqueda: se busca en la vista mostrada y los resultados la sustituyen;
+        // al borrar la consulta se vuelve a la vista entera sin compararla con los resultados
+        taskSearch = new TaskSearch(taskViews, (query, results, partial) -> {
+            if (query.isEmpty()) {
+                myAdapter.showView(results);
+            } else {
+                myAdapter.submitList(results);
+            }
+        });
+        EditText editTextSearch = findViewById(R.id.edit_text_search);
+        editTextSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                taskSearch.setQuery(s.toString());
+            }
+        });
+
+        // Configuración del botón para cambiar de lista o crear una nueva
+        buttonLists = findViewById(R.id.button_lists);
+        buttonLists.setOnClickListener(v -> showListsDialog());
+
+        // Configuración del menú con las opciones menos usadas
+        findViewById(R.id.button_menu).setOnClickListener(this::showMainMenu);
+
+        // Configuración de los botones para ordenar y filtrar la lista mostrada
+        buttonSort = findViewById(R.id.button_sort);
+        buttonSort.setOnClickListener(v -> showSortDialog());
+        buttonFilter = findViewById(R.id.button_filter);
+        buttonFilter.setOnClickListener(v -> showFilterDialog());
+        updateViewButtons();
 
         // Configuración del botón para agregar tarea
-        Button buttonAddTask = findViewById(R.id.button_add_task);
+        buttonAddTask = findViewById(R.id.button_add_task);
         buttonAddTask.setOnClickListener(v -> showAddTaskDialog());
+        buttonAddTask.setEnabled(false); // Se habilita al terminar la carga
+
+        // Configuración del botón para importar tareas desde un archivo de texto, CSV o ZIP con fotos
+        buttonImportTasks = findViewById(R.id.button_import_tasks);
+        buttonImportTasks.setOnClickListener(v -> importLauncher.launch(new String[]{"text/*", ARCHIVE_TYPE}));
+        buttonImportTasks.setEnabled(false);
+
+        // Configuración del botón para exportar las tareas con sus fotos
+        buttonExportTasks = findViewById(R.id.button_export_tasks);
+        buttonExportTasks.setOnClickListener(v -> exportLauncher.launch(getString(R.string.export_file_name)));
+        buttonExportTasks.setEnabled(false);
+
+        // Configuración de los botones para deshacer y rehacer cambios
+        buttonUndo = findViewById(R.id.button_undo);
+        buttonUndo.setOnClickListener(v -> undo());
+        buttonRedo = findViewById(R.id.button_redo);
+        buttonRedo.setOnClickListener(v -> redo());
+        updateHistoryButtons();
+
+        // Configuración de la barra de acciones sobre las tareas seleccionadas
+        selectionBar = findViewById(R.id.selection_bar);
+        selectionCount = findViewById(R.id.selection_count);
+        Button buttonSelectAll = findViewById(R.id.button_select_all);
+        buttonSelectAll.setOnClickListener(v -> myAdapter.selectAll());
+        Button buttonToggleDone = findViewById(R.id.button_toggle_done);
+        buttonToggleDone.setOnClickListener(v -> toggleDoneSelectedTasks());
+        Button buttonRemovePhotos = findViewById(R.id.button_remove_photos);
+        buttonRemovePhotos.setOnClickListener(v -> removePhotosFromSelectedTasks());
+        Button buttonDeleteSelected = findViewById(R.id.button_delete_selected);
+        buttonDeleteSelected.setOnClickListener(v -> deleteSelectedTasks());
+
+        openList(manifest.getCurrent().getId()); // Cargar la lista mostrada en segundo plano
 
         // Solicitar permisos si no están concedidos
         if (!allPermissionsGranted()) {
@@ -100,6 +296,71 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        taskShards.flush(); // Asegurar que las mutaciones pendientes lleguen a disco
+        taskShards.save();
+        if (taskStore != null) {
+            Log.i("MainActivity", "Escrituras de tareas: " + taskStore.getStats());
+        }
+        Log.i("MainActivity", "Listas: " + taskShards.getStats());
+        Log.i("MainActivity", "Caché de imágenes: " + imageLoader.getStats());
+        Log.i("MainActivity", "Procesamiento de fotos: " + imageProcessor.getStats());
+        Log.i("MainActivity", "Recolección de fotos: " + imageCollector.getStats());
+        Log.i("MainActivity", "Historial: " + taskHistory.getStats());
+        Log.i("MainActivity", "Vistas: " + taskViews.getStats());
+        if (itemList instanceof PagedTaskList) {
+            Log.i("MainActivity", "Lista paginada: " + ((PagedTaskList) itemList).getStats());
+        }
+        if (Metrics.isEnabled()) {
+            final File metricsFile = new File(getFilesDir(), METRICS_FILE);
+            new Thread(() -> {
+                try {
+                    Metrics.appendInterval(metricsFile, METRICS_FILE_MAX_BYTES);
+                } catch (IOException e) {
+                    Log.e("MainActivity", "Error al guardar las métricas", e);
+                }
+            }, "Metrics").start();
+        }
+        if (tasksLoaded) {
+            collectPhotos(); // Con la lista incompleta todas las fotos parecerían huérfanas
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (taskLoader != null) {
+            taskLoader.cancel(); // No hay cargador si la primera lista no llegó a abrirse
+        }
+        imageLoader.shutdown();
+        imageProcessor.shutdown();
+        imageCollector.shutdown();
+        taskSearch.shutdown();
+        taskShards.close();
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (myAdapter.isSelectionMode()) {
+            myAdapter.clearSelection(); // Atrás sale primero del modo de selección
+            return;
+        }
+        super.onBackPressed();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            taskShards.flush(); // El proceso puede terminar en cualquier momento
+        }
+        if (level >= TRIM_MEMORY_MODERATE) {
+            imageLoader.clearMemory(); // Liberar los mapas de bits en caché
+        }
+    }
+
     /**
      * Verifica si todos los permisos necesarios están concedidos.
      *
@@ -155,6 +416,7 @@ public class MainActivity extends AppCompatActivity {
                         photoFile);
                 takePictureIntent.putExtra(MediaStore.EXTRA_OUTPUT, photoURI);
                 currentPhotoPath = photoFile.getAbsolutePath();
+                photoListId = taskStore.getId();
                 takePictureLauncher.launch(takePictureIntent); // Iniciar la actividad de captura de fotos
             } else {
                 Toast.makeText(this, "Error al crear el archivo de imagen", Toast.LENGTH_SHORT).show();
@@ -179,10 +441,38 @@ public class MainActivity extends AppCompatActivity {
         return image;
     }
 
+    /**
+     * Método que sustituye la foto original por la procesada en el diálogo abierto y en las tareas
+     * que ya la usan. La original no se borra aquí: las versiones del historial anteriores al
+     * cambio aún la usan, y el recolector de fotos la borra cuando lleva sin tarea el periodo de
+     * gracia, que es también lo que duran esas versiones.
+     *
+     * @param originalPath  Ruta de la foto original
+     * @param processedPath Ruta de la foto procesada
+     */
+    private void onPhotoProcessed(String originalPath, String processedPath) {
+        if (isDestroyed() || taskStore == null || !taskStore.getId().equals(photoListId)) {
+            return; // La original se conserva; la tarea sigue siendo válida
+        }
+        if (editTextTask != null && originalPath.equals(editTextTask.getTag())) {
+            editTextTask.setTag(processedPath);
+        }
+        buildBatch(base -> {
+            TaskBatch.Builder builder = new TaskBatch.Builder(base);
+            for (Item item : base) {
+                if (originalPath.equals(item.getImagePath())) {
+                    builder.update(item.withImagePath(processedPath));
+                }
+            }
+            return builder.build();
+        }, this::applyBatch);
+    }
+
     /**
      * Método para mostrar el diálogo de agregar tarea.
      */
     private void showAddTaskDialog() {
+        final long openStart = Metrics.DIALOG_OPEN.start();
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         LayoutInflater inflater = getLayoutInflater();
         View dialogView = inflater.inflate(R.layout.dialog_add_task, null);
@@ -191,6 +481,9 @@ public class MainActivity extends AppCompatActivity {
         editTextTask = dialogView.findViewById(R.id.edit_text_task);
         Button buttonAddPhoto = dialogView.findViewById(R.id.button_add_photo);
         buttonAddPhoto.setOnClickListener(v -> capturePhoto()); // Capturar foto al hacer clic en el botón
+        final RadioGroup priorityGroup = dialogView.findViewById(R.id.priority_group);
+        bindPriority(priorityGroup, Item.PRIORITY_NORMAL);
+        dialogView.findViewById(R.id.check_done).setVisibility(View.GONE); // Las tareas nuevas están pendientes
 
         builder.setTitle(R.string.add_task)
                 .setPositiveButton(R.string.add, (dialog, which) -> {
@@ -199,12 +492,12 @@ public class MainActivity extends AppCompatActivity {
 
                     if (!task.isEmpty()) {
                         // Crear un nuevo objeto Item con la tarea y la ruta de la imagen
-                        Item newItem = new Item(task, photoPath != null ? photoPath : ""); // Asegurarse de no pasar null
-                        myAdapter.addItem(newItem); // Agregar nueva tarea al adaptador
-                        saveTasks(); // Guardar la lista actualizada en SharedPreferences
-
-                        // Notificar al adaptador que se ha agregado un nuevo elemento
-                        myAdapter.notifyItemInserted(itemList.size() - 1);
+                        Item newItem = new Item(task, photoPath != null ? photoPath : "") // Asegurarse de no pasar null
+                                .withPriority(readPriority(priorityGroup));
+                        int position = itemList.size();
+                        recordHistory();
+                        insertTasks(position, Collections.singletonList(newItem)); // Agregar nueva tarea al adaptador
+                        taskStore.add(position, newItem); // Registrar la inserción en el almacenamiento
 
                         Toast.makeText(MainActivity.this, R.string.task_added, Toast.LENGTH_SHORT).show();
                     } else {
@@ -214,6 +507,7 @@ public class MainActivity extends AppCompatActivity {
                 .setNegativeButton(R.string.cancel, (dialog, which) -> dialog.dismiss());
 
         AlertDialog dialog = builder.create();
+        dialog.setOnShowListener(d -> Metrics.DIALOG_OPEN.stop(openStart));
         dialog.show();
     }
 
@@ -221,9 +515,13 @@ public class MainActivity extends AppCompatActivity {
      * Método para mostrar el diálogo de edición de tarea.
      *
      * @param item     Objeto Item que se va a editar
-     * @param position Posición del elemento en la lista
+     * @param position Posición del elemento en la lista mostrada
      */
     public void showEditTaskDialog(Item item, int position) {
+        if (!tasksLoaded) {
+            return; // No se registran mutaciones hasta terminar la carga
+        }
+        final long openStart = Metrics.DIALOG_OPEN.start();
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         LayoutInflater inflater = getLayoutInflater();
         View dialogView = inflater.inflate(R.layout.dialog_add_task, null);
@@ -235,6 +533,10 @@ public class MainActivity extends AppCompatActivity {
 
         Button buttonAddPhoto = dialogView.findViewById(R.id.button_add_photo);
         buttonAddPhoto.setOnClickListener(v -> capturePhoto()); // Capturar foto al hacer clic en el botón
+        final RadioGroup priorityGroup = dialogView.findViewById(R.id.priority_group);
+        bindPriority(priorityGroup, item.getPriority());
+        final CheckBox checkDone = dialogView.findViewById(R.id.check_done);
+        checkDone.setChecked(item.isDone());
 
         builder.setTitle(R.string.edit_task)
                 .setPositiveButton(R.string.save, (dialog, which) -> {
@@ -242,12 +544,24 @@ public class MainActivity extends AppCompatActivity {
                     String photoPath = (String) editTextTask.getTag();
 
                     if (!task.isEmpty()) {
-                        item.setTask(task); // Actualizar la tarea en el objeto Item
-                        item.setImagePath(photoPath != null ? photoPath : ""); // Asegurarse de no pasar null
-                        myAdapter.updateItem(position, item); // Actualizar la tarea en la lista del adaptador
-                        saveTasks(); // Guardar la lista actualizada en SharedPreferences
-
-                        Toast.makeText(MainActivity.this, R.string.task_updated, Toast.LENGTH_SHORT).show();
+                        final String newPath = photoPath != null ? photoPath : ""; // Asegurarse de no pasar null
+                        final boolean done = checkDone.isChecked();
+                        final int priority = readPriority(priorityGroup);
+                        findTask(item.getId(), position, (index, current) -> {
+                            if (index < 0) {
+                                return; // La tarea se eliminó mientras el diálogo estaba abierto
+                            }
+                            // Copia de la versión actual con el mismo identificador y sus metadatos
+                            Item updated = current.withTask(task)
+                                    .withImagePath(newPath)
+                                    .withDone(done)
+                                    .withPriority(priority)
+                                    .withUpdated(System.currentTimeMillis());
+                            recordHistory();
+                            replaceTask(index, updated); // Actualizar la tarea en la lista del adaptador
+                            taskStore.update(index, updated); // Registrar la modificación en el almacenamiento
+                            Toast.makeText(MainActivity.this, R.string.task_updated, Toast.LENGTH_SHORT).show();
+                        });
                     } else {
                         Toast.makeText(MainActivity.this, "La tarea no puede estar vacía", Toast.LENGTH_SHORT).show();
                     }
@@ -255,31 +569,981 @@ public class MainActivity extends AppCompatActivity {
                 .setNegativeButton(R.string.cancel, (dialog, which) -> dialog.dismiss());
 
         AlertDialog dialog = builder.create();
+        dialog.setOnShowListener(d -> Metrics.DIALOG_OPEN.stop(openStart));
         dialog.show();
     }
 
     /**
-     * Método para cargar la lista de tareas desde SharedPreferences.
+     * Método para marcar en el grupo de prioridad el botón de una prioridad.
+     *
+     * @param priorityGroup Grupo del diálogo de la tarea
+     * @param priority      Una de las constantes Item.PRIORITY_*
+     */
+    private static void bindPriority(RadioGroup priorityGroup, int priority) {
+        priorityGroup.check(priority == Item.PRIORITY_HIGH ? R.id.priority_high
+                : priority == Item.PRIORITY_LOW ? R.id.priority_low : R.id.priority_normal);
+    }
+
+    /**
+     * Método para leer la prioridad marcada en el grupo de prioridad.
+     *
+     * @param priorityGroup Grupo del diálogo de la tarea
+     * @return Una de las constantes Item.PRIORITY_*
+     */
+    private static int readPriority(RadioGroup priorityGroup) {
+        int checked = priorityGroup.getCheckedRadioButtonId();
+        return checked == R.id.priority_high ? Item.PRIORITY_HIGH
+                : checked == R.id.priority_low ? Item.PRIORITY_LOW : Item.PRIORITY_NORMAL;
+    }
+
+    /**
+     * Método para eliminar una tarea de la lista y registrar la eliminación.
+     *
+     * @param item     Tarea a eliminar
+     * @param position Posición de la tarea en la lista mostrada
+     */
+    public void deleteTask(Item item, int position) {
+        if (!tasksLoaded) {
+            return; // No se registran mutaciones hasta terminar la carga
+        }
+        findTask(item.getId(), position, (index, current) -> {
+            if (index < 0) {
+                return;
+            }
+            recordHistory();
+            removeTask(index); // Eliminar el elemento del adaptador
+            taskStore.remove(index); // Registrar la eliminación en el almacenamiento
+            showUndoSnackbar(getString(R.string.task_deleted)); // Mostrar mensaje de eliminación con opción de deshacer
+        });
+    }
+
+    /**
+     * Método para mostrar el menú con la pantalla de métricas y la opción de registrarlas.
+     *
+     * @param anchor Botón del menú
+     */
+    private void showMainMenu(View anchor) {
+        PopupMenu menu = new PopupMenu(this, anchor);
+        menu.inflate(R.menu.main_menu);
+        menu.getMenu().findItem(R.id.action_record_metrics).setChecked(Metrics.isEnabled());
+        menu.setOnMenuItemClickListener(item -> {
+            if (item.getItemId() == R.id.action_metrics) {
+                showMetricsDialog();
+                return true;
+            } else if (item.getItemId() == R.id.action_record_metrics) {
+                boolean enabled = !item.isChecked();
+                Metrics.setEnabled(enabled);
+                sharedPreferences.edit().putBoolean(METRICS_ENABLED_KEY, enabled).apply();
+                return true;
+            }
+            return false;
+        });
+        menu.show();
+    }
+
+    /**
+     * Método para mostrar la pantalla de depuración con los percentiles de cada métrica del
+     * intervalo en curso, desde la última vez que se guardaron.
+     */
+    private void showMetricsDialog() {
+        TextView text = new TextView(this);
+        text.setTypeface(Typeface.MONOSPACE);
+        text.setTextSize(11);
+        int padding = Math.round(16 * getResources().getDisplayMetrics().density);
+        text.setPadding(padding, padding, padding, padding);
+        text.setText(Metrics.format());
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.metrics)
+                .setView(text)
+                .setPositiveButton(android.R.string.ok, null)
+                .setNeutralButton(R.string.reset_metrics, (dialog, which) -> Metrics.reset())
+                .show();
+    }
+
+    /**
+     * Método para mostrar u ocultar la barra de acciones según la selección del adaptador.
+     *
+     * @param count Número de tareas seleccionadas
+     */
+    public void onSelectionChanged(int count) {
+        selectionBar.setVisibility(count > 0 ? View.VISIBLE : View.GONE);
+        selectionCount.setText(getString(R.string.selected_count, count));
+    }
+
+    /**
+     * Método para eliminar de una vez todas las tareas seleccionadas.
+     */
+    private void deleteSelectedTasks() {
+        if (!tasksLoaded) {
+            return;
+        }
+        final Set<Long> selected = myAdapter.getSelectedIds();
+        myAdapter.clearSelection();
+        buildBatch(base -> {
+            TaskBatch.Builder builder = new TaskBatch.Builder(base);
+            for (long id : selected) {
+                builder.remove(id);
+            }
+            return builder.build();
+        }, batch -> {
+            recordHistory(batch);
+            applyBatch(batch);
+            showUndoSnackbar(getString(R.string.tasks_deleted, batch.getRemoved().size()));
+        });
+    }
+
+    /**
+     * Método para quitar de una vez la foto de todas las tareas seleccionadas.
+     */
+    private void removePhotosFromSelectedTasks() {
+        if (!tasksLoaded) {
+            return;
+        }
+        final Set<Long> selected = myAdapter.getSelectedIds();
+        final long now = System.currentTimeMillis();
+        myAdapter.clearSelection();
+        buildBatch(base -> {
+            TaskBatch.Builder builder = new TaskBatch.Builder(base);
+            for (Item item : base) {
+                if (selected.contains(item.getId()) && item.hasImage()) {
+                    builder.update(item.withImagePath("").withUpdated(now));
+                }
+            }
+            return builder.build();
+        }, batch -> {
+            recordHistory(batch);
+            applyBatch(batch);
+            Toast.makeText(this, getString(R.string.photos_removed, batch.size()), Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * Método para marcar de una vez como hechas las tareas seleccionadas o, si ya lo están todas,
+     * como pendientes.
+     */
+    private void toggleDoneSelectedTasks() {
+        if (!tasksLoaded) {
+            return;
+        }
+        final Set<Long> selected = myAdapter.getSelectedIds();
+        final long now = System.currentTimeMillis();
+        final boolean[] markDone = new boolean[1]; // Decidido al recorrer la lista
+        myAdapter.clearSelection();
+        buildBatch(base -> {
+            List<Item> selectedItems = new ArrayList<>(selected.size());
+            markDone[0] = false;
+            for (Item item : base) {
+                if (selected.contains(item.getId())) {
+                    selectedItems.add(item);
+                    markDone[0] |= !item.isDone();
+                }
+            }
+            TaskBatch.Builder builder = new TaskBatch.Builder(base);
+            for (Item item : selectedItems) {
+                if (item.isDone() != markDone[0]) {
+                    builder.update(item.withDone(markDone[0]).withUpdated(now));
+                }
+            }
+            return builder.build();
+        }, batch -> {
+            recordHistory(batch);
+            applyBatch(batch);
+            Toast.makeText(this, getString(markDone[0] ? R.string.tasks_done : R.string.tasks_pending, batch.size()),
+                    Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * Método para importar en segundo plano las tareas de un archivo de texto (una por línea) o
+     * CSV, y agregarlas al final de la lista como un único lote. Los archivos ZIP se importan con
+     * sus fotos.
+     *
+     * @param uri Archivo elegido por el usuario
+     */
+    private void importTasks(final Uri uri) {
+        String type = getContentResolver().getType(uri);
+        String name = uri.getLastPathSegment();
+        if (ARCHIVE_TYPE.equals(type) || (name != null && name.toLowerCase(Locale.ROOT).endsWith(".zip"))) {
+            importArchive(uri);
+            return;
+        }
+        final boolean csv = (type != null && type.contains("csv"))
+                || (name != null && name.toLowerCase(Locale.ROOT).endsWith(".csv"));
+        final String listId = taskStore.getId(); // Las tareas se agregan a la lista de origen
+        Thread thread = new Thread(() -> {
+            List<Item> imported = null;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in != null) {
+                    imported = new TaskImporter(csv).read(new InputStreamReader(in, StandardCharsets.UTF_8));
+                }
+            } catch (IOException | SecurityException e) {
+                Log.e("MainActivity", "Error al importar las tareas", e);
+            }
+            final List<Item> items = imported;
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                if (items == null) {
+                    Toast.makeText(this, R.string.import_failed, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                if (!isShowingLoaded(listId)) {
+                    Toast.makeText(this, R.string.import_list_changed, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                TaskBatch batch = new TaskBatch.Builder(itemList).appendAll(items).build();
+                recordHistory(batch);
+                applyBatch(batch);
+                Toast.makeText(this, getString(R.string.tasks_imported, items.size()), Toast.LENGTH_SHORT).show();
+            });
+        }, "TaskImporter");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Método para exportar en segundo plano la lista actual con sus fotos a un archivo ZIP.
+     *
+     * @param uri Destino elegido por el usuario
+     */
+    private void exportArchive(final Uri uri) {
+        final List<Item> snapshot = itemList; // Instantánea inmutable: se recorre fuera del hilo principal
+        PagedTaskList.retain(snapshot); // Su archivo sigue abierto aunque la lista cambie
+        ProgressBar progressBar = createArchiveProgressBar();
+        final TaskArchive archive = new TaskArchive(archiveProgressUpdater(progressBar));
+        final AlertDialog dialog = showArchiveProgressDialog(R.string.exporting_tasks, progressBar, archive);
+        Thread thread = new Thread(() -> {
+            int photos = -1;
+            boolean cancelled = false;
+            try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                if (out != null) {
+                    photos = archive.export(snapshot, out);
+                }
+            } catch (CancellationException e) {
+                cancelled = true;
+            } catch (IOException | SecurityException e) {
+                Log.e("MainActivity", "Error al exportar las tareas", e);
+            } finally {
+                PagedTaskList.release(snapshot);
+            }
+            final int exportedPhotos = photos;
+            final boolean exportCancelled = cancelled;
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                dialog.dismiss();
+                if (exportCancelled) {
+                    Toast.makeText(this, R.string.archive_cancelled, Toast.LENGTH_SHORT).show();
+                } else if (exportedPhotos < 0) {
+                    Toast.makeText(this, R.string.export_failed, Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(this, getString(R.string.tasks_exported, snapshot.size(), exportedPhotos),
+                            Toast.LENGTH_SHORT).show();
+                }
+            });
+        }, "TaskExporter");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Método para importar en segundo plano un archivo ZIP exportado, extrayendo sus fotos al
+     * directorio de fotos y agregando sus tareas al final de la lista como un único lote.
+     *
+     * @param uri Archivo elegido por el usuario
+     */
+    private void importArchive(final Uri uri) {
+        final long size = queryFileSize(uri);
+        final File picturesDir = getExternalFilesDir(Environment.DIRECTORY_PICTURES);
+        final String listId = taskStore.getId(); // Las tareas se agregan a la lista de origen
+        ProgressBar progressBar = createArchiveProgressBar();
+        final TaskArchive archive = new TaskArchive(archiveProgressUpdater(progressBar));
+        final AlertDialog dialog = showArchiveProgressDialog(R.string.importing_tasks, progressBar, archive);
+        Thread thread = new Thread(() -> {
+            List<Item> imported = null;
+            boolean cancelled = false;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in != null && picturesDir != null) {
+                    imported = archive.importArchive(in, size, picturesDir);
+                }
+            } catch (CancellationException e) {
+                cancelled = true;
+            } catch (IOException | SecurityException e) {
+                Log.e("MainActivity", "Error al importar las tareas", e);
+            }
+            final List<Item> items = imported;
+            final boolean importCancelled = cancelled;
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                dialog.dismiss();
+                if (importCancelled) {
+                    Toast.makeText(this, R.string.archive_cancelled, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                if (items == null) {
+                    Toast.makeText(this, R.string.import_failed, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                if (!isShowingLoaded(listId)) {
+                    Toast.makeText(this, R.string.import_list_changed, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                TaskBatch batch = new TaskBatch.Builder(itemList).appendAll(items).build();
+                recordHistory(batch);
+                applyBatch(batch);
+                Toast.makeText(this, getString(R.string.tasks_imported, items.size()), Toast.LENGTH_SHORT).show();
+            });
+        }, "TaskImporter");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Método para saber si una lista sigue mostrada y cargada, al terminar una tarea en segundo
+     * plano que empezó con ella.
+     *
+     * @param listId Directorio de la lista al empezar la tarea
+     * @return true si se pueden aplicar cambios a la lista mostrada
+     */
+    private boolean isShowingLoaded(String listId) {
+        return tasksLoaded && taskStore != null && taskStore.getId().equals(listId);
+    }
+
+    /**
+     * Método para crear la barra de progreso de una exportación o importación.
+     *
+     * @return Barra horizontal indeterminada hasta conocer el total
+     */
+    private ProgressBar createArchiveProgressBar() {
+        ProgressBar progressBar = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setMax(100);
+        progressBar.setIndeterminate(true);
+        int padding = Math.round(16 * getResources().getDisplayMetrics().density);
+        progressBar.setPadding(padding, padding, padding, padding);
+        return progressBar;
+    }
+
+    /**
+     * Método para mostrar el diálogo de progreso, que solo se cierra al terminar o cancelar.
+     *
+     * @param title       Título del diálogo
+     * @param progressBar Barra de progreso
+     * @param archive     Operación que se cancela con el botón del diálogo
+     * @return Diálogo mostrado
+     */
+    private AlertDialog showArchiveProgressDialog(int title, ProgressBar progressBar, TaskArchive archive) {
+        return new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setView(progressBar)
+                .setCancelable(false)
+                .setNegativeButton(R.string.cancel, (dialog, which) -> archive.cancel())
+                .show();
+    }
+
+    /**
+     * Método para crear el receptor del progreso, que solo actualiza la barra cuando cambia el
+     * porcentaje para no saturar el hilo principal con miles de bloques.
+     *
+     * @param progressBar Barra de progreso
+     * @return Receptor invocado desde el hilo de la operación
+     */
+    private TaskArchive.ProgressListener archiveProgressUpdater(final ProgressBar progressBar) {
+        final int[] lastPercent = {-1};
+        return (done, total) -> {
+            final int percent = total > 0 ? (int) Math.min(100, done * 100 / total) : -1;
+            if (percent == lastPercent[0]) {
+                return;
+            }
+            lastPercent[0] = percent;
+            runOnUiThread(() -> {
+                progressBar.setIndeterminate(percent < 0);
+                if (percent >= 0) {
+                    progressBar.setProgress(percent);
+                }
+            });
+        };
+    }
+
+    /**
+     * Método para obtener el tamaño de un archivo elegido por el usuario.
+     *
+     * @param uri Archivo elegido
+     * @return Tamaño en bytes, o -1 si el proveedor no lo indica
+     */
+    private long queryFileSize(Uri uri) {
+        try (Cursor cursor = getContentResolver().query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (SecurityException e) {
+            Log.w("MainActivity", "No se pudo consultar el tamaño del archivo", e);
+        }
+        return -1;
+    }
+
+    /**
+     * Método para guardar la versión actual en el historial antes de una modificación del usuario.
+     */
+    private void recordHistory() {
+        taskHistory.record(itemList);
+        updateHistoryButtons();
+    }
+
+    /**
+     * Método para guardar la versión actual en el historial antes de aplicar un lote, si cambia algo.
+     *
+     * @param batch Lote calculado sobre la instantánea actual
+     */
+    private void recordHistory(TaskBatch batch) {
+        if (batch.size() > 0) {
+            recordHistory();
+        }
+    }
+
+    /**
+     * Método para volver a la versión anterior de la lista. Solo se muestran y se registran las
+     * diferencias entre ambas versiones.
+     */
+    private void undo() {
+        if (!tasksLoaded) {
+            return;
+        }
+        List<Item> previous = taskHistory.undo(itemList);
+        if (previous == null) {
+            Toast.makeText(this, R.string.nothing_to_undo, Toast.LENGTH_SHORT).show();
+        } else {
+            applyBatch(TaskBatch.diff(itemList, previous));
+            PagedTaskList.release(previous); // El historial la entrega anotada
+        }
+        updateHistoryButtons();
+    }
+
+    /**
+     * Método para volver a la versión deshecha más reciente.
+     */
+    private void redo() {
+        if (!tasksLoaded) {
+            return;
+        }
+        List<Item> next = taskHistory.redo(itemList);
+        if (next == null) {
+            Toast.makeText(this, R.string.nothing_to_redo, Toast.LENGTH_SHORT).show();
+        } else {
+            applyBatch(TaskBatch.diff(itemList, next));
+            PagedTaskList.release(next);
+        }
+        updateHistoryButtons();
+    }
+
+    /**
+     * Método para habilitar los botones de deshacer y rehacer según el historial.
+     */
+    private void updateHistoryButtons() {
+        buttonUndo.setEnabled(tasksLoaded && taskHistory.canUndo());
+        buttonRedo.setEnabled(tasksLoaded && taskHistory.canRedo());
+    }
+
+    /**
+     * Método para mostrar un aviso con la opción de deshacer el cambio recién hecho.
+     *
+     * @param message Texto del aviso
+     */
+    private void showUndoSnackbar(String message) {
+        Snackbar.make(recyclerView, message, Snackbar.LENGTH_LONG)
+                .setAction(R.string.undo, v -> undo())
+                .show();
+    }
+
+    /**
+     * Método para aplicar un lote de cambios: una nueva instantánea, una actualización del
+     * adaptador y un único registro en el almacenamiento.
+     *
+     * @param batch Lote calculado sobre la instantánea actual
+     */
+    private void applyBatch(TaskBatch batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        setItemList(batch.getItems());
+        TaskViews.Changes changes = taskViews.applied(batch);
+        taskSearch.onBatchApplied(batch);
+        if (taskSearch.isActive()) {
+            taskSearch.refresh();
+        } else if (changes == null) {
+            myAdapter.submitBatch(itemList, batch);
+        } else {
+            myAdapter.submitViewChanges(taskViews.getView(), changes);
+        }
+        taskStore.applyBatch(batch);
+    }
+
+    /**
+     * Método para cambiar la instantánea mostrada: se anota la nueva y se suelta la anterior, cuyo
+     * archivo de páginas se cierra si nada más la conserva.
+     *
+     * @param items Nueva instantánea
+     */
+    private void setItemList(List<Item> items) {
+        PagedTaskList.retain(items);
+        PagedTaskList.release(itemList);
+        itemList = items;
+    }
+
+    /**
+     * Método para localizar una tarea por su identificador, probando primero la posición indicada.
+     * Si no está ahí, una lista paginada se recorre en el hilo de las páginas, porque puede leer del
+     * disco, y el resultado se entrega en el hilo principal; si la lista cambió mientras tanto, se
+     * vuelve a buscar en la actual. Si se cambia de lista, no se entrega nada.
+     *
+     * @param id           Identificador de la tarea
+     * @param positionHint Posición probable de la tarea
+     * @param listener     Receptor de la posición en la lista actual, o -1 si no está
+     */
+    private void findTask(final long id, int positionHint, final TaskFoundListener listener) {
+        final List<Item> base = itemList;
+        Item hinted = null;
+        if (positionHint >= 0 && positionHint < base.size()) {
+            hinted = base instanceof PagedTaskList ? ((PagedTaskList) base).peek(positionHint) : base.get(positionHint);
+        }
+        if (hinted != null && hinted.getId() == id) {
+            listener.onTaskFound(positionHint, hinted);
+            return;
+        }
+        if (!(base instanceof PagedTaskList)) {
+            int index = indexOfTask(base, id);
+            listener.onTaskFound(index, index >= 0 ? base.get(index) : null);
+            return;
+        }
+        final String listId = taskStore.getId();
+        PagedTaskList.retain(base); // Su archivo sigue abierto durante el recorrido
+        PagedTaskList.runOnPageThread(() -> {
+            final int index = indexOfTask(base, id);
+            // Leerla deja su página en memoria: modificarla no lee del disco en el hilo principal
+            final Item found = index >= 0 ? base.get(index) : null;
+            runOnUiThread(() -> {
+                PagedTaskList.release(base);
+                if (isDestroyed() || !isShowingLoaded(listId)) {
+                    return;
+                }
+                if (itemList != base) {
+                    findTask(id, index, listener); // La posición encontrada sirve de pista
+                    return;
+                }
+                listener.onTaskFound(index, found);
+            });
+        });
+    }
+
+    private static int indexOfTask(List<Item> items, long id) {
+        int index = 0;
+        for (Item item : items) {
+            if (item.getId() == id) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * Método para calcular un lote que recorre la lista y aplicarlo en el hilo principal. Sobre una
+     * lista paginada se calcula en el hilo de las páginas, porque recorrerla puede leer del disco;
+     * si la lista cambia mientras tanto, se vuelve a calcular sobre la actual, y si se cambia de
+     * lista se descarta.
+     *
+     * @param factory  Cálculo del lote sobre una instantánea, sin tocar la interfaz
+     * @param listener Receptor del lote, calculado sobre la lista mostrada
+     */
+    private void buildBatch(final BatchFactory factory, final BatchListener listener) {
+        final List<Item> base = itemList;
+        if (!(base instanceof PagedTaskList)) {
+            listener.onBatch(factory.create(base));
+            return;
+        }
+        final String listId = taskStore.getId();
+        PagedTaskList.retain(base);
+        PagedTaskList.runOnPageThread(() -> {
+            final TaskBatch batch = factory.create(base);
+            runOnUiThread(() -> {
+                PagedTaskList.release(base);
+                if (isDestroyed() || !isShowingLoaded(listId)) {
+                    return;
+                }
+                if (itemList != base) {
+                    buildBatch(factory, listener);
+                    return;
+                }
+                listener.onBatch(batch);
+            });
+        });
+    }
+
+    /**
+     * Método para insertar tareas consecutivas creando una nueva instantánea de la lista.
+     *
+     * @param position Posición de la primera tarea
+     * @param items    Tareas a insertar
+     */
+    private void insertTasks(int position, List<Item> items) {
+        List<Item> next = PagedTaskList.withInserted(itemList, position, items);
+        setItemList(next);
+        TaskViews.Changes changes = taskViews.inserted(next, position, items);
+        taskSearch.onItemsInserted(position, items);
+        if (taskSearch.isActive()) {
+            taskSearch.refresh(); // La lista mostrada es la filtrada
+        } else if (changes == null) {
+            myAdapter.submitInsert(next, position, items.size());
+        } else {
+            myAdapter.submitViewChanges(taskViews.getView(), changes);
+        }
+    }
+
+    /**
+     * Método para sustituir una tarea creando una nueva instantánea de la lista.
+     *
+     * @param position Posición de la tarea
+     * @param item     Nuevo contenido de la tarea
+     */
+    private void replaceTask(int position, Item item) {
+        Item previous = itemList.get(position);
+        List<Item> next = PagedTaskList.withReplaced(itemList, position, item);
+        setItemList(next);
+        TaskViews.Changes changes = taskViews.replaced(next, position, previous, item);
+        taskSearch.onItemChanged(item);
+        if (taskSearch.isActive()) {
+            taskSearch.refresh();
+        } else if (changes == null) {
+            myAdapter.submitChange(next, position);
+        } else {
+            myAdapter.submitViewChanges(taskViews.getView(), changes);
+        }
+    }
+
+    /**
+     * Método para eliminar una tarea creando una nueva instantánea de la lista.
      *
-     * @return Lista de objetos Item cargada desde SharedPreferences
+     * @param position Posición de la tarea
      */
-    private List<Item> loadTasks() {
-        String json = sharedPreferences.getString(TASK_LIST_KEY, null);
-        if (json != null) {
-            Type type = new TypeToken<ArrayList<Item>>() {}.getType();
-            return gson.fromJson(json, type); // Deserializar la lista desde JSON
+    private void removeTask(int position) {
+        Item removed = itemList.get(position);
+        List<Item> next = PagedTaskList.withRemoved(itemList, position);
+        setItemList(next);
+        TaskViews.Changes changes = taskViews.removed(next, position, removed);
+        taskSearch.onItemRemoved(position, removed);
+        if (taskSearch.isActive()) {
+            taskSearch.refresh();
+        } else if (changes == null) {
+            myAdapter.submitRemove(next, position);
         } else {
-            return new ArrayList<>(); // Devolver una lista vacía si no hay datos guardados
+            myAdapter.submitViewChanges(taskViews.getView(), changes);
         }
     }
 
     /**
-     * Método para guardar la lista de tareas en SharedPreferences.
+     * Método para sustituir la lista por su versión reabierta de la nueva instantánea, con el
+     * mismo contenido y sin tramos ni tareas en memoria. Si la lista cambió mientras se escribía la
+     * instantánea, se conserva y se reabrirá en la siguiente compactación. Tampoco se sustituye
+     * mientras haya una vista ordenada o filtrada indexada, que necesita la lista en memoria. La
+     * lista descartada cierra su archivo en el acto.
+     *
+     * @param written Lista guardada en la instantánea
+     * @param paged   Lista paginada con el mismo contenido
      */
-    public void saveTasks() {
-        String json = gson.toJson(itemList); // Serializar la lista a JSON
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString(TASK_LIST_KEY, json);
-        editor.apply(); // Aplicar los cambios en SharedPreferences
+    private void onPagedSnapshot(List<Item> written, PagedTaskList paged) {
+        if (isDestroyed() || itemList != written || taskViews.isIndexed()) {
+            PagedTaskList.closeIfUnused(paged); // Nadie más la conoce
+            return;
+        }
+        setItemList(paged);
+        taskViews.swap(paged);
+        myAdapter.swapList(written, paged);
+        Log.i("MainActivity", "Lista paginada: " + paged.getStats());
+    }
+
+    /**
+     * Método para crear el almacenamiento de una lista: las listas grandes se leen del disco por
+     * páginas y tras compactar se reabren sin tramos.
+     *
+     * @param directory Directorio de la lista
+     * @return Almacenamiento de la lista
+     */
+    private TaskStore createTaskStore(File directory) {
+        JournalTaskStore journalTaskStore = new JournalTaskStore(directory);
+        journalTaskStore.setPaging(PAGED_MIN_ITEMS, PagedTaskList.DEFAULT_CACHED_PAGES,
+                (written, paged) -> runOnUiThread(() -> onPagedSnapshot(written, paged)));
+        return journalTaskStore;
+    }
+
+    /**
+     * Método para mostrar una lista de tareas. Una lista abierta hace poco se muestra con su última
+     * instantánea; las demás se abren tras los cierres pendientes y se cargan en segundo plano como
+     * al iniciar. Mientras tanto no hay lista mostrada.
+     *
+     * @param id Directorio de la lista en el índice
+     */
+    private void openList(String id) {
+        if (taskStore != null) {
+            if (id.equals(taskStore.getId())) {
+                return;
+            }
+            taskLoader.cancel();
+            taskStore.flush();
+            taskShards.leave(taskStore, itemList);
+            taskStore = null;
+        }
+        taskHistory.clear(); // Las versiones guardadas son de la otra lista
+        taskSearch.reset();
+        taskShards.open(id, this::runOnUiThread, this::onListOpened);
+        buttonLists.setText(taskShards.getManifest().getCurrent().getName());
+        if (taskStore == null) {
+            showEmptyList(); // La lista se entrega cuando terminen los cierres pendientes
+        }
+    }
+
+    /**
+     * Método para mostrar una lista abierta con {@link #openList}.
+     *
+     * @param shard Lista abierta, que es la marcada como mostrada
+     */
+    private void onListOpened(TaskShards.Shard shard) {
+        if (isDestroyed() || taskStore != null) {
+            return;
+        }
+        taskStore = shard;
+        if (taskStore.isLoaded()) {
+            setItemList(taskStore.getItems());
+            taskViews.reset(itemList); // Cada lista se abre en su orden manual
+            updateViewButtons();
+            taskStore.attach(() -> itemList);
+            taskSearch.onItemsInserted(0, itemList);
+            myAdapter.replaceList(itemList);
+            taskSearch.refresh();
+            setTasksLoaded(true);
+        } else {
+            showEmptyList();
+            loadTasks();
+        }
+    }
+
+    /**
+     * Método para mostrar una lista vacía con las acciones deshabilitadas hasta que se cargue.
+     */
+    private void showEmptyList() {
+        setItemList(TaskVector.empty());
+        taskViews.reset(itemList);
+        updateViewButtons();
+        myAdapter.replaceList(itemList);
+        setTasksLoaded(false);
+    }
+
+    /**
+     * Método para mostrar las listas con su número de tareas, leído del índice sin abrirlas.
+     */
+    private void showListsDialog() {
+        final List<TaskListManifest.Entry> entries = taskShards.getManifest().getEntries();
+        String[] names = new String[entries.size()];
+        for (int i = 0; i < names.length; i++) {
+            TaskListManifest.Entry entry = entries.get(i);
+            names[i] = entry.getCount() == TaskListManifest.Entry.UNKNOWN ? entry.getName()
+                    : getString(R.string.list_entry, entry.getName(), entry.getCount());
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.task_lists)
+                .setItems(names, (dialog, which) -> openList(entries.get(which).getId()))
+                .setNeutralButton(R.string.new_list, (dialog, which) -> showNewListDialog())
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Método para pedir el nombre de una lista nueva y mostrarla.
+     */
+    private void showNewListDialog() {
+        final EditText editTextName = new EditText(this);
+        editTextName.setHint(R.string.list_name);
+        editTextName.setSingleLine();
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.new_list)
+                .setView(editTextName)
+                .setPositiveButton(R.string.add, (dialog, which) -> {
+                    String name = editTextName.getText().toString().trim();
+                    if (name.isEmpty()) {
+                        Toast.makeText(this, R.string.list_name_empty, Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    openList(taskShards.create(name).getId());
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Método para habilitar las acciones sobre la lista según haya terminado su carga.
+     *
+     * @param loaded true si la lista mostrada está cargada
+     */
+    private void setTasksLoaded(boolean loaded) {
+        tasksLoaded = loaded;
+        updateHistoryButtons();
+        buttonAddTask.setEnabled(loaded);
+        buttonImportTasks.setEnabled(loaded);
+        buttonExportTasks.setEnabled(loaded);
+        buttonSort.setEnabled(loaded);
+        buttonFilter.setEnabled(loaded);
+    }
+
+    /**
+     * Método para elegir el orden de la lista mostrada.
+     */
+    private void showSortDialog() {
+        final TaskIndex.Order[] orders = TaskIndex.Order.values();
+        String[] names = new String[orders.length];
+        for (int i = 0; i < orders.length; i++) {
+            names[i] = getString(orderName(orders[i]));
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.sort)
+                .setSingleChoiceItems(names, taskViews.getOrder().ordinal(), (dialog, which) -> {
+                    dialog.dismiss();
+                    showView(orders[which], taskViews.getFilter());
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Método para elegir qué tareas de la lista se muestran.
+     */
+    private void showFilterDialog() {
+        final TaskIndex.Filter[] filters = TaskIndex.Filter.values();
+        String[] names = new String[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            names[i] = getString(filterName(filters[i]));
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.filter)
+                .setSingleChoiceItems(names, taskViews.getFilter().ordinal(), (dialog, which) -> {
+                    dialog.dismiss();
+                    showView(taskViews.getOrder(), filters[which]);
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Método para mostrar la lista con otro orden o filtro. Solo la primera vez que se usa un
+     * orden se indexa la lista, en segundo plano; mientras tanto se sigue mostrando la vista
+     * anterior. Después basta con mostrar la vista del índice.
+     *
+     * @param order  Orden de las tareas
+     * @param filter Partición mostrada
+     */
+    private void showView(TaskIndex.Order order, TaskIndex.Filter filter) {
+        if (!taskViews.setView(order, filter, this::runOnUiThread, this::onViewShown)) {
+            Toast.makeText(this, R.string.view_unavailable, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Método para mostrar la vista elegida cuando su índice está listo.
+     */
+    private void onViewShown() {
+        if (isDestroyed()) {
+            return;
+        }
+        updateViewButtons();
+        if (taskSearch.isActive()) {
+            taskSearch.refresh(); // Se busca de nuevo en la vista elegida
+        } else {
+            myAdapter.showView(taskViews.getView());
+        }
+    }
+
+    /**
+     * Método para mostrar en los botones el orden y el filtro actuales.
+     */
+    private void updateViewButtons() {
+        buttonSort.setText(orderName(taskViews.getOrder()));
+        buttonFilter.setText(filterName(taskViews.getFilter()));
+    }
+
+    private static int orderName(TaskIndex.Order order) {
+        switch (order) {
+            case CREATED:
+                return R.string.sort_created;
+            case UPDATED:
+                return R.string.sort_updated;
+            case PRIORITY:
+                return R.string.sort_priority;
+            default:
+                return R.string.sort_manual;
+        }
+    }
+
+    private static int filterName(TaskIndex.Filter filter) {
+        switch (filter) {
+            case PENDING:
+                return R.string.filter_pending;
+            case DONE:
+                return R.string.filter_done;
+            case PHOTO:
+                return R.string.filter_photo;
+            default:
+                return R.string.filter_all;
+        }
+    }
+
+    /**
+     * Método para programar un barrido de fotos sobre todas las listas. Las tareas con foto de las
+     * listas cerradas se reúnen en segundo plano; mientras la lista mostrada se carga no se barre,
+     * porque sus fotos parecerían huérfanas.
+     */
+    private void collectPhotos() {
+        if (!taskShards.collectPhotoSnapshots(imageCollector::collectAll)) {
+            Log.i("MainActivity", "Barrido de fotos aplazado: hay listas con fotos sin cargar");
+        }
+    }
+
+    /**
+     * Método para cargar la lista mostrada en segundo plano.
+     * Las tareas se agregan al adaptador por lotes a medida que se leen.
+     */
+    private void loadTasks() {
+        // Solo la lista por defecto puede tener una versión heredada en las preferencias
+        String legacyKey = TaskListManifest.DEFAULT_ID.equals(taskStore.getId()) ? TASK_LIST_KEY : null;
+        taskLoader = new TaskLoader(taskStore, sharedPreferences, legacyKey,
+                new File(getFilesDir(), LEGACY_BACKUP_FILE));
+        taskLoader.start(new TaskLoader.Listener() {
+            @Override
+            public void onItemsInserted(int position, List<Item> items) {
+                insertTasks(position, items);
+            }
+
+            @Override
+            public void onItemChanged(int position, Item item) {
+                replaceTask(position, item);
+            }
+
+            @Override
+            public void onItemRemoved(int position) {
+                removeTask(position);
+            }
+
+            @Override
+            public void onLoadFinished(long timeToFirstItemMs, long timeToFullyLoadedMs) {
+                if (timeToFirstItemMs >= 0) {
+                    Metrics.LOAD_FIRST_ITEM.recordMillis(timeToFirstItemMs);
+                }
+                Metrics.LOAD_TOTAL.recordMillis(timeToFullyLoadedMs);
+                taskStore.attach(() -> itemList); // Asociar la lista cargada al almacenamiento
+                taskShards.save(); // Número de tareas de la lista en el índice
+                setTasksLoaded(true);
+                collectPhotos();
+            }
+        });
     }
 }
@@ -0,0 +1,357 @@
+package com.example.milistadetareas;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registro de métricas de rendimiento: contadores e histogramas de latencia.
+ * <p>
+ * Las métricas son campos estáticos creados al cargar la clase; registrar un valor no reserva
+ * memoria y, con el registro desactivado, se reduce a leer un campo volátil. Los histogramas
+ * agrupan las latencias en cubetas logarítmicas con 8 subdivisiones por potencia de dos (error
+ * relativo menor del 7 %), lo que permite calcular percentiles sin guardar cada muestra.
+ * <p>
+ * Las métricas cubren un intervalo: {@link #appendInterval} guarda las del intervalo en curso como
+ * una línea JSON y empieza otro, de modo que cada línea del archivo es independiente de las demás.
+ * <p>
+ * Uso: {@code long start = Metrics.BIND.start(); ...; Metrics.BIND.stop(start);}
+ */
+public final class Metrics {
+    private static final List<Histogram> HISTOGRAMS = new ArrayList<>();
+    private static final List<Counter> COUNTERS = new ArrayList<>();
+    private static final String ROTATED_SUFFIX = ".1";                      // Archivo anterior al rotar
+    private static volatile boolean enabled;
+    private static volatile long intervalStart = System.currentTimeMillis(); // Inicio del intervalo
+
+    // Latencias de la carga, la persistencia y la interfaz
+    public static final Histogram LOAD_FIRST_ITEM = histogram("load.first_item");
+    public static final Histogram LOAD_TOTAL = histogram("load.total");
+    public static final Histogram SAVE = histogram("save.commit");
+    public static final Histogram SNAPSHOT = histogram("save.snapshot");
+    public static final Histogram CREATE_VIEW_HOLDER = histogram("adapter.create");
+    public static final Histogram BIND_VIEW_HOLDER = histogram("adapter.bind");
+    public static final Histogram IMAGE_DECODE = histogram("image.decode");
+    public static final Histogram DIALOG_OPEN = histogram("dialog.open");
+    public static final Histogram SCROLL_FRAME = histogram("scroll.frame");
+
+    // Contadores
+    public static final Counter SCROLL_FRAMES = counter("scroll.frames");
+    public static final Counter SCROLL_JANK = counter("scroll.jank");
+
+    private Metrics() {
+    }
+
+    private static Histogram histogram(String name) {
+        Histogram histogram = new Histogram(name);
+        HISTOGRAMS.add(histogram);
+        return histogram;
+    }
+
+    private static Counter counter(String name) {
+        Counter counter = new Counter(name);
+        COUNTERS.add(counter);
+        return counter;
+    }
+
+    /**
+     * Método para activar o desactivar el registro. Los valores ya registrados se conservan.
+     *
+     * @param value true para registrar
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Método para vaciar todas las métricas y empezar un nuevo intervalo.
+     */
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        for (Counter counter : COUNTERS) {
+            counter.reset();
+        }
+        intervalStart = System.currentTimeMillis();
+    }
+
+    public static List<Histogram> getHistograms() {
+        return Collections.unmodifiableList(HISTOGRAMS);
+    }
+
+    public static List<Counter> getCounters() {
+        return Collections.unmodifiableList(COUNTERS);
+    }
+
+    /**
+     * Método para escribir una instantánea de todas las métricas como un objeto JSON en una línea.
+     *
+     * @param out       Destino de la línea, sin salto final
+     * @param timestamp Momento de la instantánea en milisegundos
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void writeSnapshot(Writer out, long timestamp) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("since").value(intervalStart);
+        json.name("time").value(timestamp);
+        for (Histogram histogram : HISTOGRAMS) {
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            json.name(histogram.getName()).beginObject()
+                    .name("count").value(count)
+                    .name("meanMs").value(histogram.getMeanNanos() / 1e6)
+                    .name("p50Ms").value(histogram.getPercentileNanos(0.50) / 1e6)
+                    .name("p90Ms").value(histogram.getPercentileNanos(0.90) / 1e6)
+                    .name("p99Ms").value(histogram.getPercentileNanos(0.99) / 1e6)
+                    .name("maxMs").value(histogram.getMaxNanos() / 1e6)
+                    .endObject();
+        }
+        for (Counter counter : COUNTERS) {
+            json.name(counter.getName()).value(counter.get());
+        }
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Método para anexar una instantánea a un archivo de líneas JSON.
+     *
+     * @param file Archivo de destino
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void appendSnapshot(File file) throws IOException {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writeSnapshot(out, System.currentTimeMillis());
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Método para anexar las métricas del intervalo en curso a un archivo de líneas JSON y empezar
+     * otro intervalo. Si el archivo supera el tamaño máximo, antes pasa a ser el archivo anterior,
+     * con el sufijo .1, que se sustituye: entre los dos nunca ocupan mucho más del doble.
+     *
+     * @param file     Archivo de destino
+     * @param maxBytes Tamaño a partir del cual se rota el archivo
+     * @throws IOException Si ocurre un error de escritura o no se puede rotar el archivo
+     */
+    public static synchronized void appendInterval(File file, long maxBytes) throws IOException {
+        if (file.length() > maxBytes) {
+            File previous = new File(file.getPath() + ROTATED_SUFFIX);
+            if ((previous.exists() && !previous.delete()) || !file.renameTo(previous)) {
+                throw new IOException("No se pudo rotar " + file);
+            }
+        }
+        appendSnapshot(file);
+        reset();
+    }
+
+    /**
+     * Método para obtener una tabla legible con los percentiles de cada métrica.
+     *
+     * @return Texto con una línea por métrica
+     */
+    public static String format() {
+        StringWriter text = new StringWriter();
+        for (Histogram histogram : HISTOGRAMS) {
+            text.write(String.format(Locale.ROOT, "%-18s n=%-6d p50=%7.2f p99=%7.2f max=%7.2f ms%n",
+                    histogram.getName(), histogram.getCount(), histogram.getPercentileNanos(0.50) / 1e6,
+                    histogram.getPercentileNanos(0.99) / 1e6, histogram.getMaxNanos() / 1e6));
+        }
+        for (Counter counter : COUNTERS) {
+            text.write(String.format(Locale.ROOT, "%-18s %d%n", counter.getName(), counter.get()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Contador monótono.
+     */
+    public static final class Counter {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            if (enabled) {
+                value.incrementAndGet();
+            }
+        }
+
+        public void add(long delta) {
+            if (enabled) {
+                value.addAndGet(delta);
+            }
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        void reset() {
+            value.set(0);
+        }
+    }
+
+    /**
+     * Histograma de latencias en microsegundos con cubetas logarítmicas de tamaño fijo.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_EXPONENT = 40;    // Unos 12 días en microsegundos
+        private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Histogram(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Método para iniciar una medición.
+         *
+         * @return Marca de tiempo en nanosegundos, o 0 si el registro está desactivado
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Método para terminar una medición iniciada con {@link #start()}.
+         *
+         * @param start Valor devuelto por {@link #start()}
+         */
+        public void stop(long start) {
+            if (start != 0) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Método para registrar una duración medida por otros medios.
+         *
+         * @param nanos Duración en nanosegundos
+         */
+        public void record(long nanos) {
+            if (!enabled || nanos < 0) {
+                return;
+            }
+            buckets.incrementAndGet(bucketOf(nanos / 1000));
+            count.incrementAndGet();
+            sumNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // Reintentar si otro hilo actualizó el máximo
+            }
+        }
+
+        /**
+         * Método para registrar una duración en milisegundos.
+         *
+         * @param millis Duración en milisegundos
+         */
+        public void recordMillis(long millis) {
+            record(millis * 1_000_000);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getMeanNanos() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sumNanos.get() / n;
+        }
+
+        /**
+         * Método para estimar un percentil a partir de las cubetas.
+         *
+         * @param fraction Percentil entre 0 y 1
+         * @return Valor central de la cubeta que contiene el percentil, en nanosegundos
+         */
+        public long getPercentileNanos(double fraction) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(fraction * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return Math.min(middleOf(i) * 1000, maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sumNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        static int bucketOf(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+            int shift = exponent - SUB_BUCKET_BITS;
+            int sub = (int) Math.min((micros >>> shift) - SUB_BUCKETS, SUB_BUCKETS - 1);
+            return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+        }
+
+        static long middleOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+            int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            long lower = (long) (SUB_BUCKETS + sub) << shift;
+            return lower + ((1L << shift) >> 1);
+        }
+    }
+}
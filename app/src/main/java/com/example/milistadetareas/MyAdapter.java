@@ -1,77 +1,269 @@
 package com.example.milistadetareas;
 
 import android.content.Context;
-import android.net.Uri;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
-import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.BatchingListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.io.File;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * Adaptador para la lista de tareas en un RecyclerView.
+ * <p>
+ * Muestra instantáneas inmutables de la lista. Los cambios puntuales se notifican directamente;
+ * las instantáneas arbitrarias se comparan con DiffUtil en un hilo de fondo y solo se vuelven a
+ * enlazar las filas que cambiaron. Cada tarea tiene un identificador estable. Con una vista ordenada
+ * o filtrada de {@link TaskViews}, los cambios llegan ya traducidos a posiciones de la vista.
+ * <p>
+ * Una pulsación larga activa el modo de selección, en el que cada pulsación marca o desmarca la
+ * tarea; la selección se guarda por identificador y sobrevive a los cambios de la lista.
+ * <p>
+ * Los escuchadores se crean una vez por ViewHolder y resuelven la tarea con
+ * getBindingAdapterPosition(), de modo que volver a enlazar una fila no reserva memoria. En el modo
+ * de filas planas se usa item_view_flat.xml, que se mide en una sola pasada.
+ * <p>
+ * Con una {@link PagedTaskList} solo se leen las páginas visibles y las cercanas: una fila cuya
+ * página aún no está en memoria se muestra vacía y se vuelve a enlazar cuando la página se carga
+ * en segundo plano.
  */
 public class MyAdapter extends RecyclerView.Adapter<MyAdapter.ViewHolder> {
-    private final List<Item> itemList;      // Lista de elementos (tareas)
-    private final Context context;          // Contexto de la aplicación
+    // Hilo compartido para calcular las diferencias entre instantáneas
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    // Carga útil para volver a enlazar solo el estado de selección de una fila
+    private static final Object SELECTION_PAYLOAD = new Object();
+    // Cambios de un lote a partir de los cuales se notifica la lista entera
+    private static final int MAX_NOTIFIED_CHANGES = 100;
+    // Tamaño a partir del cual no se comparan instantáneas: DiffUtil cuesta O(N + D²)
+    private static final int MAX_DIFFED_ITEMS = 2000;
+    // Filas, antes y después de la enlazada, cuyas páginas se cargan por adelantado
+    private static final int PREFETCH_MARGIN = 32;
+
+    private List<Item> itemList;            // Instantánea mostrada de la lista de elementos (tareas)
     private final MainActivity mainActivity;// Actividad principal para la interacción
+    private final boolean flatRows;         // Indica si se usa el diseño plano de las filas
+    private final ImageLoader imageLoader;  // Cargador de imágenes en segundo plano
+    private final int imageWidth;           // Ancho de destino de las imágenes en píxeles
+    private final int imageHeight;          // Alto de destino de las imágenes en píxeles
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int maxScheduledGeneration;     // Generación de la última instantánea enviada
+    private boolean diffPending;            // Indica si hay una comparación en curso
+    private final Set<Long> selectedIds = new HashSet<>(); // Tareas seleccionadas
+    private boolean selectionMode;          // Indica si las pulsaciones seleccionan tareas
+    private int placeholderFrom = Integer.MAX_VALUE; // Rango de filas mostradas vacías a la espera
+    private int placeholderTo = -1;                  // de su página (incluidos los extremos)
+    private final Executor mainExecutor = mainHandler::post;
+    private final Runnable onPageLoaded = this::rebindPlaceholders;
 
     /**
      * Constructor del adaptador.
      *
-     * @param itemList Lista de elementos (tareas)
-     * @param context  Contexto de la aplicación
+     * @param itemList    Instantánea inicial de la lista de elementos (tareas)
+     * @param context     Contexto de la aplicación
+     * @param imageLoader Cargador de imágenes en segundo plano
+     * @param flatRows    true para usar el diseño plano de las filas (item_view_flat.xml)
      */
-    public MyAdapter(List<Item> itemList, Context context) {
+    public MyAdapter(List<Item> itemList, Context context, ImageLoader imageLoader, boolean flatRows) {
         this.itemList = itemList;
-        this.context = context;
         this.mainActivity = (MainActivity) context; // Obtener la instancia de MainActivity
+        this.flatRows = flatRows;
+        this.imageLoader = imageLoader;
+        // Las imágenes ocupan el ancho de la pantalla y 200dp de alto (ver item_view.xml)
+        this.imageWidth = context.getResources().getDisplayMetrics().widthPixels;
+        this.imageHeight = Math.round(200 * context.getResources().getDisplayMetrics().density);
+        setHasStableIds(true);
     }
 
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        long start = Metrics.CREATE_VIEW_HOLDER.start();
         // Inflar el diseño de cada elemento de la lista
-        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_view, parent, false);
-        return new ViewHolder(view); // Devolver una nueva instancia de ViewHolder
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(flatRows ? R.layout.item_view_flat : R.layout.item_view, parent, false);
+        final ViewHolder holder = new ViewHolder(view);
+
+        // Escuchadores creados una sola vez por fila; la posición se resuelve al hacer clic
+        holder.buttonDeleteTask.setOnClickListener(v -> {
+            int current = holder.getBindingAdapterPosition();
+            Item item = current != RecyclerView.NO_POSITION ? itemAt(current) : null;
+            if (item != null) {
+                mainActivity.deleteTask(item, current);
+            }
+        });
+        holder.buttonEditTask.setOnClickListener(v -> {
+            int current = holder.getBindingAdapterPosition();
+            Item item = current != RecyclerView.NO_POSITION ? itemAt(current) : null;
+            if (item != null) {
+                mainActivity.showEditTaskDialog(item, current);
+            }
+        });
+
+        // Pulsación larga para empezar a seleccionar; en modo de selección, pulsar marca la tarea
+        holder.itemView.setOnLongClickListener(v -> {
+            int current = holder.getBindingAdapterPosition();
+            if (current != RecyclerView.NO_POSITION) {
+                selectionMode = true;
+                toggleSelection(current);
+            }
+            return true;
+        });
+        holder.itemView.setOnClickListener(v -> {
+            int current = holder.getBindingAdapterPosition();
+            if (selectionMode && current != RecyclerView.NO_POSITION) {
+                toggleSelection(current);
+            }
+        });
+        Metrics.CREATE_VIEW_HOLDER.stop(start);
+        return holder; // Devolver una nueva instancia de ViewHolder
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Item item = itemList.get(position);
+        long start = Metrics.BIND_VIEW_HOLDER.start();
+        Item item = itemAt(position);
+        if (itemList instanceof PagedTaskList) {
+            ((PagedTaskList) itemList).prefetch(position - PREFETCH_MARGIN, position + PREFETCH_MARGIN + 1,
+                    mainExecutor, onPageLoaded);
+        }
+        if (item == null) {
+            bindPlaceholder(holder, position);
+            Metrics.BIND_VIEW_HOLDER.stop(start);
+            return;
+        }
 
-        // Configurar la descripción de la tarea
-        holder.taskText.setText(item.getTask());
+        // Configurar la descripción de la tarea; el mismo texto no se vuelve a medir. Se compara el
+        // contenido porque las listas compactas crean una cadena nueva en cada lectura
+        String task = item.getTask();
+        if (!TextUtils.equals(task, holder.boundTask)) {
+            holder.taskText.setText(task);
+            holder.boundTask = task;
+        }
+        // Las tareas hechas se tachan; el tachado no cambia la medida del texto
+        boolean done = item.isDone();
+        if (done != holder.boundDone) {
+            int flags = holder.taskText.getPaintFlags();
+            holder.taskText.setPaintFlags(done ? flags | Paint.STRIKE_THRU_TEXT_FLAG : flags & ~Paint.STRIKE_THRU_TEXT_FLAG);
+            holder.boundDone = done;
+        }
+        // Fuera del modo de selección no hay seleccionadas: se evita convertir el id a Long
+        holder.itemView.setActivated(selectionMode && selectedIds.contains(item.getId()));
 
-        // Cargar la imagen si existe una ruta válida
-        if (item.getImagePath() != null && !item.getImagePath().isEmpty()) {
-            File imgFile = new File(item.getImagePath());
-            if (imgFile.exists()) {
-                holder.taskImage.setImageURI(Uri.fromFile(imgFile));
-                holder.taskImage.setVisibility(View.VISIBLE); // Mostrar ImageView si hay imagen válida
-            } else {
-                holder.taskImage.setVisibility(View.GONE); // Ocultar ImageView si no hay imagen válida
+        // Cargar la imagen en segundo plano si existe una ruta y no se está mostrando ya
+        String imagePath = item.getImagePath();
+        if (imagePath != null && !imagePath.isEmpty()) {
+            if (!imagePath.equals(holder.boundImagePath) || holder.taskImage.getDrawable() == null) {
+                imageLoader.load(imagePath, holder.taskImage, imageWidth, imageHeight);
+                holder.boundImagePath = imagePath;
             }
         } else {
+            imageLoader.cancel(holder.taskImage);
+            holder.taskImage.setImageDrawable(null);
             holder.taskImage.setVisibility(View.GONE); // Ocultar ImageView si no hay ruta de imagen
+            holder.boundImagePath = null;
         }
+        Metrics.BIND_VIEW_HOLDER.stop(start);
+    }
 
-        // Configurar el botón eliminar tarea
-        holder.buttonDeleteTask.setOnClickListener(v -> {
-            removeItem(position); // Eliminar el elemento de la lista
-            mainActivity.saveTasks(); // Guardar la lista actualizada en MainActivity
-        });
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        Item item = itemAt(position);
+        if (item != null && !payloads.isEmpty() && allSelectionPayloads(payloads)) {
+            holder.itemView.setActivated(selectionMode && selectedIds.contains(item.getId()));
+            return; // Solo cambió la selección
+        }
+        onBindViewHolder(holder, position);
+    }
+
+    private static boolean allSelectionPayloads(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != SELECTION_PAYLOAD) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Método para mostrar una fila vacía mientras se carga la página de su tarea.
+     */
+    private void bindPlaceholder(ViewHolder holder, int position) {
+        holder.taskText.setText(null);
+        holder.boundTask = null;
+        holder.taskText.setPaintFlags(holder.taskText.getPaintFlags() & ~Paint.STRIKE_THRU_TEXT_FLAG);
+        holder.boundDone = false;
+        holder.itemView.setActivated(false);
+        imageLoader.cancel(holder.taskImage);
+        holder.taskImage.setImageDrawable(null);
+        holder.taskImage.setVisibility(View.GONE);
+        holder.boundImagePath = null;
+        placeholderFrom = Math.min(placeholderFrom, position);
+        placeholderTo = Math.max(placeholderTo, position);
+    }
+
+    /**
+     * Método para volver a enlazar las filas vacías cuando llega una página; las que sigan sin
+     * página se vuelven a registrar al enlazarlas.
+     */
+    private void rebindPlaceholders() {
+        int from = placeholderFrom;
+        int to = Math.min(placeholderTo, itemList.size() - 1);
+        placeholderFrom = Integer.MAX_VALUE;
+        placeholderTo = -1;
+        if (from <= to) {
+            notifyItemRangeChanged(from, to - from + 1);
+        }
+    }
+
+    /**
+     * Método para obtener la tarea de una posición sin leer del disco en el hilo principal.
+     *
+     * @param position Posición en la instantánea mostrada
+     * @return Tarea, o null si su página aún no está en memoria
+     */
+    private Item itemAt(int position) {
+        if (itemList instanceof PagedTaskList) {
+            return ((PagedTaskList) itemList).peek(position);
+        }
+        return itemList.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        // Las listas compactas dan el identificador sin crear la vista de la tarea
+        if (itemList instanceof TaskVector) {
+            return ((TaskVector) itemList).getId(position);
+        }
+        if (itemList instanceof CompactTaskList) {
+            return ((CompactTaskList) itemList).getId(position);
+        }
+        Item item = itemAt(position);
+        // Identificador estable de la tarea; las filas vacías usan uno negativo por posición
+        return item != null ? item.getId() : -1 - position;
+    }
 
-        // Configurar el botón editar tarea
-        holder.buttonEditTask.setOnClickListener(v -> mainActivity.showEditTaskDialog(item, position));
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        imageLoader.cancel(holder.taskImage); // Cancelar la carga pendiente de la vista reciclada
+        holder.taskImage.setImageDrawable(null);
+        holder.boundImagePath = null;
     }
 
     @Override
@@ -80,36 +272,334 @@ public class MyAdapter extends RecyclerView.Adapter<MyAdapter.ViewHolder> {
     }
 
     /**
-     * Método para añadir un nuevo elemento a la lista.
+     * Método para obtener la instantánea mostrada.
+     *
+     * @return Lista inmutable de elementos
+     */
+    public List<Item> getCurrentList() {
+        return itemList;
+    }
+
+    /**
+     * Método para saber si el adaptador está en modo de selección.
+     *
+     * @return true si las pulsaciones seleccionan tareas
+     */
+    public boolean isSelectionMode() {
+        return selectionMode;
+    }
+
+    /**
+     * Método para obtener los identificadores de las tareas seleccionadas.
      *
-     * @param item Elemento a añadir
+     * @return Copia de la selección
+     */
+    public Set<Long> getSelectedIds() {
+        return new HashSet<>(selectedIds);
+    }
+
+    /**
+     * Método para seleccionar todas las tareas mostradas.
+     */
+    public void selectAll() {
+        for (Item item : itemList) {
+            selectedIds.add(item.getId());
+        }
+        selectionMode = true;
+        notifyItemRangeChanged(0, itemList.size(), SELECTION_PAYLOAD);
+        mainActivity.onSelectionChanged(selectedIds.size());
+    }
+
+    /**
+     * Método para vaciar la selección y salir del modo de selección.
      */
-    public void addItem(Item item) {
-        itemList.add(item); // Agregar elemento a la lista
-        notifyItemInserted(itemList.size() - 1); // Notificar al RecyclerView de la inserción
+    public void clearSelection() {
+        if (!selectionMode) {
+            return;
+        }
+        selectedIds.clear();
+        selectionMode = false;
+        notifyItemRangeChanged(0, itemList.size(), SELECTION_PAYLOAD);
+        mainActivity.onSelectionChanged(0);
+    }
+
+    /**
+     * Método para marcar o desmarcar una tarea; al desmarcar la última se sale del modo de selección.
+     *
+     * @param position Posición de la tarea en la instantánea mostrada
+     */
+    private void toggleSelection(int position) {
+        Item item = itemAt(position);
+        if (item == null) {
+            return; // Fila aún vacía
+        }
+        long id = item.getId();
+        if (!selectedIds.remove(id)) {
+            selectedIds.add(id);
+        }
+        if (selectedIds.isEmpty()) {
+            selectionMode = false;
+        }
+        notifyItemChanged(position, SELECTION_PAYLOAD);
+        mainActivity.onSelectionChanged(selectedIds.size());
     }
 
     /**
-     * Método para actualizar un elemento en la lista.
+     * Método para sustituir la instantánea mostrada por otra con el mismo contenido, por ejemplo
+     * la misma lista reabierta desde el disco, sin notificar cambios.
      *
-     * @param position Posición del elemento a actualizar
-     * @param item     Nuevo elemento
+     * @param current     Instantánea que se espera mostrada
+     * @param sameContent Instantánea con el mismo contenido
      */
-    public void updateItem(int position, Item item) {
-        itemList.set(position, item); // Actualizar elemento en la lista
+    public void swapList(List<Item> current, List<Item> sameContent) {
+        if (!diffPending && itemList == current) {
+            itemList = sameContent;
+        }
+    }
+
+    /**
+     * Método para mostrar otra lista de tareas sin compararla con la mostrada, descartando la
+     * selección y las diferencias en curso.
+     *
+     * @param newList Instantánea de la otra lista
+     */
+    public void replaceList(List<Item> newList) {
+        maxScheduledGeneration++;
+        diffPending = false;
+        clearSelection();
+        itemList = newList;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Método para mostrar otro orden u otra partición de la misma lista sin compararlos con la
+     * vista mostrada: la selección se conserva y las filas se vuelven a enlazar por su
+     * identificador estable, de modo que el cambio solo cuesta las filas visibles.
+     *
+     * @param view Vista de la lista en el nuevo orden
+     */
+    public void showView(List<Item> view) {
+        maxScheduledGeneration++;
+        diffPending = false;
+        itemList = view;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Método para mostrar el resultado de un lote de cambios con una única actualización: un rango
+     * si solo se agregaron tareas, los cambios agrupados en rangos si son pocos, o la lista entera.
+     *
+     * @param newList Nueva instantánea de la lista
+     * @param batch   Lote aplicado sobre la instantánea mostrada
+     */
+    public void submitBatch(List<Item> newList, TaskBatch batch) {
+        if (diffPending) {
+            submitList(newList);
+            return;
+        }
+        maxScheduledGeneration++;
+        itemList = newList;
+        if (batch.isAppendOnly()) {
+            notifyItemRangeInserted(batch.getAppendPosition(), newList.size() - batch.getAppendPosition());
+        } else if (batch.size() > MAX_NOTIFIED_CHANGES) {
+            notifyDataSetChanged(); // Los identificadores estables conservan las filas sin cambios
+        } else {
+            final BatchingListUpdateCallback updates =
+                    new BatchingListUpdateCallback(new AdapterListUpdateCallback(this));
+            batch.replay(new TaskStore.LoadListener() {
+                @Override
+                public void onItemInserted(int position, Item item) {
+                    updates.onInserted(position, 1);
+                }
+
+                @Override
+                public void onItemChanged(int position, Item item) {
+                    updates.onChanged(position, 1, null);
+                }
+
+                @Override
+                public void onItemRemoved(int position) {
+                    updates.onRemoved(position, 1);
+                }
+            });
+            updates.dispatchLastEvent(); // Los cambios contiguos se notifican como un rango
+        }
+    }
+
+    /**
+     * Método para mostrar una nueva versión de una vista ordenada o filtrada con una única
+     * actualización: los cambios agrupados en rangos si son pocos, o la lista entera.
+     *
+     * @param newList Nueva versión de la vista
+     * @param changes Cambios por posición respecto a la vista mostrada
+     */
+    public void submitViewChanges(List<Item> newList, TaskViews.Changes changes) {
+        if (diffPending) {
+            submitList(newList);
+            return;
+        }
+        maxScheduledGeneration++;
+        itemList = newList;
+        if (changes.size() > MAX_NOTIFIED_CHANGES) {
+            notifyDataSetChanged();
+            return;
+        }
+        final BatchingListUpdateCallback updates =
+                new BatchingListUpdateCallback(new AdapterListUpdateCallback(this));
+        changes.replay(new TaskViews.Listener() {
+            @Override
+            public void onInserted(int position) {
+                updates.onInserted(position, 1);
+            }
+
+            @Override
+            public void onRemoved(int position) {
+                updates.onRemoved(position, 1);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updates.onMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position) {
+                updates.onChanged(position, 1, null);
+            }
+        });
+        updates.dispatchLastEvent();
+    }
+
+    /**
+     * Método para mostrar una nueva instantánea en la que se insertaron elementos consecutivos.
+     *
+     * @param newList  Nueva instantánea de la lista
+     * @param position Posición de la primera inserción
+     * @param count    Número de elementos insertados
+     */
+    public void submitInsert(List<Item> newList, int position, int count) {
+        if (diffPending) {
+            submitList(newList); // La posición se refiere a una instantánea aún no mostrada
+            return;
+        }
+        maxScheduledGeneration++;
+        itemList = newList;
+        notifyItemRangeInserted(position, count); // Notificar al RecyclerView del rango insertado
+    }
+
+    /**
+     * Método para mostrar una nueva instantánea en la que cambió un elemento.
+     *
+     * @param newList  Nueva instantánea de la lista
+     * @param position Posición del elemento modificado
+     */
+    public void submitChange(List<Item> newList, int position) {
+        if (diffPending) {
+            submitList(newList);
+            return;
+        }
+        maxScheduledGeneration++;
+        itemList = newList;
         notifyItemChanged(position); // Notificar al RecyclerView del cambio en esa posición
     }
 
     /**
-     * Método para eliminar un elemento de la lista.
+     * Método para mostrar una nueva instantánea en la que se eliminó un elemento.
+     * Las filas posteriores conservan su enlace gracias a getBindingAdapterPosition().
      *
-     * @param position Posición del elemento a eliminar
+     * @param newList  Nueva instantánea de la lista
+     * @param position Posición del elemento eliminado
      */
-    public void removeItem(int position) {
-        itemList.remove(position); // Eliminar elemento de la lista
+    public void submitRemove(List<Item> newList, int position) {
+        if (diffPending) {
+            submitList(newList);
+            return;
+        }
+        maxScheduledGeneration++;
+        itemList = newList;
         notifyItemRemoved(position); // Notificar al RecyclerView de la eliminación en esa posición
-        notifyItemRangeChanged(position, itemList.size()); // Notificar al RecyclerView del cambio en el rango de elementos
-        Toast.makeText(context, R.string.task_deleted, Toast.LENGTH_SHORT).show(); // Mostrar mensaje de eliminación
+    }
+
+    /**
+     * Método para mostrar una instantánea arbitraria. Las diferencias se calculan en un hilo de
+     * fondo y solo se notifican las filas que cambiaron; si llega otra instantánea antes de
+     * terminar, el resultado anterior se descarta. Las listas grandes o paginadas no se comparan:
+     * se notifica la lista entera y los identificadores estables conservan las filas.
+     *
+     * @param newList Nueva instantánea de la lista; no se debe modificar después
+     */
+    public void submitList(final List<Item> newList) {
+        final int generation = ++maxScheduledGeneration;
+        if (newList == itemList) {
+            diffPending = false;
+            return;
+        }
+        final List<Item> oldList = itemList;
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            // Sin nada que comparar: una sola notificación de rango
+            diffPending = false;
+            itemList = newList;
+            if (oldList.isEmpty()) {
+                notifyItemRangeInserted(0, newList.size());
+            } else {
+                notifyItemRangeRemoved(0, oldList.size());
+            }
+            return;
+        }
+        if (oldList.size() > MAX_DIFFED_ITEMS || newList.size() > MAX_DIFFED_ITEMS
+                || oldList instanceof PagedTaskList || newList instanceof PagedTaskList) {
+            // Compararlas bloquearía el hilo de las diferencias y leería todas las páginas
+            diffPending = false;
+            itemList = newList;
+            notifyDataSetChanged();
+            return;
+        }
+
+        diffPending = true;
+        DIFF_EXECUTOR.execute(() -> {
+            final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffCallback(oldList, newList), false);
+            mainHandler.post(() -> {
+                if (generation != maxScheduledGeneration) {
+                    return; // Superada por una instantánea posterior
+                }
+                diffPending = false;
+                itemList = newList;
+                result.dispatchUpdatesTo(MyAdapter.this);
+            });
+        });
+    }
+
+    /**
+     * Comparador de instantáneas: mismas tareas por identificador, mismo contenido por igualdad.
+     */
+    private static class DiffCallback extends DiffUtil.Callback {
+        private final List<Item> oldList;
+        private final List<Item> newList;
+
+        DiffCallback(List<Item> oldList, List<Item> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldList.get(oldItemPosition).getId() == newList.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldList.get(oldItemPosition).equals(newList.get(newItemPosition));
+        }
     }
 
     /**
@@ -120,6 +610,9 @@ public class MyAdapter extends RecyclerView.Adapter<MyAdapter.ViewHolder> {
         public ImageView taskImage;      // ImageView para la imagen de la tarea
         public Button buttonDeleteTask;  // Botón para eliminar la tarea
         public Button buttonEditTask;    // Botón para editar la tarea
+        String boundTask;                // Descripción mostrada, para no repetir setText
+        String boundImagePath;           // Ruta de la imagen mostrada o en carga
+        boolean boundDone;               // Indica si el texto mostrado está tachado
 
         /**
          * Constructor de ViewHolder.
@@ -0,0 +1,635 @@
+package com.example.milistadetareas;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instantánea inmutable de la lista de tareas respaldada por un {@link TaskPageFile}.
+ * <p>
+ * Solo se materializan las páginas en uso: una caché LRU acotada, compartida por todas las
+ * versiones que parten del mismo archivo, guarda las últimas páginas leídas. Las modificaciones
+ * crean una nueva versión con una tabla de tramos: cada tramo es un rango de posiciones del archivo
+ * o un fragmento de tareas en memoria, de modo que una mutación cuesta O(tramos) y no copia la
+ * lista. Los tramos se eliminan al compactar el almacenamiento y reabrir el archivo.
+ * <p>
+ * {@link #get} puede leer del disco; en el hilo principal se usa {@link #peek} y, si la página no
+ * está en memoria, {@link #prefetch} la carga en un hilo de fondo. La iteración lee las páginas en
+ * orden sin desplazar la caché.
+ * <p>
+ * Quien conserva una versión más allá de la tarea en curso (la lista mostrada, el historial, la
+ * instantánea de una lista aparcada) la anota con {@link #retain} y la suelta con
+ * {@link #release}. El archivo se cierra cuando ninguna versión que parte de él está anotada.
+ */
+public final class PagedTaskList extends AbstractList<Item> implements RandomAccess {
+    public static final int DEFAULT_CACHED_PAGES = 16;  // Páginas en memoria: varias pantallas
+    private static final Item[] NO_ITEMS = new Item[0];
+    // Hilo compartido para leer páginas en segundo plano
+    private static final ExecutorService PAGE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TaskPages");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private final Pages pages;      // Archivo y caché de páginas compartidos entre versiones
+    private final int[] starts;     // Posición inicial de cada tramo, más el tamaño total al final
+    private final int[] sources;    // Posición en el archivo, o en el fragmento si está en memoria
+    private final Item[][] arrays;  // Fragmento de cada tramo en memoria, o null si es del archivo
+
+    /**
+     * Constructor de la lista con el contenido completo del archivo.
+     *
+     * @param file        Archivo de páginas abierto
+     * @param cachedPages Número máximo de páginas en memoria
+     */
+    public PagedTaskList(TaskPageFile file, int cachedPages) {
+        this(new Pages(file, cachedPages), file.getItemCount() == 0 ? new int[]{0} : new int[]{0, file.getItemCount()},
+                file.getItemCount() == 0 ? new int[0] : new int[]{0},
+                file.getItemCount() == 0 ? new Item[0][] : new Item[1][]);
+    }
+
+    private PagedTaskList(Pages pages, int[] starts, int[] sources, Item[][] arrays) {
+        this.pages = pages;
+        this.starts = starts;
+        this.sources = sources;
+        this.arrays = arrays;
+    }
+
+    @Override
+    public int size() {
+        return starts[starts.length - 1];
+    }
+
+    /**
+     * Método para obtener una tarea, leyendo su página del disco si no está en memoria.
+     *
+     * @param index Posición de la tarea
+     * @return Tarea en esa posición
+     * @throws IllegalStateException Si la página no se puede leer
+     */
+    @Override
+    public Item get(int index) {
+        int piece = findPiece(index);
+        int offset = sources[piece] + index - starts[piece];
+        return arrays[piece] != null ? arrays[piece][offset] : pages.get(offset);
+    }
+
+    /**
+     * Método para obtener una tarea solo si ya está en memoria, sin bloquear.
+     *
+     * @param index Posición de la tarea
+     * @return Tarea en esa posición, o null si su página no está cargada
+     */
+    public Item peek(int index) {
+        int piece = findPiece(index);
+        int offset = sources[piece] + index - starts[piece];
+        return arrays[piece] != null ? arrays[piece][offset] : pages.peek(offset);
+    }
+
+    /**
+     * Método para cargar en segundo plano las páginas de un rango de posiciones que aún no están
+     * en memoria.
+     *
+     * @param from             Primera posición del rango
+     * @param to               Posición siguiente a la última del rango
+     * @param callbackExecutor Ejecutor en el que se avisa de cada página cargada
+     * @param onLoaded         Aviso de que hay nuevas tareas disponibles con {@link #peek}
+     */
+    public void prefetch(int from, int to, Executor callbackExecutor, Runnable onLoaded) {
+        from = Math.max(0, from);
+        to = Math.min(size(), to);
+        if (from >= to) {
+            return;
+        }
+        for (int piece = findPiece(from); piece < arrays.length && starts[piece] < to; piece++) {
+            if (arrays[piece] != null) {
+                continue;
+            }
+            int first = sources[piece] + Math.max(from, starts[piece]) - starts[piece];
+            int last = sources[piece] + Math.min(to, starts[piece + 1]) - 1 - starts[piece];
+            for (int page = first / pages.pageSize; page <= last / pages.pageSize; page++) {
+                pages.request(page, callbackExecutor, onLoaded);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return new Iterator<Item>() {
+            private int piece;
+            private int index;
+            private Item[] page;            // Página del archivo en curso
+            private int pageIndex = -1;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public Item next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                while (index >= starts[piece + 1]) {
+                    piece++;
+                }
+                int offset = sources[piece] + index - starts[piece];
+                index++;
+                if (arrays[piece] != null) {
+                    return arrays[piece][offset];
+                }
+                int wanted = offset / pages.pageSize;
+                if (wanted != pageIndex) {
+                    page = pages.getPage(wanted, false); // Lectura secuencial: no desplazar la caché
+                    pageIndex = wanted;
+                }
+                return page[offset % pages.pageSize];
+            }
+        };
+    }
+
+    /**
+     * Método para crear una versión con tareas insertadas a partir de una posición.
+     *
+     * @param position Posición de la primera tarea insertada
+     * @param items    Tareas a insertar
+     * @return Nueva versión; esta no cambia
+     */
+    public PagedTaskList inserted(int position, List<Item> items) {
+        return splice(position, position, items.toArray(NO_ITEMS));
+    }
+
+    /**
+     * Método para crear una versión con una tarea sustituida.
+     *
+     * @param position Posición de la tarea
+     * @param item     Nuevo contenido
+     * @return Nueva versión; esta no cambia
+     */
+    public PagedTaskList replaced(int position, Item item) {
+        checkIndex(position);
+        return splice(position, position + 1, new Item[]{item});
+    }
+
+    /**
+     * Método para crear una versión sin la tarea de una posición.
+     *
+     * @param position Posición de la tarea
+     * @return Nueva versión; esta no cambia
+     */
+    public PagedTaskList removed(int position) {
+        checkIndex(position);
+        return splice(position, position + 1, NO_ITEMS);
+    }
+
+    /**
+     * Método para obtener el número de tramos; crece con las mutaciones hasta que se reabre el archivo.
+     *
+     * @return Número de tramos
+     */
+    public int getPieceCount() {
+        return arrays.length;
+    }
+
+    /**
+     * Método para obtener un resumen del uso de la caché de páginas.
+     *
+     * @return Texto con los tramos, las páginas en memoria y las lecturas
+     */
+    public String getStats() {
+        return "tareas=" + size()
+                + " tramos=" + getPieceCount()
+                + " paginasEnMemoria=" + pages.cachedCount()
+                + " lecturas=" + pages.reads.get()
+                + " aciertos=" + pages.hits.get()
+                + " referencias=" + pages.refCount();
+    }
+
+    /**
+     * Método para recorrer una lista fuera del hilo principal, en el hilo de las páginas y detrás
+     * de las lecturas pendientes, porque {@link #get} y la iteración pueden leer del disco.
+     *
+     * @param task Recorrido que entrega su resultado por su cuenta
+     */
+    public static void runOnPageThread(Runnable task) {
+        PAGE_EXECUTOR.execute(task);
+    }
+
+    /**
+     * Método para anotar que se conserva una versión. Las demás listas se ignoran.
+     *
+     * @param list Instantánea que se conserva
+     */
+    public static void retain(List<Item> list) {
+        if (list instanceof PagedTaskList) {
+            ((PagedTaskList) list).pages.retain();
+        }
+    }
+
+    /**
+     * Método para soltar una versión anotada con {@link #retain}. Si ya no queda ninguna versión
+     * anotada de su archivo, este se cierra en el hilo de las páginas, tras las lecturas en curso.
+     *
+     * @param list Instantánea que deja de conservarse
+     */
+    public static void release(List<Item> list) {
+        if (list instanceof PagedTaskList) {
+            ((PagedTaskList) list).pages.release();
+        }
+    }
+
+    /**
+     * Método para cerrar el archivo de una lista que nadie llegó a anotar, por ejemplo si se
+     * descarta nada más abrirla.
+     *
+     * @param list Instantánea descartada
+     */
+    public static void closeIfUnused(List<Item> list) {
+        if (list instanceof PagedTaskList) {
+            ((PagedTaskList) list).pages.closeIfUnused();
+        }
+    }
+
+    /**
+     * Método para contar las tareas iniciales que dos versiones toman de los mismos tramos de
+     * origen, comparando tramos en lugar de tareas y sin leer páginas.
+     *
+     * @param a Primera versión
+     * @param b Segunda versión
+     * @return Longitud del prefijo común encontrado por tramos
+     */
+    public static int commonPrefix(PagedTaskList a, PagedTaskList b) {
+        int limit = Math.min(a.size(), b.size());
+        int position = 0;
+        int i = 0;
+        int j = 0;
+        while (position < limit) {
+            while (a.starts[i + 1] <= position) {
+                i++;
+            }
+            while (b.starts[j + 1] <= position) {
+                j++;
+            }
+            if (!sameSource(a, i, position, b, j, position)) {
+                break;
+            }
+            position = Math.min(Math.min(a.starts[i + 1], b.starts[j + 1]), limit);
+        }
+        return position;
+    }
+
+    /**
+     * Método para contar las tareas finales que dos versiones toman de los mismos tramos de origen.
+     *
+     * @param a     Primera versión
+     * @param b     Segunda versión
+     * @param limit Longitud máxima que se busca, para no solaparse con el prefijo común
+     * @return Longitud del sufijo común encontrado por tramos, como mucho limit
+     */
+    public static int commonSuffix(PagedTaskList a, PagedTaskList b, int limit) {
+        int common = 0;
+        int i = a.arrays.length - 1;
+        int j = b.arrays.length - 1;
+        while (common < limit) {
+            int positionA = a.size() - 1 - common;
+            int positionB = b.size() - 1 - common;
+            while (a.starts[i] > positionA) {
+                i--;
+            }
+            while (b.starts[j] > positionB) {
+                j--;
+            }
+            if (!sameSource(a, i, positionA, b, j, positionB)) {
+                break;
+            }
+            common = Math.min(common + Math.min(positionA - a.starts[i], positionB - b.starts[j]) + 1, limit);
+        }
+        return common;
+    }
+
+    /**
+     * Método para saber si dos posiciones de dos versiones se refieren a la misma tarea de origen.
+     */
+    private static boolean sameSource(PagedTaskList a, int pieceA, int positionA,
+                                      PagedTaskList b, int pieceB, int positionB) {
+        return a.arrays[pieceA] == b.arrays[pieceB]
+                && (a.arrays[pieceA] != null || a.pages == b.pages)
+                && a.sources[pieceA] + positionA - a.starts[pieceA] == b.sources[pieceB] + positionB - b.starts[pieceB];
+    }
+
+    /**
+     * Método para insertar tareas en cualquier instantánea sin copiarla: en una lista paginada
+     * con sus tramos y en el resto con un {@link TaskVector}.
+     *
+     * @param list     Instantánea actual
+     * @param position Posición de la primera tarea insertada
+     * @param items    Tareas a insertar
+     * @return Nueva instantánea
+     */
+    public static List<Item> withInserted(List<Item> list, int position, List<Item> items) {
+        if (list instanceof PagedTaskList) {
+            return ((PagedTaskList) list).inserted(position, items);
+        }
+        if (list.isEmpty() && position == 0) {
+            return items; // Los lotes de la carga ya son listas nuevas
+        }
+        return TaskVector.of(list).inserted(position, items);
+    }
+
+    /**
+     * Método para sustituir una tarea en cualquier instantánea.
+     *
+     * @param list     Instantánea actual
+     * @param position Posición de la tarea
+     * @param item     Nuevo contenido
+     * @return Nueva instantánea
+     */
+    public static List<Item> withReplaced(List<Item> list, int position, Item item) {
+        if (list instanceof PagedTaskList) {
+            return ((PagedTaskList) list).replaced(position, item);
+        }
+        return TaskVector.of(list).replaced(position, item);
+    }
+
+    /**
+     * Método para eliminar una tarea de cualquier instantánea.
+     *
+     * @param list     Instantánea actual
+     * @param position Posición de la tarea
+     * @return Nueva instantánea
+     */
+    public static List<Item> withRemoved(List<Item> list, int position) {
+        if (list instanceof PagedTaskList) {
+            return ((PagedTaskList) list).removed(position);
+        }
+        return TaskVector.of(list).removed(position);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Posición " + index + ", tamaño " + size());
+        }
+    }
+
+    /**
+     * Método para localizar el tramo que contiene una posición por búsqueda binaria.
+     */
+    private int findPiece(int index) {
+        checkIndex(index);
+        int low = 0;
+        int high = arrays.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Método para crear una versión en la que las posiciones [from, to) se sustituyen por otras tareas.
+     */
+    private PagedTaskList splice(int from, int to, Item[] replacement) {
+        if (from < 0 || from > to || to > size()) {
+            throw new IndexOutOfBoundsException("Rango " + from + ".." + to + ", tamaño " + size());
+        }
+        PieceBuilder builder = new PieceBuilder(arrays.length + 3);
+        copyRange(0, from, builder);
+        builder.add(0, replacement, replacement.length);
+        copyRange(to, size(), builder);
+        return builder.build(pages);
+    }
+
+    /**
+     * Método para agregar al constructor los tramos, recortados, que cubren [from, to).
+     */
+    private void copyRange(int from, int to, PieceBuilder builder) {
+        if (from >= to) {
+            return;
+        }
+        for (int piece = findPiece(from); piece < arrays.length && starts[piece] < to; piece++) {
+            int start = Math.max(from, starts[piece]);
+            int end = Math.min(to, starts[piece + 1]);
+            builder.add(sources[piece] + start - starts[piece], arrays[piece], end - start);
+        }
+    }
+
+    /**
+     * Acumulador de tramos que une los tramos contiguos del mismo origen.
+     */
+    private static final class PieceBuilder {
+        private int[] starts;
+        private int[] sources;
+        private Item[][] arrays;
+        private int count;
+        private int size;
+
+        PieceBuilder(int capacity) {
+            starts = new int[capacity + 1];
+            sources = new int[capacity];
+            arrays = new Item[capacity][];
+        }
+
+        void add(int source, Item[] array, int length) {
+            if (length == 0) {
+                return;
+            }
+            if (count > 0 && arrays[count - 1] == array
+                    && sources[count - 1] + size - starts[count - 1] == source) {
+                size += length; // Continúa el tramo anterior
+                return;
+            }
+            if (count == arrays.length) {
+                starts = Arrays.copyOf(starts, count * 2 + 1);
+                sources = Arrays.copyOf(sources, count * 2);
+                arrays = Arrays.copyOf(arrays, count * 2);
+            }
+            starts[count] = size;
+            sources[count] = source;
+            arrays[count] = array;
+            count++;
+            size += length;
+        }
+
+        PagedTaskList build(Pages pages) {
+            int[] finalStarts = Arrays.copyOf(starts, count + 1);
+            finalStarts[count] = size;
+            return new PagedTaskList(pages, finalStarts, Arrays.copyOf(sources, count), Arrays.copyOf(arrays, count));
+        }
+    }
+
+    /**
+     * Archivo de páginas con su caché LRU y las lecturas en curso.
+     */
+    private static final class Pages {
+        private final TaskPageFile file;
+        private final int pageSize;
+        private final LinkedHashMap<Integer, Item[]> cache;                 // Protegida por this
+        private final Map<Integer, List<Runnable>> loading = new HashMap<>(); // Protegido por this
+        private final AtomicLong reads = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private int refs;                                                   // Protegido por this
+        private boolean closed;                                             // Protegido por this
+
+        Pages(TaskPageFile file, final int maxPages) {
+            this.file = file;
+            this.pageSize = file.getPageSize();
+            this.cache = new LinkedHashMap<Integer, Item[]>(maxPages * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Item[]> eldest) {
+                    return size() > maxPages;
+                }
+            };
+        }
+
+        Item get(int position) {
+            return getPage(position / pageSize, true)[position % pageSize];
+        }
+
+        synchronized Item peek(int position) {
+            Item[] page = cache.get(position / pageSize);
+            return page != null ? page[position % pageSize] : null;
+        }
+
+        synchronized int cachedCount() {
+            return cache.size();
+        }
+
+        synchronized void retain() {
+            refs++;
+        }
+
+        void release() {
+            synchronized (this) {
+                refs--;
+            }
+            closeIfUnused();
+        }
+
+        synchronized int refCount() {
+            return refs;
+        }
+
+        /**
+         * Método para cerrar el archivo en el hilo de las páginas si sigue sin versiones anotadas
+         * cuando le llega el turno: una versión anotada justo después lo mantiene abierto.
+         */
+        void closeIfUnused() {
+            try {
+                PAGE_EXECUTOR.execute(() -> {
+                    synchronized (this) {
+                        if (refs > 0 || closed) {
+                            return;
+                        }
+                        closed = true;
+                        cache.clear();
+                    }
+                    try {
+                        file.close();
+                    } catch (IOException e) {
+                        Log.w("PagedTaskList", "Error al cerrar el archivo de páginas", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                Log.w("PagedTaskList", "Archivo de páginas sin cerrar", e);
+            }
+        }
+
+        /**
+         * Método para obtener una página de la caché o del disco.
+         *
+         * @param page  Índice de la página
+         * @param cache true para guardar en la caché la página leída
+         */
+        Item[] getPage(int page, boolean cache) {
+            synchronized (this) {
+                Item[] cached = this.cache.get(page);
+                if (cached != null) {
+                    hits.incrementAndGet();
+                    return cached;
+                }
+            }
+            Item[] items = read(page);
+            if (cache) {
+                synchronized (this) {
+                    this.cache.put(page, items);
+                }
+            }
+            return items;
+        }
+
+        /**
+         * Método para programar la lectura de una página que aún no está en memoria.
+         */
+        void request(final int page, final Executor callbackExecutor, Runnable onLoaded) {
+            synchronized (this) {
+                if (cache.containsKey(page)) {
+                    return;
+                }
+                List<Runnable> callbacks = loading.get(page);
+                if (callbacks != null) {
+                    if (!callbacks.contains(onLoaded)) {
+                        callbacks.add(onLoaded);
+                    }
+                    return; // Ya se está leyendo
+                }
+                callbacks = new ArrayList<>(1);
+                callbacks.add(onLoaded);
+                loading.put(page, callbacks);
+            }
+            try {
+                PAGE_EXECUTOR.execute(() -> {
+                    List<Runnable> callbacks;
+                    try {
+                        Item[] items = read(page);
+                        synchronized (this) {
+                            cache.put(page, items);
+                        }
+                    } catch (IllegalStateException e) {
+                        Log.e("PagedTaskList", "Error al leer la página " + page, e);
+                    } finally {
+                        synchronized (this) {
+                            callbacks = loading.remove(page);
+                        }
+                    }
+                    for (Runnable callback : callbacks != null ? callbacks : Collections.<Runnable>emptyList()) {
+                        callbackExecutor.execute(callback);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    loading.remove(page);
+                }
+            }
+        }
+
+        private Item[] read(int page) {
+            try {
+                reads.incrementAndGet();
+                return file.readPage(page);
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo leer la página " + page, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.milistadetareas;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Medidor de la cadencia de fotogramas mientras se desplaza la lista.
+ * <p>
+ * Mientras el RecyclerView se desplaza, registra en {@link Metrics} el intervalo entre fotogramas
+ * consecutivos y cuenta como tirón cada intervalo mayor que 1,5 veces el periodo de refresco de la
+ * pantalla. Con las métricas desactivadas no se programa ninguna llamada por fotograma.
+ */
+public class ScrollFrameTracker extends RecyclerView.OnScrollListener implements Choreographer.FrameCallback {
+    private final long jankThresholdNanos;  // Intervalo a partir del cual un fotograma es un tirón
+    private boolean scrolling;
+    private long lastFrameNanos;
+
+    /**
+     * Constructor del medidor.
+     *
+     * @param refreshRate Frecuencia de refresco de la pantalla en hercios
+     */
+    public ScrollFrameTracker(float refreshRate) {
+        long frameNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+        this.jankThresholdNanos = frameNanos * 3 / 2;
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            scrolling = false;
+        } else if (!scrolling && Metrics.isEnabled()) {
+            scrolling = true;
+            lastFrameNanos = 0;
+            // Si se paró y volvió a desplazarse antes del siguiente fotograma, la llamada anterior
+            // sigue pendiente: se quita para no contar dos veces el mismo fotograma
+            Choreographer choreographer = Choreographer.getInstance();
+            choreographer.removeFrameCallback(this);
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (lastFrameNanos != 0) {
+            long interval = frameTimeNanos - lastFrameNanos;
+            Metrics.SCROLL_FRAME.record(interval);
+            Metrics.SCROLL_FRAMES.increment();
+            if (interval > jankThresholdNanos) {
+                Metrics.SCROLL_JANK.increment();
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+        if (scrolling) {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.milistadetareas;
+
+import java.io.IOException;
+
+/**
+ * Extremo remoto de la sincronización de tareas, independiente del medio de transporte.
+ * <p>
+ * Los cambios viajan como lotes comprimidos con {@link TaskSync#encodeChanges}; cada tarea guarda
+ * en el servidor la versión en que cambió por última vez, y las versiones de una lista crecen con
+ * cada cambio aceptado. Las fotos se guardan aparte por el SHA-256 de su contenido y se suben y
+ * descargan por trozos, de modo que una transferencia interrumpida continúa donde se quedó.
+ * <p>
+ * Cualquier método puede fallar con una IOException si se pierde la conexión; todos se pueden
+ * repetir sin efectos duplicados. Las pruebas usan un servidor en el mismo proceso,
+ * LocalSyncServer, que sirve de referencia para implementar el remoto.
+ */
+public interface SyncTransport {
+
+    /**
+     * Método para obtener los cambios de una lista posteriores a una versión.
+     *
+     * @param list     Identificador de la lista
+     * @param clientId Cliente que pregunta; no se le devuelven sus propios cambios
+     * @param since    Última versión ya recibida; 0 para recibir la lista entera
+     * @param limit    Número máximo de cambios
+     * @return Página de cambios
+     * @throws IOException Si falla la comunicación
+     */
+    PullResult pull(String list, String clientId, long since, int limit) throws IOException;
+
+    /**
+     * Método para enviar un lote de cambios. El servidor resuelve cada conflicto con
+     * {@link TaskSync.Change#winsOver} y descarta los cambios que pierden o que ya tenía.
+     *
+     * @param list     Identificador de la lista
+     * @param clientId Cliente que envía
+     * @param changes  Lote comprimido
+     * @return Lote comprimido con el cambio del servidor que ganó a cada cambio rechazado; no
+     * incluye los cambios repetidos ni las eliminaciones de tareas que el servidor no conoce
+     * @throws IOException Si falla la comunicación o el lote no es válido
+     */
+    byte[] push(String list, String clientId, byte[] changes) throws IOException;
+
+    /**
+     * Método para saber cuántos bytes de una foto tiene ya el servidor.
+     *
+     * @param hash SHA-256 del contenido en hexadecimal
+     * @return Bytes recibidos; el tamaño completo si la foto ya está guardada
+     * @throws IOException Si falla la comunicación
+     */
+    long getImageOffset(String hash) throws IOException;
+
+    /**
+     * Método para enviar un trozo de una foto a partir de la posición indicada. Con el último
+     * trozo el servidor comprueba el SHA-256 y guarda la foto.
+     *
+     * @param hash   SHA-256 del contenido en hexadecimal
+     * @param offset Posición del trozo, igual a {@link #getImageOffset}
+     * @param data   Búfer con el trozo
+     * @param length Bytes del trozo
+     * @param last   true si es el último trozo
+     * @throws IOException Si falla la comunicación, la posición no es la esperada o el contenido
+     *                     no coincide con el hash
+     */
+    void uploadImage(String hash, long offset, byte[] data, int length, boolean last) throws IOException;
+
+    /**
+     * Método para descargar un trozo de una foto guardada.
+     *
+     * @param hash      SHA-256 del contenido en hexadecimal
+     * @param offset    Posición del trozo
+     * @param maxLength Tamaño máximo del trozo
+     * @return Bytes leídos; menos de maxLength al llegar al final
+     * @throws IOException Si falla la comunicación o la foto no existe
+     */
+    byte[] downloadImage(String hash, long offset, int maxLength) throws IOException;
+
+    /**
+     * Página de cambios devuelta por {@link #pull}.
+     */
+    final class PullResult {
+        private final byte[] changes;
+        private final long version;
+        private final boolean more;
+
+        /**
+         * @param changes Lote comprimido con los cambios
+         * @param version Versión hasta la que llega la página
+         * @param more    true si quedan cambios posteriores
+         */
+        public PullResult(byte[] changes, long version, boolean more) {
+            this.changes = changes;
+            this.version = version;
+            this.more = more;
+        }
+
+        public byte[] getChanges() {
+            return changes;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean hasMore() {
+            return more;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.example.milistadetareas;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exportación e importación de la lista de tareas junto con sus fotos en un único archivo ZIP.
+ * <p>
+ * El archivo contiene {@value #TASKS_ENTRY}, un array JSON con la descripción, la ruta y los
+ * metadatos de cada tarea, seguido de una entrada {@value #PHOTOS_DIR}nombre por foto. Al exportar, las rutas
+ * absolutas se sustituyen por la de su entrada; al importar, se resuelven al directorio de fotos
+ * del dispositivo. Todo se recorre como flujo: el JSON se escribe y se lee token a token y el
+ * contenido de las fotos se copia por canales NIO en bloques, sin cargar ningún archivo entero en
+ * memoria. Las fotos, ya comprimidas, se guardan sin volver a comprimir.
+ * <p>
+ * Cada operación informa de su progreso en bytes y comprueba entre bloques si se ha cancelado.
+ * Una importación cancelada o fallida borra las fotos que ya había extraído.
+ */
+public class TaskArchive {
+    public static final String TASKS_ENTRY = "tasks.json";
+    public static final String PHOTOS_DIR = "photos/";
+    private static final long CHUNK_SIZE = 1024 * 1024;    // Bytes por transferencia entre comprobaciones
+
+    /**
+     * Receptor del progreso, invocado en el hilo que exporta o importa.
+     */
+    public interface ProgressListener {
+        /**
+         * @param done  Bytes procesados
+         * @param total Bytes totales estimados, o -1 si no se conocen
+         */
+        void onProgress(long done, long total);
+    }
+
+    private final ProgressListener progressListener;
+    private volatile boolean cancelled;
+    private long done;                  // Bytes procesados en la operación actual
+    private long total;                 // Bytes totales estimados de la operación actual
+
+    /**
+     * Constructor del archivador.
+     *
+     * @param progressListener Receptor del progreso, o null
+     */
+    public TaskArchive(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Método para cancelar la operación en curso desde cualquier hilo; esta termina con
+     * {@link CancellationException} en cuanto acaba el bloque actual.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Método para exportar las tareas y sus fotos. Las fotos que ya no existen se exportan como
+     * tareas sin foto.
+     *
+     * @param items Instantánea de la lista; se recorre una sola vez
+     * @param out   Destino del archivo; no se cierra
+     * @return Número de fotos exportadas
+     * @throws IOException           Si ocurre un error de lectura o escritura
+     * @throws CancellationException Si se canceló la exportación
+     */
+    public int export(List<Item> items, OutputStream out) throws IOException {
+        done = 0;
+        total = -1;
+        ZipOutputStream zip = new ZipOutputStream(new UnclosableOutputStream(out));
+        Map<String, File> photos = new LinkedHashMap<>();  // Entrada -> foto
+        Map<String, String> entryByPath = new HashMap<>(); // Ruta absoluta -> entrada
+        Set<String> entryNames = new HashSet<>();
+        long photoBytes = 0;
+
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(TASKS_ENTRY));
+        Writer text = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        JsonWriter json = new JsonWriter(text);
+        json.beginArray();
+        for (Item item : items) {
+            checkCancelled();
+            String path = item.getImagePath();
+            String entry = "";
+            if (path != null && !path.isEmpty()) {
+                entry = entryByPath.get(path);
+                if (entry == null) {
+                    File photo = new File(path);
+                    if (photo.isFile()) {
+                        entry = uniqueName(PHOTOS_DIR + photo.getName(), entryNames);
+                        photos.put(entry, photo);
+                        photoBytes += photo.length();
+                    } else {
+                        entry = "";
+                    }
+                    entryByPath.put(path, entry);
+                }
+            }
+            json.beginObject();
+            json.name("task").value(item.getTask());
+            json.name("imagePath").value(entry);
+            json.name("created").value(item.getCreated());
+            json.name("updated").value(item.getUpdated());
+            json.name("done").value(item.isDone());
+            json.name("priority").value(item.getPriority());
+            json.endObject();
+        }
+        json.endArray();
+        json.flush();
+        zip.closeEntry();
+
+        // Las fotos ya están comprimidas: se guardan tal cual dentro de bloques DEFLATE
+        total = photoBytes;
+        reportProgress();
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        WritableByteChannel target = Channels.newChannel(zip);
+        for (Map.Entry<String, File> photo : photos.entrySet()) {
+            checkCancelled();
+            ZipEntry entry = new ZipEntry(photo.getKey());
+            entry.setTime(photo.getValue().lastModified());
+            zip.putNextEntry(entry);
+            try (FileInputStream in = new FileInputStream(photo.getValue())) {
+                FileChannel source = in.getChannel();
+                long size = source.size();
+                long position = 0;
+                while (position < size) {
+                    checkCancelled();
+                    long copied = source.transferTo(position, Math.min(CHUNK_SIZE, size - position), target);
+                    if (copied <= 0) {
+                        break; // El archivo se acortó mientras se copiaba
+                    }
+                    position += copied;
+                    done += copied;
+                    reportProgress();
+                }
+            }
+            zip.closeEntry();
+        }
+        zip.finish();
+        return photos.size();
+    }
+
+    /**
+     * Método para importar un archivo exportado, extrayendo sus fotos al directorio indicado.
+     *
+     * @param in             Archivo ZIP; no se cierra
+     * @param totalBytes     Tamaño del archivo para informar del progreso, o -1 si no se conoce
+     * @param picturesDir    Directorio en el que se guardan las fotos extraídas
+     * @return Tareas importadas, con identificadores nuevos y rutas absolutas
+     * @throws IOException           Si el archivo no es válido o falla la escritura
+     * @throws CancellationException Si se canceló la importación
+     */
+    public List<Item> importArchive(InputStream in, long totalBytes, File picturesDir) throws IOException {
+        done = 0;
+        total = totalBytes;
+        CountingInputStream counting = new CountingInputStream(in);
+        ZipInputStream zip = new ZipInputStream(counting);
+        List<Item> items = null;
+        Map<String, File> extracted = new HashMap<>();  // Entrada -> foto extraída
+        boolean completed = false;
+        try {
+            if (!picturesDir.isDirectory() && !picturesDir.mkdirs()) {
+                throw new IOException("No se pudo crear el directorio " + picturesDir);
+            }
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                checkCancelled();
+                String name = entry.getName();
+                if (name.equals(TASKS_ENTRY)) {
+                    items = readTasks(zip);
+                } else if (name.startsWith(PHOTOS_DIR) && !entry.isDirectory()) {
+                    String fileName = name.substring(PHOTOS_DIR.length());
+                    if (fileName.isEmpty() || fileName.contains("/") || fileName.contains("\\")
+                            || fileName.equals(".") || fileName.equals("..")) {
+                        throw new IOException("Nombre de foto no válido: " + name);
+                    }
+                    extracted.put(name, extract(zip, counting, picturesDir, fileName));
+                }
+                zip.closeEntry();
+                done = counting.count;
+                reportProgress();
+            }
+            if (items == null) {
+                throw new IOException("El archivo no contiene " + TASKS_ENTRY);
+            }
+            if (total >= 0) {
+                done = total; // El directorio central final no se lee
+                reportProgress();
+            }
+
+            // Resolver las rutas relativas a las fotos extraídas
+            List<Item> resolved = new ArrayList<>(items.size());
+            for (Item item : items) {
+                String path = item.getImagePath();
+                File photo = path == null || path.isEmpty() ? null : extracted.get(path);
+                resolved.add(item.withImagePath(photo != null ? photo.getAbsolutePath() : ""));
+            }
+            completed = true;
+            return resolved;
+        } finally {
+            if (!completed) {
+                for (File photo : extracted.values()) {
+                    //noinspection ResultOfMethodCallIgnored
+                    photo.delete(); // No dejar fotos sin tarea
+                }
+            }
+        }
+    }
+
+    /**
+     * Método para leer el array de tareas de la entrada actual, token a token.
+     */
+    private List<Item> readTasks(InputStream entry) throws IOException {
+        List<Item> items = new ArrayList<>();
+        JsonReader reader = new JsonReader(new InputStreamReader(new UnclosableInputStream(entry), StandardCharsets.UTF_8));
+        try {
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                throw new IOException("Lista de tareas no válida");
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                checkCancelled();
+                items.add(BinaryTaskCodec.readJsonItem(reader));
+            }
+            reader.endArray();
+        } catch (IllegalStateException e) {
+            throw new IOException("Lista de tareas no válida", e);
+        }
+        return items;
+    }
+
+    /**
+     * Método para copiar la entrada actual a un archivo nuevo del directorio de fotos.
+     */
+    private File extract(ZipInputStream zip, CountingInputStream counting, File picturesDir, String fileName)
+            throws IOException {
+        File target = uniqueFile(picturesDir, fileName);
+        ReadableByteChannel source = Channels.newChannel(new UnclosableInputStream(zip));
+        boolean completed = false;
+        try (FileOutputStream out = new FileOutputStream(target)) {
+            FileChannel channel = out.getChannel();
+            long position = 0;
+            while (true) {
+                checkCancelled();
+                long copied = channel.transferFrom(source, position, CHUNK_SIZE);
+                if (copied <= 0) {
+                    break; // Fin de la entrada
+                }
+                position += copied;
+                done = counting.count;
+                reportProgress();
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                //noinspection ResultOfMethodCallIgnored
+                target.delete();
+            }
+        }
+        return target;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    private void reportProgress() {
+        if (progressListener != null) {
+            progressListener.onProgress(done, total);
+        }
+    }
+
+    /**
+     * Método para obtener un nombre que no esté ya usado, agregando un número antes de la extensión.
+     */
+    private static String uniqueName(String name, Set<String> used) {
+        String candidate = name;
+        for (int i = 1; !used.add(candidate); i++) {
+            candidate = withSuffix(name, i);
+        }
+        return candidate;
+    }
+
+    private static File uniqueFile(File directory, String name) {
+        File candidate = new File(directory, name);
+        for (int i = 1; candidate.exists(); i++) {
+            candidate = new File(directory, withSuffix(name, i));
+        }
+        return candidate;
+    }
+
+    private static String withSuffix(String name, int number) {
+        int dot = name.lastIndexOf('.');
+        int slash = name.lastIndexOf('/');
+        if (dot <= slash + 1) {
+            return name + "_" + number;
+        }
+        return name.substring(0, dot) + "_" + number + name.substring(dot);
+    }
+
+    /**
+     * Flujo que cuenta los bytes leídos del archivo comprimido, para el progreso.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Flujo que no cierra el subyacente: los lectores de una entrada no deben cerrar el ZIP.
+     */
+    private static final class UnclosableInputStream extends FilterInputStream {
+        UnclosableInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Flujo que no cierra el subyacente: el destino lo cierra quien lo abrió.
+     */
+    private static final class UnclosableOutputStream extends FilterOutputStream {
+        UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length); // FilterOutputStream escribe byte a byte
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.milistadetareas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Conjunto de mutaciones aplicadas de una sola vez sobre una instantánea de la lista.
+ * <p>
+ * Las eliminaciones y modificaciones se indican por identificador y las tareas nuevas se agregan
+ * al final. La lista resultante se calcula en una sola pasada, y los cambios se pueden reproducir
+ * por posición en el mismo orden en que se aplicaron, para registrarlos en el almacenamiento como
+ * una única transacción y notificarlos al adaptador en un único bloque.
+ * <p>
+ * Un lote también se puede calcular como la diferencia entre dos versiones de la lista con
+ * {@link #diff}, que puede incluir inserciones en cualquier posición; así se deshacen y rehacen
+ * cambios.
+ */
+public final class TaskBatch {
+    private final List<Item> items;             // Lista resultante
+    private final int[] positions;              // Posición de cada eliminación o modificación
+    private final Item[] changes;               // Nuevo contenido, o null para eliminaciones
+    private final boolean[] insertions;         // Indica si cada cambio inserta una tarea
+    private final int changeCount;              // Eliminaciones y modificaciones registradas
+    private final int appendPosition;           // Posición de la primera tarea agregada
+    private final List<Item> removed;           // Tareas eliminadas
+    private final List<Item> put;               // Tareas modificadas o agregadas
+
+    private TaskBatch(List<Item> items, int[] positions, Item[] changes, boolean[] insertions, int changeCount,
+                      int appendPosition, List<Item> removed, List<Item> put) {
+        this.items = items;
+        this.positions = positions;
+        this.changes = changes;
+        this.insertions = insertions;
+        this.changeCount = changeCount;
+        this.appendPosition = appendPosition;
+        this.removed = removed;
+        this.put = put;
+    }
+
+    /**
+     * Método para obtener la lista resultante de aplicar el lote.
+     *
+     * @return Nueva instantánea de la lista; no se debe modificar
+     */
+    public List<Item> getItems() {
+        return items;
+    }
+
+    /**
+     * Método para obtener el número de cambios por posición que contiene el lote.
+     *
+     * @return Eliminaciones, modificaciones e inserciones
+     */
+    public int size() {
+        return changeCount + (items.size() - appendPosition);
+    }
+
+    /**
+     * Método para saber si el lote solo agrega tareas al final.
+     *
+     * @return true si no elimina, modifica ni inserta tareas en medio de la lista
+     */
+    public boolean isAppendOnly() {
+        return changeCount == 0;
+    }
+
+    /**
+     * Método para obtener la posición de la primera tarea agregada.
+     *
+     * @return Posición en la lista resultante
+     */
+    public int getAppendPosition() {
+        return appendPosition;
+    }
+
+    /**
+     * Método para obtener las tareas eliminadas.
+     *
+     * @return Tareas eliminadas, en el orden de la lista original
+     */
+    public List<Item> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Método para obtener las tareas modificadas, insertadas o agregadas.
+     *
+     * @return Nuevo contenido de las tareas
+     */
+    public List<Item> getPut() {
+        return put;
+    }
+
+    /**
+     * Método para reproducir los cambios por posición sobre la lista original. Cada posición se
+     * refiere a la lista tras aplicar los cambios anteriores.
+     *
+     * @param listener Receptor de los cambios
+     */
+    public void replay(TaskStore.LoadListener listener) {
+        for (int i = 0; i < changeCount; i++) {
+            if (changes[i] == null) {
+                listener.onItemRemoved(positions[i]);
+            } else if (insertions[i]) {
+                listener.onItemInserted(positions[i], changes[i]);
+            } else {
+                listener.onItemChanged(positions[i], changes[i]);
+            }
+        }
+        for (int position = appendPosition; position < items.size(); position++) {
+            listener.onItemInserted(position, items.get(position));
+        }
+    }
+
+    /**
+     * Método para calcular el lote que convierte una versión de la lista en otra.
+     * <p>
+     * Primero se descartan el prefijo y el sufijo comunes, saltando las partes compartidas entre
+     * versiones de un {@link TaskVector} o de una {@link PagedTaskList}; el resto se alinea por
+     * identificador: una tarea que solo está en la versión original se elimina, una que solo está
+     * en la nueva se inserta y una que está en ambas con otro contenido se modifica. Entre versiones
+     * cercanas el coste es proporcional a los cambios; entre listas sin partes compartidas, como
+     * dos archivos de páginas distintos, se comparan las tareas una a una.
+     *
+     * @param from Versión mostrada y registrada
+     * @param to   Versión a la que se quiere llegar
+     * @return Lote cuya lista resultante es to
+     */
+    public static TaskBatch diff(List<Item> from, List<Item> to) {
+        int prefix = commonPrefix(from, to);
+        int suffix = commonSuffix(from, to, Math.min(from.size(), to.size()) - prefix);
+        int fromEnd = from.size() - suffix;
+        int toEnd = to.size() - suffix;
+        if (prefix == fromEnd && suffix == 0) {
+            // Solo se agregan tareas al final
+            return new TaskBatch(to, new int[0], new Item[0], new boolean[0], 0, prefix,
+                    Collections.<Item>emptyList(), new ArrayList<>(to.subList(prefix, toEnd)));
+        }
+
+        List<Item> fromMiddle = from.subList(prefix, fromEnd);
+        List<Item> toMiddle = to.subList(prefix, toEnd);
+        Set<Long> fromIds = new HashSet<>(fromMiddle.size() * 2);
+        for (Item item : fromMiddle) {
+            fromIds.add(item.getId());
+        }
+        Set<Long> toIds = new HashSet<>(toMiddle.size() * 2);
+        for (Item item : toMiddle) {
+            toIds.add(item.getId());
+        }
+
+        int capacity = fromMiddle.size() + toMiddle.size();
+        int[] positions = new int[capacity];
+        Item[] changes = new Item[capacity];
+        boolean[] insertions = new boolean[capacity];
+        int changeCount = 0;
+        List<Item> removed = new ArrayList<>();
+        List<Item> put = new ArrayList<>();
+        int i = prefix;
+        int j = prefix;
+        int position = prefix;              // Posición en la lista tras los cambios anteriores
+        while (i < fromEnd || j < toEnd) {
+            Item a = i < fromEnd ? from.get(i) : null;
+            Item b = j < toEnd ? to.get(j) : null;
+            if (a != null && b != null && a.getId() == b.getId()) {
+                if (!a.equals(b)) {
+                    positions[changeCount] = position;
+                    changes[changeCount++] = b;
+                    put.add(b);
+                }
+                i++;
+                j++;
+                position++;
+            } else if (b == null || (a != null && !toIds.contains(a.getId()))) {
+                positions[changeCount] = position;
+                changes[changeCount++] = null;
+                removed.add(a);
+                i++;
+            } else if (a == null || !fromIds.contains(b.getId())) {
+                positions[changeCount] = position;
+                insertions[changeCount] = true;
+                changes[changeCount++] = b;
+                put.add(b);
+                j++;
+                position++;
+            } else {
+                // Las dos tareas siguen en ambas versiones en otro orden: la original se mueve
+                positions[changeCount] = position;
+                changes[changeCount++] = null;
+                removed.add(a);
+                fromIds.remove(a.getId());
+                i++;
+            }
+        }
+        return new TaskBatch(to, positions, changes, insertions, changeCount, to.size(), removed, put);
+    }
+
+    /**
+     * Método para contar las tareas iniciales iguales, saltando primero las partes compartidas.
+     */
+    private static int commonPrefix(List<Item> a, List<Item> b) {
+        int limit = Math.min(a.size(), b.size());
+        int common = 0;
+        if (a instanceof TaskVector && b instanceof TaskVector) {
+            common = TaskVector.commonPrefix((TaskVector) a, (TaskVector) b);
+        } else if (a instanceof PagedTaskList && b instanceof PagedTaskList) {
+            common = PagedTaskList.commonPrefix((PagedTaskList) a, (PagedTaskList) b);
+        }
+        while (common < limit && a.get(common).equals(b.get(common))) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     * Método para contar las tareas finales iguales, saltando primero las partes compartidas.
+     */
+    private static int commonSuffix(List<Item> a, List<Item> b, int limit) {
+        int common = 0;
+        if (a instanceof TaskVector && b instanceof TaskVector) {
+            common = TaskVector.commonSuffix((TaskVector) a, (TaskVector) b, limit);
+        } else if (a instanceof PagedTaskList && b instanceof PagedTaskList) {
+            common = PagedTaskList.commonSuffix((PagedTaskList) a, (PagedTaskList) b, limit);
+        }
+        while (common < limit && a.get(a.size() - 1 - common).equals(b.get(b.size() - 1 - common))) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     * Constructor de lotes sobre una instantánea de la lista.
+     */
+    public static final class Builder {
+        private final List<Item> base;
+        private final Set<Long> removedIds = new HashSet<>();
+        private final Map<Long, Item> updates = new HashMap<>();
+        private final List<Item> appended = new ArrayList<>();
+
+        /**
+         * Constructor del lote.
+         *
+         * @param base Instantánea sobre la que se aplican los cambios
+         */
+        public Builder(List<Item> base) {
+            this.base = base;
+        }
+
+        /**
+         * Método para eliminar una tarea.
+         *
+         * @param id Identificador de la tarea
+         * @return Este constructor
+         */
+        public Builder remove(long id) {
+            removedIds.add(id);
+            updates.remove(id);
+            return this;
+        }
+
+        /**
+         * Método para sustituir el contenido de una tarea con el mismo identificador.
+         *
+         * @param item Nuevo contenido de la tarea
+         * @return Este constructor
+         */
+        public Builder update(Item item) {
+            if (!removedIds.contains(item.getId())) {
+                updates.put(item.getId(), item);
+            }
+            return this;
+        }
+
+        /**
+         * Método para agregar una tarea al final de la lista.
+         *
+         * @param item Tarea nueva
+         * @return Este constructor
+         */
+        public Builder append(Item item) {
+            appended.add(item);
+            return this;
+        }
+
+        /**
+         * Método para agregar varias tareas al final de la lista.
+         *
+         * @param items Tareas nuevas
+         * @return Este constructor
+         */
+        public Builder appendAll(List<Item> items) {
+            appended.addAll(items);
+            return this;
+        }
+
+        /**
+         * Método para calcular la lista resultante y los cambios por posición.
+         * Las eliminaciones y modificaciones de tareas que no están en la lista se ignoran.
+         * Sobre una {@link PagedTaskList} o un {@link TaskVector} el resultado se crea con sus
+         * operaciones, sin copiarla, y comparte con la original lo que no cambia.
+         *
+         * @return Lote listo para registrar y mostrar
+         */
+        public TaskBatch build() {
+            if (base instanceof PagedTaskList || base instanceof TaskVector) {
+                return buildPersistent(base);
+            }
+            List<Item> result = new ArrayList<>(Math.max(0, base.size() - removedIds.size()) + appended.size());
+            int pending = removedIds.size() + updates.size();
+            int[] positions = new int[pending];
+            Item[] changes = new Item[pending];
+            int changeCount = 0;
+            int matched = 0;
+            List<Item> removed = new ArrayList<>(removedIds.size());
+            List<Item> put = new ArrayList<>(updates.size() + appended.size());
+
+            for (Item item : base) {
+                if (matched == pending) {
+                    result.add(item); // Sin cambios restantes
+                    continue;
+                }
+                Long id = item.getId();
+                if (removedIds.contains(id)) {
+                    matched++;
+                    positions[changeCount] = result.size();
+                    changes[changeCount++] = null;
+                    removed.add(item);
+                    continue;
+                }
+                Item update = updates.get(id);
+                if (update != null) {
+                    matched++;
+                }
+                if (update != null && !update.equals(item)) {
+                    positions[changeCount] = result.size();
+                    changes[changeCount++] = update;
+                    put.add(update);
+                    result.add(update);
+                } else {
+                    result.add(item);
+                }
+            }
+
+            int appendPosition = result.size();
+            result.addAll(appended);
+            put.addAll(appended);
+            return new TaskBatch(Collections.unmodifiableList(result), positions, changes, new boolean[changeCount],
+                    changeCount, appendPosition, removed, put);
+        }
+
+        /**
+         * Método para calcular el lote sobre una lista persistente: la búsqueda de las tareas
+         * afectadas recorre la lista en orden y termina al encontrarlas todas; después cada cambio
+         * se aplica como una operación de la lista. Sobre una {@link PagedTaskList} el recorrido
+         * puede leer del disco, así que se calcula fuera del hilo principal.
+         */
+        private TaskBatch buildPersistent(List<Item> list) {
+            int pending = removedIds.size() + updates.size();
+            int[] positions = new int[pending];
+            Item[] changes = new Item[pending];
+            int changeCount = 0;
+            int matched = 0;
+            int size = 0;               // Tamaño de la lista resultante hasta la tarea actual
+            List<Item> removed = new ArrayList<>(removedIds.size());
+            List<Item> put = new ArrayList<>(updates.size() + appended.size());
+
+            if (pending > 0) {
+                for (Item item : list) {
+                    Long id = item.getId();
+                    if (removedIds.contains(id)) {
+                        matched++;
+                        positions[changeCount] = size;
+                        changes[changeCount++] = null;
+                        removed.add(item);
+                    } else {
+                        Item update = updates.get(id);
+                        if (update != null) {
+                            matched++;
+                            if (!update.equals(item)) {
+                                positions[changeCount] = size;
+                                changes[changeCount++] = update;
+                                put.add(update);
+                            }
+                        }
+                        size++;
+                    }
+                    if (matched == pending) {
+                        break; // Sin cambios restantes
+                    }
+                }
+            }
+
+            List<Item> result = list;
+            for (int i = 0; i < changeCount; i++) {
+                result = changes[i] == null ? PagedTaskList.withRemoved(result, positions[i])
+                        : PagedTaskList.withReplaced(result, positions[i], changes[i]);
+            }
+            int appendPosition = result.size();
+            if (!appended.isEmpty()) {
+                result = PagedTaskList.withInserted(result, appendPosition, new ArrayList<>(appended));
+            }
+            put.addAll(appended);
+            return new TaskBatch(result, positions, changes, new boolean[changeCount], changeCount,
+                    appendPosition, removed, put);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.milistadetareas;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Historial de versiones de la lista de tareas para deshacer y rehacer varios niveles.
+ * <p>
+ * Guarda referencias a instantáneas inmutables, no copias: como las versiones de un
+ * {@link TaskVector} o de una {@link PagedTaskList} comparten lo que no cambia, cada nivel cuesta
+ * memoria proporcional a los cambios que lo separan del siguiente. Volver a una versión se muestra
+ * y se registra como la diferencia calculada por {@link TaskBatch#diff}.
+ * <p>
+ * Los niveles caducan pasado un tiempo máximo: el recolector de fotos borra las fotos sin tarea
+ * tras su periodo de gracia, y una versión más antigua podría referirse a fotos ya borradas. Solo
+ * se usa en el hilo principal.
+ * <p>
+ * Cada nivel anota su versión con {@link PagedTaskList#retain} y la suelta al descartarlo, de modo
+ * que el archivo de páginas de una versión antigua se cierra cuando ningún nivel la usa.
+ */
+public class TaskHistory {
+    /**
+     * Reloj del historial, sustituible en las pruebas.
+     */
+    public interface Clock {
+        long now();
+    }
+
+    private final int maxEntries;           // Niveles máximos en cada sentido
+    private final long maxAgeMs;            // Tiempo máximo que se conserva un nivel
+    private final Clock clock;
+    private final Deque<Entry> undo = new ArrayDeque<>();
+    private final Deque<Entry> redo = new ArrayDeque<>();
+    private long undone;                    // Estadísticas
+    private long redone;
+
+    /**
+     * Constructor del historial con el reloj del sistema.
+     *
+     * @param maxEntries Niveles máximos que se conservan en cada sentido
+     * @param maxAgeMs   Tiempo máximo que se conserva un nivel
+     */
+    public TaskHistory(int maxEntries, long maxAgeMs) {
+        this(maxEntries, maxAgeMs, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor del historial.
+     *
+     * @param maxEntries Niveles máximos que se conservan en cada sentido
+     * @param maxAgeMs   Tiempo máximo que se conserva un nivel
+     * @param clock      Reloj en milisegundos
+     */
+    public TaskHistory(int maxEntries, long maxAgeMs, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.maxAgeMs = maxAgeMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Método para guardar la versión actual antes de modificarla. Descarta lo que se podía rehacer.
+     *
+     * @param current Versión que se va a modificar
+     */
+    public void record(List<Item> current) {
+        discardAll(redo);
+        push(undo, current);
+    }
+
+    /**
+     * Método para obtener la versión anterior, guardando la actual para rehacer.
+     *
+     * @param current Versión mostrada
+     * @return Versión anterior, o null si no hay nada que deshacer; sigue anotada, y quien la recibe
+     * la suelta con {@link PagedTaskList#release} al terminar de usarla
+     */
+    public List<Item> undo(List<Item> current) {
+        Entry entry = pop(undo);
+        if (entry == null) {
+            return null;
+        }
+        push(redo, current);
+        undone++;
+        return entry.version;
+    }
+
+    /**
+     * Método para obtener la versión deshecha más reciente, guardando la actual para deshacer.
+     *
+     * @param current Versión mostrada
+     * @return Versión siguiente, o null si no hay nada que rehacer; sigue anotada, y quien la recibe
+     * la suelta con {@link PagedTaskList#release} al terminar de usarla
+     */
+    public List<Item> redo(List<Item> current) {
+        Entry entry = pop(redo);
+        if (entry == null) {
+            return null;
+        }
+        push(undo, current);
+        redone++;
+        return entry.version;
+    }
+
+    public boolean canUndo() {
+        expire(undo);
+        return !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        expire(redo);
+        return !redo.isEmpty();
+    }
+
+    /**
+     * Método para vaciar el historial, por ejemplo si la lista se sustituye por otra.
+     */
+    public void clear() {
+        discardAll(undo);
+        discardAll(redo);
+    }
+
+    /**
+     * Método para obtener un resumen del historial.
+     *
+     * @return Texto con los niveles disponibles y los usados
+     */
+    public String getStats() {
+        return "deshacer=" + undo.size()
+                + " rehacer=" + redo.size()
+                + " deshechos=" + undone
+                + " rehechos=" + redone;
+    }
+
+    private void push(Deque<Entry> stack, List<Item> version) {
+        PagedTaskList.retain(version);
+        stack.push(new Entry(version, clock.now()));
+        while (stack.size() > maxEntries) {
+            PagedTaskList.release(stack.removeLast().version); // El nivel más antiguo
+        }
+    }
+
+    private Entry pop(Deque<Entry> stack) {
+        expire(stack);
+        return stack.poll();
+    }
+
+    private void expire(Deque<Entry> stack) {
+        long oldest = clock.now() - maxAgeMs;
+        while (!stack.isEmpty() && stack.peekLast().time < oldest) {
+            PagedTaskList.release(stack.removeLast().version);
+        }
+    }
+
+    private static void discardAll(Deque<Entry> stack) {
+        for (Entry entry : stack) {
+            PagedTaskList.release(entry.version);
+        }
+        stack.clear();
+    }
+
+    /**
+     * Versión guardada con el momento en que dejó de ser la actual.
+     */
+    private static final class Entry {
+        final List<Item> version;
+        final long time;
+
+        Entry(List<Item> version, long time) {
+            this.version = version;
+            this.time = time;
+        }
+    }
+}
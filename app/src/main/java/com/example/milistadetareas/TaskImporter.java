@@ -0,0 +1,117 @@
+package com.example.milistadetareas;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de listas de tareas exportadas por otros sistemas.
+ * <p>
+ * Admite texto plano, con una tarea por línea, y CSV con la descripción en la primera columna y,
+ * opcionalmente, la ruta de la imagen en la segunda. El archivo se recorre como flujo, carácter a
+ * carácter, sin cargarlo entero en memoria; las líneas vacías se omiten.
+ */
+public class TaskImporter {
+    private final boolean csv;      // true para CSV, false para una tarea por línea
+
+    /**
+     * Constructor del lector.
+     *
+     * @param csv true si el archivo es CSV
+     */
+    public TaskImporter(boolean csv) {
+        this.csv = csv;
+    }
+
+    /**
+     * Método para leer todas las tareas del archivo.
+     *
+     * @param reader Lector del archivo; no se cierra
+     * @return Tareas leídas, con identificadores nuevos
+     * @throws IOException Si ocurre un error de lectura
+     */
+    public List<Item> read(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+        List<Item> items = new ArrayList<>();
+        if (!csv) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String task = line.trim();
+                if (!task.isEmpty()) {
+                    items.add(new Item(task, ""));
+                }
+            }
+            return items;
+        }
+
+        List<String> fields = new ArrayList<>(2);
+        boolean first = true;
+        while (readRecord(in, fields)) {
+            String task = fields.get(0).trim();
+            String imagePath = fields.size() > 1 ? fields.get(1).trim() : "";
+            if (first && isHeader(task)) {
+                first = false;
+                continue;
+            }
+            first = false;
+            if (!task.isEmpty()) {
+                items.add(new Item(task, imagePath));
+            }
+        }
+        return items;
+    }
+
+    private static boolean isHeader(String field) {
+        return field.equalsIgnoreCase("tarea") || field.equalsIgnoreCase("task");
+    }
+
+    /**
+     * Método para leer un registro CSV (RFC 4180): campos separados por comas, entre comillas si
+     * contienen comas, comillas dobladas o saltos de línea.
+     *
+     * @param in     Lector del archivo
+     * @param fields Lista que se vacía y se llena con los campos del registro
+     * @return false si no quedan registros
+     * @throws IOException Si ocurre un error de lectura
+     */
+    static boolean readRecord(BufferedReader in, List<String> fields) throws IOException {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    if (in.read() == '"') {
+                        field.append('"'); // Comilla escapada
+                    } else {
+                        in.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return false;
+        }
+        fields.add(field.toString());
+        return true;
+    }
+}
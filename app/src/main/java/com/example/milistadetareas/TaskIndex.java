@@ -0,0 +1,451 @@
+package com.example.milistadetareas;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Índice secundario inmutable de las tareas, implementado como un árbol AVL persistente.
+ * <p>
+ * Con un orden distinto de {@link Order#MANUAL} las tareas se ordenan por su clave (creación,
+ * modificación o prioridad) y, a igualdad, por identificador, de modo que cada tarea tiene una
+ * única posición. Con {@link Order#MANUAL} el árbol sigue las posiciones de la lista, como
+ * {@link TaskVector}, y sirve para filtrarla sin perder su orden.
+ * <p>
+ * Cada nodo cuenta las tareas, las hechas y las que tienen foto de su subárbol: las particiones de
+ * cada {@link Filter} se recorren sin separarlas, y obtener la tarea i-ésima de una partición o la
+ * posición de una tarea en ella cuesta O(log n). Una modificación copia solo el camino afectado,
+ * así que mantener el índice al agregar, modificar o eliminar una tarea cuesta O(log n) y la
+ * versión anterior sigue siendo válida mientras el adaptador la muestre.
+ */
+public final class TaskIndex {
+
+    /**
+     * Orden de las tareas mostradas.
+     */
+    public enum Order {
+        MANUAL(null),
+        CREATED((a, b) -> Long.compare(b.getCreated(), a.getCreated())),   // Las más recientes primero
+        UPDATED((a, b) -> Long.compare(b.getUpdated(), a.getUpdated())),   // Las modificadas hace menos primero
+        PRIORITY((a, b) -> {                                                // Por prioridad, y después por creación
+            int byPriority = Integer.compare(b.getPriority(), a.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(b.getCreated(), a.getCreated());
+        });
+
+        private final Comparator<Item> comparator;     // Orden total, o null para el orden de la lista
+
+        Order(final Comparator<Item> key) {
+            this.comparator = key == null ? null : (a, b) -> {
+                int byKey = key.compare(a, b);
+                return byKey != 0 ? byKey : Long.compare(b.getId(), a.getId()); // Desempate estable
+            };
+        }
+
+        /**
+         * Método para obtener el orden total de las tareas.
+         *
+         * @return Comparador, o null para el orden de la lista
+         */
+        Comparator<Item> comparator() {
+            return comparator;
+        }
+    }
+
+    /**
+     * Partición de las tareas mostradas.
+     */
+    public enum Filter {
+        ALL, PENDING, DONE, PHOTO;
+
+        /**
+         * Método para saber si una tarea pertenece a la partición.
+         *
+         * @param item Tarea
+         * @return true si se muestra con este filtro
+         */
+        public boolean matches(Item item) {
+            switch (this) {
+                case PENDING:
+                    return !item.isDone();
+                case DONE:
+                    return item.isDone();
+                case PHOTO:
+                    return item.hasImage();
+                default:
+                    return true;
+            }
+        }
+    }
+
+    private final Order order;
+    private final Node root;
+
+    private TaskIndex(Order order, Node root) {
+        this.order = order;
+        this.root = root;
+    }
+
+    /**
+     * Método para crear el índice de una lista en O(n log n), o en O(n) con el orden manual.
+     *
+     * @param order Orden del índice
+     * @param items Tareas en el orden de la lista
+     * @return Índice con todas las tareas
+     */
+    public static TaskIndex of(Order order, List<Item> items) {
+        Item[] array = items.toArray(new Item[0]);
+        if (order.comparator != null) {
+            Arrays.sort(array, order.comparator);
+        }
+        return new TaskIndex(order, build(array, 0, array.length));
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Método para contar las tareas de una partición en O(1).
+     *
+     * @param filter Partición
+     * @return Número de tareas que pertenecen a ella
+     */
+    public int count(Filter filter) {
+        return count(root, filter);
+    }
+
+    /**
+     * Método para obtener la tarea de una posición dentro de una partición.
+     *
+     * @param filter Partición
+     * @param index  Posición entre las tareas de la partición
+     * @return Tarea
+     */
+    public Item get(Filter filter, int index) {
+        if (index < 0 || index >= count(filter)) {
+            throw new IndexOutOfBoundsException("Posición " + index + ", tamaño " + count(filter));
+        }
+        Node node = root;
+        while (true) {
+            int leftCount = count(node.left, filter);
+            if (index < leftCount) {
+                node = node.left;
+                continue;
+            }
+            index -= leftCount;
+            if (filter.matches(node.item)) {
+                if (index == 0) {
+                    return node.item;
+                }
+                index--;
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * Método para obtener la vista de una partición en el orden del índice. Crearla cuesta O(1) y
+     * cada lectura O(log n), de modo que mostrar otra partición u otro orden ya indexado solo
+     * cuesta las filas visibles.
+     *
+     * @param filter Partición
+     * @return Lista inmutable
+     */
+    public List<Item> view(Filter filter) {
+        return new View(this, filter);
+    }
+
+    /**
+     * Método para obtener la posición que ocupa, o que ocuparía, una tarea dentro de una partición
+     * de un índice ordenado.
+     *
+     * @param filter Partición
+     * @param item   Tarea, que se localiza por su clave
+     * @return Número de tareas de la partición que van antes
+     */
+    public int rank(Filter filter, Item item) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int c = order.comparator.compare(item, node.item);
+            if (c <= 0) {
+                if (c == 0) {
+                    return rank + count(node.left, filter);
+                }
+                node = node.left;
+            } else {
+                rank += count(node.left, filter) + (filter.matches(node.item) ? 1 : 0);
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Método para obtener cuántas tareas de una partición van antes de una posición de la lista en
+     * un índice con el orden manual.
+     *
+     * @param filter   Partición
+     * @param position Posición en la lista
+     * @return Número de tareas de la partición en las posiciones anteriores
+     */
+    public int rankAt(Filter filter, int position) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (position <= leftSize) {
+                node = node.left;
+            } else {
+                rank += count(node.left, filter) + (filter.matches(node.item) ? 1 : 0);
+                position -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Método para agregar una tarea a un índice ordenado.
+     *
+     * @param item Tarea que no está en el índice
+     * @return Nuevo índice
+     */
+    public TaskIndex with(Item item) {
+        return new TaskIndex(order, insert(root, item, order.comparator));
+    }
+
+    /**
+     * Método para quitar una tarea de un índice ordenado.
+     *
+     * @param item Versión de la tarea que está en el índice
+     * @return Nuevo índice, o el mismo si no la contiene
+     */
+    public TaskIndex without(Item item) {
+        Node next = delete(root, item, order.comparator);
+        return next == root ? this : new TaskIndex(order, next);
+    }
+
+    /**
+     * Método para insertar una tarea en una posición de un índice con el orden manual.
+     *
+     * @param position Posición en la lista
+     * @param item     Tarea nueva
+     * @return Nuevo índice
+     */
+    public TaskIndex insertedAt(int position, Item item) {
+        return new TaskIndex(order, insertAt(root, position, item));
+    }
+
+    /**
+     * Método para sustituir la tarea de una posición de un índice con el orden manual.
+     *
+     * @param position Posición en la lista
+     * @param item     Nuevo contenido
+     * @return Nuevo índice
+     */
+    public TaskIndex replacedAt(int position, Item item) {
+        return new TaskIndex(order, replaceAt(root, position, item));
+    }
+
+    /**
+     * Método para eliminar la tarea de una posición de un índice con el orden manual.
+     *
+     * @param position Posición en la lista
+     * @return Nuevo índice
+     */
+    public TaskIndex removedAt(int position) {
+        return new TaskIndex(order, removeAt(root, position));
+    }
+
+    /**
+     * Método para obtener la altura del árbol, para comprobar que sigue equilibrado.
+     *
+     * @return Altura del árbol; 0 si está vacío
+     */
+    int height() {
+        return height(root);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int count(Node node, Filter filter) {
+        if (node == null) {
+            return 0;
+        }
+        switch (filter) {
+            case PENDING:
+                return node.size - node.done;
+            case DONE:
+                return node.done;
+            case PHOTO:
+                return node.photos;
+            default:
+                return node.size;
+        }
+    }
+
+    private static Node build(Item[] items, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(build(items, from, middle), items[middle], build(items, middle + 1, to));
+    }
+
+    private static Node insert(Node node, Item item, Comparator<Item> comparator) {
+        if (node == null) {
+            return new Node(null, item, null);
+        }
+        if (comparator.compare(item, node.item) < 0) {
+            return balance(insert(node.left, item, comparator), node.item, node.right);
+        }
+        return balance(node.left, node.item, insert(node.right, item, comparator));
+    }
+
+    private static Node delete(Node node, Item item, Comparator<Item> comparator) {
+        if (node == null) {
+            return null;
+        }
+        int c = comparator.compare(item, node.item);
+        if (c < 0) {
+            Node left = delete(node.left, item, comparator);
+            return left == node.left ? node : balance(left, node.item, node.right);
+        }
+        if (c > 0) {
+            Node right = delete(node.right, item, comparator);
+            return right == node.right ? node : balance(node.left, node.item, right);
+        }
+        return merge(node.left, node.right);
+    }
+
+    private static Node insertAt(Node node, int position, Item item) {
+        if (node == null) {
+            return new Node(null, item, null);
+        }
+        int leftSize = size(node.left);
+        if (position <= leftSize) {
+            return balance(insertAt(node.left, position, item), node.item, node.right);
+        }
+        return balance(node.left, node.item, insertAt(node.right, position - leftSize - 1, item));
+    }
+
+    private static Node replaceAt(Node node, int position, Item item) {
+        int leftSize = size(node.left);
+        if (position < leftSize) {
+            return new Node(replaceAt(node.left, position, item), node.item, node.right);
+        }
+        if (position == leftSize) {
+            return new Node(node.left, item, node.right);
+        }
+        return new Node(node.left, node.item, replaceAt(node.right, position - leftSize - 1, item));
+    }
+
+    private static Node removeAt(Node node, int position) {
+        int leftSize = size(node.left);
+        if (position < leftSize) {
+            return balance(removeAt(node.left, position), node.item, node.right);
+        }
+        if (position == leftSize) {
+            return merge(node.left, node.right);
+        }
+        return balance(node.left, node.item, removeAt(node.right, position - leftSize - 1));
+    }
+
+    /**
+     * Método para unir los dos hijos de un nodo eliminado, subiendo la primera tarea del derecho.
+     */
+    private static Node merge(Node left, Node right) {
+        if (right == null) {
+            return left;
+        }
+        if (left == null) {
+            return right;
+        }
+        Node first = right;
+        while (first.left != null) {
+            first = first.left;
+        }
+        return balance(left, first.item, removeAt(right, 0));
+    }
+
+    private static Node balance(Node left, Item item, Node right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.left, left.item, new Node(left.right, item, right));
+            }
+            return new Node(new Node(left.left, left.item, left.right.left), left.right.item,
+                    new Node(left.right.right, item, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(new Node(left, item, right.left), right.item, right.right);
+            }
+            return new Node(new Node(left, item, right.left.left), right.left.item,
+                    new Node(right.left.right, right.item, right.right));
+        }
+        return new Node(left, item, right);
+    }
+
+    /**
+     * Nodo inmutable del árbol con los recuentos de su subárbol.
+     */
+    private static final class Node {
+        final Node left;
+        final Node right;
+        final Item item;
+        final int size;                 // Tareas del subárbol
+        final int done;                 // Tareas hechas del subárbol
+        final int photos;               // Tareas con foto del subárbol
+        final int height;               // Altura del subárbol
+
+        Node(Node left, Item item, Node right) {
+            this.left = left;
+            this.right = right;
+            this.item = item;
+            this.size = size(left) + 1 + size(right);
+            this.done = count(left, Filter.DONE) + (item.isDone() ? 1 : 0) + count(right, Filter.DONE);
+            this.photos = count(left, Filter.PHOTO) + (item.hasImage() ? 1 : 0) + count(right, Filter.PHOTO);
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    /**
+     * Vista inmutable de una partición de una versión del índice.
+     */
+    private static final class View extends AbstractList<Item> implements RandomAccess {
+        private final TaskIndex index;
+        private final Filter filter;
+        private final int size;
+
+        View(TaskIndex index, Filter filter) {
+            this.index = index;
+            this.filter = filter;
+            this.size = index.count(filter);
+        }
+
+        @Override
+        public Item get(int position) {
+            return index.get(filter, position);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.milistadetareas;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Índice de las listas de tareas: nombre, número de tareas, fotos y última modificación de cada
+ * una, junto con la lista mostrada.
+ * <p>
+ * Cada lista se guarda en su propio directorio de {@link JournalTaskStore}; el índice es un JSON
+ * pequeño que basta para abrir la interfaz sin leer ninguna lista. La lista por defecto usa el
+ * directorio de tareas anterior a las listas múltiples, de modo que no hay nada que migrar.
+ * <p>
+ * El índice no es seguro entre hilos: se modifica en el hilo principal y se guarda con
+ * {@link #toBytes()} y {@link #write}, que puede ejecutarse en segundo plano.
+ */
+public class TaskListManifest {
+    public static final String DEFAULT_ID = "tasks";           // Directorio de la lista por defecto
+    private static final String ID_PREFIX = "tasks_";           // Directorios de las listas creadas
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int VERSION = 1;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private String currentId;
+    private int nextNumber = 1;                                 // Siguiente número de directorio
+
+    /**
+     * Constructor de un índice con solo la lista por defecto.
+     *
+     * @param defaultName Nombre de la lista por defecto
+     */
+    public TaskListManifest(String defaultName) {
+        entries.add(new Entry(DEFAULT_ID, defaultName, Entry.UNKNOWN, Entry.UNKNOWN, 0));
+        currentId = DEFAULT_ID;
+    }
+
+    /**
+     * Método para leer el índice guardado. Si no existe o está dañado, se devuelve uno con solo la
+     * lista por defecto: su directorio sigue intacto y las demás se pueden volver a crear.
+     *
+     * @param file        Archivo del índice
+     * @param defaultName Nombre de la lista por defecto
+     * @return Índice leído
+     */
+    public static TaskListManifest load(File file, String defaultName) {
+        if (!file.exists()) {
+            return new TaskListManifest(defaultName);
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return read(reader, defaultName);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return new TaskListManifest(defaultName);
+        }
+    }
+
+    /**
+     * Método para leer un índice en JSON.
+     *
+     * @param reader      Origen del JSON
+     * @param defaultName Nombre de la lista por defecto, si el índice no la incluye
+     * @return Índice leído
+     * @throws IOException Si el JSON no es válido
+     */
+    static TaskListManifest read(Reader reader, String defaultName) throws IOException {
+        TaskListManifest manifest = new TaskListManifest(defaultName);
+        manifest.entries.clear();
+        String current = null;
+        try (JsonReader json = new JsonReader(reader)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if ("current".equals(name)) {
+                    current = json.nextString();
+                } else if ("next".equals(name)) {
+                    manifest.nextNumber = json.nextInt();
+                } else if ("lists".equals(name)) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        manifest.entries.add(readEntry(json));
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue(); // Campos de versiones posteriores
+                }
+            }
+            json.endObject();
+        }
+        if (manifest.get(DEFAULT_ID) == null) {
+            manifest.entries.add(0, new Entry(DEFAULT_ID, defaultName, Entry.UNKNOWN, Entry.UNKNOWN, 0));
+        }
+        manifest.currentId = current != null && manifest.get(current) != null ? current : DEFAULT_ID;
+        return manifest;
+    }
+
+    private static Entry readEntry(JsonReader json) throws IOException {
+        String id = null;
+        String name = "";
+        int count = Entry.UNKNOWN;
+        int photos = Entry.UNKNOWN;
+        long modified = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            String field = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = json.nextString();
+                    break;
+                case "name":
+                    name = json.nextString();
+                    break;
+                case "count":
+                    count = json.nextInt();
+                    break;
+                case "photos":
+                    photos = json.nextInt();
+                    break;
+                case "modified":
+                    modified = json.nextLong();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        if (id == null || !isValidId(id)) {
+            throw new IOException("Lista sin directorio válido");
+        }
+        return new Entry(id, name, count, photos, modified);
+    }
+
+    /**
+     * Método para obtener el JSON del índice, para guardarlo fuera del hilo principal.
+     *
+     * @return Bytes en UTF-8
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter json = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            json.beginObject();
+            json.name("version").value(VERSION);
+            json.name("current").value(currentId);
+            json.name("next").value(nextNumber);
+            json.name("lists").beginArray();
+            for (Entry entry : entries) {
+                json.beginObject();
+                json.name("id").value(entry.id);
+                json.name("name").value(entry.name);
+                json.name("count").value(entry.count);
+                json.name("photos").value(entry.photos);
+                json.name("modified").value(entry.modified);
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // No ocurre al escribir en memoria
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Método para guardar de forma atómica un índice: se escribe un temporal y se renombra.
+     *
+     * @param file  Archivo del índice
+     * @param bytes Contenido obtenido con {@link #toBytes()}
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void write(File file, byte[] bytes) throws IOException {
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("No se pudo renombrar el índice de listas");
+        }
+    }
+
+    /**
+     * Método para obtener las listas en el orden en que se crearon.
+     *
+     * @return Vista no modificable de las entradas
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Método para buscar una lista por su directorio.
+     *
+     * @param id Directorio de la lista
+     * @return Entrada, o null si no existe
+     */
+    public Entry get(String id) {
+        for (Entry entry : entries) {
+            if (entry.id.equals(id)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    public Entry getCurrent() {
+        return get(currentId);
+    }
+
+    /**
+     * Método para cambiar la lista mostrada.
+     *
+     * @param id Directorio de una lista existente
+     */
+    public void setCurrent(String id) {
+        if (get(id) == null) {
+            throw new IllegalArgumentException("Lista desconocida: " + id);
+        }
+        currentId = id;
+    }
+
+    /**
+     * Método para crear una lista vacía al final.
+     *
+     * @param name Nombre de la lista
+     * @param now  Momento de creación en milisegundos
+     * @return Entrada de la nueva lista
+     */
+    public Entry add(String name, long now) {
+        Entry entry = new Entry(ID_PREFIX + nextNumber++, name, 0, 0, now);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Método para sustituir la entrada de una lista por una versión actualizada.
+     *
+     * @param entry Entrada con el mismo directorio que una existente
+     */
+    public void update(Entry entry) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).id.equals(entry.id)) {
+                entries.set(i, entry);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Lista desconocida: " + entry.id);
+    }
+
+    private static boolean isValidId(String id) {
+        return id.equals(DEFAULT_ID) || id.matches(ID_PREFIX + "[0-9]+"); // Nunca una ruta
+    }
+
+    /**
+     * Entrada inmutable del índice con los datos de una lista.
+     */
+    public static final class Entry {
+        public static final int UNKNOWN = -1;   // Dato no conocido hasta abrir la lista
+
+        private final String id;                // Directorio de la lista
+        private final String name;              // Nombre mostrado
+        private final int count;                // Tareas, o UNKNOWN
+        private final int photos;               // Tareas con foto, o UNKNOWN mientras la lista está abierta
+        private final long modified;            // Última modificación en milisegundos
+
+        Entry(String id, String name, int count, int photos, long modified) {
+            this.id = id;
+            this.name = name;
+            this.count = count;
+            this.photos = photos;
+            this.modified = modified;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getPhotos() {
+            return photos;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        /**
+         * Método para crear una copia con otro número de tareas y de fotos.
+         *
+         * @param count    Número de tareas
+         * @param photos   Número de tareas con foto, o UNKNOWN
+         * @param modified Última modificación en milisegundos
+         * @return Nueva entrada con el mismo directorio y nombre
+         */
+        public Entry withCounts(int count, int photos, long modified) {
+            return new Entry(id, name, count, photos, modified);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.milistadetareas;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cargador asíncrono de la lista de tareas.
+ * <p>
+ * Lee el almacenamiento en un hilo de fondo y publica las tareas en el hilo principal por lotes:
+ * el primer lote, del tamaño de una pantalla, se publica en cuanto está listo y el resto llega en
+ * lotes mayores. Como cada lote crea una nueva instantánea de la lista, los lotes crecen con lo ya
+ * publicado para que la copia total sea lineal.
+ * <p>
+ * También migra, leyéndola token a token, la lista JSON heredada de SharedPreferences. Si el JSON
+ * no se puede leer entero, se migran las tareas legibles y se guarda una copia del JSON original.
+ */
+public class TaskLoader {
+    public static final int FIRST_BATCH_SIZE = 20;     // Tareas suficientes para llenar la primera pantalla
+    public static final int BATCH_SIZE = 500;          // Tamaño mínimo de los lotes posteriores
+    public static final int MAX_BATCH_SIZE = 65536;    // Tamaño máximo de los lotes posteriores
+
+    /**
+     * Receptor, en el hilo principal, de los cambios y del final de la carga.
+     */
+    public interface Listener {
+        void onItemsInserted(int position, List<Item> items);
+
+        void onItemChanged(int position, Item item);
+
+        void onItemRemoved(int position);
+
+        /**
+         * @param timeToFirstItemMs   Milisegundos hasta publicar la primera tarea, o -1 si no hay tareas
+         * @param timeToFullyLoadedMs Milisegundos hasta publicar la lista completa
+         */
+        void onLoadFinished(long timeToFirstItemMs, long timeToFullyLoadedMs);
+    }
+
+    private final TaskStore taskStore;                  // Almacenamiento del que se carga la lista
+    private final SharedPreferences legacyPreferences;  // Preferencias con la lista JSON heredada
+    private final String legacyKey;                     // Clave de la lista JSON heredada
+    private final File legacyBackup;                    // Copia del JSON heredado que no se lee entero
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private volatile boolean cancelled;
+    private long startTime;
+    private long firstItemTime = -1;                    // Solo se accede desde el hilo principal
+
+    /**
+     * Constructor del cargador.
+     *
+     * @param taskStore         Almacenamiento del que se carga la lista
+     * @param legacyPreferences Preferencias con la lista JSON heredada
+     * @param legacyKey         Clave de la lista JSON heredada, o null si no hay que migrar ninguna
+     * @param legacyBackup      Archivo donde se copia el JSON heredado si está dañado
+     */
+    public TaskLoader(TaskStore taskStore, SharedPreferences legacyPreferences, String legacyKey,
+                      File legacyBackup) {
+        this.taskStore = taskStore;
+        this.legacyPreferences = legacyPreferences;
+        this.legacyKey = legacyKey;
+        this.legacyBackup = legacyBackup;
+    }
+
+    /**
+     * Método para iniciar la carga en un hilo de fondo.
+     *
+     * @param listener Receptor de los cambios en el hilo principal
+     */
+    public void start(final Listener listener) {
+        startTime = SystemClock.elapsedRealtime();
+        Thread thread = new Thread(() -> run(listener), "TaskLoader");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Método para cancelar la carga; no se publicarán más cambios.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void run(final Listener listener) {
+        BatchPublisher publisher = new BatchPublisher(listener);
+        try {
+            final List<Item> paged = taskStore.loadPaged();
+            if (paged != null) {
+                // Lista grande: se publica entera, sin leer sus tareas, como un único lote
+                mainHandler.post(() -> {
+                    if (cancelled) {
+                        PagedTaskList.closeIfUnused(paged); // No llega a mostrarse
+                        return;
+                    }
+                    firstItemTime = SystemClock.elapsedRealtime();
+                    listener.onItemsInserted(0, paged);
+                });
+            } else {
+                loadAll(publisher);
+            }
+        } catch (CancellationException e) {
+            return;
+        } catch (IOException e) {
+            Log.e("TaskLoader", "Error al cargar las tareas", e);
+            publisher.flush();
+        }
+
+        mainHandler.post(() -> {
+            if (cancelled) {
+                return;
+            }
+            long total = SystemClock.elapsedRealtime() - startTime;
+            long first = firstItemTime >= 0 ? firstItemTime - startTime : -1;
+            Log.i("TaskLoader", "Primera tarea: " + first + " ms, lista completa: " + total + " ms");
+            listener.onLoadFinished(first, total);
+        });
+    }
+
+    /**
+     * Método para cargar la lista completa en memoria, o migrar la heredada si no hay ninguna.
+     *
+     * @param publisher Receptor de las tareas cargadas
+     */
+    private void loadAll(BatchPublisher publisher) {
+        try {
+            int count = taskStore.load(publisher);
+            if (count == 0) {
+                migrateLegacyTasks(publisher);
+            }
+            publisher.flush();
+        } catch (IOException e) {
+            Log.e("TaskLoader", "Error al cargar las tareas", e);
+            publisher.flush();
+        }
+    }
+
+    /**
+     * Método para migrar la lista heredada guardada como JSON en SharedPreferences.
+     * El JSON se recorre token a token, sin reflexión ni lista intermedia de Gson. Si no se llega
+     * al final de la lista, el JSON solo se borra de las preferencias una vez copiado en
+     * {@link #legacyBackup}, para no perder las tareas que no se pudieron leer.
+     *
+     * @param publisher Receptor de las tareas migradas
+     */
+    private void migrateLegacyTasks(BatchPublisher publisher) {
+        if (legacyKey == null) {
+            return; // Solo la lista por defecto tiene una versión heredada
+        }
+        String json = legacyPreferences.getString(legacyKey, null);
+        if (json == null) {
+            return;
+        }
+        List<Item> migrated = new ArrayList<>();
+        boolean complete = false;
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Item item = BinaryTaskCodec.readJsonItem(reader);
+                    publisher.onItemInserted(migrated.size(), item);
+                    migrated.add(item);
+                }
+                reader.endArray();
+                complete = true;
+            }
+        } catch (IOException | IllegalStateException e) {
+            Log.e("TaskLoader", "Lista heredada dañada, se migran las tareas legibles", e);
+        }
+        taskStore.replaceAll(migrated);
+        taskStore.flush(); // La migración debe ser durable antes de borrar el JSON
+        if (!complete) {
+            try {
+                writeLegacyBackup(json);
+            } catch (IOException e) {
+                Log.e("TaskLoader", "No se pudo copiar la lista heredada; se conserva", e);
+                return;
+            }
+        }
+        legacyPreferences.edit().remove(legacyKey).apply();
+    }
+
+    /**
+     * Método para copiar el JSON heredado en {@link #legacyBackup}.
+     *
+     * @param json JSON heredado
+     * @throws IOException Si no se puede escribir la copia
+     */
+    private void writeLegacyBackup(String json) throws IOException {
+        File temp = new File(legacyBackup.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(json);
+            writer.flush();
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(legacyBackup)) {
+            throw new IOException("No se pudo renombrar " + temp + " a " + legacyBackup);
+        }
+        Log.w("TaskLoader", "Lista heredada dañada copiada en " + legacyBackup);
+    }
+
+    /**
+     * Agrupa los cambios recibidos en el hilo de fondo y los publica por lotes en el hilo principal.
+     * Las inserciones consecutivas al final forman un lote; el resto de cambios vacía el lote pendiente.
+     */
+    private class BatchPublisher implements TaskStore.LoadListener {
+        private final Listener listener;
+        private List<Item> batch;
+        private int batchStart;
+        private boolean firstBatchPublished;
+        private int publishedCount;
+
+        BatchPublisher(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onItemInserted(int position, Item item) {
+            checkCancelled();
+            if (batch != null && position != batchStart + batch.size()) {
+                flush();
+            }
+            if (batch == null) {
+                batch = new ArrayList<>(batchLimit());
+                batchStart = position;
+            }
+            batch.add(item);
+            if (batch.size() >= batchLimit()) {
+                flush();
+            }
+        }
+
+        @Override
+        public void onItemChanged(final int position, final Item item) {
+            checkCancelled();
+            if (isPending(position)) {
+                batch.set(position - batchStart, item); // Aún no publicado
+                return;
+            }
+            flush();
+            post(() -> listener.onItemChanged(position, item));
+        }
+
+        @Override
+        public void onItemRemoved(final int position) {
+            checkCancelled();
+            if (isPending(position)) {
+                batch.remove(position - batchStart); // Aún no publicado
+                if (batch.isEmpty()) {
+                    batch = null;
+                }
+                return;
+            }
+            flush();
+            post(() -> listener.onItemRemoved(position));
+        }
+
+        private int batchLimit() {
+            if (!firstBatchPublished) {
+                return FIRST_BATCH_SIZE;
+            }
+            return Math.max(BATCH_SIZE, Math.min(publishedCount, MAX_BATCH_SIZE));
+        }
+
+        private boolean isPending(int position) {
+            return batch != null && position >= batchStart && position < batchStart + batch.size();
+        }
+
+        /**
+         * Método para publicar el lote pendiente, si lo hay.
+         */
+        void flush() {
+            if (batch == null) {
+                return;
+            }
+            final List<Item> published = CompactTaskList.of(batch); // Por columnas, sin un objeto por tarea
+            final int position = batchStart;
+            batch = null;
+            firstBatchPublished = true;
+            publishedCount += published.size();
+            post(() -> {
+                if (firstItemTime < 0) {
+                    firstItemTime = SystemClock.elapsedRealtime();
+                }
+                listener.onItemsInserted(position, published);
+            });
+        }
+
+        void post(final Runnable change) {
+            mainHandler.post(() -> {
+                if (!cancelled) {
+                    change.run();
+                }
+            });
+        }
+
+        private void checkCancelled() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.milistadetareas;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo de tareas dividido en páginas de tamaño fijo con un índice de desplazamientos.
+ * <p>
+ * Cada página es una lista de {@link BinaryTaskCodec} independiente, con su propio diccionario de
+ * directorios y su CRC32, de modo que se puede leer cualquier página sin recorrer las anteriores.
+ * Al final del archivo van el índice (desplazamiento, longitud y CRC de cada página) y un pie de
+ * tamaño fijo que lo localiza. Los datos pueden ir precedidos de una cabecera ajena, como la de la
+ * instantánea de {@link JournalTaskStore}: los desplazamientos son absolutos.
+ * <p>
+ * El pie indica también la versión del cuerpo de las páginas: los archivos escritos antes de los
+ * metadatos de las tareas usan otra marca y se leen con {@link BinaryTaskCodec#FORMAT_VERSION_WITHOUT_METADATA}.
+ * <p>
+ * El archivo es inmutable una vez escrito. Las lecturas son posicionales y se pueden hacer desde
+ * varios hilos a la vez; en memoria solo se guarda el índice, unos 20 bytes por página.
+ */
+public final class TaskPageFile implements Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 64;     // Tareas por página
+    private static final int FOOTER_MAGIC = 0x54504732; // "TPG2": páginas con metadatos
+    private static final int FOOTER_MAGIC_WITHOUT_METADATA = 0x54504746; // "TPGF"
+    private static final int FOOTER_SIZE = 8 + 4 + 4 + 4 + 8 + 4;
+    private static final int INDEX_ENTRY_SIZE = 8 + 4 + 8;
+    private static final int MAX_PAGE_BYTES = 64 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int itemCount;        // Número total de tareas
+    private final int pageSize;         // Tareas por página; la última puede tener menos
+    private final long[] offsets;       // Desplazamiento de cada página
+    private final int[] lengths;        // Bytes de cada página
+    private final long[] checksums;     // CRC32 de cada página
+    private final boolean metadata;     // Las páginas llevan los metadatos de las tareas
+
+    private TaskPageFile(RandomAccessFile file, int itemCount, int pageSize,
+                         long[] offsets, int[] lengths, long[] checksums, boolean metadata) {
+        this.file = file;
+        this.metadata = metadata;
+        this.channel = file.getChannel();
+        this.itemCount = itemCount;
+        this.pageSize = pageSize;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.checksums = checksums;
+    }
+
+    /**
+     * Método para abrir un archivo de páginas leyendo solo su índice.
+     *
+     * @param path Archivo escrito con {@link Writer}
+     * @return Archivo abierto; se debe cerrar cuando ya no se use
+     * @throws IOException Si el archivo no existe o su índice está dañado
+     */
+    public static TaskPageFile open(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            long length = file.length();
+            if (length < FOOTER_SIZE) {
+                throw new EOFException("Archivo de páginas incompleto");
+            }
+            byte[] footer = new byte[FOOTER_SIZE];
+            file.seek(length - FOOTER_SIZE);
+            file.readFully(footer);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer));
+            long indexOffset = in.readLong();
+            int pageCount = in.readInt();
+            int itemCount = in.readInt();
+            int pageSize = in.readInt();
+            long indexChecksum = in.readLong();
+            int magic = in.readInt();
+            if (magic != FOOTER_MAGIC && magic != FOOTER_MAGIC_WITHOUT_METADATA) {
+                throw new IOException("Pie de archivo de páginas desconocido");
+            }
+            long indexLength = (long) pageCount * INDEX_ENTRY_SIZE;
+            if (pageSize <= 0 || pageCount < 0 || itemCount < 0
+                    || pageCount != (itemCount + pageSize - 1) / pageSize
+                    || indexOffset < 0 || indexOffset + indexLength != length - FOOTER_SIZE) {
+                throw new IOException("Índice de páginas incoherente");
+            }
+
+            byte[] index = new byte[(int) indexLength];
+            file.seek(indexOffset);
+            file.readFully(index);
+            CRC32 crc = new CRC32();
+            crc.update(index, 0, index.length);
+            if (crc.getValue() != indexChecksum) {
+                throw new IOException("CRC del índice de páginas incorrecto");
+            }
+            in = new DataInputStream(new ByteArrayInputStream(index));
+            long[] offsets = new long[pageCount];
+            int[] lengths = new int[pageCount];
+            long[] checksums = new long[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+                checksums[i] = in.readLong();
+                if (lengths[i] <= 0 || lengths[i] > MAX_PAGE_BYTES || offsets[i] + lengths[i] > indexOffset) {
+                    throw new IOException("Página fuera del archivo: " + i);
+                }
+            }
+            return new TaskPageFile(file, itemCount, pageSize, offsets, lengths, checksums, magic == FOOTER_MAGIC);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageCount() {
+        return offsets.length;
+    }
+
+    /**
+     * Método para leer y decodificar una página completa.
+     *
+     * @param page Índice de la página
+     * @return Tareas de la página en orden
+     * @throws IOException Si ocurre un error de lectura o la página está dañada
+     */
+    public Item[] readPage(int page) throws IOException {
+        byte[] data = new byte[lengths[page]];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long position = offsets[page];
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Página incompleta: " + page);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if (crc.getValue() != checksums[page]) {
+            throw new IOException("CRC de página incorrecto: " + page);
+        }
+
+        BinaryTaskCodec.ListReader reader = new BinaryTaskCodec.ListReader(
+                new DataInputStream(new ByteArrayInputStream(data)), metadata);
+        int count = reader.readHeader();
+        int expected = Math.min(pageSize, itemCount - page * pageSize);
+        if (count != expected) {
+            throw new IOException("Tamaño de página incorrecto: " + count);
+        }
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++) {
+            items[i] = reader.readItem();
+        }
+        return items;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Escritor secuencial de un archivo de páginas. Solo guarda en memoria la página en curso y
+     * el índice.
+     */
+    public static final class Writer {
+        private final OutputStream out;
+        private final int pageSize;
+        private final List<Item> page;
+        private final ByteArrayOutputStream pageBytes = new ByteArrayOutputStream(16 * 1024);
+        private final BinaryTaskCodec.Writer pageWriter = new BinaryTaskCodec.Writer(pageBytes);
+        private final CRC32 crc = new CRC32();
+        private long position;              // Desplazamiento absoluto del siguiente byte
+        private int itemCount;
+        private int pageCount;
+        private long[] offsets = new long[16];
+        private int[] lengths = new int[16];
+        private long[] checksums = new long[16];
+
+        /**
+         * Constructor del escritor.
+         *
+         * @param out         Flujo de salida, situado tras la cabecera ajena si la hay
+         * @param startOffset Bytes ya escritos en el archivo antes de las páginas
+         * @param pageSize    Tareas por página
+         */
+        public Writer(OutputStream out, long startOffset, int pageSize) {
+            this.out = out;
+            this.position = startOffset;
+            this.pageSize = pageSize;
+            this.page = new ArrayList<>(pageSize);
+        }
+
+        /**
+         * Método para agregar una tarea al final del archivo.
+         *
+         * @param item Tarea a escribir
+         * @throws IOException Si ocurre un error de escritura
+         */
+        public void add(Item item) throws IOException {
+            page.add(item);
+            itemCount++;
+            if (page.size() == pageSize) {
+                writePage();
+            }
+        }
+
+        /**
+         * Método para escribir la última página, el índice y el pie. No cierra el flujo.
+         *
+         * @throws IOException Si ocurre un error de escritura
+         */
+        public void finish() throws IOException {
+            if (!page.isEmpty()) {
+                writePage();
+            }
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream(pageCount * INDEX_ENTRY_SIZE);
+            DataOutputStream index = new DataOutputStream(indexBytes);
+            for (int i = 0; i < pageCount; i++) {
+                index.writeLong(offsets[i]);
+                index.writeInt(lengths[i]);
+                index.writeLong(checksums[i]);
+            }
+            byte[] indexData = indexBytes.toByteArray();
+            crc.reset();
+            crc.update(indexData, 0, indexData.length);
+            out.write(indexData);
+
+            DataOutputStream footer = new DataOutputStream(out);
+            footer.writeLong(position);
+            footer.writeInt(pageCount);
+            footer.writeInt(itemCount);
+            footer.writeInt(pageSize);
+            footer.writeLong(crc.getValue());
+            footer.writeInt(FOOTER_MAGIC);
+            footer.flush();
+        }
+
+        private void writePage() throws IOException {
+            pageBytes.reset();
+            pageWriter.writeList(page);
+            byte[] data = pageBytes.toByteArray();
+            crc.reset();
+            crc.update(data, 0, data.length);
+            if (pageCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, pageCount * 2);
+                lengths = Arrays.copyOf(lengths, pageCount * 2);
+                checksums = Arrays.copyOf(checksums, pageCount * 2);
+            }
+            offsets[pageCount] = position;
+            lengths[pageCount] = data.length;
+            checksums[pageCount] = crc.getValue();
+            pageCount++;
+            out.write(data);
+            position += data.length;
+            page.clear();
+        }
+    }
+}
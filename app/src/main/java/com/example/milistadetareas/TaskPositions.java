@@ -0,0 +1,171 @@
+package com.example.milistadetareas;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Posiciones de las tareas en el orden de la lista, por identificador.
+ * <p>
+ * Es un árbol aleatorizado (treap) con los identificadores en el orden de la lista, en el que cada
+ * nodo cuenta su subárbol y conoce a su padre: desde el nodo de una tarea se sube hasta la raíz
+ * sumando las tareas que quedan a la izquierda. Insertar, eliminar y obtener la posición de una
+ * tarea cuesta O(log n), y solo se guardan identificadores, no tareas. No es seguro para hilos: se
+ * usa desde un único hilo.
+ */
+public class TaskPositions {
+    private final Map<Long, Node> nodes = new HashMap<>();   // Tarea -> nodo
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Método para obtener el número de tareas.
+     *
+     * @return Tareas de la lista
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Método para vaciar las posiciones.
+     */
+    public void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    /**
+     * Método para insertar una tarea en una posición; las siguientes se desplazan.
+     *
+     * @param position Posición de la tarea
+     * @param id       Identificador de la tarea, que no debe estar ya
+     */
+    public void insert(int position, long id) {
+        if (position < 0 || position > size()) {
+            throw new IndexOutOfBoundsException("Posición " + position + ", tamaño " + size());
+        }
+        Node node = new Node(id, random.nextInt());
+        if (nodes.put(id, node) != null) {
+            throw new IllegalArgumentException("Tarea repetida: " + id);
+        }
+        Node[] parts = split(root, position);
+        setRoot(merge(merge(parts[0], node), parts[1]));
+    }
+
+    /**
+     * Método para eliminar la tarea de una posición; las siguientes se desplazan.
+     *
+     * @param position Posición de la tarea
+     * @return Identificador de la tarea eliminada
+     */
+    public long remove(int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException("Posición " + position + ", tamaño " + size());
+        }
+        Node[] before = split(root, position);
+        Node[] removed = split(before[1], 1);
+        setRoot(merge(before[0], removed[1]));
+        nodes.remove(removed[0].id);
+        return removed[0].id;
+    }
+
+    /**
+     * Método para obtener la posición de una tarea.
+     *
+     * @param id Identificador de la tarea
+     * @return Posición en la lista, o -1 si no está
+     */
+    public int position(long id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            return -1;
+        }
+        int position = size(node.left);
+        while (node.parent != null) {
+            if (node == node.parent.right) {
+                position += size(node.parent.left) + 1;
+            }
+            node = node.parent;
+        }
+        return position;
+    }
+
+    private void setRoot(Node node) {
+        root = node;
+        if (root != null) {
+            root.parent = null;
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Método para separar las primeras tareas de un subárbol.
+     *
+     * @return Subárbol con las primeras count tareas y subárbol con el resto
+     */
+    private static Node[] split(Node node, int count) {
+        if (node == null) {
+            return new Node[2];
+        }
+        Node[] parts;
+        if (count <= size(node.left)) {
+            parts = split(node.left, count);
+            node.left = parts[1];
+            parts[1] = node;
+        } else {
+            parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts[0];
+            parts[0] = node;
+        }
+        update(node);
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+
+    /**
+     * Nodo del árbol: una tarea y su subárbol.
+     */
+    private static final class Node {
+        final long id;
+        final int priority;     // Prioridad aleatoria que mantiene el árbol equilibrado
+        Node left;
+        Node right;
+        Node parent;
+        int size = 1;           // Tareas del subárbol
+
+        Node(long id, int priority) {
+            this.id = id;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.milistadetareas;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Fila plana de la lista de tareas (ver item_view_flat.xml).
+ * <p>
+ * Sustituye la jerarquía de CardView y LinearLayout anidados con pesos por un único contenedor que
+ * mide cada hijo una sola vez: los botones a su tamaño, el texto con el ancho restante y la imagen,
+ * si es visible, con el ancho de la fila y el alto fijo de su diseño.
+ */
+public class TaskRowView extends ViewGroup {
+    private View taskText;          // Descripción de la tarea, a la izquierda
+    private View buttonDeleteTask;  // Botón eliminar, a la derecha del texto
+    private View buttonEditTask;    // Botón editar, en el extremo derecho
+    private View taskImage;         // Imagen de la tarea, debajo de la fila de texto y botones
+    private int rowHeight;          // Alto de la fila de texto y botones de la última medida
+
+    public TaskRowView(Context context) {
+        super(context);
+    }
+
+    public TaskRowView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
+        taskText = findViewById(R.id.task_text);
+        buttonDeleteTask = findViewById(R.id.button_delete_task);
+        buttonEditTask = findViewById(R.id.button_edit_task);
+        taskImage = findViewById(R.id.task_image);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int contentWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+        int unspecified = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        int buttonWidthSpec = MeasureSpec.makeMeasureSpec(contentWidth, MeasureSpec.AT_MOST);
+
+        buttonDeleteTask.measure(buttonWidthSpec, unspecified);
+        buttonEditTask.measure(buttonWidthSpec, unspecified);
+        int textWidth = Math.max(0, contentWidth
+                - buttonDeleteTask.getMeasuredWidth() - buttonEditTask.getMeasuredWidth());
+        taskText.measure(MeasureSpec.makeMeasureSpec(textWidth, MeasureSpec.EXACTLY), unspecified);
+
+        rowHeight = Math.max(taskText.getMeasuredHeight(),
+                Math.max(buttonDeleteTask.getMeasuredHeight(), buttonEditTask.getMeasuredHeight()));
+        int height = getPaddingTop() + rowHeight + getPaddingBottom();
+
+        if (taskImage.getVisibility() != GONE) {
+            MarginLayoutParams params = (MarginLayoutParams) taskImage.getLayoutParams();
+            int imageWidth = Math.max(0, contentWidth - params.leftMargin - params.rightMargin);
+            taskImage.measure(MeasureSpec.makeMeasureSpec(imageWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(Math.max(0, params.height), MeasureSpec.EXACTLY));
+            height += params.topMargin + taskImage.getMeasuredHeight() + params.bottomMargin;
+        }
+
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        int left = getPaddingLeft();
+        int right = r - l - getPaddingRight();
+        int top = getPaddingTop();
+
+        // Fila de texto y botones, centrados verticalmente
+        layoutCentered(taskText, left, top);
+        int editLeft = right - buttonEditTask.getMeasuredWidth();
+        layoutCentered(buttonEditTask, editLeft, top);
+        layoutCentered(buttonDeleteTask, editLeft - buttonDeleteTask.getMeasuredWidth(), top);
+
+        if (taskImage.getVisibility() != GONE) {
+            MarginLayoutParams params = (MarginLayoutParams) taskImage.getLayoutParams();
+            int imageTop = top + rowHeight + params.topMargin;
+            int imageLeft = left + params.leftMargin;
+            taskImage.layout(imageLeft, imageTop,
+                    imageLeft + taskImage.getMeasuredWidth(), imageTop + taskImage.getMeasuredHeight());
+        }
+    }
+
+    private void layoutCentered(View child, int left, int top) {
+        int childTop = top + (rowHeight - child.getMeasuredHeight()) / 2;
+        child.layout(left, childTop, left + child.getMeasuredWidth(), childTop + child.getMeasuredHeight());
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        return false; // La fila no se desplaza: el estado pulsado se muestra sin retraso
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new MarginLayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(LayoutParams p) {
+        return new MarginLayoutParams(p);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(LayoutParams p) {
+        return p instanceof MarginLayoutParams;
+    }
+}
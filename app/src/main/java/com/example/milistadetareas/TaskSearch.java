@@ -0,0 +1,381 @@
+package com.example.milistadetareas;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Búsqueda de tareas sobre un {@link TaskSearchIndex}.
+ * <p>
+ * El índice vive en un hilo de fondo propio: las actualizaciones incrementales y las consultas se
+ * encolan en orden, de modo que cada consulta ve el índice coherente con la instantánea con la que
+ * se lanzó. Las consultas se retrasan mientras el usuario escribe y los resultados se publican en
+ * el hilo principal, primero una pantalla y después la lista filtrada completa.
+ * <p>
+ * Una consulta no recorre la lista: junto al índice se mantienen las posiciones de las tareas
+ * ({@link TaskPositions}), de modo que cada tarea encontrada se localiza en O(log n) y se lee de su
+ * posición en la instantánea. El coste depende de los resultados, no del tamaño de la lista.
+ * <p>
+ * Una {@link PagedTaskList} se indexa una sola vez al entregarse: sus tareas se leen por tramos en
+ * el hilo de las páginas, para no adelantarse a las lecturas de las filas visibles, y se indexan
+ * en el hilo de la búsqueda. Solo si falla la lectura se busca sin índice, comparando cada
+ * descripción. Las consultas anotan la instantánea con {@link PagedTaskList#retain} mientras leen
+ * sus tareas, y el hilo de la búsqueda nunca se interrumpe: una interrupción durante una lectura
+ * cerraría el canal compartido del archivo de páginas.
+ */
+public class TaskSearch {
+    public static final long DEBOUNCE_MS = 250;         // Espera tras la última pulsación
+    private static final int FIRST_RESULTS = 20;        // Resultados suficientes para una pantalla
+    private static final int INDEX_CHUNK = 4096;        // Tareas leídas por turno del hilo de las páginas
+
+    /**
+     * Receptor, en el hilo principal, de los resultados de la búsqueda.
+     */
+    public interface Listener {
+        /**
+         * @param query   Consulta a la que corresponden los resultados; vacía al volver a la
+         *                lista entera, que conviene mostrar sin compararla con los resultados
+         * @param results Tareas encontradas en el orden de la lista
+         * @param partial true si llegarán más resultados para la misma consulta
+         */
+        void onResults(String query, List<Item> results, boolean partial);
+    }
+
+    private final TaskSearchIndex index = new TaskSearchIndex();  // Solo se usa en el hilo de fondo
+    private final TaskPositions positions = new TaskPositions();  // Solo se usa en el hilo de fondo
+    private boolean scanning;                   // Solo en el hilo de fondo: consultar sin índice
+    private volatile int resets;                // Aumenta con cada lista mostrada
+    private volatile boolean stopped;           // Indica si se detuvo el hilo de fondo
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TaskSearch");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TaskViews views;              // Vista mostrada, consultada en el hilo principal
+    private final Listener listener;
+
+    private String query = "";                  // Consulta activa, normalizada con trim()
+    private volatile int queryGeneration;       // Aumenta con cada consulta lanzada
+    private final Runnable pendingSearch = () -> runQuery(true);
+
+    /**
+     * Constructor de la búsqueda.
+     *
+     * @param views    Vistas de la lista, en las que se busca la mostrada
+     * @param listener Receptor de los resultados en el hilo principal
+     */
+    public TaskSearch(TaskViews views, Listener listener) {
+        this.views = views;
+        this.listener = listener;
+    }
+
+    /**
+     * Método para indexar tareas insertadas en la lista.
+     *
+     * @param position Posición de la primera tarea
+     * @param items    Tareas insertadas
+     */
+    public void onItemsInserted(final int position, final List<Item> items) {
+        final int reset = resets;
+        PagedTaskList.retain(items); // Se lee mientras se indexa
+        executor.execute(() -> {
+            if (items instanceof PagedTaskList) {
+                try {
+                    indexPaged(position, (PagedTaskList) items, reset);
+                } finally {
+                    PagedTaskList.release(items);
+                }
+                return;
+            }
+            if (scanning) {
+                return;
+            }
+            int at = position;
+            for (Item item : items) {
+                index.put(item);
+                positions.insert(at++, item.getId());
+            }
+        });
+    }
+
+    /**
+     * Método para volver a indexar una tarea modificada, que conserva su posición.
+     *
+     * @param item Nuevo contenido de la tarea
+     */
+    public void onItemChanged(final Item item) {
+        executor.execute(() -> {
+            if (!scanning) {
+                index.put(item);
+            }
+        });
+    }
+
+    /**
+     * Método para quitar una tarea eliminada del índice.
+     *
+     * @param position Posición que ocupaba
+     * @param item     Tarea eliminada
+     */
+    public void onItemRemoved(final int position, final Item item) {
+        final long id = item.getId();
+        executor.execute(() -> {
+            if (!scanning) {
+                index.remove(id);
+                positions.remove(position);
+            }
+        });
+    }
+
+    /**
+     * Método para indexar los cambios de un lote aplicado a la lista.
+     *
+     * @param batch Lote aplicado
+     */
+    public void onBatchApplied(final TaskBatch batch) {
+        executor.execute(() -> {
+            if (scanning) {
+                return;
+            }
+            for (Item item : batch.getRemoved()) {
+                index.remove(item.getId());
+            }
+            for (Item item : batch.getPut()) {
+                index.put(item);
+            }
+            batch.replay(new TaskStore.LoadListener() {
+                @Override
+                public void onItemInserted(int position, Item item) {
+                    positions.insert(position, item.getId());
+                }
+
+                @Override
+                public void onItemChanged(int position, Item item) {
+                    // Misma posición
+                }
+
+                @Override
+                public void onItemRemoved(int position) {
+                    positions.remove(position);
+                }
+            });
+        });
+    }
+
+    /**
+     * Método para vaciar el índice al mostrar otra lista, descartando las consultas en curso.
+     * Las tareas de la nueva lista se indexan después con {@link #onItemsInserted}.
+     */
+    public void reset() {
+        queryGeneration++;
+        resets++;
+        executor.execute(() -> {
+            scanning = false;
+            index.clear();
+            positions.clear();
+        });
+    }
+
+    /**
+     * Método para cambiar la consulta; la búsqueda se lanza tras {@link #DEBOUNCE_MS} sin cambios.
+     *
+     * @param text Texto escrito por el usuario
+     */
+    public void setQuery(String text) {
+        query = text == null ? "" : text.trim();
+        mainHandler.removeCallbacks(pendingSearch);
+        if (query.isEmpty()) {
+            queryGeneration++; // Descartar resultados en curso
+            listener.onResults(query, views.getView(), false);
+            return;
+        }
+        mainHandler.postDelayed(pendingSearch, DEBOUNCE_MS);
+    }
+
+    /**
+     * Método para repetir de inmediato la consulta activa tras un cambio en la lista.
+     */
+    public void refresh() {
+        if (isActive()) {
+            mainHandler.removeCallbacks(pendingSearch);
+            runQuery(false); // Sin resultados parciales, para no encoger la lista mostrada
+        }
+    }
+
+    /**
+     * Método para saber si hay una consulta activa.
+     *
+     * @return true si la lista mostrada está filtrada
+     */
+    public boolean isActive() {
+        return !query.isEmpty();
+    }
+
+    /**
+     * Método para detener el hilo de fondo. No se interrumpe: puede estar leyendo páginas.
+     */
+    public void shutdown() {
+        mainHandler.removeCallbacks(pendingSearch);
+        stopped = true;
+        queryGeneration++; // Descartar consultas en curso
+        executor.shutdown();
+    }
+
+    /**
+     * Método que indexa una lista paginada leyendo sus tareas por tramos en el hilo de las
+     * páginas; cada tramo se indexa en el hilo de la búsqueda mientras se leen otras páginas.
+     *
+     * @param position Posición de la primera tarea
+     * @param items    Lista anotada mientras se indexa
+     * @param reset    Lista mostrada al entregarla; si cambia, se deja de indexar
+     */
+    private void indexPaged(int position, PagedTaskList items, int reset) {
+        final Iterator<Item> iterator = items.iterator(); // Solo se usa en el hilo de las páginas
+        final Item[] chunk = new Item[INDEX_CHUNK];
+        int at = position;
+        while (!stopped && reset == resets) {
+            FutureTask<Integer> read = new FutureTask<>(() -> {
+                int count = 0;
+                while (count < chunk.length && iterator.hasNext()) {
+                    chunk[count++] = iterator.next();
+                }
+                return count;
+            });
+            PagedTaskList.runOnPageThread(read);
+            int count;
+            try {
+                count = read.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                Log.e("TaskSearch", "Error al indexar la lista paginada; se buscará sin índice", e.getCause());
+                scanning = true;
+                index.clear();
+                positions.clear();
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                index.put(chunk[i]);
+                positions.insert(at++, chunk[i].getId());
+            }
+            if (count < chunk.length) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Método que lanza la consulta activa sobre la instantánea actual.
+     *
+     * @param streamFirstResults true para publicar antes la primera pantalla de resultados
+     */
+    private void runQuery(final boolean streamFirstResults) {
+        final String text = query;
+        final List<Item> snapshot = views.getView();
+        final List<Item> items = views.getItems();
+        final TaskIndex.Order order = views.getOrder();
+        final TaskIndex.Filter filter = views.getFilter();
+        final int generation = ++queryGeneration;
+        PagedTaskList.retain(items); // Una lista paginada solo se muestra sin ordenar ni filtrar
+        executor.execute(() -> {
+            try {
+                if (scanning) {
+                    scan(text, snapshot, generation, streamFirstResults);
+                } else {
+                    search(text, snapshot, items, order, filter, generation, streamFirstResults);
+                }
+            } catch (IllegalStateException e) {
+                Log.e("TaskSearch", "Error al leer las tareas encontradas", e);
+            } finally {
+                PagedTaskList.release(items);
+            }
+        });
+    }
+
+    /**
+     * Método que resuelve una consulta con el índice: las tareas encontradas se sitúan por su
+     * posición y se leen de la instantánea sin recorrerla.
+     */
+    private void search(String text, List<Item> snapshot, List<Item> items, TaskIndex.Order order,
+                        TaskIndex.Filter filter, int generation, boolean streamFirstResults) {
+        Set<Long> ids = index.search(text);
+        if (ids == null) {
+            publish(generation, text, snapshot, false); // Consulta sin palabras
+            return;
+        }
+        // Las tareas encontradas, en el orden de la lista y sin recorrerla
+        int[] found = new int[ids.size()];
+        int count = 0;
+        for (Long id : ids) {
+            int position = positions.position(id);
+            if (position >= 0) {
+                found[count++] = position;
+            }
+        }
+        Arrays.sort(found, 0, count);
+        Comparator<Item> comparator = order.comparator();
+        List<Item> results = new ArrayList<>();
+        boolean firstPublished = comparator != null; // Ordenados, se publican al final
+        for (int i = 0; i < count; i++) {
+            if (generation != queryGeneration) {
+                return; // Consulta superada por otra
+            }
+            Item item = items.get(found[i]);
+            if (filter.matches(item)) {
+                results.add(item);
+                if (streamFirstResults && !firstPublished && results.size() == FIRST_RESULTS) {
+                    firstPublished = true;
+                    publish(generation, text, new ArrayList<>(results), true);
+                }
+            }
+        }
+        if (comparator != null) {
+            Collections.sort(results, comparator);
+        }
+        publish(generation, text, results, false);
+    }
+
+    /**
+     * Método que resuelve una consulta sin índice, comparando cada descripción de la instantánea.
+     */
+    private void scan(String text, List<Item> snapshot, int generation, boolean streamFirstResults) {
+        String[] prefixes = TaskSearchIndex.tokenize(text);
+        List<Item> results = new ArrayList<>();
+        boolean firstPublished = false;
+        for (Item item : snapshot) {
+            if (generation != queryGeneration) {
+                return; // Consulta superada por otra
+            }
+            if (TaskSearchIndex.matches(item.getTask(), prefixes)) {
+                results.add(item);
+                if (streamFirstResults && !firstPublished && results.size() == FIRST_RESULTS) {
+                    firstPublished = true;
+                    publish(generation, text, new ArrayList<>(results), true);
+                }
+            }
+        }
+        publish(generation, text, results, false);
+    }
+
+    private void publish(final int generation, final String text, final List<Item> results, final boolean partial) {
+        mainHandler.post(() -> {
+            if (generation == queryGeneration) {
+                listener.onResults(text, results, partial);
+            }
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.milistadetareas;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido sobre las descripciones de las tareas.
+ * <p>
+ * Los términos se normalizan a minúsculas y sin acentos, y se guardan en un diccionario ordenado
+ * que permite buscar por prefijo. El índice se actualiza de forma incremental con cada tarea
+ * agregada, modificada o eliminada. No es seguro para hilos: se usa desde un único hilo.
+ */
+public class TaskSearchIndex {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final String[] NO_TERMS = new String[0];
+
+    private final TreeMap<String, Set<Long>> postings = new TreeMap<>();   // Término -> tareas
+    private final Map<Long, String[]> termsById = new HashMap<>();         // Tarea -> términos
+
+    /**
+     * Método para indexar una tarea nueva o volver a indexar una modificada.
+     *
+     * @param item Tarea a indexar
+     */
+    public void put(Item item) {
+        remove(item.getId());
+        String[] terms = tokenize(item.getTask());
+        if (terms.length == 0) {
+            return;
+        }
+        Long id = item.getId();
+        for (String term : terms) {
+            Set<Long> ids = postings.get(term);
+            if (ids == null) {
+                ids = new HashSet<>();
+                postings.put(term, ids);
+            }
+            ids.add(id);
+        }
+        termsById.put(id, terms);
+    }
+
+    /**
+     * Método para quitar una tarea del índice.
+     *
+     * @param id Identificador de la tarea
+     */
+    public void remove(long id) {
+        String[] terms = termsById.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Set<Long> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Método para vaciar el índice.
+     */
+    public void clear() {
+        postings.clear();
+        termsById.clear();
+    }
+
+    /**
+     * Método para buscar las tareas que contienen, para cada palabra de la consulta, algún término
+     * que empiece por ella.
+     *
+     * @param query Consulta escrita por el usuario
+     * @return Identificadores de las tareas encontradas, o null si la consulta está vacía
+     */
+    public Set<Long> search(String query) {
+        String[] prefixes = tokenize(query);
+        if (prefixes.length == 0) {
+            return null;
+        }
+
+        // Resolver cada prefijo a la unión de sus listas, empezando a intersecar por la menor
+        List<Set<Long>> matches = new ArrayList<>(prefixes.length);
+        for (String prefix : prefixes) {
+            Set<Long> ids = matchPrefix(prefix);
+            if (ids.isEmpty()) {
+                return Collections.emptySet();
+            }
+            matches.add(ids);
+        }
+        Collections.sort(matches, (a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<Long> result = new HashSet<>(matches.get(0));
+        for (int i = 1; i < matches.size() && !result.isEmpty(); i++) {
+            result.retainAll(matches.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Método para obtener el número de términos distintos del diccionario.
+     *
+     * @return Número de términos
+     */
+    public int termCount() {
+        return postings.size();
+    }
+
+    /**
+     * Método para comprobar sin índice si una descripción coincide con una consulta, con el mismo
+     * criterio que {@link #search}.
+     *
+     * @param text     Descripción de la tarea
+     * @param prefixes Palabras de la consulta, obtenidas con {@link #tokenize}
+     * @return true si cada palabra es el comienzo de algún término de la descripción
+     */
+    static boolean matches(String text, String[] prefixes) {
+        String[] terms = tokenize(text);
+        for (String prefix : prefixes) {
+            boolean found = false;
+            for (String term : terms) {
+                if (term.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Set<Long> matchPrefix(String prefix) {
+        NavigableMap<String, Set<Long>> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.size() == 1) {
+            return range.firstEntry().getValue();
+        }
+        Set<Long> union = new HashSet<>();
+        for (Set<Long> ids : range.values()) {
+            union.addAll(ids);
+        }
+        return union;
+    }
+
+    /**
+     * Método para normalizar un texto y dividirlo en términos distintos.
+     * Se pasa a minúsculas y se eliminan los acentos ("Canción" y "cancion" coinciden).
+     *
+     * @param text Texto a dividir
+     * @return Términos normalizados sin repetir
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return NO_TERMS;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        folded = folded.toLowerCase(Locale.ROOT);
+        Set<String> terms = new HashSet<>();
+        for (String term : SEPARATORS.split(folded)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms.toArray(new String[0]);
+    }
+}
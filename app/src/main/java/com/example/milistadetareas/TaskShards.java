@@ -0,0 +1,586 @@
+package com.example.milistadetareas;
+
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Almacenamientos de las listas de tareas, abiertos solo al usarlas.
+ * <p>
+ * Cada lista del {@link TaskListManifest} tiene su propio {@link TaskStore}, que se crea al abrir la
+ * lista por primera vez. Las listas abiertas se conservan con su última instantánea, de modo que
+ * volver a una lista reciente no la vuelve a leer; por encima de un máximo se cierra la usada hace
+ * más tiempo. Al cerrarla, también al salir, se guarda su número de tareas en el índice y, en
+ * segundo plano, sus tareas con foto en el archivo {@link #PHOTOS_FILE} de su directorio, para que
+ * el recolector de fotos no borre las de las listas cerradas sin tener que leerlas, ni siquiera en
+ * sesiones posteriores. El archivo se borra al abrir la lista, porque deja de estar al día; si no
+ * existe, la lista se lee en segundo plano antes del barrido.
+ * <p>
+ * Se usa en el hilo principal; los cierres y la escritura del índice se hacen en un hilo propio.
+ * Abrir una lista que no estaba abierta espera en ese hilo a que terminen los cierres pendientes,
+ * de modo que el hilo principal nunca se bloquea esperando un cierre.
+ */
+public class TaskShards {
+    public static final int DEFAULT_MAX_OPEN = 3;   // Listas abiertas a la vez
+    static final String PHOTOS_FILE = "photos.bin"; // Tareas con foto de una lista cerrada
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Creador del almacenamiento de una lista.
+     */
+    public interface StoreFactory {
+        TaskStore create(File directory);
+    }
+
+    /**
+     * Receptor de una lista abierta con {@link #open}.
+     */
+    public interface OpenListener {
+        void onOpened(Shard shard);
+    }
+
+    /**
+     * Receptor de las tareas con foto de todas las listas, en el hilo de las listas.
+     */
+    public interface PhotosListener {
+        void onPhotoSnapshots(List<List<Item>> snapshots);
+    }
+
+    private final File directory;                   // Directorio de los directorios de las listas
+    private final File manifestFile;
+    private final TaskListManifest manifest;
+    private final int maxOpen;
+    private final StoreFactory factory;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TaskShards");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Listas abiertas, de la usada hace más tiempo a la más reciente
+    private final LinkedHashMap<String, Shard> open = new LinkedHashMap<>();
+    // Tareas con foto de las listas cerradas ya conocidas en esta sesión, escritas en el hilo propio
+    private final Map<String, List<Item>> closedPhotos = new ConcurrentHashMap<>();
+    private boolean closed;                         // Indica si se cerraron todas las listas
+
+    // Estadísticas
+    private long opened;
+    private long hits;
+    private long evicted;
+    private volatile long reads;                    // Listas cerradas leídas enteras por sus fotos
+
+    /**
+     * Constructor de las listas.
+     *
+     * @param directory    Directorio en el que está el de cada lista
+     * @param manifestFile Archivo del índice
+     * @param manifest     Índice leído con {@link TaskListManifest#load}
+     * @param maxOpen      Listas abiertas a la vez, al menos 1
+     * @param factory      Creador del almacenamiento de cada lista
+     */
+    public TaskShards(File directory, File manifestFile, TaskListManifest manifest, int maxOpen, StoreFactory factory) {
+        this.directory = directory;
+        this.manifestFile = manifestFile;
+        this.manifest = manifest;
+        this.maxOpen = Math.max(1, maxOpen);
+        this.factory = factory;
+    }
+
+    public TaskListManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Método para abrir una lista y marcarla como la mostrada. Si ya estaba abierta se entrega en
+     * el acto la misma, con la instantánea que tenía al dejar de mostrarse. Si no, se entrega tras
+     * los cierres pendientes, que pueden ser el de la propia lista: su almacenamiento se crea sin
+     * leer nada y se cierra la lista abierta usada hace más tiempo si se supera el máximo. Si
+     * mientras tanto se abre otra lista, esta apertura se descarta sin avisar.
+     *
+     * @param id               Directorio de una lista del índice
+     * @param callbackExecutor Ejecutor del hilo principal, en el que se entrega la lista
+     * @param listener         Receptor de la lista abierta
+     */
+    public void open(final String id, final Executor callbackExecutor, final OpenListener listener) {
+        manifest.setCurrent(id);
+        final TaskListManifest.Entry entry = manifest.get(id);
+        // Mientras la lista está abierta su número de fotos puede cambiar
+        manifest.update(entry.withCounts(entry.getCount(), TaskListManifest.Entry.UNKNOWN, entry.getModified()));
+        save();
+        Shard shard = open.remove(id);
+        if (shard != null) {
+            hits++;
+            open.put(id, shard); // Al final: la más reciente
+            listener.onOpened(shard);
+            return;
+        }
+        closedPhotos.remove(id);
+        executor.execute(() -> {
+            deleteQuietly(new File(new File(directory, id), PHOTOS_FILE)); // Deja de estar al día
+            callbackExecutor.execute(() -> {
+                if (closed || !id.equals(manifest.getCurrent().getId())) {
+                    return; // Se abrió otra lista antes de terminar los cierres
+                }
+                Shard created = open.get(id); // Abierta ya por una apertura anterior de la misma lista
+                if (created == null) {
+                    created = new Shard(id, factory.create(new File(directory, id)), entry.getPhotos());
+                    open.put(id, created);
+                    opened++;
+                    evictIfNeeded();
+                }
+                listener.onOpened(created);
+            });
+        });
+    }
+
+    /**
+     * Método para crear una lista vacía, sin abrirla.
+     *
+     * @param name Nombre de la lista
+     * @return Entrada de la lista en el índice
+     */
+    public TaskListManifest.Entry create(String name) {
+        TaskListManifest.Entry entry = manifest.add(name, System.currentTimeMillis());
+        save();
+        return entry;
+    }
+
+    /**
+     * Método para dejar de mostrar una lista. Si ya estaba cargada se conserva abierta con la
+     * instantánea indicada; si su carga no terminó se cierra, porque un almacenamiento solo se
+     * carga una vez.
+     *
+     * @param shard Lista mostrada hasta ahora
+     * @param items Instantánea mostrada, si la lista está cargada
+     */
+    public void leave(Shard shard, List<Item> items) {
+        if (shard.isLoaded()) {
+            shard.park(items);
+        } else if (open.get(shard.id) == shard) {
+            evict(shard);
+        }
+    }
+
+    /**
+     * Método para guardar el índice con el número de tareas de las listas abiertas y de fotos de
+     * las cerradas. La escritura se hace en segundo plano.
+     */
+    public void save() {
+        updateCounts();
+        final byte[] bytes = manifest.toBytes();
+        executor.execute(() -> writeManifest(bytes));
+    }
+
+    /**
+     * Método para reunir en segundo plano las tareas con foto de todas las listas, para el
+     * recolector de fotos. Las listas cargadas dan su instantánea actual, y las paginadas, sus
+     * tareas con foto leídas en el hilo de las páginas; las cerradas, las tareas con foto guardadas
+     * al cerrarlas, y las que no las tienen se leen en el hilo de las listas. El recolector solo
+     * recibe listas en memoria.
+     *
+     * @param listener Receptor de una lista de tareas por cada lista que puede tener fotos; no se
+     *                 avisa si falla la lectura de alguna lista, porque sus fotos parecerían huérfanas
+     * @return false si alguna lista abierta con fotos aún se está cargando y no se reúne nada
+     */
+    public boolean collectPhotoSnapshots(final PhotosListener listener) {
+        final List<TaskListManifest.Entry> closedEntries = new ArrayList<>();
+        final List<List<Item>> snapshots = new ArrayList<>();
+        final List<List<Item>> pagedLists = new ArrayList<>();
+        for (TaskListManifest.Entry entry : manifest.getEntries()) {
+            Shard shard = open.get(entry.getId());
+            if (shard == null) {
+                closedEntries.add(entry);
+            } else if (shard.isLoaded()) {
+                List<Item> items = shard.getItems();
+                if (items instanceof PagedTaskList) {
+                    pagedLists.add(items);
+                } else {
+                    snapshots.add(items);
+                }
+            } else if (entry.getCount() != 0 && shard.photosWhenOpened != 0) {
+                return false;
+            }
+        }
+        for (List<Item> items : pagedLists) {
+            PagedTaskList.retain(items); // Se leen en el hilo de las páginas
+        }
+        executor.execute(() -> {
+            try {
+                for (List<Item> items : pagedLists) {
+                    snapshots.add(photoTasksOnPageThread(items));
+                }
+                for (TaskListManifest.Entry entry : closedEntries) {
+                    List<Item> photos = readPhotos(entry);
+                    if (photos != null) {
+                        snapshots.add(photos);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                Log.e("TaskShards", "Error al reunir las fotos de las listas", e);
+                return;
+            } finally {
+                for (List<Item> items : pagedLists) {
+                    PagedTaskList.release(items);
+                }
+            }
+            listener.onPhotoSnapshots(snapshots); // Todas en memoria: el recolector no lee páginas
+        });
+        return true;
+    }
+
+    /**
+     * Método para obtener las tareas con foto de una lista paginada leyéndola en el hilo de las
+     * páginas, detrás de las lecturas pendientes, y esperar el resultado.
+     *
+     * @param items Lista anotada mientras se lee
+     * @return Tareas con foto, en memoria
+     * @throws IllegalStateException Si falla la lectura o se interrumpe la espera
+     */
+    private static List<Item> photoTasksOnPageThread(final List<Item> items) {
+        FutureTask<List<Item>> task = new FutureTask<>(() -> photoTasks(items));
+        PagedTaskList.runOnPageThread(task);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lectura de fotos interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No se pudieron leer las fotos", e.getCause());
+        }
+    }
+
+    /**
+     * Método para obtener un resumen de las listas.
+     *
+     * @return Texto con las listas, las abiertas y los aciertos al volver a una lista
+     */
+    public String getStats() {
+        return "listas=" + manifest.getEntries().size()
+                + " abiertas=" + open.size()
+                + " aperturas=" + opened
+                + " aciertos=" + hits
+                + " cierres=" + evicted
+                + " lecturasFotos=" + reads;
+    }
+
+    /**
+     * Método para escribir lo pendiente de todas las listas abiertas.
+     */
+    public void flush() {
+        for (Shard shard : open.values()) {
+            shard.flush();
+        }
+    }
+
+    /**
+     * Método para cerrar todas las listas y guardar el índice, esperando a que terminen los cierres.
+     * Las listas cargadas guardan sus tareas con foto como al cerrarlas antes, y el índice se
+     * escribe después en el hilo de las listas, cuando el hilo principal ya no lo usa.
+     */
+    public void close() {
+        closed = true;
+        for (Shard shard : new ArrayList<>(open.values())) {
+            evict(shard);
+        }
+        executor.execute(() -> {
+            updateCounts(); // Con las fotos de las listas recién cerradas
+            writeManifest(manifest.toBytes());
+        });
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Shard> eldest = open.values().iterator();
+        while (open.size() > maxOpen && eldest.hasNext()) {
+            Shard shard = eldest.next();
+            if (shard.id.equals(manifest.getCurrent().getId())) {
+                continue;
+            }
+            eldest.remove();
+            close(shard);
+        }
+    }
+
+    private void evict(Shard shard) {
+        open.remove(shard.id);
+        close(shard);
+    }
+
+    /**
+     * Método para cerrar una lista en segundo plano tras guardar sus tareas con foto.
+     */
+    private void close(final Shard shard) {
+        evicted++;
+        final List<Item> items = shard.isLoaded() ? shard.getItems() : null;
+        if (items != null) {
+            TaskListManifest.Entry entry = manifest.get(shard.id);
+            long modified = shard.modified > 0 ? shard.modified : entry.getModified();
+            manifest.update(entry.withCounts(items.size(), TaskListManifest.Entry.UNKNOWN, modified));
+        }
+        executor.execute(() -> {
+            if (items != null) {
+                List<Item> photos = photoTasks(items); // Antes de cerrar: puede ser paginada
+                closedPhotos.put(shard.id, photos);
+                writePhotos(shard.id, photos);
+            }
+            shard.close();
+        });
+        save(); // Las fotos de la lista pasan al índice en el siguiente guardado
+    }
+
+    /**
+     * Método para anotar en el índice el número de tareas de las listas abiertas cargadas y de
+     * fotos de las cerradas cuyas tareas con foto ya se conocen.
+     */
+    private void updateCounts() {
+        for (TaskListManifest.Entry entry : manifest.getEntries()) {
+            Shard shard = open.get(entry.getId());
+            if (shard != null && shard.isLoaded()) {
+                long modified = shard.modified > 0 ? shard.modified : entry.getModified();
+                manifest.update(entry.withCounts(shard.getItems().size(), entry.getPhotos(), modified));
+            } else if (shard == null && entry.getPhotos() == TaskListManifest.Entry.UNKNOWN) {
+                List<Item> photos = closedPhotos.get(entry.getId());
+                if (photos != null) {
+                    manifest.update(entry.withCounts(entry.getCount(), photos.size(), entry.getModified()));
+                }
+            }
+        }
+    }
+
+    private void writeManifest(byte[] bytes) {
+        try {
+            TaskListManifest.write(manifestFile, bytes);
+        } catch (IOException e) {
+            Log.e("TaskShards", "Error al guardar el índice de listas", e);
+        }
+    }
+
+    /**
+     * Método para obtener en el hilo de las listas las tareas con foto de una lista cerrada: las
+     * conocidas en esta sesión, las guardadas al cerrarla o, si no hay, las de la lista leída
+     * entera, que se guardan para la próxima vez.
+     *
+     * @param entry Entrada de la lista en el índice
+     * @return Tareas con foto, o null si el índice sabe que la lista no tiene
+     * @throws IOException Si ocurre un error de lectura
+     */
+    private List<Item> readPhotos(TaskListManifest.Entry entry) throws IOException {
+        String id = entry.getId();
+        List<Item> photos = closedPhotos.get(id);
+        if (photos != null) {
+            return photos;
+        }
+        if (entry.getCount() == 0 || entry.getPhotos() == 0) {
+            return null;
+        }
+        File file = new File(new File(directory, id), PHOTOS_FILE);
+        if (file.exists()) {
+            byte[] bytes = new byte[(int) file.length()];
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                in.readFully(bytes);
+            }
+            photos = BinaryTaskCodec.decode(bytes);
+        } else {
+            TaskStore store = factory.create(file.getParentFile()); // Cerrada en una sesión anterior sin guardarlas
+            try {
+                photos = photoTasks(store.load());
+            } finally {
+                store.close();
+            }
+            reads++;
+            writePhotos(id, photos);
+        }
+        closedPhotos.put(id, photos);
+        return photos;
+    }
+
+    /**
+     * Método para guardar de forma atómica las tareas con foto de una lista cerrada: se escribe un
+     * temporal y se renombra. Si falla, la lista se volverá a leer en el siguiente barrido.
+     */
+    private void writePhotos(String id, List<Item> photos) {
+        File file = new File(new File(directory, id), PHOTOS_FILE);
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(BinaryTaskCodec.encode(photos));
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("No se pudo renombrar " + temp);
+            }
+        } catch (IOException e) {
+            Log.e("TaskShards", "Error al guardar las fotos de la lista " + id, e);
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w("TaskShards", "No se pudo borrar " + file.getName());
+        }
+    }
+
+    /**
+     * Método para obtener, como lista compacta, las tareas con foto de una lista.
+     *
+     * @param items Instantánea de la lista
+     * @return Tareas con ruta de imagen no vacía, en orden
+     */
+    static List<Item> photoTasks(List<Item> items) {
+        CompactTaskList.Builder builder = new CompactTaskList.Builder(0);
+        if (items instanceof CompactTaskList) {
+            CompactTaskList compact = (CompactTaskList) items;
+            for (int i = 0; i < compact.size(); i++) {
+                if (compact.hasImage(i)) {
+                    builder.add(compact.get(i)); // Solo se decodifican las tareas con foto
+                }
+            }
+            return builder.build();
+        }
+        for (Item item : items) {
+            String path = item.getImagePath();
+            if (path != null && !path.isEmpty()) {
+                builder.add(item);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Almacenamiento de una lista abierta. Delega en el de la lista y recuerda su última
+     * modificación y la instantánea que tenía al dejar de mostrarse.
+     */
+    public static final class Shard implements TaskStore {
+        private final String id;
+        private final TaskStore store;
+        private final int photosWhenOpened;     // Fotos según el índice al abrir, o UNKNOWN
+        private ListProvider provider;          // Lista mostrada, mientras esta lo está
+        private List<Item> parked;              // Instantánea al dejar de mostrarse
+        private boolean loaded;                 // Indica si se asoció tras cargarla
+        private long modified;                  // Última mutación en esta sesión, o 0
+
+        Shard(String id, TaskStore store, int photosWhenOpened) {
+            this.id = id;
+            this.store = store;
+            this.photosWhenOpened = photosWhenOpened;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        /**
+         * Método para obtener la instantánea actual de la lista.
+         *
+         * @return La mostrada si lo está, o la que tenía al dejar de mostrarse
+         */
+        public List<Item> getItems() {
+            ListProvider current = provider;
+            return current != null ? current.getItems() : parked;
+        }
+
+        void park(List<Item> items) {
+            PagedTaskList.retain(items); // Sigue en uso aunque la lista deje de mostrarse
+            PagedTaskList.release(parked);
+            parked = items;
+            provider = null;
+        }
+
+        @Override
+        public List<Item> load() throws IOException {
+            return store.load();
+        }
+
+        @Override
+        public int load(LoadListener listener) throws IOException {
+            return store.load(listener);
+        }
+
+        @Override
+        public List<Item> loadPaged() throws IOException {
+            return store.loadPaged();
+        }
+
+        @Override
+        public void attach(ListProvider provider) {
+            this.provider = provider;
+            PagedTaskList.release(parked); // La lista mostrada ya la anotó quien la muestra
+            parked = null;
+            loaded = true;
+            store.attach(this::getItems); // La compactación usa la instantánea de esta lista
+        }
+
+        @Override
+        public void add(int position, Item item) {
+            modified = System.currentTimeMillis();
+            store.add(position, item);
+        }
+
+        @Override
+        public void update(int position, Item item) {
+            modified = System.currentTimeMillis();
+            store.update(position, item);
+        }
+
+        @Override
+        public void remove(int position) {
+            modified = System.currentTimeMillis();
+            store.remove(position);
+        }
+
+        @Override
+        public void applyBatch(TaskBatch batch) {
+            modified = System.currentTimeMillis();
+            store.applyBatch(batch);
+        }
+
+        @Override
+        public void replaceAll(List<Item> items) {
+            modified = System.currentTimeMillis();
+            store.replaceAll(items);
+        }
+
+        @Override
+        public void flush() {
+            store.flush();
+        }
+
+        @Override
+        public String getStats() {
+            return "lista=" + id + " " + store.getStats();
+        }
+
+        @Override
+        public void close() {
+            store.close();
+            PagedTaskList.release(parked);
+            parked = null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.milistadetareas;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interfaz para el almacenamiento persistente de la lista de tareas.
+ * Cada mutación se registra de forma individual, sin reescribir la lista completa.
+ */
+public interface TaskStore extends Closeable {
+
+    /**
+     * Receptor de los cambios producidos al reconstruir la lista durante una carga incremental.
+     * Aplicar los cambios en el orden recibido reproduce la lista almacenada.
+     */
+    interface LoadListener {
+        void onItemInserted(int position, Item item);
+
+        void onItemChanged(int position, Item item);
+
+        void onItemRemoved(int position);
+    }
+
+    /**
+     * Proveedor de la lista de tareas actual, usado para compactar el almacenamiento.
+     */
+    interface ListProvider {
+        List<Item> getItems();
+    }
+
+    /**
+     * Método para cargar la lista de tareas almacenada.
+     * La lista devuelta queda asociada al almacenamiento como si se llamara a {@link #attach}.
+     *
+     * @return Lista de objetos Item recuperada del almacenamiento
+     * @throws IOException Si ocurre un error de lectura
+     */
+    List<Item> load() throws IOException;
+
+    /**
+     * Método para cargar la lista de tareas de forma incremental, sin materializarla.
+     * Se invoca en un hilo de fondo; no se deben registrar mutaciones hasta que termine.
+     *
+     * @param listener Receptor de los cambios
+     * @return Número de tareas de la lista reconstruida
+     * @throws IOException Si ocurre un error de lectura
+     */
+    int load(LoadListener listener) throws IOException;
+
+    /**
+     * Método para abrir la lista almacenada sin materializarla, leyendo sus tareas bajo demanda.
+     * Se invoca en un hilo de fondo; la lista devuelta queda pendiente de {@link #attach}.
+     *
+     * @return Lista paginada, o null si la lista se debe cargar con {@link #load(LoadListener)}
+     * @throws IOException Si ocurre un error de lectura
+     */
+    List<Item> loadPaged() throws IOException;
+
+    /**
+     * Método para asociar el proveedor de la lista que refleja el contenido almacenado tras una
+     * carga incremental. Se consulta en el hilo que registra las mutaciones.
+     *
+     * @param provider Proveedor de la lista de tareas en memoria
+     */
+    void attach(ListProvider provider);
+
+    /**
+     * Método para registrar la inserción de una tarea.
+     *
+     * @param position Posición en la que se insertó la tarea
+     * @param item     Tarea insertada
+     */
+    void add(int position, Item item);
+
+    /**
+     * Método para registrar la modificación de una tarea.
+     *
+     * @param position Posición de la tarea modificada
+     * @param item     Nuevo contenido de la tarea
+     */
+    void update(int position, Item item);
+
+    /**
+     * Método para registrar la eliminación de una tarea.
+     *
+     * @param position Posición de la tarea eliminada
+     */
+    void remove(int position);
+
+    /**
+     * Método para registrar un lote de cambios como una única transacción: al recuperar se
+     * aplica entero o no se aplica.
+     *
+     * @param batch Lote de cambios sobre la lista registrada
+     */
+    void applyBatch(TaskBatch batch);
+
+    /**
+     * Método para reemplazar todo el contenido almacenado por una nueva lista.
+     *
+     * @param items Nueva lista de tareas
+     */
+    void replaceAll(List<Item> items);
+
+    /**
+     * Método para forzar que todas las mutaciones pendientes queden escritas en disco.
+     */
+    void flush();
+
+    /**
+     * Método para obtener las estadísticas de escritura, en formato legible para el registro.
+     *
+     * @return Texto con las estadísticas
+     */
+    String getStats();
+
+    /**
+     * Método para liberar los recursos del almacenamiento tras escribir lo pendiente.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,811 @@
+package com.example.milistadetareas;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Sincronización incremental de una lista de tareas con un {@link SyncTransport}.
+ * <p>
+ * El cliente guarda la última versión recibida del servidor y una huella de 64 bits de cada tarea
+ * tal como quedó en la última sincronización. Una tarea cuya huella cambió se envía; una que ya no
+ * está en la lista se envía como eliminada. Del servidor solo se piden los cambios posteriores a la
+ * versión guardada. Los cambios viajan por lotes de {@link #BATCH_SIZE}, con el cuerpo de
+ * {@link BinaryTaskCodec} comprimido con Deflate.
+ * <p>
+ * Si la misma tarea cambió en los dos lados gana el cambio más reciente, según la modificación de
+ * la tarea o el momento en que se detectó la eliminación; a igual momento gana la eliminación y,
+ * entre dos modificaciones, el contenido mayor ({@link Change#winsOver}). La regla no depende del
+ * orden de llegada, así que el servidor y los clientes llegan al mismo resultado.
+ * <p>
+ * Las fotos viajan aparte, identificadas por el SHA-256 de su contenido: en los lotes la ruta se
+ * sustituye por {@link #IMAGE_PREFIX} y el hash. Una foto que el servidor ya tiene no se vuelve a
+ * subir, y las subidas y descargas interrumpidas continúan desde el último trozo recibido.
+ * <p>
+ * {@link #sync} no modifica el estado guardado: devuelve un {@link Result} que se aplica a la lista
+ * con {@link Result#toBatch} y se confirma después con {@link #commit}. Si la conexión se corta,
+ * el resultado recoge lo sincronizado hasta entonces; la siguiente sincronización continúa desde
+ * ahí y repetir un lote ya enviado no tiene efecto. La clase no es segura entre hilos: sync y
+ * commit se llaman desde el mismo hilo de fondo.
+ * <p>
+ * Por ahora es solo una biblioteca: la aplicación no tiene un transporte remoto, así que no crea
+ * ningún TaskSync ni muestra sus estadísticas.
+ */
+public class TaskSync {
+    public static final int BATCH_SIZE = 500;               // Cambios por lote
+    static final int IMAGE_CHUNK_SIZE = 64 * 1024;          // Bytes por trozo de foto
+    static final String IMAGE_PREFIX = "sha256/";           // Rutas de foto en los lotes
+    private static final byte MAGIC_0 = 'T';
+    private static final byte MAGIC_1 = 'S';
+    private static final int FORMAT_VERSION = 1;
+    private static final int STATE_MAGIC = 0x54535931;     // "TSY1"
+    private static final int MAX_REMOVED = 16 * 1024 * 1024;
+    private static final String IMAGE_EXTENSION = ".jpg";
+    private static final String PART_SUFFIX = ".part";     // Foto a medio descargar
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final SyncTransport transport;
+    private final String listId;
+    private final File stateFile;
+    private final File imageDirectory;                      // Directorio de las fotos descargadas
+
+    // Estado confirmado
+    private String clientId;
+    private long serverVersion;                             // Última versión recibida
+    private Map<Long, Long> synced = new HashMap<>();       // Identificador -> huella sincronizada
+
+    // Ruta y fecha de modificación -> SHA-256 de las fotos ya leídas; solo en memoria
+    private final Map<String, String> imageHashes = new HashMap<>();
+    private final Set<String> remoteImages = new HashSet<>(); // Hashes que el servidor ya tiene
+
+    // Estadísticas
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong changesSent = new AtomicLong();
+    private final AtomicLong changesReceived = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong imagesUploaded = new AtomicLong();
+    private final AtomicLong imagesDeduplicated = new AtomicLong();
+    private final AtomicLong imagesDownloaded = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong syncNanos = new AtomicLong();
+
+    /**
+     * Constructor de la sincronización de una lista. Lee el estado guardado; si no existe o está
+     * dañado, se empieza de cero con un identificador de cliente nuevo, y la primera sincronización
+     * envía y recibe la lista entera.
+     *
+     * @param transport      Extremo remoto
+     * @param listId         Identificador de la lista en el servidor
+     * @param stateFile      Archivo con el estado de la sincronización de esta lista
+     * @param imageDirectory Directorio donde se guardan las fotos descargadas
+     */
+    public TaskSync(SyncTransport transport, String listId, File stateFile, File imageDirectory) {
+        this.transport = transport;
+        this.listId = listId;
+        this.stateFile = stateFile;
+        this.imageDirectory = imageDirectory;
+        try {
+            readState();
+        } catch (IOException e) {
+            clientId = UUID.randomUUID().toString();
+            serverVersion = 0;
+            synced = new HashMap<>();
+        }
+    }
+
+    /**
+     * Método para sincronizar una instantánea de la lista: primero se reciben los cambios del
+     * servidor, resolviendo los conflictos con los cambios locales, y después se envían los cambios
+     * locales que quedan. Se ejecuta en segundo plano.
+     *
+     * @param items Instantánea de la lista
+     * @param now   Momento actual, usado como fecha de las eliminaciones locales
+     * @return Cambios para la lista y estado por confirmar, también si la conexión se cortó
+     */
+    public Result sync(List<Item> items, long now) {
+        long start = System.nanoTime();
+        syncs.incrementAndGet();
+        Map<Long, Item> local = new HashMap<>(items.size() * 2);
+        for (Item item : items) {
+            local.put(item.getId(), item);
+        }
+        Result result = new Result(serverVersion, new HashMap<>(synced));
+        try {
+            pull(local, now, result);
+            push(local, now, result);
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            result.failure = e;
+        }
+        syncNanos.addAndGet(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Método para guardar el estado de una sincronización una vez aplicado su resultado a la
+     * lista. Hasta entonces, una nueva sincronización repite los cambios, sin efectos duplicados.
+     *
+     * @param result Resultado de {@link #sync}
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public void commit(Result result) throws IOException {
+        serverVersion = result.serverVersion;
+        synced = result.synced;
+        writeState();
+    }
+
+    /**
+     * Método para recibir los cambios del servidor página a página. Las fotos de cada página se
+     * descargan antes de aplicarla, de modo que una página interrumpida no deja nada a medias.
+     */
+    private void pull(Map<Long, Item> local, long now, Result result) throws IOException {
+        boolean more = true;
+        while (more) {
+            SyncTransport.PullResult page = transport.pull(listId, clientId, result.serverVersion, BATCH_SIZE);
+            bytesReceived.addAndGet(page.getChanges().length);
+            List<Change> changes = decodeChanges(page.getChanges());
+            Map<String, String> downloaded = downloadImages(changes);
+            for (Change change : changes) {
+                receive(change, local, downloaded, now, result);
+            }
+            result.serverVersion = page.getVersion();
+            more = page.hasMore();
+        }
+    }
+
+    /**
+     * Método para descargar las fotos de unos cambios recibidos.
+     *
+     * @return Hash -> ruta local de cada foto
+     */
+    private Map<String, String> downloadImages(List<Change> changes) throws IOException {
+        Map<String, String> downloaded = new HashMap<>();
+        for (Change change : changes) {
+            String hash = imageHash(change.item);
+            if (hash != null && !downloaded.containsKey(hash)) {
+                downloaded.put(hash, downloadImage(hash).getPath());
+            }
+        }
+        return downloaded;
+    }
+
+    /**
+     * Método para aplicar un cambio recibido, salvo que lo supere un cambio local pendiente.
+     */
+    private void receive(Change change, Map<Long, Item> local, Map<String, String> downloaded, long now,
+                         Result result) throws IOException {
+        Item current = local.get(change.id);
+        Long base = result.synced.get(change.id);
+        boolean changedLocally = current != null ? base == null || base != fingerprint(current) : base != null;
+        if (changedLocally) {
+            conflicts.incrementAndGet();
+            result.conflicts++;
+            Change mine = current != null ? new Change(toWire(current), 0) : new Change(change.id, now, 0);
+            if (mine.winsOver(change)) {
+                return; // Se enviará el cambio local
+            }
+        }
+        changesReceived.incrementAndGet();
+        result.received++;
+        if (!result.bases.containsKey(change.id)) {
+            result.bases.put(change.id, current); // Versión de la instantánea, antes de recibir nada
+        }
+        if (change.item == null) {
+            local.remove(change.id);
+            result.outcomes.put(change.id, null);
+            result.synced.remove(change.id);
+            return;
+        }
+        Item item = change.item;
+        String hash = imageHash(item);
+        if (hash != null) {
+            item = item.withImagePath(downloaded.get(hash));
+        }
+        local.put(change.id, item);
+        result.outcomes.put(change.id, item);
+        result.synced.put(change.id, fingerprint(item));
+    }
+
+    /**
+     * Método para enviar por lotes las tareas cuya huella cambió y las eliminadas. Las fotos de
+     * cada lote se suben antes que el lote. Los cambios que el servidor rechaza porque tiene uno
+     * posterior no se dan por sincronizados: se aplica en su lugar el cambio del servidor, que el
+     * cliente pudo haber recibido ya y no volvería a recibir.
+     */
+    private void push(Map<Long, Item> local, long now, Result result) throws IOException {
+        List<Change> pending = new ArrayList<>();
+        for (Item item : local.values()) {
+            Long base = result.synced.get(item.getId());
+            if (base == null || base != fingerprint(item)) {
+                pending.add(new Change(toWire(item), 0));
+            }
+        }
+        for (Long id : result.synced.keySet()) {
+            if (!local.containsKey(id)) {
+                pending.add(new Change(id, now, 0));
+            }
+        }
+        for (int from = 0; from < pending.size(); from += BATCH_SIZE) {
+            List<Change> batch = pending.subList(from, Math.min(pending.size(), from + BATCH_SIZE));
+            for (Change change : batch) {
+                String hash = imageHash(change.item);
+                if (hash != null) {
+                    uploadImage(new File(local.get(change.id).getImagePath()), hash);
+                }
+            }
+            byte[] encoded = encodeChanges(batch);
+            byte[] winners = transport.push(listId, clientId, encoded);
+            bytesSent.addAndGet(encoded.length);
+            bytesReceived.addAndGet(winners.length);
+            List<Change> rejected = decodeChanges(winners);
+            Map<String, String> downloaded = downloadImages(rejected);
+            Set<Long> rejectedIds = new HashSet<>(rejected.size() * 2);
+            for (Change winner : rejected) {
+                rejectedIds.add(winner.id);
+            }
+            changesSent.addAndGet(batch.size() - rejected.size());
+            result.sent += batch.size() - rejected.size();
+            for (Change change : batch) {
+                if (rejectedIds.contains(change.id)) {
+                    continue;
+                } else if (change.item == null) {
+                    result.synced.remove(change.id);
+                } else {
+                    result.synced.put(change.id, fingerprint(local.get(change.id)));
+                }
+            }
+            for (Change winner : rejected) {
+                receive(winner, local, downloaded, now, result); // El cambio local pierde
+            }
+        }
+    }
+
+    /**
+     * Método para obtener la versión de una tarea que se envía: la ruta de la foto se sustituye
+     * por su hash y una foto que ya no existe se omite.
+     */
+    private Item toWire(Item item) throws IOException {
+        if (!item.hasImage()) {
+            return item;
+        }
+        File file = new File(item.getImagePath());
+        if (!file.isFile() || file.length() == 0) {
+            return item.withImagePath("");
+        }
+        String key = file.getPath() + '@' + file.lastModified();
+        String hash = imageHashes.get(key);
+        if (hash == null) {
+            try (InputStream in = new FileInputStream(file)) {
+                hash = sha256(in);
+            }
+            imageHashes.put(key, hash);
+        }
+        return item.withImagePath(IMAGE_PREFIX + hash);
+    }
+
+    /**
+     * Método para obtener el hash de la foto de una tarea recibida o por enviar.
+     *
+     * @return Hash, o null si la tarea no tiene foto
+     * @throws IOException Si la referencia no es un hash válido
+     */
+    private static String imageHash(Item item) throws IOException {
+        if (item == null || !item.hasImage()) {
+            return null;
+        }
+        String path = item.getImagePath();
+        String hash = path.startsWith(IMAGE_PREFIX) ? path.substring(IMAGE_PREFIX.length()) : "";
+        if (!isHash(hash)) {
+            throw new IOException("Referencia de foto inválida: " + path);
+        }
+        return hash;
+    }
+
+    /**
+     * Método para subir una foto que el servidor no tiene, continuando una subida interrumpida.
+     */
+    private void uploadImage(File file, String hash) throws IOException {
+        if (remoteImages.contains(hash)) {
+            imagesDeduplicated.incrementAndGet();
+            return;
+        }
+        long length = file.length();
+        long offset = transport.getImageOffset(hash);
+        if (offset >= length) {
+            imagesDeduplicated.incrementAndGet();
+            remoteImages.add(hash);
+            return;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] chunk = new byte[IMAGE_CHUNK_SIZE];
+            in.seek(offset);
+            while (offset < length) {
+                int read = in.read(chunk, 0, (int) Math.min(chunk.length, length - offset));
+                if (read < 0) {
+                    throw new IOException("La foto se acortó durante la subida: " + file);
+                }
+                transport.uploadImage(hash, offset, chunk, read, offset + read == length);
+                offset += read;
+                bytesSent.addAndGet(read);
+            }
+        }
+        imagesUploaded.incrementAndGet();
+        remoteImages.add(hash);
+    }
+
+    /**
+     * Método para descargar una foto que no está en el directorio, continuando una descarga
+     * interrumpida. La foto se comprueba con su hash antes de darla por buena.
+     *
+     * @return Archivo de la foto
+     */
+    private File downloadImage(String hash) throws IOException {
+        File target = new File(imageDirectory, hash + IMAGE_EXTENSION);
+        if (target.isFile()) {
+            return target;
+        }
+        File part = new File(imageDirectory, hash + IMAGE_EXTENSION + PART_SUFFIX);
+        long offset = part.length();
+        try (FileOutputStream out = new FileOutputStream(part, true)) {
+            byte[] chunk;
+            do {
+                chunk = transport.downloadImage(hash, offset, IMAGE_CHUNK_SIZE);
+                out.write(chunk);
+                offset += chunk.length;
+                bytesReceived.addAndGet(chunk.length);
+            } while (chunk.length == IMAGE_CHUNK_SIZE);
+            out.getFD().sync();
+        }
+        String actual;
+        try (InputStream in = new FileInputStream(part)) {
+            actual = sha256(in);
+        }
+        if (!actual.equals(hash)) {
+            part.delete();
+            throw new IOException("La foto descargada no coincide con su hash: " + hash);
+        }
+        if (!part.renameTo(target)) {
+            throw new IOException("No se pudo renombrar la foto descargada: " + target);
+        }
+        imagesDownloaded.incrementAndGet();
+        imageHashes.put(target.getPath() + '@' + target.lastModified(), hash);
+        remoteImages.add(hash);
+        return target;
+    }
+
+    /**
+     * Método para obtener un resumen de las sincronizaciones.
+     *
+     * @return Texto con los cambios, las fotos, los bytes transferidos y el ritmo
+     */
+    public String getStats() {
+        long ms = syncNanos.get() / 1_000_000;
+        long changes = changesSent.get() + changesReceived.get();
+        return "sincronizaciones=" + syncs.get()
+                + " fallidas=" + failures.get()
+                + " enviados=" + changesSent.get()
+                + " recibidos=" + changesReceived.get()
+                + " conflictos=" + conflicts.get()
+                + " fotos_subidas=" + imagesUploaded.get()
+                + " fotos_repetidas=" + imagesDeduplicated.get()
+                + " fotos_descargadas=" + imagesDownloaded.get()
+                + " bytes_enviados=" + bytesSent.get()
+                + " bytes_recibidos=" + bytesReceived.get()
+                + " ms=" + ms
+                + " cambios_por_s=" + (ms > 0 ? changes * 1000 / ms : changes);
+    }
+
+    private void readState() throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(readFile(stateFile)))) {
+            if (in.readInt() != STATE_MAGIC) {
+                throw new IOException("Estado de sincronización desconocido");
+            }
+            String id = in.readUTF();
+            long version = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Número de tareas inválido: " + count);
+            }
+            Map<Long, Long> fingerprints = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                fingerprints.put(in.readLong(), in.readLong());
+            }
+            clientId = id;
+            serverVersion = version;
+            synced = fingerprints;
+        }
+    }
+
+    /**
+     * Método para guardar el estado de forma atómica: se escribe un temporal y se renombra.
+     */
+    private void writeState() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + synced.size() * 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(STATE_MAGIC);
+        out.writeUTF(clientId);
+        out.writeLong(serverVersion);
+        out.writeInt(synced.size());
+        for (Map.Entry<Long, Long> entry : synced.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        File temp = new File(stateFile.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            bytes.writeTo(file);
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(stateFile)) {
+            throw new IOException("No se pudo renombrar el estado de sincronización");
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Método para calcular la huella de una tarea: cambia con cualquier cambio de su contenido o
+     * de sus metadatos.
+     *
+     * @param item Tarea
+     * @return Huella de 64 bits
+     */
+    static long fingerprint(Item item) {
+        long hash = mix(item.getId());
+        hash = mix(hash ^ stringHash(item.getTask()));
+        hash = mix(hash ^ stringHash(item.getImagePath()));
+        hash = mix(hash ^ item.getCreated());
+        hash = mix(hash ^ item.getUpdated());
+        return mix(hash ^ ((item.isDone() ? 8 : 0) | item.getPriority()));
+    }
+
+    private static long stringHash(String value) {
+        if (value == null) {
+            return 0x9E3779B97F4A7C15L;
+        }
+        long hash = 1125899906842597L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Mezcla de bits del generador SplitMix64.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Método para calcular el SHA-256 de un flujo.
+     *
+     * @param in Flujo de entrada, que se lee hasta el final
+     * @return Hash en hexadecimal
+     * @throws IOException Si ocurre un error de lectura
+     */
+    static String sha256(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Disponible en todas las plataformas
+        }
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            digest.update(buffer, 0, read);
+        }
+        byte[] hash = digest.digest();
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Método para comprobar que un texto es un SHA-256 en hexadecimal, y por tanto un nombre de
+     * archivo seguro.
+     */
+    static boolean isHash(String value) {
+        if (value.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Método para codificar un lote de cambios: cabecera y, comprimidos, la lista de tareas
+     * modificadas de {@link BinaryTaskCodec}, la versión de cada una y las eliminaciones.
+     *
+     * @param changes Cambios del lote
+     * @return Lote comprimido
+     */
+    static byte[] encodeChanges(List<Change> changes) {
+        List<Item> put = new ArrayList<>(changes.size());
+        List<Change> removed = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.item != null) {
+                put.add(change.item);
+            } else {
+                removed.add(change);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + changes.size() * 16);
+        bytes.write(MAGIC_0);
+        bytes.write(MAGIC_1);
+        bytes.write(FORMAT_VERSION);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater));
+            new BinaryTaskCodec.Writer(out).writeList(put);
+            for (Change change : changes) {
+                if (change.item != null) {
+                    out.writeLong(change.version);
+                }
+            }
+            out.writeInt(removed.size());
+            for (Change change : removed) {
+                out.writeLong(change.id);
+                out.writeLong(change.time);
+                out.writeLong(change.version);
+            }
+            out.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // No ocurre al escribir en memoria
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Método para decodificar un lote escrito con {@link #encodeChanges}.
+     *
+     * @param data Lote comprimido
+     * @return Cambios del lote: primero las tareas modificadas y después las eliminadas
+     * @throws IOException Si el lote no es válido
+     */
+    static List<Change> decodeChanges(byte[] data) throws IOException {
+        if (data.length < 3 || data[0] != MAGIC_0 || data[1] != MAGIC_1) {
+            throw new IOException("Lote de sincronización inválido");
+        }
+        if (data[2] != FORMAT_VERSION) {
+            throw new IOException("Versión de lote desconocida: " + data[2]);
+        }
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(data, 3, data.length - 3), inflater))) {
+            BinaryTaskCodec.ListReader reader = new BinaryTaskCodec.ListReader(in, true);
+            int count = reader.readHeader();
+            List<Item> put = new ArrayList<>(Math.min(count, BATCH_SIZE));
+            for (int i = 0; i < count; i++) {
+                put.add(reader.readItem());
+            }
+            List<Change> changes = new ArrayList<>(put.size());
+            for (Item item : put) {
+                changes.add(new Change(item, in.readLong()));
+            }
+            int removed = in.readInt();
+            if (removed < 0 || removed > MAX_REMOVED) {
+                throw new IOException("Número de eliminaciones inválido: " + removed);
+            }
+            for (int i = 0; i < removed; i++) {
+                changes.add(new Change(in.readLong(), in.readLong(), in.readLong()));
+            }
+            return changes;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Cambio de una tarea: su nuevo contenido o su eliminación, con la versión asignada por el
+     * servidor (0 en los cambios que envía el cliente).
+     */
+    public static final class Change {
+        final long id;
+        final Item item;            // null si la tarea se eliminó
+        final long time;            // Modificación de la tarea o momento de la eliminación
+        final long version;
+
+        Change(Item item, long version) {
+            this.id = item.getId();
+            this.item = item;
+            this.time = item.getUpdated();
+            this.version = version;
+        }
+
+        Change(long id, long removedAt, long version) {
+            this.id = id;
+            this.item = null;
+            this.time = removedAt;
+            this.version = version;
+        }
+
+        /**
+         * Método para obtener el mismo cambio con otra versión.
+         *
+         * @param version Versión asignada por el servidor
+         * @return Copia del cambio
+         */
+        Change withVersion(long version) {
+            return item != null ? new Change(item, version) : new Change(id, time, version);
+        }
+
+        /**
+         * Método para decidir entre dos cambios de la misma tarea. Gana el más reciente; a igual
+         * momento, la eliminación y, entre dos modificaciones, la de mayor contenido. Un cambio
+         * igual al otro no gana, de modo que repetir un cambio no tiene efecto.
+         *
+         * @param other Cambio de la misma tarea
+         * @return true si este cambio sustituye al otro
+         */
+        boolean winsOver(Change other) {
+            if (time != other.time) {
+                return time > other.time;
+            }
+            if ((item == null) != (other.item == null)) {
+                return item == null;
+            }
+            return item != null && compareContent(item, other.item) > 0;
+        }
+
+        private static int compareContent(Item a, Item b) {
+            int result = compare(a.getTask(), b.getTask());
+            if (result == 0) {
+                result = compare(a.getImagePath(), b.getImagePath());
+            }
+            if (result == 0) {
+                result = Integer.compare(a.getPriority(), b.getPriority());
+            }
+            if (result == 0) {
+                result = Boolean.compare(a.isDone(), b.isDone());
+            }
+            return result != 0 ? result : Long.compare(a.getCreated(), b.getCreated());
+        }
+
+        private static int compare(String a, String b) {
+            if (a == null || b == null) {
+                return a == null ? (b == null ? 0 : -1) : 1;
+            }
+            return a.compareTo(b);
+        }
+    }
+
+    /**
+     * Resultado de una sincronización: tareas recibidas para la lista y estado por confirmar.
+     */
+    public static final class Result {
+        // Identificador -> versión de la instantánea (null si no estaba) y versión recibida (null
+        // si se eliminó), en el orden en que se recibieron
+        private final Map<Long, Item> bases = new HashMap<>();
+        private final Map<Long, Item> outcomes = new LinkedHashMap<>();
+        private long serverVersion;
+        private final Map<Long, Long> synced;
+        private int sent;
+        private int received;
+        private int conflicts;
+        private IOException failure;
+
+        Result(long serverVersion, Map<Long, Long> synced) {
+            this.serverVersion = serverVersion;
+            this.synced = synced;
+        }
+
+        /**
+         * Método para calcular el lote que aplica lo recibido a la lista actual. Las tareas que
+         * cambiaron en la lista durante la sincronización se dejan como están: la siguiente
+         * sincronización las envía como cambios locales.
+         *
+         * @param current Lista actual
+         * @return Lote con las tareas nuevas al final
+         */
+        public TaskBatch toBatch(List<Item> current) {
+            TaskBatch.Builder builder = new TaskBatch.Builder(current);
+            if (outcomes.isEmpty()) {
+                return builder.build();
+            }
+            Map<Long, Item> byId = new HashMap<>(current.size() * 2);
+            for (Item item : current) {
+                byId.put(item.getId(), item);
+            }
+            for (Map.Entry<Long, Item> entry : outcomes.entrySet()) {
+                Item now = byId.get(entry.getKey());
+                Item item = entry.getValue();
+                if (!Objects.equals(bases.get(entry.getKey()), now)) {
+                    continue; // Cambió en la lista durante la sincronización
+                }
+                if (item == null) {
+                    if (now != null) {
+                        builder.remove(now.getId());
+                    }
+                } else if (now == null) {
+                    builder.append(item);
+                } else {
+                    builder.update(item);
+                }
+            }
+            return builder.build();
+        }
+
+        /**
+         * Método para obtener las tareas recibidas.
+         *
+         * @return Tareas nuevas o modificadas, en el orden en que se recibieron
+         */
+        public List<Item> getPut() {
+            List<Item> put = new ArrayList<>(outcomes.size());
+            for (Item item : outcomes.values()) {
+                if (item != null) {
+                    put.add(item);
+                }
+            }
+            return put;
+        }
+
+        public int getSent() {
+            return sent;
+        }
+
+        public int getReceived() {
+            return received;
+        }
+
+        public int getConflicts() {
+            return conflicts;
+        }
+
+        /**
+         * Método para saber si la sincronización se cortó.
+         *
+         * @return Error que la interrumpió, o null si terminó
+         */
+        public IOException getFailure() {
+            return failure;
+        }
+    }
+}
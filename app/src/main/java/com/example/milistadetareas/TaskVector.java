@@ -0,0 +1,563 @@
+package com.example.milistadetareas;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Instantánea inmutable de la lista de tareas en memoria, implementada como un vector persistente.
+ * <p>
+ * Las tareas se guardan en un árbol AVL ordenado por posición, en el que cada nodo conoce el tamaño
+ * de su subárbol. Una modificación copia solo el camino desde la raíz hasta la posición afectada y
+ * comparte el resto de nodos con la versión anterior, de modo que cuesta O(log n) en tiempo y en
+ * memoria y conservar versiones anteriores para deshacer no duplica la lista.
+ * <p>
+ * Un nodo contiene una tarea o un tramo de una {@link CompactTaskList}: las listas cargadas o
+ * importadas se insertan como tramos sin crear un objeto por tarea, y una modificación en medio de
+ * un tramo lo parte en dos tramos que siguen compartiendo las columnas.
+ * <p>
+ * Como las versiones comparten subárboles y tramos, {@link #commonPrefix} y {@link #commonSuffix}
+ * los saltan sin recorrerlos: comparar dos versiones cercanas cuesta O(log² n).
+ */
+public final class TaskVector extends AbstractList<Item> implements RandomAccess {
+    private static final TaskVector EMPTY = new TaskVector(null);
+
+    private final Node root;
+
+    private TaskVector(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Método para obtener el vector vacío.
+     *
+     * @return Vector sin tareas
+     */
+    public static TaskVector empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Método para crear un vector con el contenido de una lista: una lista compacta se usa como un
+     * único tramo, en O(1), y el resto se copia en O(n).
+     *
+     * @param items Tareas en orden
+     * @return La misma lista si ya es un vector, o un vector nuevo
+     */
+    public static TaskVector of(List<Item> items) {
+        if (items instanceof TaskVector) {
+            return (TaskVector) items;
+        }
+        if (items.isEmpty()) {
+            return EMPTY;
+        }
+        if (items instanceof CompactTaskList) {
+            return new TaskVector(Node.range((CompactTaskList) items, 0, items.size()));
+        }
+        Item[] array = items.toArray(new Item[0]);
+        return new TaskVector(build(array, 0, array.length));
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Item get(int index) {
+        checkIndex(index);
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index < leftSize + node.count) {
+                return node.itemAt(index - leftSize);
+            } else {
+                index -= leftSize + node.count;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Método para obtener el identificador de una tarea sin crear la vista de un tramo compacto.
+     *
+     * @param index Posición de la tarea
+     * @return Identificador de la tarea
+     */
+    public long getId(int index) {
+        checkIndex(index);
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index < leftSize + node.count) {
+                int offset = index - leftSize;
+                return node.item != null ? node.item.getId() : node.run.getId(node.from + offset);
+            } else {
+                index -= leftSize + node.count;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return new Iterator<Item>() {
+            private final List<Node> stack = new ArrayList<>(height(root));
+            private Node current;       // Nodo en curso, que puede ser un tramo
+            private int offset;         // Siguiente tarea del nodo en curso
+
+            {
+                pushLeft(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return current != null || !stack.isEmpty();
+            }
+
+            @Override
+            public Item next() {
+                if (current == null) {
+                    if (stack.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    current = stack.remove(stack.size() - 1);
+                    offset = 0;
+                }
+                Item item = current.itemAt(offset++);
+                if (offset == current.count) {
+                    pushLeft(current.right);
+                    current = null;
+                }
+                return item;
+            }
+
+            private void pushLeft(Node node) {
+                for (; node != null; node = node.left) {
+                    stack.add(node);
+                }
+            }
+        };
+    }
+
+    /**
+     * Método para crear una versión con tareas insertadas a partir de una posición. Una lista
+     * compacta se inserta como un único tramo, sin copiarla.
+     *
+     * @param position Posición de la primera tarea insertada
+     * @param items    Tareas a insertar
+     * @return Nueva versión; esta no cambia
+     */
+    public TaskVector inserted(int position, List<Item> items) {
+        if (position < 0 || position > size()) {
+            throw new IndexOutOfBoundsException("Posición " + position + ", tamaño " + size());
+        }
+        if (items.isEmpty()) {
+            return this;
+        }
+        Node[] parts = split(root, position);
+        if (items instanceof CompactTaskList) {
+            return new TaskVector(join(parts[0], Node.range((CompactTaskList) items, 0, items.size()), parts[1]));
+        }
+        if (items.size() == 1) {
+            return new TaskVector(join(parts[0], Node.leaf(items.get(0)), parts[1]));
+        }
+        Item[] array = items.toArray(new Item[0]);
+        return new TaskVector(concat(concat(parts[0], build(array, 0, array.length)), parts[1]));
+    }
+
+    /**
+     * Método para crear una versión con una tarea sustituida.
+     *
+     * @param position Posición de la tarea
+     * @param item     Nuevo contenido
+     * @return Nueva versión; esta no cambia
+     */
+    public TaskVector replaced(int position, Item item) {
+        checkIndex(position);
+        return new TaskVector(splice(root, position, Node.leaf(item)));
+    }
+
+    /**
+     * Método para crear una versión sin la tarea de una posición.
+     *
+     * @param position Posición de la tarea
+     * @return Nueva versión; esta no cambia
+     */
+    public TaskVector removed(int position) {
+        checkIndex(position);
+        return new TaskVector(splice(root, position, null));
+    }
+
+    /**
+     * Método para obtener la altura del árbol, que crece como log2 del número de nodos.
+     *
+     * @return Altura; 0 si el vector está vacío
+     */
+    public int height() {
+        return height(root);
+    }
+
+    /**
+     * Método para obtener un resumen de la forma del árbol. Recorre todos los nodos.
+     *
+     * @return Texto con las tareas, los nodos, los tramos compactos y la altura
+     */
+    public String getStats() {
+        int[] counts = new int[2];
+        countNodes(root, counts);
+        return "tareas=" + size()
+                + " nodos=" + counts[0]
+                + " tramos=" + counts[1]
+                + " altura=" + height();
+    }
+
+    /**
+     * Método para contar las tareas iniciales iguales en dos versiones, saltando los subárboles
+     * y tramos compartidos.
+     *
+     * @param a Primera versión
+     * @param b Segunda versión
+     * @return Longitud del prefijo común
+     */
+    public static int commonPrefix(TaskVector a, TaskVector b) {
+        return commonRun(a.root, b.root, true, Math.min(a.size(), b.size()));
+    }
+
+    /**
+     * Método para contar las tareas finales iguales en dos versiones, saltando los subárboles
+     * y tramos compartidos.
+     *
+     * @param a     Primera versión
+     * @param b     Segunda versión
+     * @param limit Longitud máxima que se busca, para no solaparse con el prefijo común
+     * @return Longitud del sufijo común, como mucho limit
+     */
+    public static int commonSuffix(TaskVector a, TaskVector b, int limit) {
+        return commonRun(a.root, b.root, false, limit);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Posición " + index + ", tamaño " + size());
+        }
+    }
+
+    private static void countNodes(Node node, int[] counts) {
+        for (; node != null; node = node.right) {
+            counts[0]++;
+            if (node.run != null) {
+                counts[1]++;
+            }
+            countNodes(node.left, counts);
+        }
+    }
+
+    /**
+     * Método para recorrer dos árboles a la vez desde un extremo. Los subárboles se sustituyen por
+     * sus partes solo cuando no son el mismo nodo en ambos, y dos tramos de la misma lista compacta
+     * que empiezan en la misma posición se saltan sin decodificar sus tareas.
+     */
+    private static int commonRun(Node a, Node b, boolean forward, int limit) {
+        List<Object> left = new ArrayList<>(); // Subárboles, tramos o tareas pendientes; el siguiente al final
+        List<Object> right = new ArrayList<>();
+        if (a != null) {
+            left.add(a);
+        }
+        if (b != null) {
+            right.add(b);
+        }
+        int common = 0;
+        while (common < limit && !left.isEmpty() && !right.isEmpty()) {
+            Object x = left.get(left.size() - 1);
+            Object y = right.get(right.size() - 1);
+            if (x == y) {
+                left.remove(left.size() - 1);
+                right.remove(right.size() - 1);
+                common += count(x);
+                continue;
+            }
+            if (x instanceof Slice && y instanceof Slice && ((Slice) x).sameStart((Slice) y, forward)) {
+                Slice sx = (Slice) left.remove(left.size() - 1);
+                Slice sy = (Slice) right.remove(right.size() - 1);
+                int shared = Math.min(sx.count, sy.count);
+                if (sx.count > shared) {
+                    left.add(sx.rest(shared, forward));
+                } else if (sy.count > shared) {
+                    right.add(sy.rest(shared, forward));
+                }
+                common += shared;
+                continue;
+            }
+            if (x instanceof Item && y instanceof Item) {
+                if (!x.equals(y)) {
+                    break;
+                }
+                left.remove(left.size() - 1);
+                right.remove(right.size() - 1);
+                common++;
+                continue;
+            }
+            // Primero se abren los subárboles, para encontrar los compartidos; después los tramos
+            boolean expandLeft;
+            if (x instanceof Node || y instanceof Node) {
+                expandLeft = x instanceof Node && (!(y instanceof Node) || count(x) >= count(y));
+            } else {
+                expandLeft = !(x instanceof Item) && (y instanceof Item || count(x) >= count(y));
+            }
+            expand(expandLeft ? left : right, forward);
+        }
+        return Math.min(common, limit);
+    }
+
+    private static int count(Object entry) {
+        if (entry instanceof Node) {
+            return ((Node) entry).size;
+        }
+        return entry instanceof Slice ? ((Slice) entry).count : 1;
+    }
+
+    private static void expand(List<Object> stack, boolean forward) {
+        Object entry = stack.remove(stack.size() - 1);
+        if (entry instanceof Slice) {
+            Slice slice = (Slice) entry;
+            if (slice.count > 1) {
+                stack.add(slice.rest(1, forward));
+            }
+            stack.add(slice.run.get(forward ? slice.from : slice.from + slice.count - 1));
+            return;
+        }
+        Node node = (Node) entry;
+        Node last = forward ? node.right : node.left;
+        Node first = forward ? node.left : node.right;
+        if (last != null) {
+            stack.add(last);
+        }
+        stack.add(node.item != null ? node.item : new Slice(node.run, node.from, node.count));
+        if (first != null) {
+            stack.add(first);
+        }
+    }
+
+    // Operaciones sobre el árbol: todas crean nodos nuevos y comparten los que no cambian
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static Node build(Item[] items, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(build(items, from, middle), items[middle], build(items, middle + 1, to));
+    }
+
+    /**
+     * Método para sustituir la tarea de una posición por el contenido de otro nodo, o eliminarla si
+     * es null. Si la tarea está en medio de un tramo, el tramo se parte.
+     */
+    private static Node splice(Node node, int index, Node replacement) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return join(splice(node.left, index, replacement), node, node.right);
+        }
+        int offset = index - leftSize;
+        if (offset >= node.count) {
+            return join(node.left, node, splice(node.right, offset - node.count, replacement));
+        }
+        Node left = node.left;
+        Node right = node.right;
+        if (offset > 0) {
+            left = join(left, node.slice(0, offset), null);
+        }
+        if (offset < node.count - 1) {
+            right = join(null, node.slice(offset + 1, node.count), right);
+        }
+        return replacement != null ? join(left, replacement, right) : concat(left, right);
+    }
+
+    /**
+     * Método para dividir un árbol en las primeras index tareas y el resto.
+     */
+    private static Node[] split(Node node, int index) {
+        if (node == null) {
+            return new Node[2];
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            Node[] parts = split(node.left, index);
+            parts[1] = join(parts[1], node, node.right);
+            return parts;
+        }
+        int offset = index - leftSize;
+        if (offset >= node.count) {
+            Node[] parts = split(node.right, offset - node.count);
+            parts[0] = join(node.left, node, parts[0]);
+            return parts;
+        }
+        return new Node[]{join(node.left, node.slice(0, offset), null),
+                join(null, node.slice(offset, node.count), node.right)};
+    }
+
+    /**
+     * Método para unir dos árboles de cualquier altura.
+     */
+    private static Node concat(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        Node first = right;
+        while (first.left != null) {
+            first = first.left;
+        }
+        return join(left, first, removeFirst(right));
+    }
+
+    private static Node removeFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return join(removeFirst(node.left), node, node.right);
+    }
+
+    /**
+     * Método para unir dos árboles de cualquier altura con el contenido de un nodo entre ellos,
+     * descendiendo por el más alto hasta encontrar un subárbol de altura parecida a la del otro.
+     */
+    private static Node join(Node left, Node content, Node right) {
+        if (height(left) > height(right) + 1) {
+            return balance(left.left, left, join(left.right, content, right));
+        }
+        if (height(right) > height(left) + 1) {
+            return balance(join(left, content, right.left), right, right.right);
+        }
+        return new Node(left, content, right);
+    }
+
+    /**
+     * Método para crear un nodo con una rotación simple o doble si sus hijos difieren en altura
+     * en dos niveles.
+     */
+    private static Node balance(Node left, Node content, Node right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.left, left, new Node(left.right, content, right));
+            }
+            return new Node(new Node(left.left, left, left.right.left), left.right,
+                    new Node(left.right.right, content, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(new Node(left, content, right.left), right, right.right);
+            }
+            return new Node(new Node(left, content, right.left.left), right.left,
+                    new Node(right.left.right, right, right.right));
+        }
+        return new Node(left, content, right);
+    }
+
+    /**
+     * Nodo inmutable del árbol, con una tarea o un tramo de una lista compacta.
+     */
+    private static final class Node {
+        final Node left;
+        final Node right;
+        final Item item;                // Tarea del nodo, o null si es un tramo
+        final CompactTaskList run;      // Lista compacta del tramo, o null
+        final int from;                 // Primera posición del tramo en run
+        final int count;                // Tareas propias del nodo
+        final int size;                 // Tareas del subárbol
+        final int height;               // Altura del subárbol
+
+        /**
+         * Constructor de un nodo con una tarea.
+         */
+        Node(Node left, Item item, Node right) {
+            this(left, item, null, 0, 1, right);
+        }
+
+        /**
+         * Constructor de un nodo con el contenido de otro y nuevos hijos.
+         */
+        Node(Node left, Node content, Node right) {
+            this(left, content.item, content.run, content.from, content.count, right);
+        }
+
+        private Node(Node left, Item item, CompactTaskList run, int from, int count, Node right) {
+            this.left = left;
+            this.right = right;
+            this.item = item;
+            this.run = run;
+            this.from = from;
+            this.count = count;
+            this.size = size(left) + size(right) + count;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+
+        static Node leaf(Item item) {
+            return new Node(null, item, null);
+        }
+
+        static Node range(CompactTaskList run, int from, int count) {
+            return new Node(null, null, run, from, count, null);
+        }
+
+        Item itemAt(int offset) {
+            return item != null ? item : run.get(from + offset);
+        }
+
+        /**
+         * Método para obtener un nodo sin hijos con una parte del tramo [start, end).
+         */
+        Node slice(int start, int end) {
+            return range(run, from + start, end - start);
+        }
+    }
+
+    /**
+     * Parte pendiente de un tramo al comparar dos versiones.
+     */
+    private static final class Slice {
+        final CompactTaskList run;
+        final int from;
+        final int count;
+
+        Slice(CompactTaskList run, int from, int count) {
+            this.run = run;
+            this.from = from;
+            this.count = count;
+        }
+
+        /**
+         * Método para saber si dos partes empiezan, en el sentido del recorrido, en la misma tarea
+         * de la misma lista compacta.
+         */
+        boolean sameStart(Slice other, boolean forward) {
+            return run == other.run && (forward ? from == other.from : from + count == other.from + other.count);
+        }
+
+        /**
+         * Método para obtener lo que queda tras consumir n tareas en el sentido del recorrido.
+         */
+        Slice rest(int n, boolean forward) {
+            return new Slice(run, forward ? from + n : from, count - n);
+        }
+    }
+}
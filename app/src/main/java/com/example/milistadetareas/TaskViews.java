@@ -0,0 +1,428 @@
+package com.example.milistadetareas;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Vistas ordenadas y filtradas de la lista de tareas, mantenidas de forma incremental.
+ * <p>
+ * Cada orden usado se indexa la primera vez que se muestra, con un {@link TaskIndex} creado en un
+ * hilo de fondo mientras se sigue mostrando la vista anterior; a partir de entonces todos los
+ * índices creados se actualizan en cada inserción, modificación o eliminación en O(log n), aunque
+ * no sean el orden mostrado. Cambiar de orden o de filtro a uno ya indexado
+ * solo crea una vista sobre el índice, sin volver a ordenar la lista.
+ * <p>
+ * Cada cambio de la lista se traduce en los cambios por posición de la vista mostrada
+ * ({@link Changes}): una tarea que cambia de clave se mueve, una que deja de cumplir el filtro se
+ * elimina y una que pasa a cumplirlo se inserta. El orden manual sin filtro es la propia lista: en
+ * ese caso no se calcula nada y las posiciones de la lista son las de la vista.
+ * <p>
+ * Una {@link PagedTaskList} no se indexa, porque el índice materializaría la lista entera: solo se
+ * puede mostrar en el orden manual sin filtro. La clase no es segura entre hilos: se usa en el hilo
+ * principal.
+ */
+public class TaskViews {
+    // Hilo compartido para crear los índices sin ordenar la lista en el hilo principal
+    private static final ExecutorService INDEX_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TaskViews");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private final Map<TaskIndex.Order, TaskIndex> indexes = new EnumMap<>(TaskIndex.Order.class);
+    private List<Item> items;                           // Lista en el orden manual
+    private TaskIndex.Order order = TaskIndex.Order.MANUAL;
+    private TaskIndex.Filter filter = TaskIndex.Filter.ALL;
+    private int builds;                                 // Índices creados desde el principio
+    private int version;                                // Cambios de contenido de la lista
+    private int requests;                               // Vistas pedidas: solo se muestra la última
+    private int building;                               // Índices que se están creando
+
+    /**
+     * Constructor de las vistas.
+     *
+     * @param items Lista inicial en el orden manual
+     */
+    public TaskViews(List<Item> items) {
+        this.items = items;
+    }
+
+    /**
+     * Método para empezar con otra lista en el orden manual sin filtro, descartando los índices.
+     *
+     * @param items Nueva lista
+     */
+    public void reset(List<Item> items) {
+        this.items = items;
+        version++;
+        requests++; // Los índices en curso son de la lista anterior
+        indexes.clear();
+        order = TaskIndex.Order.MANUAL;
+        filter = TaskIndex.Filter.ALL;
+    }
+
+    /**
+     * Método para sustituir la lista por otra con el mismo contenido, por ejemplo la misma lista
+     * reabierta desde el disco. Los índices no cambian.
+     *
+     * @param sameContent Lista con el mismo contenido
+     */
+    public void swap(List<Item> sameContent) {
+        items = sameContent;
+    }
+
+    /**
+     * Método para cambiar el orden y el filtro mostrados. Si el índice del orden aún no existe, se
+     * crea en un hilo de fondo y la vista cambia cuando está listo; si la lista cambia mientras
+     * tanto, se vuelve a crear sobre la actual. Si antes se pide otra vista, esta no se muestra.
+     *
+     * @param order            Orden de las tareas
+     * @param filter           Partición mostrada
+     * @param callbackExecutor Ejecutor del hilo principal, en el que se cambia de vista
+     * @param onShown          Aviso de que la vista pedida es ya la mostrada, quizá en el acto
+     * @return false si la lista está paginada y solo admite el orden manual sin filtro
+     */
+    public boolean setView(TaskIndex.Order order, TaskIndex.Filter filter, Executor callbackExecutor, Runnable onShown) {
+        boolean identity = order == TaskIndex.Order.MANUAL && filter == TaskIndex.Filter.ALL;
+        if (!identity && items instanceof PagedTaskList) {
+            return false;
+        }
+        int request = ++requests;
+        if (identity || indexes.containsKey(order)) {
+            this.order = order;
+            this.filter = filter;
+            onShown.run();
+        } else {
+            build(order, filter, request, callbackExecutor, onShown);
+        }
+        return true;
+    }
+
+    /**
+     * Método para crear en segundo plano el índice de un orden sobre la lista actual y mostrarlo
+     * si sigue siendo la vista pedida.
+     */
+    private void build(final TaskIndex.Order order, final TaskIndex.Filter filter, final int request,
+                       final Executor callbackExecutor, final Runnable onShown) {
+        final List<Item> snapshot = items; // Inmutable: se ordena fuera del hilo principal
+        final int builtVersion = version;
+        building++;
+        INDEX_EXECUTOR.execute(() -> {
+            final TaskIndex index = TaskIndex.of(order, snapshot);
+            callbackExecutor.execute(() -> {
+                building--;
+                if (request != requests && (builtVersion != version || indexes.containsKey(order))) {
+                    return; // Se pidió otra vista y el índice no sirve o ya existe
+                }
+                if (builtVersion != version) {
+                    build(order, filter, request, callbackExecutor, onShown); // La lista cambió
+                    return;
+                }
+                if (!indexes.containsKey(order)) {
+                    indexes.put(order, index);
+                    builds++;
+                }
+                if (request == requests) {
+                    this.order = order;
+                    this.filter = filter;
+                    onShown.run();
+                }
+            });
+        });
+    }
+
+    public TaskIndex.Order getOrder() {
+        return order;
+    }
+
+    public TaskIndex.Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Método para saber si la vista mostrada es la propia lista.
+     *
+     * @return true con el orden manual y sin filtro
+     */
+    public boolean isIdentity() {
+        return order == TaskIndex.Order.MANUAL && filter == TaskIndex.Filter.ALL;
+    }
+
+    /**
+     * Método para saber si hay índices que mantener; mientras los haya, la lista no se debe
+     * sustituir por una {@link PagedTaskList}.
+     *
+     * @return true si se ha indexado algún orden o se está indexando
+     */
+    public boolean isIndexed() {
+        return !indexes.isEmpty() || building > 0;
+    }
+
+    /**
+     * Método para obtener la lista en el orden manual, sin filtro.
+     *
+     * @return Lista registrada
+     */
+    public List<Item> getItems() {
+        return items;
+    }
+
+    /**
+     * Método para obtener la vista mostrada, en O(1).
+     *
+     * @return Lista inmutable en el orden y con el filtro actuales
+     */
+    public List<Item> getView() {
+        return isIdentity() ? items : indexes.get(order).view(filter);
+    }
+
+    /**
+     * Método para registrar tareas insertadas en la lista.
+     *
+     * @param next     Lista resultante
+     * @param position Posición de la primera tarea
+     * @param inserted Tareas insertadas
+     * @return Cambios de la vista, o null si la vista es la propia lista
+     */
+    public Changes inserted(List<Item> next, int position, List<Item> inserted) {
+        Changes changes = isIdentity() ? null : new Changes();
+        for (int i = 0; i < inserted.size(); i++) {
+            insert(position + i, inserted.get(i), changes);
+        }
+        items = next;
+        version++;
+        return changes;
+    }
+
+    /**
+     * Método para registrar una tarea modificada en la lista.
+     *
+     * @param next     Lista resultante
+     * @param position Posición de la tarea
+     * @param previous Versión anterior de la tarea
+     * @param item     Nuevo contenido
+     * @return Cambios de la vista, o null si la vista es la propia lista
+     */
+    public Changes replaced(List<Item> next, int position, Item previous, Item item) {
+        Changes changes = isIdentity() ? null : new Changes();
+        replace(position, previous, item, changes);
+        items = next;
+        version++;
+        return changes;
+    }
+
+    /**
+     * Método para registrar una tarea eliminada de la lista.
+     *
+     * @param next     Lista resultante
+     * @param position Posición que ocupaba la tarea
+     * @param previous Tarea eliminada
+     * @return Cambios de la vista, o null si la vista es la propia lista
+     */
+    public Changes removed(List<Item> next, int position, Item previous) {
+        Changes changes = isIdentity() ? null : new Changes();
+        remove(position, previous, changes);
+        items = next;
+        version++;
+        return changes;
+    }
+
+    /**
+     * Método para registrar un lote aplicado sobre la lista actual. Las versiones anteriores de
+     * las tareas modificadas o eliminadas se leen de una copia persistente de la lista que se
+     * actualiza al reproducir el lote, solo si hay índices.
+     *
+     * @param batch Lote calculado sobre la lista actual
+     * @return Cambios de la vista, o null si la vista es la propia lista
+     */
+    public Changes applied(TaskBatch batch) {
+        final Changes changes = isIdentity() ? null : new Changes();
+        if (!indexes.isEmpty()) {
+            batch.replay(new TaskStore.LoadListener() {
+                private List<Item> working = items;     // Lista con los cambios anteriores aplicados
+
+                @Override
+                public void onItemInserted(int position, Item item) {
+                    insert(position, item, changes);
+                    working = PagedTaskList.withInserted(working, position, Collections.singletonList(item));
+                }
+
+                @Override
+                public void onItemChanged(int position, Item item) {
+                    replace(position, working.get(position), item, changes);
+                    working = PagedTaskList.withReplaced(working, position, item);
+                }
+
+                @Override
+                public void onItemRemoved(int position) {
+                    remove(position, working.get(position), changes);
+                    working = PagedTaskList.withRemoved(working, position);
+                }
+            });
+        }
+        items = batch.getItems();
+        version++;
+        return changes;
+    }
+
+    /**
+     * Método para obtener un resumen de las vistas.
+     *
+     * @return Texto con el orden, el filtro, los índices y las tareas de cada partición
+     */
+    public String getStats() {
+        TaskIndex index = indexes.isEmpty() ? null : indexes.values().iterator().next();
+        return "orden=" + order
+                + " filtro=" + filter
+                + " indices=" + indexes.size()
+                + " creados=" + builds
+                + " creando=" + building
+                + " visibles=" + getView().size()
+                + (index != null ? " hechas=" + index.count(TaskIndex.Filter.DONE)
+                + " fotos=" + index.count(TaskIndex.Filter.PHOTO) : "");
+    }
+
+    private void insert(int position, Item item, Changes changes) {
+        for (Map.Entry<TaskIndex.Order, TaskIndex> entry : indexes.entrySet()) {
+            TaskIndex index = entry.getValue();
+            boolean shown = changes != null && entry.getKey() == order && filter.matches(item);
+            if (index.getOrder() == TaskIndex.Order.MANUAL) {
+                if (shown) {
+                    changes.add(Changes.INSERTED, index.rankAt(filter, position), 0);
+                }
+                entry.setValue(index.insertedAt(position, item));
+            } else {
+                index = index.with(item);
+                entry.setValue(index);
+                if (shown) {
+                    changes.add(Changes.INSERTED, index.rank(filter, item), 0);
+                }
+            }
+        }
+    }
+
+    private void replace(int position, Item previous, Item item, Changes changes) {
+        for (Map.Entry<TaskIndex.Order, TaskIndex> entry : indexes.entrySet()) {
+            TaskIndex index = entry.getValue();
+            boolean current = changes != null && entry.getKey() == order;
+            boolean wasShown = current && filter.matches(previous);
+            boolean shown = current && filter.matches(item);
+            int from;
+            int to;
+            if (index.getOrder() == TaskIndex.Order.MANUAL) {
+                from = index.rankAt(filter, position);
+                to = from;
+                entry.setValue(index.replacedAt(position, item));
+            } else {
+                from = wasShown ? index.rank(filter, previous) : -1;
+                index = index.without(previous).with(item);
+                entry.setValue(index);
+                to = shown ? index.rank(filter, item) : -1;
+            }
+            if (wasShown && shown) {
+                if (from != to) {
+                    changes.add(Changes.MOVED, from, to);
+                }
+                changes.add(Changes.CHANGED, to, 0);
+            } else if (wasShown) {
+                changes.add(Changes.REMOVED, from, 0);
+            } else if (shown) {
+                changes.add(Changes.INSERTED, to, 0);
+            }
+        }
+    }
+
+    private void remove(int position, Item previous, Changes changes) {
+        for (Map.Entry<TaskIndex.Order, TaskIndex> entry : indexes.entrySet()) {
+            TaskIndex index = entry.getValue();
+            boolean shown = changes != null && entry.getKey() == order && filter.matches(previous);
+            if (index.getOrder() == TaskIndex.Order.MANUAL) {
+                if (shown) {
+                    changes.add(Changes.REMOVED, index.rankAt(filter, position), 0);
+                }
+                entry.setValue(index.removedAt(position));
+            } else {
+                if (shown) {
+                    changes.add(Changes.REMOVED, index.rank(filter, previous), 0);
+                }
+                entry.setValue(index.without(previous));
+            }
+        }
+    }
+
+    /**
+     * Receptor de los cambios por posición de una vista.
+     */
+    public interface Listener {
+        void onInserted(int position);
+
+        void onRemoved(int position);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        void onChanged(int position);
+    }
+
+    /**
+     * Cambios por posición de la vista mostrada, en el orden en que se aplican: cada posición se
+     * refiere a la vista con los cambios anteriores ya aplicados.
+     */
+    public static final class Changes {
+        static final int INSERTED = 0;
+        static final int REMOVED = 1;
+        static final int MOVED = 2;
+        static final int CHANGED = 3;
+
+        private int[] ops = new int[12];        // Tipo, posición y destino de cada cambio
+        private int size;
+
+        void add(int type, int position, int target) {
+            if (size * 3 == ops.length) {
+                ops = Arrays.copyOf(ops, ops.length * 2);
+            }
+            ops[size * 3] = type;
+            ops[size * 3 + 1] = position;
+            ops[size * 3 + 2] = target;
+            size++;
+        }
+
+        /**
+         * Método para obtener el número de cambios.
+         *
+         * @return Cambios registrados; 0 si la vista no cambió
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Método para reproducir los cambios en orden.
+         *
+         * @param listener Receptor de cada cambio
+         */
+        public void replay(Listener listener) {
+            for (int i = 0; i < size; i++) {
+                int position = ops[i * 3 + 1];
+                switch (ops[i * 3]) {
+                    case INSERTED:
+                        listener.onInserted(position);
+                        break;
+                    case REMOVED:
+                        listener.onRemoved(position);
+                        break;
+                    case MOVED:
+                        listener.onMoved(position, ops[i * 3 + 2]);
+                        break;
+                    default:
+                        listener.onChanged(position);
+                }
+            }
+        }
+    }
+}
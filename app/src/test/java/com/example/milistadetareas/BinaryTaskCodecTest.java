@@ -0,0 +1,91 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de la codificación binaria de la lista de tareas.
+ */
+public class BinaryTaskCodecTest {
+    private static final String PICTURES = "/storage/emulated/0/Android/data/com.example.milistadetareas/files/Pictures/";
+
+    @Test
+    public void roundTrip_preservesIdsTextAndPaths() throws IOException {
+        List<Item> items = Arrays.asList(
+                new Item(5, "Practicar la canción 🎵", PICTURES + "JPEG_20240621_222249_123.webp"),
+                new Item(3, "Sin foto", ""),
+                new Item(900, null, null),
+                new Item(901, "Relativa", "foto.jpg"),
+                new Item(902, "", PICTURES + "JPEG_20240622_101010_456.webp"),
+                new Item(903, new String(new char[40000]).replace('\0', 'ñ'), ""));
+
+        assertEquals(items, BinaryTaskCodec.decode(BinaryTaskCodec.encode(items)));
+    }
+
+    @Test
+    public void encode_isMuchSmallerThanJson() throws IOException {
+        List<Item> items = new ArrayList<>();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            String path = PICTURES + "JPEG_20240621_2222" + (i % 60) + "_" + i + ".webp";
+            items.add(new Item(1000 + i, "Tarea " + i, path));
+            json.append(i == 0 ? "" : ",").append("{\"task\":\"Tarea ").append(i)
+                    .append("\",\"imagePath\":\"").append(path).append("\"}");
+        }
+        json.append(']');
+
+        byte[] encoded = BinaryTaskCodec.encode(items);
+        assertTrue(encoded.length * 3 < json.length());
+        assertEquals(items, BinaryTaskCodec.decode(encoded));
+    }
+
+    @Test
+    public void roundTrip_preservesMetadataAndReadsVersion1() throws IOException {
+        List<Item> items = Arrays.asList(
+                new Item(10, "Hecha", "", 1_700_000_000_000L, 1_700_000_900_000L, true, Item.PRIORITY_LOW),
+                new Item(11, "Urgente", PICTURES + "a.webp", 1_700_000_000_500L, 1_700_000_000_500L, false,
+                        Item.PRIORITY_HIGH),
+                new Item(12, "Heredada", ""));
+        assertEquals(items, BinaryTaskCodec.decode(BinaryTaskCodec.encode(items)));
+
+        // Versión 1: sin directorios, una tarea con id 5, "Pan" y sin foto
+        byte[] version1 = {'T', 'L', 1, 0, 1, 10, 4, 'P', 'a', 'n', 1};
+        assertEquals(Arrays.asList(new Item(5, "Pan", "")), BinaryTaskCodec.decode(version1));
+    }
+
+    @Test
+    public void json_readsOptionalMetadata() throws IOException {
+        byte[] json = ("[{\"task\":\"Con fechas\",\"imagePath\":\"\",\"created\":100,\"updated\":200,"
+                + "\"done\":true,\"priority\":2},{\"task\":\"Sin fechas\",\"imagePath\":\"\"}]")
+                .getBytes(StandardCharsets.UTF_8);
+
+        List<Item> items = BinaryTaskCodec.decode(json);
+
+        assertEquals(100, items.get(0).getCreated());
+        assertEquals(200, items.get(0).getUpdated());
+        assertTrue(items.get(0).isDone());
+        assertEquals(Item.PRIORITY_HIGH, items.get(0).getPriority());
+        assertTrue(items.get(1).getCreated() > 0); // Sin metadatos se considera creada ahora
+        assertFalse(items.get(1).isDone());
+    }
+
+    @Test
+    public void decode_fallsBackToLegacyJson() throws IOException {
+        byte[] json = "[{\"task\":\"Comprar pan\",\"imagePath\":\"/a/b.jpg\"},{\"task\":\"Leche\",\"imagePath\":null}]"
+                .getBytes(StandardCharsets.UTF_8);
+
+        List<Item> items = BinaryTaskCodec.decode(json);
+
+        assertEquals(2, items.size());
+        assertEquals("Comprar pan", items.get(0).getTask());
+        assertEquals("/a/b.jpg", items.get(0).getImagePath());
+        assertEquals("", items.get(1).getImagePath());
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de la lista de tareas por columnas.
+ */
+public class CompactTaskListTest {
+
+    @Test
+    public void roundTrip_keepsContentIdsAndNulls() {
+        List<Item> items = Arrays.asList(
+                new Item("Comprar pan", ""),
+                new Item("Café ☕ y más", "/fotos/a.jpg"),
+                new Item(null, null),
+                new Item("", "sin_directorio.jpg"),
+                new Item("Última", "/otras/b.jpg"));
+        CompactTaskList list = CompactTaskList.of(items);
+
+        assertEquals(items, list);
+        assertEquals(items, new ArrayList<>(list));
+        assertNull(list.get(2).getTask());
+        assertNull(list.get(2).getImagePath());
+        assertEquals(items.get(1).getId(), list.getId(1));
+        assertFalse(list.hasImage(0));
+        assertTrue(list.hasImage(3));
+        assertSame(list, CompactTaskList.of(list));
+    }
+
+    @Test
+    public void photoDirectories_areStoredOnce() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(new Item("Tarea " + i, i % 2 == 0 ? "/data/user/0/app/files/Pictures/IMG_" + i + ".jpg" : ""));
+        }
+        CompactTaskList list = CompactTaskList.of(items);
+
+        assertEquals(items, list);
+        assertTrue(list.getStats().contains("fotos=500 directorios=1"));
+        // Un ArrayList necesita al menos el Item y sus cadenas: más de 100 bytes por tarea
+        assertTrue(list.getFootprintBytes() < 40L * items.size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.milistadetareas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del recolector de fotos sin tarea.
+ */
+public class ImageCollectorTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final int[] THUMBNAIL_SIZES = {360};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void orphans_areDeletedOnlyAfterGracePeriod() throws IOException {
+        File dir = folder.newFolder("Pictures");
+        long now = System.currentTimeMillis();
+        File live = createFile(dir, "JPEG_1.webp", 100, now - 2 * HOUR);
+        File liveThumbnail = createFile(dir, "JPEG_1_360.webp", 10, now - 2 * HOUR);
+        File orphan = createFile(dir, "JPEG_2.jpg", 200, now - 2 * HOUR);
+        List<Item> snapshot = Collections.singletonList(new Item("Con foto", live.getAbsolutePath()));
+        ImageCollector collector = new ImageCollector(dir, THUMBNAIL_SIZES, Long.MAX_VALUE, HOUR, 1, 0);
+
+        collector.sweep(snapshot, now);
+        assertTrue(orphan.exists()); // Recién descubierto como huérfano
+        File fresh = createFile(dir, "JPEG_3.jpg", 300, now + HOUR / 2); // Captura entre barridos
+
+        collector.sweep(snapshot, now + HOUR);
+        assertFalse(orphan.exists());
+        assertTrue(fresh.exists());
+        assertTrue(live.exists());
+        assertTrue(liveThumbnail.exists());
+        assertEquals(200, collector.getBytesReclaimed());
+    }
+
+    @Test
+    public void quota_deletesOldThumbnailsButNeverFilesWithinGracePeriod() throws IOException {
+        File dir = folder.newFolder("Pictures");
+        long now = System.currentTimeMillis();
+        File live = createFile(dir, "JPEG_1.webp", 100, now - 3 * HOUR);
+        File liveThumbnail = createFile(dir, "JPEG_1_360.webp", 50, now - 3 * HOUR);
+        File fresh = createFile(dir, "JPEG_2.webp", 100, now);
+        File freshThumbnail = createFile(dir, "JPEG_2_360.webp", 50, now);
+        File orphan = createFile(dir, "JPEG_3.jpg", 50, now); // Foto que escribe la cámara
+        List<Item> snapshot = Arrays.asList(new Item("Con foto", live.getAbsolutePath()),
+                new Item("Foto nueva", fresh.getAbsolutePath()), new Item("Sin foto", ""));
+        ImageCollector collector = new ImageCollector(dir, THUMBNAIL_SIZES, 120, HOUR, 1, 0);
+
+        collector.sweep(snapshot, now);
+
+        assertFalse(liveThumbnail.exists());
+        assertTrue(orphan.exists());
+        assertTrue(freshThumbnail.exists());
+        assertTrue(live.exists());
+        assertTrue(fresh.exists());
+        assertEquals(1, collector.getFilesDeleted());
+        assertTrue(collector.getStats().contains("bytesEnDirectorio=300"));
+    }
+
+    @Test
+    public void unreadableList_cancelsTheSweep() throws IOException {
+        File dir = folder.newFolder("Pictures");
+        long now = System.currentTimeMillis();
+        File photo = createFile(dir, "JPEG_1.jpg", 100, now - 2 * HOUR);
+        List<Item> unreadable = new AbstractList<Item>() {
+            @Override
+            public Item get(int index) {
+                throw new IllegalStateException("No se pudo leer la página 0"); // Como un archivo cerrado
+            }
+
+            @Override
+            public int size() {
+                return 1;
+            }
+        };
+        ImageCollector collector = new ImageCollector(dir, THUMBNAIL_SIZES, Long.MAX_VALUE, HOUR, 1, 0);
+
+        collector.sweep(Collections.<Item>emptyList(), now);
+        collector.sweepAll(Arrays.asList(Collections.<Item>emptyList(), unreadable), now + HOUR);
+
+        assertTrue(photo.exists()); // Podía ser la foto de la lista que no se leyó
+        assertEquals(0, collector.getFilesDeleted());
+    }
+
+    private static File createFile(File dir, String name, int size, long lastModified) throws IOException {
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[size]);
+        }
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.milistadetareas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del almacenamiento basado en diario.
+ */
+public class JournalTaskStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mutations_surviveReopen() throws Exception {
+        File dir = folder.newFolder("tasks");
+        JournalTaskStore store = new JournalTaskStore(dir);
+        List<Item> items = store.load();
+        assertTrue(items.isEmpty());
+
+        items.add(new Item("Comprar pan", ""));
+        store.add(0, items.get(0));
+        items.add(new Item("Lavar ropa", "/fotos/a.jpg"));
+        store.add(1, items.get(1));
+        items.set(0, items.get(0).withTask("Comprar leche"));
+        store.update(0, items.get(0));
+        long id = items.get(0).getId();
+        items.remove(1);
+        store.remove(1);
+        store.close();
+
+        List<Item> reloaded = new JournalTaskStore(dir).load();
+        assertEquals(1, reloaded.size());
+        assertEquals("Comprar leche", reloaded.get(0).getTask());
+        assertEquals("", reloaded.get(0).getImagePath());
+        assertEquals(id, reloaded.get(0).getId());
+    }
+
+    @Test
+    public void tornWrite_isDiscardedOnRecovery() throws Exception {
+        File dir = folder.newFolder("tasks");
+        JournalTaskStore store = new JournalTaskStore(dir);
+        List<Item> items = store.load();
+        items.add(new Item("Tarea", ""));
+        store.add(0, items.get(0));
+        store.close();
+
+        // Simular un registro escrito a medias
+        byte[] record = JournalTaskStore.encodeRecord(JournalTaskStore.OP_ADD, 1, new Item("Perdida", ""));
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "tasks.journal.0"), true)) {
+            out.write(record, 0, record.length - 3);
+        }
+
+        JournalTaskStore recovered = new JournalTaskStore(dir);
+        List<Item> reloaded = recovered.load();
+        assertEquals(1, reloaded.size());
+
+        // El diario truncado admite nuevos registros
+        reloaded.add(new Item("Nueva", ""));
+        recovered.add(1, reloaded.get(1));
+        recovered.close();
+        assertEquals(2, new JournalTaskStore(dir).load().size());
+    }
+
+    @Test
+    public void damagedJournal_stopsReplayBeforeLaterGenerations() throws Exception {
+        File dir = folder.newFolder("tasks");
+        Item first = new Item("Primera", "");
+        Item second = new Item("Segunda", "");
+        byte[] damaged = JournalTaskStore.encodeRecord(JournalTaskStore.OP_ADD, 2, new Item("Dañada", ""));
+        damaged[damaged.length - 1] ^= 1;
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "tasks.journal.0"))) {
+            out.write(JournalTaskStore.encodeRecord(JournalTaskStore.OP_ADD, 0, first));
+            out.write(JournalTaskStore.encodeRecord(JournalTaskStore.OP_ADD, 1, second));
+            out.write(damaged);
+        }
+        // Registros de la generación siguiente, escritos sobre la lista con la tarea dañada
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "tasks.journal.1"))) {
+            out.write(JournalTaskStore.encodeRecord(JournalTaskStore.OP_REMOVE, 1, null));
+            out.write(JournalTaskStore.encodeRecord(JournalTaskStore.OP_UPDATE, 1, second.withTask("Cambiada")));
+        }
+
+        JournalTaskStore recovered = new JournalTaskStore(dir);
+        List<Item> reloaded = recovered.load();
+        assertEquals(2, reloaded.size());
+        assertEquals(first, reloaded.get(0));
+        assertEquals(second, reloaded.get(1));
+        assertFalse(new File(dir, "tasks.journal.1").exists());
+        assertTrue(new File(dir, "tasks.unapplied.1").exists()); // Apartado, no borrado
+
+        reloaded.add(new Item("Nueva", ""));
+        recovered.add(2, reloaded.get(2));
+        recovered.close();
+        assertEquals(reloaded, new JournalTaskStore(dir).load());
+    }
+
+    @Test
+    public void compaction_writesSnapshotAndDropsOldJournals() throws Exception {
+        File dir = folder.newFolder("tasks");
+        JournalTaskStore store = new JournalTaskStore(dir, 10);
+        List<Item> items = store.load();
+        for (int i = 0; i < 25; i++) {
+            items.add(new Item("Tarea " + i, ""));
+            store.add(i, items.get(i));
+        }
+        store.close();
+
+        assertTrue(new File(dir, "tasks.snapshot").exists());
+        assertFalse(new File(dir, "tasks.journal.0").exists());
+
+        List<Item> reloaded = new JournalTaskStore(dir, 10).load();
+        assertEquals(25, reloaded.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(items.get(i), reloaded.get(i));
+        }
+    }
+
+    @Test
+    public void replaceAll_replacesStoredList() throws Exception {
+        File dir = folder.newFolder("tasks");
+        JournalTaskStore store = new JournalTaskStore(dir);
+        store.load();
+        List<Item> legacy = new ArrayList<>();
+        legacy.add(new Item("Migrada", "/fotos/b.jpg"));
+        store.replaceAll(legacy);
+        store.close();
+
+        List<Item> reloaded = new JournalTaskStore(dir).load();
+        assertEquals(1, reloaded.size());
+        assertEquals("/fotos/b.jpg", reloaded.get(0).getImagePath());
+    }
+
+    @Test
+    public void burstOfMutations_isWrittenInOneCommit() throws Exception {
+        File dir = folder.newFolder("tasks");
+        JournalTaskStore store = new JournalTaskStore(dir, JournalTaskStore.DEFAULT_COMPACTION_THRESHOLD, 60_000);
+        List<Item> items = store.load();
+        for (int i = 0; i < 50; i++) {
+            items.add(new Item("Tarea " + i, ""));
+            store.add(i, items.get(i));
+        }
+        assertEquals(50, store.getQueueDepth());
+
+        store.flush();
+        assertEquals(0, store.getQueueDepth());
+        assertEquals(50.0, store.getCoalescingRatio(), 0.0);
+        store.close();
+
+        assertEquals(items, new JournalTaskStore(dir).load());
+    }
+
+    @Test
+    public void batch_isReplayedAsOneRecord() throws Exception {
+        File dir = folder.newFolder("tasks");
+        JournalTaskStore store = new JournalTaskStore(dir);
+        List<Item> items = store.load();
+        for (int i = 0; i < 5; i++) {
+            items.add(new Item("Tarea " + i, ""));
+            store.add(i, items.get(i));
+        }
+        TaskBatch batch = new TaskBatch.Builder(items)
+                .remove(items.get(1).getId())
+                .remove(items.get(3).getId())
+                .update(items.get(4).withTask("Hecha"))
+                .append(new Item("Importada", "/fotos/c.jpg"))
+                .build();
+        store.applyBatch(batch);
+        store.close();
+
+        File journal = new File(dir, "tasks.journal.0");
+        long lengthBefore = journal.length();
+        assertEquals(batch.getItems(), new JournalTaskStore(dir).load());
+
+        // Un lote incompleto se descarta entero
+        byte[] record = JournalTaskStore.encodeBatchRecord(new TaskBatch.Builder(batch.getItems())
+                .remove(batch.getItems().get(0).getId()).append(new Item("Perdida", "")).build());
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write(record, 0, record.length - 1);
+        }
+        assertEquals(batch.getItems(), new JournalTaskStore(dir).load());
+        assertEquals(lengthBefore, journal.length());
+    }
+
+    @Test
+    public void metadata_survivesReopenAndRecordsWithoutItAreStillRead() throws Exception {
+        File dir = folder.newFolder("tasks");
+        JournalTaskStore store = new JournalTaskStore(dir);
+        List<Item> items = store.load();
+        items.add(new Item("Urgente", "").withPriority(Item.PRIORITY_HIGH));
+        store.add(0, items.get(0));
+        TaskBatch batch = new TaskBatch.Builder(items)
+                .update(items.get(0).withDone(true).withUpdated(items.get(0).getCreated() + 5_000))
+                .build();
+        store.applyBatch(batch);
+        store.close();
+
+        // Registros de una versión anterior, sin metadatos
+        Item legacy = new Item(7, "Anterior", "");
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "tasks.journal.0"), true)) {
+            out.write(JournalTaskStore.encodeRecord(JournalTaskStore.OP_ADD_WITHOUT_METADATA, 1, legacy));
+            out.write(JournalTaskStore.encodeRecord(JournalTaskStore.OP_UPDATE_WITHOUT_METADATA, 1,
+                    legacy.withTask("Anterior cambiada")));
+        }
+
+        List<Item> reloaded = new JournalTaskStore(dir).load();
+        assertEquals(2, reloaded.size());
+        assertEquals(batch.getItems().get(0), reloaded.get(0));
+        assertTrue(reloaded.get(0).isDone());
+        assertEquals(Item.PRIORITY_HIGH, reloaded.get(0).getPriority());
+        assertEquals(new Item(7, "Anterior cambiada", ""), reloaded.get(1));
+        assertEquals(0, reloaded.get(1).getCreated());
+    }
+
+    @Test
+    public void largeList_isOpenedPagedAndReopenedAfterCompaction() throws Exception {
+        File dir = folder.newFolder("tasks");
+        JournalTaskStore store = new JournalTaskStore(dir, 1000, 0);
+        store.setPaging(100, 4, null);
+        List<Item> items = store.load();
+        for (int i = 0; i < 300; i++) {
+            items.add(new Item("Tarea " + i, ""));
+        }
+        store.replaceAll(items);
+        Item added = new Item("Después de la instantánea", "");
+        items.add(0, added);
+        store.add(0, added);
+        store.close();
+
+        JournalTaskStore reopened = new JournalTaskStore(dir, 1000, 0);
+        final List<PagedTaskList> snapshots = new ArrayList<>();
+        reopened.setPaging(100, 4, (written, paged) -> snapshots.add(paged));
+        List<Item> paged = reopened.loadPaged();
+        assertTrue(paged instanceof PagedTaskList);
+        assertEquals(items, paged);
+        assertEquals(2, ((PagedTaskList) paged).getPieceCount()); // Archivo más el registro del diario
+
+        reopened.replaceAll(paged);
+        reopened.flush();
+        assertEquals(1, snapshots.size());
+        assertEquals(items, snapshots.get(0));
+        assertEquals(1, snapshots.get(0).getPieceCount());
+        reopened.close();
+
+        // Por debajo del mínimo se carga completa
+        JournalTaskStore small = new JournalTaskStore(dir, 1000, 0);
+        small.setPaging(1000, 4, null);
+        assertNull(small.loadPaged());
+        assertEquals(items, small.load());
+        small.close();
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.milistadetareas;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Servidor de sincronización en memoria, en el mismo proceso, que implementa {@link SyncTransport}
+ * sin red para las pruebas de la sincronización; sirve además como referencia de lo que debe hacer
+ * un servidor remoto.
+ * <p>
+ * Cada lista guarda el último cambio aceptado de cada tarea, con el cliente que lo envió, y un
+ * registro ordenado por versión en el que cada tarea aparece solo en su última versión: una
+ * consulta desde una versión devuelve el estado final de lo que cambió después, sin los pasos
+ * intermedios. Las eliminaciones se conservan para los clientes que aún no las han recibido. Las
+ * fotos se guardan por su SHA-256, y las subidas a medias se conservan para continuarlas.
+ * <p>
+ * Todos los métodos son sincronizados.
+ */
+public class LocalSyncServer implements SyncTransport {
+    private final Map<String, ListLog> lists = new HashMap<>();
+    private final Map<String, byte[]> images = new HashMap<>();
+    private final Map<String, ByteArrayOutputStream> partialImages = new HashMap<>();
+
+    // Estadísticas
+    private long pulls;
+    private long pushes;
+    private long accepted;
+    private long rejected;
+    private long bytesIn;
+    private long bytesOut;
+
+    @Override
+    public synchronized PullResult pull(String list, String clientId, long since, int limit) throws IOException {
+        pulls++;
+        ListLog log = lists.get(list);
+        List<TaskSync.Change> page = new ArrayList<>();
+        long version = since;
+        boolean more = false;
+        if (log != null) {
+            for (Map.Entry<Long, Long> entry : log.versions.tailMap(since, false).entrySet()) {
+                if (page.size() == limit) {
+                    more = true;
+                    break;
+                }
+                version = entry.getKey();
+                Entry current = log.entries.get(entry.getValue());
+                if (!current.origin.equals(clientId)) {
+                    page.add(current.change); // Los cambios propios ya los tiene el cliente
+                }
+            }
+        }
+        byte[] changes = TaskSync.encodeChanges(page);
+        bytesOut += changes.length;
+        return new PullResult(changes, version, more);
+    }
+
+    @Override
+    public synchronized byte[] push(String list, String clientId, byte[] changes) throws IOException {
+        pushes++;
+        bytesIn += changes.length;
+        ListLog log = lists.get(list);
+        if (log == null) {
+            log = new ListLog();
+            lists.put(list, log);
+        }
+        int count = 0;
+        List<TaskSync.Change> winners = new ArrayList<>();
+        for (TaskSync.Change change : TaskSync.decodeChanges(changes)) {
+            Entry current = log.entries.get(change.id);
+            boolean wins = current != null ? change.winsOver(current.change) : change.item != null;
+            if (!wins) {
+                rejected++;
+                if (current != null && current.change.winsOver(change)) {
+                    winners.add(current.change); // Pierde el conflicto; si ya estaba, no hace falta
+                }
+                continue;
+            }
+            if (current != null) {
+                log.versions.remove(current.change.version);
+            }
+            long version = ++log.version;
+            log.entries.put(change.id, new Entry(change.withVersion(version), clientId));
+            log.versions.put(version, change.id);
+            count++;
+        }
+        accepted += count;
+        byte[] result = TaskSync.encodeChanges(winners);
+        bytesOut += result.length;
+        return result;
+    }
+
+    @Override
+    public synchronized long getImageOffset(String hash) {
+        byte[] image = images.get(hash);
+        if (image != null) {
+            return image.length;
+        }
+        ByteArrayOutputStream partial = partialImages.get(hash);
+        return partial != null ? partial.size() : 0;
+    }
+
+    @Override
+    public synchronized void uploadImage(String hash, long offset, byte[] data, int length, boolean last)
+            throws IOException {
+        if (!TaskSync.isHash(hash)) {
+            throw new IOException("Hash de foto inválido: " + hash);
+        }
+        if (images.containsKey(hash)) {
+            return; // Ya subida por otro cliente
+        }
+        ByteArrayOutputStream partial = partialImages.get(hash);
+        if (partial == null) {
+            partial = new ByteArrayOutputStream();
+            partialImages.put(hash, partial);
+        }
+        if (offset != partial.size()) {
+            throw new IOException("Posición de subida inesperada: " + offset + " en vez de " + partial.size());
+        }
+        partial.write(data, 0, length);
+        bytesIn += length;
+        if (last) {
+            partialImages.remove(hash);
+            byte[] image = partial.toByteArray();
+            if (!hash.equals(TaskSync.sha256(new ByteArrayInputStream(image)))) {
+                throw new IOException("La foto subida no coincide con su hash: " + hash);
+            }
+            images.put(hash, image);
+        }
+    }
+
+    @Override
+    public synchronized byte[] downloadImage(String hash, long offset, int maxLength) throws IOException {
+        byte[] image = images.get(hash);
+        if (image == null) {
+            throw new IOException("Foto inexistente: " + hash);
+        }
+        int from = (int) Math.min(offset, image.length);
+        int to = (int) Math.min((long) from + maxLength, image.length);
+        bytesOut += to - from;
+        return Arrays.copyOfRange(image, from, to);
+    }
+
+    /**
+     * Método para obtener las tareas de una lista tal como están en el servidor.
+     *
+     * @param list Identificador de la lista
+     * @return Tareas no eliminadas, por versión
+     */
+    public synchronized List<Item> getItems(String list) {
+        List<Item> items = new ArrayList<>();
+        ListLog log = lists.get(list);
+        if (log != null) {
+            for (Long id : log.versions.values()) {
+                TaskSync.Change change = log.entries.get(id).change;
+                if (change.item != null) {
+                    items.add(change.item);
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Método para obtener un resumen del servidor.
+     *
+     * @return Texto con las consultas, los cambios y los bytes recibidos y enviados
+     */
+    public synchronized String getStats() {
+        long imageBytes = 0;
+        for (byte[] image : images.values()) {
+            imageBytes += image.length;
+        }
+        return "consultas=" + pulls
+                + " envios=" + pushes
+                + " aceptados=" + accepted
+                + " descartados=" + rejected
+                + " fotos=" + images.size()
+                + " bytes_fotos=" + imageBytes
+                + " bytes_recibidos=" + bytesIn
+                + " bytes_enviados=" + bytesOut;
+    }
+
+    /**
+     * Registro de cambios de una lista.
+     */
+    private static final class ListLog {
+        final Map<Long, Entry> entries = new HashMap<>();           // Último cambio de cada tarea
+        final TreeMap<Long, Long> versions = new TreeMap<>();      // Versión -> tarea
+        long version;                                               // Última versión asignada
+    }
+
+    /**
+     * Último cambio aceptado de una tarea y cliente que lo envió.
+     */
+    private static final class Entry {
+        final TaskSync.Change change;
+        final String origin;
+
+        Entry(TaskSync.Change change, String origin) {
+            this.change = change;
+            this.origin = origin;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.milistadetareas;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del registro de métricas.
+ */
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+        Metrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void percentiles_areWithinBucketError() {
+        for (int i = 1; i <= 1000; i++) {
+            Metrics.BIND_VIEW_HOLDER.record(i * 10_000L); // 10 µs .. 10 ms
+        }
+
+        assertEquals(1000, Metrics.BIND_VIEW_HOLDER.getCount());
+        assertEquals(10_000_000L, Metrics.BIND_VIEW_HOLDER.getMaxNanos());
+        assertEquals(5_000_000L, Metrics.BIND_VIEW_HOLDER.getPercentileNanos(0.50), 5_000_000L * 0.07);
+        assertEquals(9_900_000L, Metrics.BIND_VIEW_HOLDER.getPercentileNanos(0.99), 9_900_000L * 0.07);
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        Metrics.setEnabled(false);
+
+        assertEquals(0, Metrics.SAVE.start());
+        Metrics.SAVE.stop(0);
+        Metrics.SAVE.record(1_000_000L);
+        Metrics.SCROLL_JANK.increment();
+
+        assertEquals(0, Metrics.SAVE.getCount());
+        assertEquals(0, Metrics.SCROLL_JANK.get());
+    }
+
+    @Test
+    public void snapshot_isOneJsonObject() throws Exception {
+        Metrics.LOAD_TOTAL.recordMillis(120);
+        Metrics.SCROLL_FRAMES.add(3);
+
+        StringWriter out = new StringWriter();
+        Metrics.writeSnapshot(out, 42L);
+
+        assertFalse(out.toString().contains("\n"));
+        JsonObject json = JsonParser.parseString(out.toString()).getAsJsonObject();
+        assertEquals(42L, json.get("time").getAsLong());
+        assertEquals(1, json.getAsJsonObject("load.total").get("count").getAsInt());
+        assertEquals(120.0, json.getAsJsonObject("load.total").get("maxMs").getAsDouble(), 0.001);
+        assertEquals(3, json.get("scroll.frames").getAsLong());
+        assertFalse(json.has("save.commit")); // Los histogramas vacíos se omiten
+    }
+
+    @Test
+    public void appendInterval_writesEachIntervalOnceAndRotatesTheFile() throws Exception {
+        File file = new File(folder.getRoot(), "metrics.jsonl");
+        Metrics.LOAD_TOTAL.recordMillis(100);
+        Metrics.appendInterval(file, 1024);
+        Metrics.LOAD_TOTAL.recordMillis(200);
+        Metrics.appendInterval(file, 1024);
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        JsonObject second = JsonParser.parseString(lines.get(1)).getAsJsonObject();
+        assertEquals(1, second.getAsJsonObject("load.total").get("count").getAsInt()); // Solo su intervalo
+        assertEquals(200.0, second.getAsJsonObject("load.total").get("maxMs").getAsDouble(), 0.001);
+        assertEquals(0, Metrics.LOAD_TOTAL.getCount());
+
+        while (file.length() <= 1024) {
+            Metrics.appendInterval(file, 1024);
+        }
+        Metrics.appendInterval(file, 1024);
+        assertEquals(1, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+        assertTrue(new File(folder.getRoot(), "metrics.jsonl.1").length() > 1024);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.milistadetareas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del archivo de páginas y de la lista paginada.
+ */
+public class PagedTaskListTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writePages(List<Item> items, int pageSize) throws Exception {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3}); // Cabecera ajena: los desplazamientos son absolutos
+            TaskPageFile.Writer writer = new TaskPageFile.Writer(out, 3, pageSize);
+            for (Item item : items) {
+                writer.add(item);
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    private static List<Item> tasks(int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new Item("Tarea " + i, i % 3 == 0 ? "/fotos/" + i + ".jpg" : ""));
+        }
+        return items;
+    }
+
+    @Test
+    public void pages_areReadOnDemandWithinCacheBound() throws Exception {
+        List<Item> items = tasks(1000);
+        TaskPageFile file = TaskPageFile.open(writePages(items, 16));
+        assertEquals(1000, file.getItemCount());
+        assertEquals(63, file.getPageCount());
+
+        PagedTaskList list = new PagedTaskList(file, 4);
+        assertEquals(1000, list.size());
+        assertNull(list.peek(500)); // Nada materializado al abrir
+        assertEquals(items.get(500), list.get(500));
+        assertEquals(items.get(501), list.peek(501)); // Misma página, ya en memoria
+        for (int i = 0; i < 1000; i += 16) {
+            list.get(i);
+        }
+        assertTrue(list.getStats().contains("paginasEnMemoria=4"));
+        assertEquals(items, new ArrayList<>(list)); // La iteración lee todas las páginas en orden
+        file.close();
+    }
+
+    @Test
+    public void mutations_createVersionsWithoutChangingTheFile() throws Exception {
+        List<Item> items = tasks(100);
+        PagedTaskList base = new PagedTaskList(TaskPageFile.open(writePages(items, 8)), 4);
+
+        Item added = new Item("Nueva", "");
+        Item edited = items.get(10).withTask("Editada");
+        PagedTaskList next = base.inserted(50, Arrays.asList(added))
+                .replaced(10, edited)
+                .removed(0)
+                .removed(98);
+
+        List<Item> expected = new ArrayList<>(items);
+        expected.add(50, added);
+        expected.set(10, edited);
+        expected.remove(0);
+        expected.remove(98);
+        assertEquals(expected, next);
+        assertEquals(items, base);
+        assertTrue(next.getPieceCount() <= 6);
+
+        // Las ediciones en tramos de memoria también se pueden volver a editar
+        assertEquals("Otra", next.replaced(49, added.withTask("Otra")).get(49).getTask());
+    }
+
+    @Test
+    public void commonRuns_compareVersionsByPieceWithoutReadingPages() throws Exception {
+        List<Item> items = tasks(1000);
+        PagedTaskList base = new PagedTaskList(TaskPageFile.open(writePages(items, 10)), 4);
+        PagedTaskList next = base.removed(600).inserted(300, Arrays.asList(new Item("Nueva", "")));
+
+        int prefix = PagedTaskList.commonPrefix(base, next);
+        assertEquals(300, prefix);
+        assertEquals(399, PagedTaskList.commonSuffix(base, next, base.size() - prefix));
+        assertTrue(base.getStats().contains("lecturas=0"));
+
+        assertEquals(base, TaskBatch.diff(next, base).getItems());
+        assertEquals(2, TaskBatch.diff(next, base).size());
+    }
+
+    @Test
+    public void prefetch_loadsPagesInBackground() throws Exception {
+        List<Item> items = tasks(200);
+        PagedTaskList list = new PagedTaskList(TaskPageFile.open(writePages(items, 10)), 8);
+        final CountDownLatch loaded = new CountDownLatch(4);
+
+        list.prefetch(95, 125, Runnable::run, loaded::countDown);
+
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        assertEquals(items.get(95), list.peek(95));
+        assertEquals(items.get(124), list.peek(124));
+        assertNull(list.peek(130));
+    }
+
+    @Test
+    public void pageFile_closesWhenNoRetainedVersionUsesIt() throws Exception {
+        List<Item> items = tasks(100);
+        PagedTaskList base = new PagedTaskList(TaskPageFile.open(writePages(items, 10)), 2);
+        PagedTaskList shown = base.replaced(0, items.get(0).withTask("Editada"));
+        PagedTaskList.retain(base); // En el historial
+        PagedTaskList.retain(shown); // Mostrada
+
+        PagedTaskList.release(base);
+        awaitPageThread();
+        assertEquals(items.get(55), shown.get(55)); // La mostrada sigue usando el archivo
+        PagedTaskList.release(shown);
+        awaitPageThread();
+
+        assertTrue(shown.getStats().contains("referencias=0"));
+        try {
+            shown.get(95);
+            fail("Archivo de páginas abierto");
+        } catch (IllegalStateException expected) {
+            // Página no leída antes del cierre
+        }
+    }
+
+    /**
+     * Método para esperar a que el hilo de las páginas termine lo que tiene pendiente, incluido
+     * el cierre de archivos sin versiones anotadas.
+     */
+    private void awaitPageThread() throws Exception {
+        PagedTaskList other = new PagedTaskList(TaskPageFile.open(writePages(tasks(1), 10)), 1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        other.prefetch(0, 1, Runnable::run, loaded::countDown);
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        PagedTaskList.closeIfUnused(other);
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void damagedPage_isDetected() throws Exception {
+        File path = writePages(tasks(40), 10);
+        TaskPageFile file = TaskPageFile.open(path);
+        try (RandomAccessFile raw = new RandomAccessFile(path, "rw")) {
+            raw.seek(10);
+            raw.write(raw.read() ^ 0xFF);
+        }
+        file.readPage(0);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.milistadetareas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de la exportación e importación de tareas con fotos.
+ */
+public class TaskArchiveTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void export_thenImport_restoresTasksAndPhotos() throws IOException {
+        File source = folder.newFolder("source");
+        File first = createPhoto(new File(source, "a"), "JPEG_1.jpg", 3 * 1024 * 1024, 1);
+        File second = createPhoto(new File(source, "b"), "JPEG_1.jpg", 1000, 2); // Mismo nombre
+        List<Item> items = Arrays.asList(
+                new Item("Uno", first.getAbsolutePath()),
+                new Item("Dos", ""),
+                new Item("Tres", second.getAbsolutePath()),
+                new Item("Cuatro", first.getAbsolutePath()),
+                new Item("Cinco", new File(source, "borrada.jpg").getAbsolutePath()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long[] exported = new long[2];
+
+        int photos = new TaskArchive((done, total) -> {
+            exported[0] = done;
+            exported[1] = total;
+        }).export(items, out);
+
+        assertEquals(2, photos);
+        assertEquals(first.length() + second.length(), exported[0]);
+        assertEquals(exported[0], exported[1]);
+
+        File target = folder.newFolder("target");
+        byte[] archive = out.toByteArray();
+        long[] imported = new long[1];
+        List<Item> restored = new TaskArchive((done, total) -> imported[0] = done)
+                .importArchive(new ByteArrayInputStream(archive), archive.length, target);
+
+        assertEquals(archive.length, imported[0]);
+        assertEquals(items.size(), restored.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(items.get(i).getTask(), restored.get(i).getTask());
+            assertNotEquals(items.get(i).getId(), restored.get(i).getId());
+        }
+        assertEquals("", restored.get(1).getImagePath());
+        assertEquals("", restored.get(4).getImagePath());
+        assertEquals(restored.get(0).getImagePath(), restored.get(3).getImagePath());
+        assertNotEquals(restored.get(0).getImagePath(), restored.get(2).getImagePath());
+        assertArrayEquals(Files.readAllBytes(first.toPath()),
+                Files.readAllBytes(new File(restored.get(0).getImagePath()).toPath()));
+        assertArrayEquals(Files.readAllBytes(second.toPath()),
+                Files.readAllBytes(new File(restored.get(2).getImagePath()).toPath()));
+        assertEquals(target, new File(restored.get(2).getImagePath()).getParentFile());
+    }
+
+    @Test
+    public void cancelledImport_deletesExtractedPhotos() throws IOException {
+        File source = folder.newFolder("source");
+        File photo = createPhoto(source, "JPEG_1.jpg", 3 * 1024 * 1024, 3);
+        List<Item> items = Arrays.asList(new Item("Uno", photo.getAbsolutePath()), new Item("Dos", ""));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TaskArchive(null).export(items, out);
+
+        File target = folder.newFolder("target");
+        TaskArchive[] archive = new TaskArchive[1];
+        archive[0] = new TaskArchive((done, total) -> {
+            if (done > 1024 * 1024) {
+                archive[0].cancel();
+            }
+        });
+        try {
+            archive[0].importArchive(new ByteArrayInputStream(out.toByteArray()), -1, target);
+            fail("La importación debía cancelarse");
+        } catch (CancellationException expected) {
+            // Esperado
+        }
+        String[] left = target.list();
+        assertNotNull(left);
+        assertEquals(0, left.length);
+    }
+
+    @Test(expected = IOException.class)
+    public void import_rejectsEntriesOutsideThePhotosDirectory() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry(TaskArchive.PHOTOS_DIR + "../evil.jpg"));
+            zip.write(new byte[]{1, 2, 3});
+            zip.closeEntry();
+        }
+        new TaskArchive(null).importArchive(new ByteArrayInputStream(out.toByteArray()), -1,
+                folder.newFolder("target"));
+    }
+
+    /**
+     * Método para crear una foto de bytes aleatorios, usado también por otras pruebas.
+     */
+    static File createPhoto(File dir, String name, int size, long seed) throws IOException {
+        assertTrue(dir.isDirectory() || dir.mkdirs());
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de los lotes de cambios sobre la lista de tareas.
+ */
+public class TaskBatchTest {
+
+    @Test
+    public void build_appliesRemovesUpdatesAndAppends() {
+        Item a = new Item("A", "");
+        Item b = new Item("B", "/fotos/b.jpg");
+        Item c = new Item("C", "");
+        Item d = new Item("D", "");
+        Item e = new Item("E", "");
+
+        TaskBatch batch = new TaskBatch.Builder(Arrays.asList(a, b, c))
+                .remove(a.getId())
+                .update(b.withImagePath(""))
+                .remove(c.getId())
+                .remove(12345) // No está en la lista
+                .appendAll(Arrays.asList(d, e))
+                .build();
+
+        assertEquals(Arrays.asList(b.withImagePath(""), d, e), batch.getItems());
+        assertEquals(Arrays.asList(a, c), batch.getRemoved());
+        assertEquals(5, batch.size());
+        assertFalse(batch.isAppendOnly());
+    }
+
+    @Test
+    public void replay_reproducesResultFromOriginalList() {
+        List<Item> original = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            original.add(new Item("Tarea " + i, ""));
+        }
+        TaskBatch.Builder builder = new TaskBatch.Builder(original);
+        for (int i = 0; i < 20; i += 3) {
+            builder.remove(original.get(i).getId());
+        }
+        builder.update(original.get(4).withTask("Cambiada"));
+        builder.append(new Item("Nueva", ""));
+        TaskBatch batch = builder.build();
+
+        final List<Item> replayed = new ArrayList<>(original);
+        batch.replay(new TaskStore.LoadListener() {
+            @Override
+            public void onItemInserted(int position, Item item) {
+                replayed.add(position, item);
+            }
+
+            @Override
+            public void onItemChanged(int position, Item item) {
+                replayed.set(position, item);
+            }
+
+            @Override
+            public void onItemRemoved(int position) {
+                replayed.remove(position);
+            }
+        });
+        assertEquals(batch.getItems(), replayed);
+    }
+
+    @Test
+    public void diff_betweenVectorVersions_replaysOnlyTheChanges() {
+        List<Item> original = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            original.add(new Item("Tarea " + i, ""));
+        }
+        TaskVector before = TaskVector.of(original);
+        TaskVector after = before.removed(4000)
+                .replaced(10, original.get(10).withTask("Cambiada"))
+                .inserted(2500, Arrays.asList(new Item("Nueva 1", ""), new Item("Nueva 2", "")));
+
+        TaskBatch undo = TaskBatch.diff(after, before);
+        assertEquals(4, undo.size());
+        assertEquals(before, replay(after, undo));
+        assertEquals(2, undo.getRemoved().size());
+
+        TaskBatch redo = TaskBatch.diff(before, after);
+        assertEquals(4, redo.size());
+        assertEquals(after, replay(before, redo));
+        assertEquals(0, TaskBatch.diff(after, after).size());
+    }
+
+    @Test
+    public void diff_alignsByIdentifierAcrossUnrelatedLists() {
+        Item a = new Item("A", "");
+        Item b = new Item("B", "");
+        Item c = new Item("C", "");
+        Item d = new Item("D", "");
+        Item e = new Item("E", "");
+        List<Item> from = Arrays.asList(a, b, c, d);
+        List<Item> to = Arrays.asList(a, e, c.withTask("C2"), b, d);
+
+        TaskBatch batch = TaskBatch.diff(from, to);
+
+        assertEquals(to, replay(from, batch));
+        assertEquals(to, batch.getItems());
+
+        TaskBatch append = TaskBatch.diff(from, Arrays.asList(a, b, c, d, e));
+        assertTrue(append.isAppendOnly());
+        assertEquals(4, append.getAppendPosition());
+    }
+
+    private static List<Item> replay(List<Item> original, TaskBatch batch) {
+        final List<Item> replayed = new ArrayList<>(original);
+        batch.replay(new TaskStore.LoadListener() {
+            @Override
+            public void onItemInserted(int position, Item item) {
+                replayed.add(position, item);
+            }
+
+            @Override
+            public void onItemChanged(int position, Item item) {
+                replayed.set(position, item);
+            }
+
+            @Override
+            public void onItemRemoved(int position) {
+                replayed.remove(position);
+            }
+        });
+        return replayed;
+    }
+}
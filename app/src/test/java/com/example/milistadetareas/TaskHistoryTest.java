@@ -0,0 +1,58 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del historial para deshacer y rehacer.
+ */
+public class TaskHistoryTest {
+    private long now;
+
+    @Test
+    public void undoAndRedo_walkVersionsAndNewChangeClearsRedo() {
+        TaskHistory history = new TaskHistory(10, Long.MAX_VALUE / 2, () -> now);
+        List<Item> v0 = TaskVector.empty();
+        List<Item> v1 = TaskVector.of(Collections.singletonList(new Item("A", "")));
+        List<Item> v2 = TaskVector.of(v1).inserted(1, Collections.singletonList(new Item("B", "")));
+
+        history.record(v0);
+        history.record(v1);
+        assertSame(v1, history.undo(v2));
+        assertSame(v0, history.undo(v1));
+        assertNull(history.undo(v0));
+        assertSame(v1, history.redo(v0));
+        assertTrue(history.canRedo());
+
+        history.record(v1); // Nuevo cambio desde v1
+        assertFalse(history.canRedo());
+        assertNull(history.redo(v1));
+        assertTrue(history.canUndo());
+    }
+
+    @Test
+    public void entries_areBoundedByCountAndAge() {
+        TaskHistory history = new TaskHistory(2, 1000, () -> now);
+        List<Item> a = Arrays.asList(new Item("A", ""));
+        List<Item> b = Arrays.asList(new Item("B", ""));
+        List<Item> c = Arrays.asList(new Item("C", ""));
+
+        history.record(a);
+        now = 500;
+        history.record(b);
+        history.record(c); // Descarta a
+        now = 1200;        // b y c caducan a partir de 1500
+
+        assertSame(c, history.undo(c));
+        assertSame(b, history.undo(c));
+        assertNull(history.undo(b));
+
+        now = 3000;
+        assertFalse(history.canRedo()); // Los niveles para rehacer también caducan
+    }
+}
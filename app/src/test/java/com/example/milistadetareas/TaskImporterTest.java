@@ -0,0 +1,41 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de la importación de tareas desde texto y CSV.
+ */
+public class TaskImporterTest {
+
+    @Test
+    public void text_readsOneTaskPerNonEmptyLine() throws Exception {
+        List<Item> items = new TaskImporter(false).read(new StringReader("Comprar pan\r\n\n  Lavar, planchar  \n"));
+
+        assertEquals(2, items.size());
+        assertEquals("Comprar pan", items.get(0).getTask());
+        assertEquals("Lavar, planchar", items.get(1).getTask());
+    }
+
+    @Test
+    public void csv_handlesHeaderQuotesAndImagePath() throws Exception {
+        String csv = "tarea,imagen\n"
+                + "\"Comprar pan, leche\",/fotos/a.jpg\r\n"
+                + "\"Decir \"\"hola\"\"\nen dos líneas\"\n"
+                + ",/fotos/sin_tarea.jpg\n"
+                + "Última";
+
+        List<Item> items = new TaskImporter(true).read(new StringReader(csv));
+
+        assertEquals(3, items.size());
+        assertEquals("Comprar pan, leche", items.get(0).getTask());
+        assertEquals("/fotos/a.jpg", items.get(0).getImagePath());
+        assertEquals("Decir \"hola\"\nen dos líneas", items.get(1).getTask());
+        assertEquals("", items.get(1).getImagePath());
+        assertEquals("Última", items.get(2).getTask());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del índice ordenado de tareas.
+ */
+public class TaskIndexTest {
+
+    @Test
+    public void randomMutations_matchSortedAndFilteredCopies() {
+        Random random = new Random(11);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            items.add(randomItem(random, i));
+        }
+        TaskIndex index = TaskIndex.of(TaskIndex.Order.PRIORITY, items);
+        TaskIndex first = index;
+        List<Item> firstItems = new ArrayList<>(items);
+
+        for (int step = 0; step < 2000; step++) {
+            int op = random.nextInt(3);
+            if (op == 0 || items.isEmpty()) {
+                Item item = randomItem(random, 1000 + step);
+                items.add(item);
+                index = index.with(item);
+            } else if (op == 1) {
+                Item item = items.remove(random.nextInt(items.size()));
+                index = index.without(item);
+            } else {
+                int position = random.nextInt(items.size());
+                Item previous = items.get(position);
+                Item item = previous.withDone(random.nextBoolean()).withPriority(random.nextInt(3));
+                items.set(position, item);
+                index = index.without(previous).with(item);
+            }
+        }
+
+        for (TaskIndex.Filter filter : TaskIndex.Filter.values()) {
+            List<Item> expected = sortedAndFiltered(items, TaskIndex.Order.PRIORITY, filter);
+            assertEquals(expected, index.view(filter));
+            assertEquals(expected.size(), index.count(filter));
+            for (int i = 0; i < expected.size(); i += 7) {
+                assertEquals(i, index.rank(filter, expected.get(i)));
+            }
+        }
+        // La primera versión no cambia
+        assertEquals(sortedAndFiltered(firstItems, TaskIndex.Order.PRIORITY, TaskIndex.Filter.ALL),
+                first.view(TaskIndex.Filter.ALL));
+        assertTrue(index.height() <= 1.45 * Math.log(index.size() + 2) / Math.log(2));
+    }
+
+    @Test
+    public void manualOrder_filtersWithoutChangingPositions() {
+        Random random = new Random(3);
+        List<Item> items = new ArrayList<>();
+        TaskIndex index = TaskIndex.of(TaskIndex.Order.MANUAL, items);
+        for (int step = 0; step < 1000; step++) {
+            int op = random.nextInt(3);
+            if (op == 0 || items.isEmpty()) {
+                int position = random.nextInt(items.size() + 1);
+                Item item = randomItem(random, step);
+                items.add(position, item);
+                index = index.insertedAt(position, item);
+            } else if (op == 1) {
+                int position = random.nextInt(items.size());
+                items.remove(position);
+                index = index.removedAt(position);
+            } else {
+                int position = random.nextInt(items.size());
+                Item item = items.get(position).withDone(!items.get(position).isDone());
+                items.set(position, item);
+                index = index.replacedAt(position, item);
+            }
+        }
+
+        assertEquals(items, index.view(TaskIndex.Filter.ALL));
+        List<Item> pending = sortedAndFiltered(items, TaskIndex.Order.MANUAL, TaskIndex.Filter.PENDING);
+        assertEquals(pending, index.view(TaskIndex.Filter.PENDING));
+        int rank = 0;
+        for (int position = 0; position < items.size(); position++) {
+            assertEquals(rank, index.rankAt(TaskIndex.Filter.PENDING, position));
+            rank += items.get(position).isDone() ? 0 : 1;
+        }
+    }
+
+    @Test
+    public void orders_breakTiesByIdAndPutUnknownDatesLast() {
+        Item legacy = new Item(1, "Heredada", "");
+        Item older = new Item(2, "Antigua", "", 1000, 1000, false, Item.PRIORITY_NORMAL);
+        Item newer = new Item(3, "Reciente", "", 2000, 2000, false, Item.PRIORITY_NORMAL);
+        Item sameTime = new Item(4, "Misma hora", "", 2000, 2000, false, Item.PRIORITY_HIGH);
+        List<Item> items = new ArrayList<>();
+        Collections.addAll(items, legacy, older, newer, sameTime);
+
+        assertEquals(Arrays.asList(sameTime, newer, older, legacy),
+                TaskIndex.of(TaskIndex.Order.CREATED, items).view(TaskIndex.Filter.ALL));
+        assertEquals(Arrays.asList(sameTime, newer, older, legacy),
+                TaskIndex.of(TaskIndex.Order.PRIORITY, items).view(TaskIndex.Filter.ALL));
+    }
+
+    static Item randomItem(Random random, int n) {
+        return new Item(n + 1, "Tarea " + n, random.nextInt(3) == 0 ? "/fotos/" + n + ".jpg" : "",
+                random.nextInt(50), random.nextInt(50), random.nextBoolean(), random.nextInt(3));
+    }
+
+    static List<Item> sortedAndFiltered(List<Item> items, TaskIndex.Order order, TaskIndex.Filter filter) {
+        List<Item> result = new ArrayList<>();
+        for (Item item : items) {
+            if (filter.matches(item)) {
+                result.add(item);
+            }
+        }
+        if (order != TaskIndex.Order.MANUAL) {
+            Item[] array = result.toArray(new Item[0]);
+            Arrays.sort(array, (a, b) -> {
+                // Misma regla que el índice, escrita de nuevo para comprobarlo
+                int c;
+                switch (order) {
+                    case CREATED:
+                        c = Long.compare(b.getCreated(), a.getCreated());
+                        break;
+                    case UPDATED:
+                        c = Long.compare(b.getUpdated(), a.getUpdated());
+                        break;
+                    default:
+                        c = Integer.compare(b.getPriority(), a.getPriority());
+                        c = c != 0 ? c : Long.compare(b.getCreated(), a.getCreated());
+                }
+                return c != 0 ? c : Long.compare(b.getId(), a.getId());
+            });
+            result = Arrays.asList(array);
+        }
+        return result;
+    }
+}
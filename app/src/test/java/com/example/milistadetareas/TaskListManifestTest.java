@@ -0,0 +1,57 @@
+package com.example.milistadetareas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del índice de listas de tareas.
+ */
+public class TaskListManifestTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoad_keepListsCountsAndCurrent() throws Exception {
+        TaskListManifest manifest = new TaskListManifest("Mis tareas");
+        TaskListManifest.Entry work = manifest.add("Trabajo", 1000);
+        manifest.update(work.withCounts(42, 3, 2000));
+        manifest.setCurrent(work.getId());
+        File file = new File(folder.getRoot(), "task_lists.json");
+        TaskListManifest.write(file, manifest.toBytes());
+
+        TaskListManifest loaded = TaskListManifest.load(file, "Otro nombre");
+        assertEquals(2, loaded.getEntries().size());
+        assertEquals("Mis tareas", loaded.get(TaskListManifest.DEFAULT_ID).getName());
+        assertEquals(TaskListManifest.Entry.UNKNOWN, loaded.get(TaskListManifest.DEFAULT_ID).getCount());
+        TaskListManifest.Entry entry = loaded.getCurrent();
+        assertEquals("Trabajo", entry.getName());
+        assertEquals(42, entry.getCount());
+        assertEquals(3, entry.getPhotos());
+        assertEquals(2000, entry.getModified());
+        // Los directorios nuevos no repiten los de listas existentes
+        assertNotEquals(work.getId(), loaded.add("Casa", 3000).getId());
+    }
+
+    @Test
+    public void missingOrDamagedManifest_fallsBackToDefaultList() throws Exception {
+        File missing = new File(folder.getRoot(), "no_existe.json");
+        assertEquals(TaskListManifest.DEFAULT_ID, TaskListManifest.load(missing, "Mis tareas").getCurrent().getId());
+
+        File damaged = folder.newFile();
+        TaskListManifest.write(damaged, "{\"lists\": [".getBytes("UTF-8"));
+        TaskListManifest manifest = TaskListManifest.load(damaged, "Mis tareas");
+        assertEquals(1, manifest.getEntries().size());
+        assertEquals("Mis tareas", manifest.getCurrent().getName());
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void listDirectory_cannotBeAPath() throws Exception {
+        TaskListManifest.read(new StringReader("{\"lists\": [{\"id\": \"../../databases\", \"name\": \"x\"}]}"), "Mis tareas");
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de las posiciones de las tareas por identificador.
+ */
+public class TaskPositionsTest {
+
+    @Test
+    public void randomInsertsAndRemovals_matchArrayList() {
+        Random random = new Random(11);
+        List<Long> expected = new ArrayList<>();
+        TaskPositions positions = new TaskPositions();
+        long nextId = 1;
+        for (int step = 0; step < 5000; step++) {
+            if (random.nextInt(3) != 0 || expected.isEmpty()) {
+                int position = random.nextInt(expected.size() + 1);
+                expected.add(position, nextId);
+                positions.insert(position, nextId++);
+            } else {
+                int position = random.nextInt(expected.size());
+                assertEquals((long) expected.remove(position), positions.remove(position));
+            }
+            if (step % 250 == 0) {
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(i, positions.position(expected.get(i)));
+                }
+            }
+        }
+        assertEquals(expected.size(), positions.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, positions.position(expected.get(i)));
+        }
+        assertEquals(-1, positions.position(nextId));
+    }
+
+    @Test
+    public void clear_forgetsEveryTask() {
+        TaskPositions positions = new TaskPositions();
+        positions.insert(0, 7);
+        positions.insert(0, 8);
+        assertEquals(1, positions.position(7));
+
+        positions.clear();
+        assertEquals(0, positions.size());
+        assertEquals(-1, positions.position(7));
+        positions.insert(0, 7);
+        assertEquals(0, positions.position(7));
+    }
+}
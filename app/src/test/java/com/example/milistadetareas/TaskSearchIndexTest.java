@@ -0,0 +1,66 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del índice de búsqueda de tareas.
+ */
+public class TaskSearchIndexTest {
+
+    @Test
+    public void search_ignoresAccentsAndCase() {
+        TaskSearchIndex index = new TaskSearchIndex();
+        Item song = new Item("Practicar la Canción", "");
+        index.put(song);
+
+        assertEquals(Collections.singleton(song.getId()), index.search("cancion"));
+        assertEquals(Collections.singleton(song.getId()), index.search("CANCIÓN"));
+    }
+
+    @Test
+    public void search_matchesPrefixesOfEveryWord() {
+        TaskSearchIndex index = new TaskSearchIndex();
+        Item bread = new Item("Comprar pan integral", "");
+        Item milk = new Item("Comprar leche", "");
+        index.put(bread);
+        index.put(milk);
+
+        Set<Long> both = new HashSet<>();
+        both.add(bread.getId());
+        both.add(milk.getId());
+        assertEquals(both, index.search("comp"));
+        assertEquals(Collections.singleton(bread.getId()), index.search("comp inte"));
+        assertTrue(index.search("comp arroz").isEmpty());
+        assertNull(index.search("  "));
+    }
+
+    @Test
+    public void updatesAndRemovals_areIncremental() {
+        TaskSearchIndex index = new TaskSearchIndex();
+        Item item = new Item("Lavar el coche", "");
+        index.put(item);
+        index.put(item.withTask("Lavar la ropa"));
+
+        assertTrue(index.search("coche").isEmpty());
+        assertEquals(Collections.singleton(item.getId()), index.search("ropa"));
+
+        index.remove(item.getId());
+        assertTrue(index.search("lavar").isEmpty());
+        assertEquals(0, index.termCount());
+    }
+
+    @Test
+    public void matches_agreesWithIndexWithoutBuildingIt() {
+        String[] query = TaskSearchIndex.tokenize("comp PAN");
+
+        assertTrue(TaskSearchIndex.matches("Comprar pan integral", query));
+        assertFalse(TaskSearchIndex.matches("Comprar leche", query));
+        assertTrue(TaskSearchIndex.matches("Cualquier cosa", TaskSearchIndex.tokenize("")));
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.milistadetareas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de las listas de tareas abiertas bajo demanda.
+ */
+public class TaskShardsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TaskShards shards(File manifestFile, TaskListManifest manifest) {
+        return new TaskShards(folder.getRoot(), manifestFile, manifest, 2,
+                directory -> new JournalTaskStore(directory, JournalTaskStore.DEFAULT_COMPACTION_THRESHOLD, 0));
+    }
+
+    /**
+     * Método para abrir una lista y esperar a que se entregue. La entrega se hace en el hilo de
+     * las listas, que hace de hilo principal mientras esta prueba espera.
+     */
+    private static TaskShards.Shard open(TaskShards shards, String id) throws Exception {
+        BlockingQueue<TaskShards.Shard> opened = new LinkedBlockingQueue<>();
+        shards.open(id, Runnable::run, opened::add);
+        TaskShards.Shard shard = opened.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Lista no entregada: " + id, shard);
+        return shard;
+    }
+
+    /**
+     * Método para reunir las tareas con foto de todas las listas y esperar al resultado.
+     */
+    private static List<List<Item>> photoSnapshots(TaskShards shards) throws Exception {
+        BlockingQueue<List<List<Item>>> collected = new LinkedBlockingQueue<>();
+        assertTrue(shards.collectPhotoSnapshots(collected::add));
+        List<List<Item>> snapshots = collected.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Fotos no reunidas", snapshots);
+        return snapshots;
+    }
+
+    /**
+     * Método para cargar una lista abierta y asociarla como lo hace la actividad.
+     */
+    private static List<Item> load(TaskShards.Shard shard) throws Exception {
+        final List<Item> items = new ArrayList<>(shard.load());
+        shard.attach(() -> items);
+        return items;
+    }
+
+    @Test
+    public void leastRecentlyUsedList_isClosedAndReadAgainOnDemand() throws Exception {
+        File manifestFile = new File(folder.getRoot(), "task_lists.json");
+        TaskShards shards = shards(manifestFile, new TaskListManifest("Mis tareas"));
+        String work = shards.create("Trabajo").getId();
+        String home = shards.create("Casa").getId();
+
+        TaskShards.Shard first = open(shards, TaskListManifest.DEFAULT_ID);
+        List<Item> items = load(first);
+        Item withPhoto = new Item("Con foto", "/fotos/a.webp");
+        items.add(withPhoto);
+        first.add(0, withPhoto);
+        items.add(new Item("Sin foto", ""));
+        first.add(1, items.get(1));
+        shards.leave(first, items);
+
+        TaskShards.Shard second = open(shards, work);
+        load(second);
+        shards.leave(second, second.getItems());
+        assertSame(first, open(shards, TaskListManifest.DEFAULT_ID)); // Sigue abierta
+        shards.leave(first, items);
+        open(shards, home); // Supera el máximo: se cierra la de trabajo, la usada hace más tiempo
+        assertTrue(shards.getStats().contains("abiertas=2 aperturas=3 aciertos=1 cierres=1"));
+
+        open(shards, work); // Se cierra la lista por defecto, ya cargada
+        // Las fotos de la lista por defecto, guardadas al cerrarla; las demás no tienen tareas
+        assertEquals(Arrays.asList(Arrays.asList(withPhoto)), photoSnapshots(shards));
+        TaskShards.Shard again = open(shards, TaskListManifest.DEFAULT_ID);
+        assertNotSame(first, again);
+        assertEquals(items, again.load()); // Leída del disco tras el cierre
+        shards.close();
+
+        TaskListManifest saved = TaskListManifest.load(manifestFile, "Mis tareas");
+        assertEquals(TaskListManifest.DEFAULT_ID, saved.getCurrent().getId());
+        assertEquals(2, saved.getCurrent().getCount());
+        assertEquals(3, saved.getEntries().size());
+    }
+
+    @Test
+    public void openingAnotherList_dropsThePendingOpen() throws Exception {
+        TaskShards shards = shards(new File(folder.getRoot(), "task_lists.json"), new TaskListManifest("Mis tareas"));
+        String work = shards.create("Trabajo").getId();
+        BlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+        List<TaskShards.Shard> opened = new ArrayList<>();
+
+        shards.open(work, mainThread::add, opened::add);
+        shards.open(TaskListManifest.DEFAULT_ID, mainThread::add, opened::add);
+        mainThread.take().run();
+        mainThread.take().run();
+
+        assertEquals(1, opened.size());
+        assertEquals(TaskListManifest.DEFAULT_ID, opened.get(0).getId());
+        assertTrue(shards.getStats().contains("abiertas=1 aperturas=1"));
+        shards.close();
+    }
+
+    @Test
+    public void photoSnapshots_readListsWithoutSavedPhotosInTheBackground() throws Exception {
+        Item withPhoto = new Item("Con foto", "/fotos/b.webp");
+        TaskListManifest manifest = new TaskListManifest("Mis tareas");
+        TaskListManifest.Entry unread = manifest.add("Con fotos", 0);
+        manifest.update(unread.withCounts(1, TaskListManifest.Entry.UNKNOWN, 0));
+        TaskListManifest.Entry empty = manifest.add("Sin fotos", 0);
+        manifest.update(empty.withCounts(5, 0, 0));
+        // Lista con fotos que no se cerró bien en una sesión anterior
+        JournalTaskStore store = new JournalTaskStore(new File(folder.getRoot(), unread.getId()),
+                JournalTaskStore.DEFAULT_COMPACTION_THRESHOLD, 0);
+        store.load();
+        store.add(0, withPhoto);
+        store.close();
+        TaskShards shards = shards(new File(folder.getRoot(), "task_lists.json"), manifest);
+
+        open(shards, unread.getId());
+        assertFalse(shards.collectPhotoSnapshots(snapshots -> fail())); // Aún se está cargando
+
+        List<Item> items = load(open(shards, TaskListManifest.DEFAULT_ID));
+        shards.leave(open(shards, TaskListManifest.DEFAULT_ID), items); // La otra se cierra sin cargar
+        open(shards, empty.getId());
+        List<List<Item>> expected = Arrays.asList(items, Arrays.asList(withPhoto));
+        assertEquals(expected, photoSnapshots(shards)); // La lista sin fotos no hace falta leerla
+        assertEquals(expected, photoSnapshots(shards));
+        assertTrue(shards.getStats().contains("lecturasFotos=1"));
+        assertTrue(new File(new File(folder.getRoot(), unread.getId()), TaskShards.PHOTOS_FILE).exists());
+        shards.close();
+    }
+
+    @Test
+    public void listsOpenAtExit_keepTheirPhotosForTheNextSession() throws Exception {
+        File manifestFile = new File(folder.getRoot(), "task_lists.json");
+        TaskShards shards = shards(manifestFile, new TaskListManifest("Mis tareas"));
+        String work = shards.create("Trabajo").getId();
+        TaskShards.Shard shard = open(shards, work);
+        List<Item> items = load(shard);
+        Item withPhoto = new Item("Con foto", "/fotos/c.webp");
+        items.add(withPhoto);
+        shard.add(0, withPhoto);
+        load(open(shards, TaskListManifest.DEFAULT_ID));
+        shards.close();
+
+        TaskListManifest manifest = TaskListManifest.load(manifestFile, "Mis tareas");
+        assertEquals(1, manifest.get(work).getPhotos());
+        shards = shards(manifestFile, manifest);
+        assertEquals(Arrays.asList(Arrays.asList(withPhoto)), photoSnapshots(shards)); // Sin abrir ninguna
+        assertTrue(shards.getStats().contains("lecturasFotos=0"));
+
+        open(shards, work);
+        shards.close();
+        assertFalse(new File(new File(folder.getRoot(), work), TaskShards.PHOTOS_FILE).exists()); // Ya no está al día
+    }
+}
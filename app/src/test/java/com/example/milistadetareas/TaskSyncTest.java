@@ -0,0 +1,309 @@
+package com.example.milistadetareas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de la sincronización de tareas contra el servidor en memoria.
+ */
+public class TaskSyncTest {
+    private static final String LIST = "tareas";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void twoClients_convergeSendingOnlyChangesAndPhotos() throws IOException {
+        LocalSyncServer server = new LocalSyncServer();
+        TaskSync first = client(server, "a");
+        TaskSync second = client(server, "b");
+        File photo = TaskArchiveTest.createPhoto(folder.getRoot(), "foto.jpg", 3 * TaskSync.IMAGE_CHUNK_SIZE / 2, 1);
+        List<Item> a = new ArrayList<>(Arrays.asList(
+                item(1, "Pan", photo.getPath(), 100),
+                item(2, "Leche", "", 100)));
+
+        a = sync(first, a, 1000);
+        List<Item> b = sync(second, new ArrayList<>(), 1000);
+
+        assertEquals(2, b.size());
+        Item received = byId(b, 1);
+        assertEquals("Pan", received.getTask());
+        assertEquals(100, received.getUpdated());
+        assertArrayEquals(Files.readAllBytes(photo.toPath()),
+                Files.readAllBytes(new File(received.getImagePath()).toPath()));
+
+        b = new ArrayList<>(b);
+        b.set(b.indexOf(byId(b, 2)), byId(b, 2).withTask("Leche entera").withDone(true).withUpdated(200));
+        b.add(item(3, "Huevos", "", 200));
+        a = new ArrayList<>(a);
+        a.remove(byId(a, 1));
+
+        b = sync(second, b, 2000);
+        a = sync(first, a, 2000);
+        b = sync(second, b, 2000);
+
+        assertEquals(contents(a), contents(b));
+        assertEquals(Arrays.asList("2 Leche entera true", "3 Huevos false"), contents(a));
+        assertEquals(contents(a), contents(server.getItems(LIST)));
+
+        TaskSync.Result idle = first.sync(a, 3000);
+        assertNull(idle.getFailure());
+        assertEquals(0, idle.getSent());
+        assertEquals(0, idle.getReceived());
+        assertTrue(first.getStats().contains("fotos_subidas=1"));
+        assertTrue(second.getStats().contains("fotos_descargadas=1"));
+    }
+
+    @Test
+    public void conflicts_resolveTheSameWayOnEveryClient() throws IOException {
+        LocalSyncServer server = new LocalSyncServer();
+        TaskSync first = client(server, "a");
+        TaskSync second = client(server, "b");
+        List<Item> a = sync(first, Arrays.asList(item(1, "Pan", "", 100), item(2, "Sal", "", 100)), 1000);
+        List<Item> b = sync(second, new ArrayList<>(), 1000);
+
+        // La modificación más reciente gana aunque llegue antes al servidor la otra; a igual
+        // momento gana el contenido mayor
+        a = Arrays.asList(byId(a, 1).withTask("Pan integral").withUpdated(300), byId(a, 2).withTask("Alfa").withUpdated(400));
+        b = Arrays.asList(byId(b, 1).withTask("Pan de molde").withUpdated(200), byId(b, 2).withTask("Zeta").withUpdated(400));
+
+        TaskSync.Result conflicting = second.sync(b, 2000);
+        b = conflicting.toBatch(b).getItems();
+        second.commit(conflicting);
+        a = sync(first, a, 2000);
+        b = sync(second, b, 2000);
+
+        assertEquals(Arrays.asList("1 Pan integral false", "2 Zeta false"), contents(a));
+        assertEquals(contents(a), contents(b));
+        assertEquals(contents(a), contents(server.getItems(LIST)));
+    }
+
+    @Test
+    public void rejectedPush_appliesTheServerChangeAlreadyReceived() throws IOException {
+        LocalSyncServer server = new LocalSyncServer();
+        TaskSync first = client(server, "a");
+        TaskSync second = client(server, "b");
+        List<Item> a = sync(first, Arrays.asList(item(1, "Pan", "", 100), item(2, "Sal", "", 100)), 1000);
+        List<Item> b = sync(second, new ArrayList<>(), 1000);
+        b = sync(second, Arrays.asList(byId(b, 1).withTask("Edición de B").withUpdated(2000), byId(b, 2)), 2000);
+        a = sync(first, a, 2000);
+        assertEquals("Edición de B", byId(a, 1).getTask());
+
+        // El reloj de A va por detrás: su edición posterior tiene una fecha anterior y el
+        // servidor la rechaza en favor de la que A ya había recibido
+        a = Arrays.asList(byId(a, 1).withTask("Edición de A").withUpdated(1500), byId(a, 2));
+        TaskSync.Result rejected = first.sync(a, 3000);
+        assertNull(rejected.getFailure());
+        assertEquals(0, rejected.getSent());
+        a = rejected.toBatch(a).getItems();
+        first.commit(rejected);
+
+        assertEquals(contents(server.getItems(LIST)), contents(a));
+        assertEquals("Edición de B", byId(a, 1).getTask());
+        TaskSync.Result idle = first.sync(a, 4000);
+        assertEquals(0, idle.getSent());
+        assertEquals(0, idle.getReceived());
+    }
+
+    @Test
+    public void tasksCreatedAfterAPull_keepDistinctIdsOnEachClient() throws IOException {
+        LocalSyncServer server = new LocalSyncServer();
+        TaskSync first = client(server, "a");
+        TaskSync second = client(server, "b");
+        try {
+            Item.setDevicePrefix(Item.MIN_PREFIX + 1);
+            List<Item> a = sync(first, Collections.singletonList(new Item("Pan", "")), 1000);
+            a = new ArrayList<>(a);
+            a.add(new Item("Leche", "")); // Siguiente tarea de A
+
+            // B recibe la tarea de A, lo que reserva su identificador, y crea otra
+            Item.setDevicePrefix(Item.MIN_PREFIX);
+            List<Item> b = new ArrayList<>(sync(second, new ArrayList<>(), 1000));
+            b.add(new Item("Huevos", ""));
+            assertNotEquals(a.get(1).getId(), b.get(1).getId());
+
+            a = sync(first, a, 2000);
+            b = sync(second, b, 2000);
+            a = sync(first, a, 2000);
+
+            assertEquals(3, a.size());
+            assertEquals(contents(a), contents(b));
+            assertEquals(contents(a), contents(server.getItems(LIST)));
+        } finally {
+            Item.setDevicePrefix(Item.randomPrefix());
+        }
+    }
+
+    @Test
+    public void winsOver_prefersLaterChangesThenRemovalsAndIgnoresRepeats() {
+        TaskSync.Change edit = new TaskSync.Change(item(1, "Pan", "", 100), 0);
+        TaskSync.Change later = new TaskSync.Change(item(1, "Pan", "", 101), 0);
+        TaskSync.Change removal = new TaskSync.Change(1, 100, 0);
+
+        assertTrue(later.winsOver(edit));
+        assertFalse(edit.winsOver(later));
+        assertTrue(removal.winsOver(edit));
+        assertFalse(edit.winsOver(removal));
+        assertFalse(edit.winsOver(new TaskSync.Change(item(1, "Pan", "", 100), 7)));
+    }
+
+    @Test
+    public void interruptedSync_resumesWithoutResendingPhotosOrDuplicatingTasks() throws IOException {
+        FlakyTransport transport = new FlakyTransport(new LocalSyncServer());
+        TaskSync client = client(transport, "a");
+        File photo = TaskArchiveTest.createPhoto(folder.getRoot(), "foto.jpg", 4 * TaskSync.IMAGE_CHUNK_SIZE + 10, 2);
+        File copy = new File(folder.getRoot(), "copia.jpg");
+        Files.copy(photo.toPath(), copy.toPath());
+        List<Item> items = new ArrayList<>();
+        items.add(item(1, "Con foto", photo.getPath(), 100));
+        items.add(item(2, "Misma foto", copy.getPath(), 100));
+        for (int i = 3; i <= 2 * TaskSync.BATCH_SIZE + 3; i++) {
+            items.add(item(i, "Tarea " + i, "", 100));
+        }
+
+        transport.failAfter = 3; // Se corta a mitad de la foto
+        TaskSync.Result cut = client.sync(items, 1000);
+        assertNotNull(cut.getFailure());
+        client.commit(cut);
+        transport.failAfter = 2 + 4 + 1; // Termina la foto y se corta tras el primer lote
+        cut = client.sync(items, 1000);
+        assertNotNull(cut.getFailure());
+        client.commit(cut);
+        transport.failAfter = Integer.MAX_VALUE;
+        List<Item> synced = sync(client, items, 1000);
+
+        assertEquals(items, synced);
+        assertEquals(contents(items), contents(transport.server.getItems(LIST)));
+        assertEquals(photo.length(), transport.imageBytes);
+        assertTrue(transport.server.getStats().contains("aceptados=" + items.size()));
+        assertTrue(client.getStats().contains("fotos_repetidas=1"));
+    }
+
+    @Test
+    public void encodeChanges_roundTripsEditsAndRemovals() throws IOException {
+        List<TaskSync.Change> changes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            changes.add(new TaskSync.Change(new Item(i, "Tarea " + i, TaskSync.IMAGE_PREFIX + hash(i),
+                    100 + i, 200 + i, i % 2 == 0, i % 3), i + 1));
+        }
+        changes.add(new TaskSync.Change(1000, 500, 301));
+
+        byte[] encoded = TaskSync.encodeChanges(changes);
+        List<TaskSync.Change> decoded = TaskSync.decodeChanges(encoded);
+
+        assertEquals(changes.size(), decoded.size());
+        for (int i = 0; i < changes.size(); i++) {
+            assertEquals(changes.get(i).id, decoded.get(i).id);
+            assertEquals(changes.get(i).item, decoded.get(i).item);
+            assertEquals(changes.get(i).time, decoded.get(i).time);
+            assertEquals(changes.get(i).version, decoded.get(i).version);
+        }
+        assertTrue("Lote comprimido de " + encoded.length + " bytes", encoded.length < changes.size() * 16);
+    }
+
+    private TaskSync client(SyncTransport transport, String name) throws IOException {
+        return new TaskSync(transport, LIST, new File(folder.getRoot(), name + ".sync"), folder.newFolder(name));
+    }
+
+    private static List<Item> sync(TaskSync client, List<Item> items, long now) throws IOException {
+        TaskSync.Result result = client.sync(items, now);
+        assertNull(result.getFailure());
+        List<Item> next = result.toBatch(items).getItems();
+        client.commit(result);
+        return next;
+    }
+
+    private static Item item(long id, String task, String path, long updated) {
+        return new Item(id, task, path, 50, updated, false, Item.PRIORITY_NORMAL);
+    }
+
+    private static Item byId(List<Item> items, long id) {
+        for (Item item : items) {
+            if (item.getId() == id) {
+                return item;
+            }
+        }
+        throw new AssertionError("Sin tarea " + id);
+    }
+
+    private static List<String> contents(List<Item> items) {
+        List<Item> sorted = new ArrayList<>(items);
+        Collections.sort(sorted, Comparator.comparingLong(Item::getId));
+        List<String> contents = new ArrayList<>();
+        for (Item item : sorted) {
+            contents.add(item.getId() + " " + item.getTask() + " " + item.isDone());
+        }
+        return contents;
+    }
+
+    private static String hash(int seed) {
+        StringBuilder hash = new StringBuilder();
+        while (hash.length() < 64) {
+            hash.append(Integer.toHexString(seed % 16));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Transporte que corta la conexión tras un número de llamadas y cuenta lo que llega al
+     * servidor.
+     */
+    private static final class FlakyTransport implements SyncTransport {
+        final LocalSyncServer server;
+        int failAfter = Integer.MAX_VALUE;      // Llamadas que se permiten antes de cortar
+        long imageBytes;                        // Bytes de fotos aceptados por el servidor
+
+        FlakyTransport(LocalSyncServer server) {
+            this.server = server;
+        }
+
+        private void call() throws IOException {
+            if (failAfter-- <= 0) {
+                throw new IOException("Conexión cortada");
+            }
+        }
+
+        @Override
+        public PullResult pull(String list, String clientId, long since, int limit) throws IOException {
+            call();
+            return server.pull(list, clientId, since, limit);
+        }
+
+        @Override
+        public byte[] push(String list, String clientId, byte[] batch) throws IOException {
+            call();
+            return server.push(list, clientId, batch);
+        }
+
+        @Override
+        public long getImageOffset(String hash) throws IOException {
+            call();
+            return server.getImageOffset(hash);
+        }
+
+        @Override
+        public void uploadImage(String hash, long offset, byte[] data, int length, boolean last) throws IOException {
+            call();
+            server.uploadImage(hash, offset, data, length, last);
+            imageBytes += length;
+        }
+
+        @Override
+        public byte[] downloadImage(String hash, long offset, int maxLength) throws IOException {
+            call();
+            return server.downloadImage(hash, offset, maxLength);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del vector persistente de tareas.
+ */
+public class TaskVectorTest {
+
+    @Test
+    public void randomMutations_matchArrayListAndKeepOldVersions() {
+        Random random = new Random(42);
+        List<Item> expected = new ArrayList<>();
+        TaskVector vector = TaskVector.empty();
+        List<TaskVector> versions = new ArrayList<>();
+        List<List<Item>> expectedVersions = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            int op = random.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                int position = random.nextInt(expected.size() + 1);
+                List<Item> items = new ArrayList<>();
+                for (int i = random.nextInt(4) == 0 ? random.nextInt(20) : 1; i > 0; i--) {
+                    items.add(new Item("Tarea " + step + "." + i, ""));
+                }
+                expected.addAll(position, items);
+                vector = vector.inserted(position, items);
+            } else if (op < 8) {
+                int position = random.nextInt(expected.size());
+                expected.remove(position);
+                vector = vector.removed(position);
+            } else {
+                int position = random.nextInt(expected.size());
+                Item item = expected.get(position).withTask("Cambiada " + step);
+                expected.set(position, item);
+                vector = vector.replaced(position, item);
+            }
+            if (step % 100 == 0) {
+                versions.add(vector);
+                expectedVersions.add(new ArrayList<>(expected));
+            }
+        }
+
+        assertEquals(expected, vector);
+        assertEquals(expected, new ArrayList<>(vector)); // Iterador
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(expectedVersions.get(i), versions.get(i));
+        }
+        // Altura de un árbol AVL: como mucho 1,44 log2(n + 2)
+        assertTrue(vector.height() <= 1.45 * Math.log(vector.size() + 2) / Math.log(2));
+    }
+
+    @Test
+    public void commonRuns_skipSharedSubtrees() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            items.add(new Item("Tarea " + i, ""));
+        }
+        TaskVector before = TaskVector.of(items);
+        TaskVector after = before.removed(70_000);
+
+        int prefix = TaskVector.commonPrefix(before, after);
+        assertEquals(70_000, prefix);
+        assertEquals(29_999, TaskVector.commonSuffix(before, after, after.size() - prefix));
+        assertEquals(0, TaskVector.commonPrefix(before, TaskVector.of(Collections.singletonList(new Item("Otra", "")))));
+    }
+
+    @Test
+    public void compactRanges_areSplitByMutationsAndSkippedWhenShared() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            items.add(new Item("Tarea " + i, i % 2 == 0 ? "/fotos/" + i + ".jpg" : ""));
+        }
+        CompactTaskList compact = CompactTaskList.of(items);
+        TaskVector base = TaskVector.of(compact);
+        assertTrue(base.getStats().contains("nodos=1 tramos=1"));
+
+        Random random = new Random(7);
+        List<Item> expected = new ArrayList<>(items);
+        TaskVector vector = base;
+        for (int step = 0; step < 500; step++) {
+            int position = random.nextInt(expected.size());
+            int op = random.nextInt(3);
+            if (op == 0) {
+                Item item = new Item("Nueva " + step, "");
+                expected.add(position, item);
+                vector = vector.inserted(position, Collections.singletonList(item));
+            } else if (op == 1) {
+                expected.remove(position);
+                vector = vector.removed(position);
+            } else {
+                Item item = expected.get(position).withTask("Cambiada " + step);
+                expected.set(position, item);
+                vector = vector.replaced(position, item);
+            }
+        }
+        assertEquals(expected, vector);
+        assertEquals(expected, new ArrayList<>(vector));
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertEquals(expected.get(i).getId(), vector.getId(i));
+        }
+        assertEquals(items, base);
+
+        // Dos versiones que parten el mismo tramo en sitios distintos
+        TaskVector a = base.removed(3_000);
+        TaskVector b = base.inserted(6_000, CompactTaskList.of(Collections.singletonList(new Item("Otra", ""))));
+        int prefix = TaskVector.commonPrefix(a, b);
+        assertEquals(3_000, prefix);
+        assertEquals(4_000, TaskVector.commonSuffix(a, b, a.size() - prefix));
+    }
+
+    @Test
+    public void of_returnsSameVectorAndEmptyInsertIsNoop() {
+        TaskVector vector = TaskVector.of(Arrays.asList(new Item("A", ""), new Item("B", "")));
+        assertSame(vector, TaskVector.of(vector));
+        assertSame(vector, vector.inserted(1, Collections.<Item>emptyList()));
+        assertSame(TaskVector.empty(), TaskVector.of(Collections.<Item>emptyList()));
+    }
+}
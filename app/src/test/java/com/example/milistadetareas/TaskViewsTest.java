@@ -0,0 +1,178 @@
+package com.example.milistadetareas;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de las vistas ordenadas y filtradas.
+ */
+public class TaskViewsTest {
+
+    @Test
+    public void changes_turnShownViewIntoNextView() throws InterruptedException {
+        Random random = new Random(5);
+        List<Item> initial = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            initial.add(TaskIndexTest.randomItem(random, i));
+        }
+        List<Item> items = TaskVector.of(initial);
+        TaskViews views = new TaskViews(items);
+        TaskIndex.Order[] orders = TaskIndex.Order.values();
+        TaskIndex.Filter[] filters = TaskIndex.Filter.values();
+        BlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+
+        for (int step = 0; step < 1500; step++) {
+            if (step % 100 == 0) {
+                setView(views, orders[random.nextInt(orders.length)], filters[random.nextInt(filters.length)], mainThread);
+            }
+            List<Item> shown = new ArrayList<>(views.getView());
+            TaskViews.Changes changes;
+            int op = random.nextInt(4);
+            if (op == 0 || items.isEmpty()) {
+                int position = random.nextInt(items.size() + 1);
+                List<Item> inserted = Collections.singletonList(TaskIndexTest.randomItem(random, 1000 + step));
+                items = PagedTaskList.withInserted(items, position, inserted);
+                changes = views.inserted(items, position, inserted);
+            } else if (op == 1) {
+                int position = random.nextInt(items.size());
+                Item previous = items.get(position);
+                items = PagedTaskList.withRemoved(items, position);
+                changes = views.removed(items, position, previous);
+            } else if (op == 2) {
+                int position = random.nextInt(items.size());
+                Item previous = items.get(position);
+                Item item = previous.withDone(random.nextBoolean()).withPriority(random.nextInt(3))
+                        .withUpdated(random.nextInt(100));
+                items = PagedTaskList.withReplaced(items, position, item);
+                changes = views.replaced(items, position, previous, item);
+            } else {
+                TaskBatch.Builder builder = new TaskBatch.Builder(items);
+                for (int i = 0; i < 5 && !items.isEmpty(); i++) {
+                    Item item = items.get(random.nextInt(items.size()));
+                    if (random.nextBoolean()) {
+                        builder.remove(item.getId());
+                    } else {
+                        builder.update(item.withDone(!item.isDone()));
+                    }
+                }
+                builder.append(TaskIndexTest.randomItem(random, 5000 + step));
+                TaskBatch batch = builder.build();
+                items = batch.getItems();
+                changes = views.applied(batch);
+            }
+
+            List<Item> expected = TaskIndexTest.sortedAndFiltered(items, views.getOrder(), views.getFilter());
+            assertEquals(expected, views.getView());
+            if (views.isIdentity()) {
+                assertNull(changes);
+            } else {
+                replay(changes, shown, views.getView());
+                assertEquals(expected, shown);
+            }
+        }
+    }
+
+    @Test
+    public void changesWhileIndexing_buildTheIndexOnTheCurrentList() throws InterruptedException {
+        Random random = new Random(7);
+        List<Item> initial = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            initial.add(TaskIndexTest.randomItem(random, i));
+        }
+        List<Item> items = TaskVector.of(initial);
+        TaskViews views = new TaskViews(items);
+        BlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+        boolean[] shown = new boolean[1];
+
+        assertTrue(views.setView(TaskIndex.Order.PRIORITY, TaskIndex.Filter.PENDING, mainThread::add,
+                () -> shown[0] = true));
+        assertTrue(views.isIdentity()); // Se sigue mostrando la vista anterior
+        assertTrue(views.isIndexed());
+        List<Item> inserted = Collections.singletonList(TaskIndexTest.randomItem(random, 100));
+        items = PagedTaskList.withInserted(items, 0, inserted);
+        assertNull(views.inserted(items, 0, inserted));
+
+        while (!shown[0]) {
+            Runnable task = mainThread.poll(5, TimeUnit.SECONDS);
+            assertNotNull("La vista no se mostró", task);
+            task.run();
+        }
+        assertEquals(TaskIndexTest.sortedAndFiltered(items, TaskIndex.Order.PRIORITY, TaskIndex.Filter.PENDING),
+                views.getView());
+        assertTrue(views.getStats().contains("creados=1"));
+    }
+
+    @Test
+    public void reset_dropsIndexesAndReturnsToManualOrder() throws InterruptedException {
+        TaskViews views = new TaskViews(TaskVector.empty());
+        BlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+        setView(views, TaskIndex.Order.CREATED, TaskIndex.Filter.DONE, mainThread);
+        assertTrue(views.isIndexed());
+        views.reset(TaskVector.empty());
+        assertTrue(views.isIdentity());
+        assertFalse(views.isIndexed());
+
+        // Un índice que termina después de volver al orden manual no cambia la vista
+        assertTrue(views.setView(TaskIndex.Order.PRIORITY, TaskIndex.Filter.ALL, mainThread::add, () -> fail()));
+        views.reset(TaskVector.empty());
+        mainThread.poll(5, TimeUnit.SECONDS).run();
+        assertTrue(views.isIdentity());
+        assertFalse(views.isIndexed());
+    }
+
+    /**
+     * Método que aplica los cambios a una copia de la vista anterior como lo haría el adaptador,
+     * tomando el contenido de las filas insertadas o cambiadas de la vista nueva.
+     */
+    private static void replay(TaskViews.Changes changes, final List<Item> shown, final List<Item> next) {
+        changes.replay(new TaskViews.Listener() {
+            @Override
+            public void onInserted(int position) {
+                shown.add(position, null);
+            }
+
+            @Override
+            public void onRemoved(int position) {
+                shown.remove(position);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                shown.add(toPosition, shown.remove(fromPosition));
+            }
+
+            @Override
+            public void onChanged(int position) {
+                shown.set(position, null);
+            }
+        });
+        for (int i = 0; i < shown.size(); i++) {
+            if (shown.get(i) == null) {
+                shown.set(i, next.get(i)); // Filas que el adaptador vuelve a enlazar
+            }
+        }
+    }
+
+    /**
+     * Método que cambia de vista y ejecuta las tareas del hilo principal hasta que se muestra.
+     */
+    private static void setView(TaskViews views, TaskIndex.Order order, TaskIndex.Filter filter,
+                                BlockingQueue<Runnable> mainThread) throws InterruptedException {
+        boolean[] shown = new boolean[1];
+        assertTrue(views.setView(order, filter, mainThread::add, () -> shown[0] = true));
+        while (!shown[0]) {
+            Runnable task = mainThread.poll(5, TimeUnit.SECONDS);
+            assertNotNull("La vista no se mostró", task);
+            task.run();
+        }
+    }
+}
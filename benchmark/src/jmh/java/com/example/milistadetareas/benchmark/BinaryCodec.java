@@ -0,0 +1,23 @@
+package com.example.milistadetareas.benchmark;
+
+import com.example.milistadetareas.BinaryTaskCodec;
+import com.example.milistadetareas.Item;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Formato binario de la app, con diccionario de directorios de imagen.
+ */
+public class BinaryCodec implements TaskListCodec {
+
+    @Override
+    public byte[] encode(List<Item> items) {
+        return BinaryTaskCodec.encode(items);
+    }
+
+    @Override
+    public List<Item> decode(byte[] data) throws IOException {
+        return BinaryTaskCodec.decode(data);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.milistadetareas.benchmark;
+
+/**
+ * Registro de los formatos disponibles para los parámetros {@code codec} de los benchmarks.
+ * Para comparar un formato nuevo basta con agregarlo aquí y a la lista del {@code @Param}.
+ */
+public final class Codecs {
+    public static final String GSON = "gson";
+    public static final String BINARY = "binary";
+
+    private Codecs() {
+    }
+
+    /**
+     * Método para crear el formato con el nombre indicado.
+     *
+     * @param name Nombre del formato
+     * @return Instancia del formato
+     */
+    public static TaskListCodec create(String name) {
+        switch (name) {
+            case GSON:
+                return new GsonCodec();
+            case BINARY:
+                return new BinaryCodec();
+            default:
+                throw new IllegalArgumentException("Formato desconocido: " + name);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.milistadetareas.benchmark;
+
+import com.example.milistadetareas.CompactTaskList;
+import com.example.milistadetareas.Item;
+import com.example.milistadetareas.TaskVector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memoria retenida y recorrido de la lista de tareas en memoria según su representación.
+ * <p>
+ * Al preparar cada combinación se imprime la memoria retenida por tarea, medida como la diferencia
+ * del heap usado tras recolectar antes y después de crear la lista; el benchmark mide el recorrido
+ * secuencial por posición, que en las representaciones compactas decodifica cada tarea.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FootprintBenchmark {
+    public static final String ARRAY_LIST = "arrayList";   // Un objeto Item por tarea
+    public static final String COMPACT = "compact";        // Columnas de CompactTaskList
+    public static final String VECTOR = "vector";          // TaskVector sobre un tramo compacto, tras editarlo
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param({TaskFixtures.SHORT, TaskFixtures.LONG})
+    public String shape;
+
+    @Param({ARRAY_LIST, COMPACT, VECTOR})
+    public String representation;
+
+    private List<Item> items;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Item> source = TaskFixtures.generate(size, shape);
+        long before = usedHeap();
+        items = create(source);
+        long retained = usedHeap() - before; // source sigue viva: no se descuenta
+        System.out.println("[" + representation + "/" + shape + "/" + size + "] bytesPorTarea="
+                + retained / source.size());
+    }
+
+    @Benchmark
+    public long scan() {
+        long sum = 0;
+        for (int i = 0, n = items.size(); i < n; i++) {
+            sum += items.get(i).getTask().length();
+        }
+        return sum;
+    }
+
+    /**
+     * Método para crear la representación medida. Las tareas de ArrayList copian sus cadenas para
+     * no compartirlas con las de origen.
+     */
+    private List<Item> create(List<Item> source) {
+        if (ARRAY_LIST.equals(representation)) {
+            List<Item> list = new ArrayList<>(source.size());
+            for (Item item : source) {
+                list.add(new Item(copy(item.getTask()), copy(item.getImagePath())));
+            }
+            return list;
+        }
+        CompactTaskList compact = CompactTaskList.of(source);
+        return COMPACT.equals(representation) ? compact : edited(TaskVector.of(compact));
+    }
+
+    /**
+     * Método para sustituir una tarea de cada mil, partiendo el tramo como lo haría la app al editar.
+     */
+    private static TaskVector edited(TaskVector vector) {
+        for (int i = 0; i < vector.size(); i += 1000) {
+            vector = vector.replaced(i, vector.get(i).withTask("Editada " + i));
+        }
+        return vector;
+    }
+
+    private static String copy(String text) {
+        return new String(text.toCharArray()); // new String(text) compartiría el array de text
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
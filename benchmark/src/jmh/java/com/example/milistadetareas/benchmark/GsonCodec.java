@@ -0,0 +1,30 @@
+package com.example.milistadetareas.benchmark;
+
+import com.example.milistadetareas.Item;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato de referencia: el JSON de Gson con TypeToken&lt;ArrayList&lt;Item&gt;&gt; que usaban
+ * saveTasks()/loadTasks() sobre SharedPreferences, incluida la conversión a cadena.
+ */
+public class GsonCodec implements TaskListCodec {
+    private static final Type TYPE = new TypeToken<ArrayList<Item>>() {}.getType();
+
+    private final Gson gson = new Gson();
+
+    @Override
+    public byte[] encode(List<Item> items) {
+        return gson.toJson(items).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<Item> decode(byte[] data) {
+        return gson.fromJson(new String(data, StandardCharsets.UTF_8), TYPE);
+    }
+}
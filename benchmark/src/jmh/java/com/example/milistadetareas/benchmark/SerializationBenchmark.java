@@ -0,0 +1,62 @@
+package com.example.milistadetareas.benchmark;
+
+import com.example.milistadetareas.Item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización y deserialización de la lista completa de tareas.
+ * <p>
+ * Mide el rendimiento (operaciones por segundo) y la distribución de latencias (percentiles de
+ * SampleTime); con el perfilador {@code gc} configurado en build.gradle se obtiene además la
+ * asignación por operación. El tamaño serializado se imprime al preparar cada combinación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializationBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({TaskFixtures.SHORT, TaskFixtures.LONG})
+    public String shape;
+
+    @Param({Codecs.GSON, Codecs.BINARY})
+    public String codec;
+
+    private TaskListCodec taskListCodec;
+    private List<Item> items;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        taskListCodec = Codecs.create(codec);
+        items = TaskFixtures.generate(size, shape);
+        encoded = taskListCodec.encode(items);
+        System.out.println("[" + codec + "/" + shape + "/" + size + "] bytes=" + encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return taskListCodec.encode(items);
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) throws IOException {
+        blackhole.consume(taskListCodec.decode(encoded));
+    }
+}
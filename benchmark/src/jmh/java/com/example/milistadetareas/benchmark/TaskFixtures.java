@@ -0,0 +1,60 @@
+package com.example.milistadetareas.benchmark;
+
+import com.example.milistadetareas.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generador de listas de tareas deterministas para los benchmarks.
+ */
+public final class TaskFixtures {
+    public static final String SHORT = "short";     // Descripciones cortas y sin fotos
+    public static final String LONG = "long";       // Descripciones largas y foto en la mitad de las tareas
+
+    // Directorio devuelto por getExternalFilesDir(DIRECTORY_PICTURES) en un dispositivo típico
+    public static final String PICTURES_DIR =
+            "/storage/emulated/0/Android/data/com.example.milistadetareas/files/Pictures/";
+
+    private static final String[] WORDS = {
+            "comprar", "pan", "leche", "llamar", "médico", "revisar", "correo", "reunión", "canción",
+            "lavar", "ropa", "pagar", "factura", "niño", "escuela", "jardín", "regar", "plantas"
+    };
+
+    private TaskFixtures() {
+    }
+
+    /**
+     * Método para generar una lista de tareas.
+     *
+     * @param size  Número de tareas
+     * @param shape {@link #SHORT} o {@link #LONG}
+     * @return Lista generada, siempre igual para los mismos parámetros
+     */
+    public static List<Item> generate(int size, String shape) {
+        Random random = new Random(42);
+        boolean isLong = LONG.equals(shape);
+        List<Item> items = new ArrayList<>(size);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            text.setLength(0);
+            int words = isLong ? 25 + random.nextInt(15) : 2 + random.nextInt(3);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    text.append(' ');
+                }
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            String imagePath = "";
+            if (isLong && (i & 1) == 0) {
+                // Mismo patrón que createImageFile(): JPEG_yyyyMMdd_HHmmss_ + sufijo de createTempFile
+                imagePath = String.format("%sJPEG_2024%02d%02d_%02d%02d%02d_%d.jpg", PICTURES_DIR,
+                        1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24),
+                        random.nextInt(60), random.nextInt(60), Math.abs(random.nextLong()) % 10_000_000_000L);
+            }
+            items.add(new Item(i + 1, text.toString(), imagePath));
+        }
+        return items;
+    }
+}
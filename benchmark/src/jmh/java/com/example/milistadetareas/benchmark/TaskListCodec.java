@@ -0,0 +1,30 @@
+package com.example.milistadetareas.benchmark;
+
+import com.example.milistadetareas.Item;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Formato de serialización de una lista de tareas comparado en los benchmarks.
+ */
+public interface TaskListCodec {
+
+    /**
+     * Método para serializar la lista completa.
+     *
+     * @param items Lista de tareas
+     * @return Bytes serializados
+     * @throws IOException Si ocurre un error de escritura
+     */
+    byte[] encode(List<Item> items) throws IOException;
+
+    /**
+     * Método para reconstruir la lista a partir de sus bytes.
+     *
+     * @param data Bytes serializados
+     * @return Lista de tareas
+     * @throws IOException Si los datos no son válidos
+     */
+    List<Item> decode(byte[] data) throws IOException;
+}